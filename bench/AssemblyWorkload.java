@@ -0,0 +1,36 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Lavoro di {@link benchmarks.AssemblyBenchmark}
+ */
+public class AssemblyWorkload implements benchmarks.AssemblyBenchmark.Workload {
+
+    private int entries;
+    private DirectAssemblyEngine engine;
+    private List<String> snapshot;
+
+    @Override
+    public void setup(int entries, int size) {
+        this.entries = entries;
+        InMemoryEntrySource source = new InMemoryEntrySource();
+        for (String entry : BenchData.entries(entries, size)) {
+            source.push(entry);
+        }
+        engine = new DirectAssemblyEngine(source, null);
+        snapshot = source.readEntries(entries);
+    }
+
+    @Override
+    public Object join() {
+        return engine.assemble(snapshot, true);
+    }
+
+    @Override
+    public Object stream() throws IOException {
+        ChannelOutputSink sink = new ChannelOutputSink(new BenchData.NullChannel());
+        engine.write(entries, true, new PlainTextEncoder(), sink);
+        sink.close();
+        return sink.getBytesWritten();
+    }
+}
@@ -0,0 +1,51 @@
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dati comuni ai benchmark: elementi casuali riproducibili e un canale che scarta tutto
+ */
+final class BenchData {
+
+    private BenchData() {
+    }
+
+    /**
+     * Elementi di lettere minuscole casuali, sempre gli stessi a parità di argomenti
+     */
+    static List<String> entries(int count, int size) {
+        Random random = new Random(42);
+        List<String> entries = new ArrayList<>(count);
+        char[] chars = new char[size];
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < size; c++) {
+                chars[c] = (char) ('a' + random.nextInt(26));
+            }
+            entries.add(new String(chars));
+        }
+        return entries;
+    }
+
+    /**
+     * Canale che scarta tutto, come /dev/null
+     */
+    static final class NullChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
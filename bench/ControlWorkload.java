@@ -0,0 +1,48 @@
+import java.awt.datatransfer.Clipboard;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lavoro di {@link benchmarks.ControlBenchmark}
+ */
+public class ControlWorkload implements benchmarks.ControlBenchmark.Workload {
+
+    private ControlServer server;
+    private ControlClient client;
+    private final List<String> batch = new ArrayList<>();
+
+    @Override
+    public void setup() throws IOException {
+        InMemoryEntrySource source = new InMemoryEntrySource();
+        for (String entry : BenchData.entries(20, 1024)) {
+            source.push(entry);
+        }
+        server = new ControlServer(source, null, new Clipboard("bench"));
+        client = new ControlClient(server.start(0), server.getToken());
+        for (int i = 0; i < 16; i++) {
+            batch.add("ASSEMBLE n=4");
+        }
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        client.close();
+        server.stop();
+    }
+
+    @Override
+    public Object ping() throws IOException {
+        return client.send("PING");
+    }
+
+    @Override
+    public Object assemble() throws IOException {
+        return client.send("ASSEMBLE n=4");
+    }
+
+    @Override
+    public Object pipelined() throws IOException {
+        return client.sendAll(batch);
+    }
+}
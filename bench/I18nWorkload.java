@@ -0,0 +1,17 @@
+/**
+ * Lavoro di {@link benchmarks.I18nBenchmark}
+ */
+public class I18nWorkload implements benchmarks.I18nBenchmark.Workload {
+
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    @Override
+    public String getText(String key) {
+        return i18n.getText(key);
+    }
+
+    @Override
+    public String getText(String key, String... params) {
+        return i18n.getText(key, params);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Lavoro di {@link benchmarks.KeystrokeBenchmark}
+ */
+public class KeystrokeWorkload implements benchmarks.KeystrokeBenchmark.Workload {
+
+    private int entries;
+    private KeystrokePlanner planner;
+    private KeystrokeCompiler compiler;
+    private KeystrokeExecutor executor;
+    private KeystrokePlan plan;
+    private KeystrokeProgram program;
+
+    @Override
+    public void setup(int entries) {
+        this.entries = entries;
+        planner = new KeystrokePlanner(new KeystrokeCostModel(KeystrokeCompiler.DEFAULT_EVENT_GAP_MILLIS));
+        compiler = new KeystrokeCompiler(planner.getTextInjector());
+        executor = new KeystrokeExecutor(new NoOpKeyEmitter(), step -> () -> true);
+        plan = planner.plan(entries, KeystrokePlanner.Order.OLDEST_FIRST, true, false);
+        program = compiler.compile(plan, false);
+    }
+
+    @Override
+    public Object plan() {
+        return planner.plan(entries, KeystrokePlanner.Order.OLDEST_FIRST, true, false);
+    }
+
+    @Override
+    public Object compile() {
+        return compiler.compile(plan, false);
+    }
+
+    @Override
+    public Object execute() throws InterruptedException {
+        return executor.execute(program);
+    }
+}
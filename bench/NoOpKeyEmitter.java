@@ -0,0 +1,21 @@
+/**
+ * Emettitore che scarta gli eventi e non dorme: misura solo il costo dell'esecuzione dei programmi
+ */
+public class NoOpKeyEmitter implements KeyEmitter {
+
+    @Override
+    public void keyPress(int keyCode) {
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+    }
+
+    @Override
+    public void putClipboardText(String text) {
+    }
+
+    @Override
+    public void pause(long milliseconds) {
+    }
+}
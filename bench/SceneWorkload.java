@@ -0,0 +1,37 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+/**
+ * Lavoro di {@link benchmarks.SceneBenchmark}: avvia il toolkit JavaFX una volta e costruisce
+ * la scena di {@link ClipboardGUI} nel thread JavaFX, sopra un indice in memoria
+ */
+public class SceneWorkload implements benchmarks.SceneBenchmark.Workload {
+
+    private ClipboardHistoryIndex index;
+
+    @Override
+    public void setup() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+        index = new ClipboardHistoryIndex();
+        for (String entry : BenchData.entries(100, 256)) {
+            index.add(entry, System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        Platform.exit();
+    }
+
+    @Override
+    public Object createScene() throws Exception {
+        FutureTask<Scene> task = new FutureTask<>(() -> new ClipboardGUI(index).createScene());
+        Platform.runLater(task);
+        return task.get();
+    }
+}
@@ -0,0 +1,26 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Lavoro di {@link benchmarks.SearchBenchmark}
+ */
+public class SearchWorkload implements benchmarks.SearchBenchmark.Workload {
+
+    private ClipboardHistoryIndex index;
+    private String text;
+
+    @Override
+    public void setup(String query) throws IOException {
+        index = new ClipboardHistoryIndex();
+        List<String> snapshot = BenchData.entries(50_000, 128);
+        for (int i = 0; i < snapshot.size(); i++) {
+            index.add(snapshot.get(i), i);
+        }
+        text = query.equals("unique") ? snapshot.get(snapshot.size() / 2).substring(40, 56) : query;
+    }
+
+    @Override
+    public Object search() {
+        return index.search(text, 500);
+    }
+}
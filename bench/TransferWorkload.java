@@ -0,0 +1,52 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Lavoro di {@link benchmarks.TransferBenchmark}, su una cronologia in una cartella temporanea
+ */
+public class TransferWorkload implements benchmarks.TransferBenchmark.Workload {
+
+    private Path directory;
+    private ClipboardHistoryStore store;
+    private DirectAssemblyEngine engine;
+    private Clipboard clipboard;
+
+    @Override
+    public void setup(int sizeMb) throws IOException {
+        directory = Files.createTempDirectory("clipboard_automation_bench");
+        store = new ClipboardHistoryStore(directory.resolve("history"), 256L * 1024 * 1024);
+        store.append(BenchData.entries(1, sizeMb * 1024 * 1024).get(0), System.currentTimeMillis());
+        clipboard = new Clipboard("bench");
+        engine = new DirectAssemblyEngine(store, clipboard);
+    }
+
+    @Override
+    public void tearDown() throws IOException {
+        store.close();
+        List<Path> paths = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.forEach(paths::add);
+        }
+        for (int i = paths.size() - 1; i >= 0; i--) {
+            Files.deleteIfExists(paths.get(i));
+        }
+    }
+
+    @Override
+    public Object string() throws Exception {
+        engine.publish(engine.assemble(store.readEntries(1), false));
+        return clipboard.getData(DataFlavor.stringFlavor);
+    }
+
+    @Override
+    public Object stream() throws Exception {
+        engine.executeDeferred(1, false);
+        return TextTransfer.copy(clipboard.getContents(null), new ChannelOutputSink(new BenchData.NullChannel()));
+    }
+}
@@ -0,0 +1,27 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lavoro di {@link benchmarks.TransformBenchmark}
+ */
+public class TransformWorkload implements benchmarks.TransformBenchmark.Workload {
+
+    private TransformPipeline pipeline;
+    private List<String> snapshot;
+
+    @Override
+    public void setup(int entries, int size) {
+        pipeline = new TransformPipeline(TransformStage.trim(), TransformStage.filterLines("[aeiou]{2}"),
+                TransformStage.uniqueLines(), TransformStage.sortLines());
+        snapshot = new ArrayList<>();
+        for (String entry : BenchData.entries(entries, size)) {
+            // Righe di 64 caratteri
+            snapshot.add(entry.replaceAll("(.{63}).", "$1\n"));
+        }
+    }
+
+    @Override
+    public Object pipeline() {
+        return pipeline.apply(snapshot);
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unione di N elementi di varie dimensioni nell'ordine di executeAutomation,
+ * in memoria e in streaming verso un canale nullo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssemblyBenchmark {
+
+    public interface Workload {
+        void setup(int entries, int size);
+
+        Object join();
+
+        Object stream() throws Exception;
+    }
+
+    @Param({ "4", "20", "1000" })
+    public int entries;
+
+    @Param({ "16", "1024", "16384" })
+    public int size;
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("AssemblyWorkload", Workload.class);
+        workload.setup(entries, size);
+    }
+
+    @Benchmark
+    public Object join() {
+        return workload.join();
+    }
+
+    @Benchmark
+    public Object stream() throws Exception {
+        return workload.stream();
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Confronta due esecuzioni JMH (risultati in JSON) ed esce con codice 1 se un benchmark è peggiorato
+ * oltre la soglia. Per i punteggi in operazioni al secondo peggiorare vuol dire calare,
+ * per quelli in tempo per operazione crescere.
+ * <pre>
+ * java BenchmarkComparison riferimento.json nuovi.json [SOGLIA%]
+ * </pre>
+ */
+public class BenchmarkComparison {
+
+    private static final Pattern RESULT = Pattern.compile(
+            "\"benchmark\"\\s*:\\s*\"([^\"]*)\"\\s*,\\s*\"mode\"\\s*:\\s*\"([^\"]*)\""
+            + "(?:.(?!\"benchmark\"))*?\"primaryMetric\"\\s*:\\s*\\{\\s*\"score\"\\s*:\\s*([0-9.eE+-]+|\"NaN\")",
+            Pattern.DOTALL);
+    private static final Pattern PARAMS = Pattern.compile("\"params\"\\s*:\\s*\\{([^}]*)\\}");
+    private static final Pattern PARAM = Pattern.compile("\"([^\"]*)\"\\s*:\\s*\"([^\"]*)\"");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: BenchmarkComparison riferimento.json nuovi.json [SOGLIA%]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, double[]> baseline = readScores(args[0]);
+        Map<String, double[]> current = readScores(args[1]);
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] previous = baseline.get(entry.getKey());
+            if (previous == null || previous[0] <= 0) {
+                continue;
+            }
+            double score = entry.getValue()[0];
+            // Con le modalità a tempo (avgt, sample, ss) un punteggio più alto è peggiore
+            double change = (score - previous[0]) / previous[0] * 100 * (entry.getValue()[1] > 0 ? 1 : -1);
+            boolean regression = change < -threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.err.println(String.format(Locale.ROOT, "%-70s %+7.1f%%%s", entry.getKey(), change,
+                    regression ? "  PEGGIORATO" : ""));
+        }
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Punteggi per benchmark e parametri: [punteggio, 1 se più alto è meglio altrimenti -1]
+     */
+    static Map<String, double[]> readScores(String file) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        Matcher matcher = RESULT.matcher(json);
+        while (matcher.find()) {
+            if (matcher.group(3).startsWith("\"")) {
+                continue;
+            }
+            Map<String, String> params = new LinkedHashMap<>();
+            Matcher block = PARAMS.matcher(matcher.group());
+            if (block.find()) {
+                Matcher param = PARAM.matcher(block.group(1));
+                while (param.find()) {
+                    params.put(param.group(1), param.group(2));
+                }
+            }
+            String key = params.isEmpty() ? matcher.group(1) : matcher.group(1) + params;
+            scores.put(key, new double[] { Double.parseDouble(matcher.group(3)),
+                    matcher.group(2).equals("thrpt") ? 1 : -1 });
+        }
+        return scores;
+    }
+}
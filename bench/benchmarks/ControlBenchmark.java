@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Andata e ritorno sul loopback con una connessione già aperta: {@code ping} misura il solo protocollo,
+ * {@code assemble} 4 elementi restituiti nella risposta, {@code pipelined} 16 richieste inviate insieme
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ControlBenchmark {
+
+    public interface Workload {
+        void setup() throws Exception;
+
+        void tearDown() throws Exception;
+
+        Object ping() throws Exception;
+
+        Object assemble() throws Exception;
+
+        Object pipelined() throws Exception;
+    }
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("ControlWorkload", Workload.class);
+        workload.setup();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public Object ping() throws Exception {
+        return workload.ping();
+    }
+
+    @Benchmark
+    public Object assemble() throws Exception {
+        return workload.assemble();
+    }
+
+    @Benchmark
+    public Object pipelined() throws Exception {
+        return workload.pipelined();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Testi localizzati con e senza parametri
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class I18nBenchmark {
+
+    public interface Workload {
+        String getText(String key);
+
+        String getText(String key, String... params);
+    }
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("I18nWorkload", Workload.class);
+    }
+
+    @Benchmark
+    public String getText() {
+        return workload.getText("start.button");
+    }
+
+    @Benchmark
+    public String getTextParams() {
+        return workload.getText("status.progress", "42");
+    }
+
+    @Benchmark
+    public String getTextTwoParams() {
+        return workload.getText("cli.error.nohistory", "/tmp/history");
+    }
+}
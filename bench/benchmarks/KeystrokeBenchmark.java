@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pianificazione, compilazione ed esecuzione dei tasti; l'esecuzione usa un emettitore nullo
+ * e sonde sempre pronte, così viene misurato solo il lavoro del programma
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeystrokeBenchmark {
+
+    public interface Workload {
+        void setup(int entries);
+
+        Object plan();
+
+        Object compile();
+
+        Object execute() throws Exception;
+    }
+
+    @Param({ "4", "20" })
+    public int entries;
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("KeystrokeWorkload", Workload.class);
+        workload.setup(entries);
+    }
+
+    @Benchmark
+    public Object plan() {
+        return workload.plan();
+    }
+
+    @Benchmark
+    public Object compile() {
+        return workload.compile();
+    }
+
+    @Benchmark
+    public Object execute() throws Exception {
+        return workload.execute();
+    }
+}
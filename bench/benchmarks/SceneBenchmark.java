@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costruzione della scena dell'interfaccia grafica (menu, componenti, pannello della cronologia)
+ * nel thread JavaFX, senza display: il toolkit gira sulla piattaforma headless di Monocle
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Dglass.platform=Monocle",
+        "-Dmonocle.platform=Headless", "-Dprism.order=sw" })
+public class SceneBenchmark {
+
+    public interface Workload {
+        void setup() throws Exception;
+
+        void tearDown();
+
+        Object createScene() throws Exception;
+    }
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("SceneWorkload", Workload.class);
+        workload.setup();
+    }
+
+    @TearDown
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public Object createScene() throws Exception {
+        return workload.createScene();
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ricerca nell'indice dei trigrammi di 50.000 elementi, con query di lunghezza crescente;
+ * "unique" è un tratto di 16 caratteri di un solo elemento
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    public interface Workload {
+        void setup(String query) throws Exception;
+
+        Object search();
+    }
+
+    @Param({ "q", "qz", "abc", "hello", "unique" })
+    public String query;
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("SearchWorkload", Workload.class);
+        workload.setup(query);
+    }
+
+    @Benchmark
+    public Object search() {
+        return workload.search();
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Un elemento molto grande della cronologia persistente pubblicato negli appunti e riletto:
+ * {@code string} costruisce e rilegge l'intero testo come String,
+ * {@code stream} lo copia a blocchi passando da un file temporaneo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TransferBenchmark {
+
+    public interface Workload {
+        void setup(int sizeMb) throws Exception;
+
+        void tearDown() throws Exception;
+
+        Object string() throws Exception;
+
+        Object stream() throws Exception;
+    }
+
+    @Param({ "1", "16", "64" })
+    public int sizeMb;
+
+    private Workload workload;
+
+    @Setup
+    public void setup() throws Exception {
+        workload = Workloads.create("TransferWorkload", Workload.class);
+        workload.setup(sizeMb);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public Object string() throws Exception {
+        return workload.string();
+    }
+
+    @Benchmark
+    public Object stream() throws Exception {
+        return workload.stream();
+    }
+}
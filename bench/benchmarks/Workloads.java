@@ -0,0 +1,16 @@
+package benchmarks;
+
+/**
+ * JMH non accetta benchmark nel package di default, in cui sta l'applicazione, e da un package con nome
+ * le classi del package di default non sono raggiungibili. Ogni benchmark dichiara quindi il lavoro da misurare
+ * come interfaccia, implementata nel package di default ({@code bench/*Workload.java}) e caricata per nome.
+ */
+final class Workloads {
+
+    private Workloads() {
+    }
+
+    static <T> T create(String className, Class<T> type) throws ReflectiveOperationException {
+        return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Decide quando le animazioni decorative devono girare.
+ * Le animazioni sono attive solo se gli effetti sono attivi, la finestra è visibile (non ridotta a icona
+ * né nascosta) e non è in corso un'automazione; negli altri casi vengono fermate del tutto, così che
+ * l'applicazione inattiva non faccia alcun lavoro.
+ * Conta inoltre i risvegli dell'animazione nell'ultimo minuto, per verificarlo.
+ */
+public class AnimationScheduler {
+
+    private static final int WINDOW_SECONDS = 60;
+
+    private final Runnable onStart;
+    private final Runnable onStop;
+
+    private boolean effectsEnabled;
+    private boolean windowVisible = true;
+    private boolean automationRunning;
+    private boolean active;
+
+    // Un contatore per secondo dell'ultimo minuto, senza allocazioni a ogni risveglio
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final int[] bucketCounts = new int[WINDOW_SECONDS];
+    private long totalWakeups;
+
+    /**
+     * @param onStart avvia le animazioni
+     * @param onStop ferma le animazioni e libera ciò che stanno mostrando
+     */
+    public AnimationScheduler(Runnable onStart, Runnable onStop) {
+        this.onStart = onStart;
+        this.onStop = onStop;
+    }
+
+    public synchronized void setEffectsEnabled(boolean effectsEnabled) {
+        this.effectsEnabled = effectsEnabled;
+        update();
+    }
+
+    /**
+     * @param windowVisible false se la finestra è ridotta a icona o nascosta
+     */
+    public synchronized void setWindowVisible(boolean windowVisible) {
+        this.windowVisible = windowVisible;
+        update();
+    }
+
+    public synchronized void setAutomationRunning(boolean automationRunning) {
+        this.automationRunning = automationRunning;
+        update();
+    }
+
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Da chiamare a ogni risveglio dell'animazione
+     */
+    public synchronized void recordWakeup() {
+        // nanoTime può essere negativo: la divisione e il resto arrotondano verso il basso
+        long second = Math.floorDiv(System.nanoTime(), 1_000_000_000L);
+        int bucket = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        if (bucketSeconds[bucket] != second) {
+            bucketSeconds[bucket] = second;
+            bucketCounts[bucket] = 0;
+        }
+        bucketCounts[bucket]++;
+        totalWakeups++;
+    }
+
+    /**
+     * Risvegli nell'ultimo minuto; 0 quando l'applicazione è inattiva
+     */
+    public synchronized int getWakeupsPerMinute() {
+        long now = Math.floorDiv(System.nanoTime(), 1_000_000_000L);
+        int wakeups = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            if (now - bucketSeconds[i] < WINDOW_SECONDS) {
+                wakeups += bucketCounts[i];
+            }
+        }
+        return wakeups;
+    }
+
+    /**
+     * Risvegli dall'avvio
+     */
+    public synchronized long getWakeupCount() {
+        return totalWakeups;
+    }
+
+    private void update() {
+        boolean shouldRun = effectsEnabled && windowVisible && !automationRunning;
+        if (shouldRun == active) {
+            return;
+        }
+        active = shouldRun;
+        if (shouldRun) {
+            onStart.run();
+        } else {
+            onStop.run();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Risultato assemblato negli appunti in più formati: testo semplice, HTML (elenco numerato), RTF
+ * ed elenco di file con un file temporaneo che contiene il testo.
+ * Ogni formato viene prodotto solo quando un'applicazione lo chiede con {@link #getTransferData},
+ * a partire dagli elementi letti al momento della copia, e poi conservato fino a quando gli appunti
+ * passano a un altro contenuto. I formati grandi restano in file temporanei (vedi {@link SpoolOutputSink});
+ * oltre la soglia HTML e RTF non vengono offerti, così un risultato enorme non esiste in più formati.
+ */
+public final class AssembledTransferable implements Transferable, ClipboardOwner {
+
+    /**
+     * Scrive il risultato, sempre con gli stessi elementi, nel formato indicato
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputEncoder encoder, OutputSink sink) throws IOException;
+    }
+
+    /** Testo come {@link java.io.Reader}, letto a blocchi da {@link TextTransfer} */
+    public static final DataFlavor READER_FLAVOR = StreamingTextTransferable.READER_FLAVOR;
+    /** RTF come flusso di byte ASCII */
+    public static final DataFlavor RTF_FLAVOR = flavor("text/rtf;class=java.io.InputStream");
+
+    private static final DataFlavor[] ALL_FLAVORS = {
+        READER_FLAVOR, DataFlavor.stringFlavor,
+        DataFlavor.allHtmlFlavor, DataFlavor.fragmentHtmlFlavor, DataFlavor.selectionHtmlFlavor,
+        RTF_FLAVOR, DataFlavor.javaFileListFlavor
+    };
+    private static final DataFlavor[] LARGE_FLAVORS = {
+        READER_FLAVOR, DataFlavor.stringFlavor, DataFlavor.javaFileListFlavor
+    };
+
+    private enum Format {
+        PLAIN, HTML, RTF
+    }
+
+    private final Renderer renderer;
+    private final AssemblyTemplate template;
+    private final DataFlavor[] flavors;
+    private final Map<Format, SpoolOutputSink> rendered = new EnumMap<>(Format.class);
+    private boolean released;
+
+    /**
+     * @param renderer produce il risultato nei vari formati
+     * @param template modello del testo semplice
+     * @param estimatedChars dimensione stimata del testo semplice, per scegliere i formati offerti
+     */
+    public AssembledTransferable(Renderer renderer, AssemblyTemplate template, long estimatedChars) {
+        this.renderer = renderer;
+        this.template = template;
+        this.flavors = estimatedChars > SpoolOutputSink.DEFAULT_THRESHOLD_CHARS ? LARGE_FLAVORS : ALL_FLAVORS;
+    }
+
+    private static DataFlavor flavor(String mimeType) {
+        try {
+            return new DataFlavor(mimeType);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return flavors.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        for (DataFlavor supported : flavors) {
+            if (supported.equals(flavor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        if (!isDataFlavorSupported(flavor)) {
+            throw new UnsupportedFlavorException(flavor);
+        }
+        if (READER_FLAVOR.equals(flavor)) {
+            return rendered(Format.PLAIN).openReader();
+        }
+        if (DataFlavor.stringFlavor.equals(flavor)) {
+            return rendered(Format.PLAIN).getText();
+        }
+        if (RTF_FLAVOR.equals(flavor)) {
+            return rendered(Format.RTF).openInputStream();
+        }
+        if (DataFlavor.javaFileListFlavor.equals(flavor)) {
+            return Collections.singletonList(plainTextFile().toFile());
+        }
+        return rendered(Format.HTML).getText();
+    }
+
+    /**
+     * True se il formato è già stato prodotto
+     */
+    public synchronized boolean isRendered(DataFlavor flavor) {
+        if (RTF_FLAVOR.equals(flavor)) {
+            return rendered.containsKey(Format.RTF);
+        }
+        if (flavor.isMimeTypeEqual("text/html")) {
+            return rendered.containsKey(Format.HTML);
+        }
+        return rendered.containsKey(Format.PLAIN);
+    }
+
+    /**
+     * Il formato già prodotto, oppure lo produce ora
+     */
+    private synchronized SpoolOutputSink rendered(Format format) throws IOException {
+        if (released) {
+            throw new IOException("Risultato non più presente negli appunti");
+        }
+        SpoolOutputSink spool = rendered.get(format);
+        if (spool == null) {
+            spool = new SpoolOutputSink();
+            try {
+                renderer.render(encoder(format), spool);
+                spool.close();
+            } catch (IOException | RuntimeException e) {
+                spool.delete();
+                throw e;
+            }
+            rendered.put(format, spool);
+        }
+        return spool;
+    }
+
+    /**
+     * File con il testo semplice; se il testo era in memoria viene scritto ora
+     */
+    private synchronized Path plainTextFile() throws IOException {
+        SpoolOutputSink spool = rendered(Format.PLAIN);
+        Path file = spool.toFile();
+        spool.close();
+        return file;
+    }
+
+    private OutputEncoder encoder(Format format) {
+        switch (format) {
+            case HTML:
+                return new HtmlEncoder();
+            case RTF:
+                return new RtfEncoder();
+            default:
+                return new PlainTextEncoder(template);
+        }
+    }
+
+    @Override
+    public synchronized void lostOwnership(Clipboard clipboard, Transferable contents) {
+        released = true;
+        for (SpoolOutputSink spool : rendered.values()) {
+            try {
+                spool.delete();
+            } catch (IOException e) {
+                // Verrà cancellato all'uscita
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Testi aggiunti attorno agli elementi assemblati: intestazione, intestazione per elemento,
+ * separatore finale e piè di pagina.
+ * L'intestazione per elemento supporta i segnaposto {index} (ordine di incolla, da 1),
+ * {position} (posizione nella cronologia, 1 = il più recente) e {count} (numero di elementi).
+ */
+public final class AssemblyTemplate {
+
+    /** Separatore originale: Invio + "---" + Invio + Invio */
+    public static final String DEFAULT_SEPARATOR = "\n---\n\n";
+
+    private static final AssemblyTemplate DEFAULT = new AssemblyTemplate("", "", DEFAULT_SEPARATOR, "");
+
+    private final String header;
+    private final String itemHeader;
+    private final String separator;
+    private final String footer;
+
+    /**
+     * @param header testo iniziale
+     * @param itemHeader testo prima di ogni elemento, con segnaposto
+     * @param separator testo aggiunto alla fine quando è richiesto il separatore
+     * @param footer testo finale, sempre aggiunto
+     */
+    public AssemblyTemplate(String header, String itemHeader, String separator, String footer) {
+        this.header = header != null ? header : "";
+        this.itemHeader = itemHeader != null ? itemHeader : "";
+        this.separator = separator != null ? separator : "";
+        this.footer = footer != null ? footer : "";
+    }
+
+    /**
+     * Modello equivalente al comportamento originale (solo il separatore "---" alla fine)
+     */
+    public static AssemblyTemplate defaults() {
+        return DEFAULT;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public String getItemHeader() {
+        return itemHeader;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+
+    public String getFooter() {
+        return footer;
+    }
+
+    /**
+     * Testo finale: separatore (se richiesto) seguito dal piè di pagina
+     */
+    public String trailer(boolean addSeparator) {
+        return addSeparator ? separator + footer : footer;
+    }
+
+    /**
+     * Intestazione di un elemento con i segnaposto sostituiti
+     * @param index ordine di incolla (da 1)
+     * @param position posizione nella cronologia (1 = il più recente)
+     * @param count numero di elementi
+     */
+    public String renderItemHeader(int index, int position, int count) {
+        if (itemHeader.indexOf('{') < 0) {
+            return itemHeader;
+        }
+        StringBuilder result = new StringBuilder(itemHeader.length() + 8);
+        int i = 0;
+        while (i < itemHeader.length()) {
+            char c = itemHeader.charAt(i);
+            if (c == '{') {
+                int close = itemHeader.indexOf('}', i);
+                if (close > i) {
+                    String name = itemHeader.substring(i + 1, close);
+                    if ("index".equals(name)) {
+                        result.append(index);
+                        i = close + 1;
+                        continue;
+                    } else if ("position".equals(name)) {
+                        result.append(position);
+                        i = close + 1;
+                        continue;
+                    } else if ("count".equals(name)) {
+                        result.append(count);
+                        i = close + 1;
+                        continue;
+                    }
+                }
+            }
+            result.append(c);
+            i++;
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,259 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Esegue le richieste di automazione una alla volta in un unico thread dedicato.
+ * Le richieste in attesa stanno in una coda limitata; una richiesta può essere annullata in coda
+ * o durante l'esecuzione: il thread viene interrotto e l'esecuzione si ferma tra due tasti.
+ */
+public class AutomationExecutor {
+
+    /** Richieste in attesa oltre a quella in esecuzione */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    /**
+     * Stato di un'esecuzione
+     */
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    /**
+     * Riceve gli eventi delle esecuzioni, nel thread dell'automazione
+     */
+    public interface Listener {
+        default void jobStarted(Job job) {
+        }
+
+        default void jobProgress(Job job, AutomationStep step, int done, int total) {
+        }
+
+        default void jobFinished(Job job) {
+        }
+    }
+
+    /**
+     * Un'esecuzione richiesta
+     */
+    public final class Job extends FutureTask<Void> {
+        private final long id;
+        private final AutomationRequest request;
+        private volatile boolean started;
+
+        private Job(long id, AutomationRequest request) {
+            super(() -> {
+                runRequest(request);
+                return null;
+            });
+            this.id = id;
+            this.request = request;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public AutomationRequest getRequest() {
+            return request;
+        }
+
+        public State getState() {
+            if (isCancelled()) {
+                return State.CANCELLED;
+            }
+            if (isDone()) {
+                return getError() != null ? State.FAILED : State.COMPLETED;
+            }
+            return started ? State.RUNNING : State.QUEUED;
+        }
+
+        /**
+         * Errore che ha interrotto l'esecuzione (null se completata o annullata)
+         */
+        public Throwable getError() {
+            if (!isDone() || isCancelled()) {
+                return null;
+            }
+            try {
+                get();
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (InterruptedException | CancellationException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Attende la fine dell'esecuzione
+         * @return true se terminata entro il tempo indicato
+         */
+        public boolean await(long timeoutMillis) throws InterruptedException {
+            try {
+                get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException | CancellationException e) {
+                // Terminata con errore o annullata
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            started = true;
+            current = this;
+            Listener listener = AutomationExecutor.this.listener;
+            if (listener != null) {
+                listener.jobStarted(this);
+            }
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            // Con l'annullamento viene chiamato subito, mentre il thread sta ancora rilasciando i tasti
+            if (current == this) {
+                current = null;
+            }
+            Listener listener = AutomationExecutor.this.listener;
+            if (listener != null) {
+                listener.jobFinished(this);
+            }
+        }
+    }
+
+    private final ClipboardAutomation automation;
+    private final ThreadPoolExecutor worker;
+    private final AtomicLong ids = new AtomicLong();
+    private volatile Listener listener;
+    private volatile Job current;
+
+    /**
+     * @param automation automazione da eseguire
+     * @param queueCapacity numero massimo di richieste in attesa
+     */
+    public AutomationExecutor(ClipboardAutomation automation, int queueCapacity) {
+        this.automation = automation;
+        this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), r -> {
+                    Thread thread = new Thread(r, "automation-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        automation.setProgressListener((step, done, total) -> {
+            Job job = current;
+            Listener l = listener;
+            if (job != null && l != null) {
+                l.jobProgress(job, step, done, total);
+            }
+        });
+    }
+
+    public AutomationExecutor(ClipboardAutomation automation) {
+        this(automation, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Accoda una richiesta
+     * @throws RejectedExecutionException se la coda è piena o l'esecutore è stato chiuso
+     */
+    public Job submit(AutomationRequest request) {
+        Job job = new Job(ids.incrementAndGet(), request);
+        worker.execute(job);
+        return job;
+    }
+
+    /**
+     * Annulla una richiesta; se è in esecuzione il thread viene interrotto
+     * @return false se la richiesta era già terminata
+     */
+    public boolean cancel(Job job) {
+        boolean cancelled = job.cancel(true);
+        worker.remove(job);
+        return cancelled;
+    }
+
+    /**
+     * Annulla la richiesta in esecuzione e svuota la coda
+     * @return numero di richieste annullate
+     */
+    public int cancelAll() {
+        int cancelled = 0;
+        for (Runnable queued : worker.getQueue().toArray(new Runnable[0])) {
+            if (queued instanceof Job && cancel((Job) queued)) {
+                cancelled++;
+            }
+        }
+        Job running = current;
+        if (running != null && running.cancel(true)) {
+            cancelled++;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Richiesta in esecuzione (null se nessuna)
+     */
+    public Job getCurrentJob() {
+        return current;
+    }
+
+    /**
+     * Numero di richieste in attesa
+     */
+    public int getQueuedCount() {
+        return worker.getQueue().size();
+    }
+
+    /**
+     * true se non ci sono richieste in esecuzione né in attesa
+     */
+    public boolean isIdle() {
+        return current == null && worker.getQueue().isEmpty();
+    }
+
+    /**
+     * Annulla tutto e ferma il thread
+     */
+    public void shutdown() {
+        cancelAll();
+        worker.shutdownNow();
+    }
+
+    private void runRequest(AutomationRequest request) throws Exception {
+        automation.setAssemblyMode(request.getAssemblyMode());
+        automation.setSkipDuplicates(request.isSkipDuplicates());
+        automation.setPasteTarget(request.getPasteTarget());
+        automation.setTransformPipeline(request.getTransformPipeline());
+        if (request.getStartDelayMillis() > 0) {
+            Thread.sleep(request.getStartDelayMillis());
+        }
+        if (request.getSelection() != null) {
+            // I contenuti degli elementi scelti vengono letti qui, fuori dal thread JavaFX
+            List<String> entries = new ArrayList<>(request.getSelection().size());
+            for (ClipboardHistoryIndex.Item item : request.getSelection()) {
+                entries.add(item.getText());
+            }
+            automation.executeAutomation(entries, request.isAddSeparator());
+            return;
+        }
+        automation.executeAutomation(request.getNumberOfElements(), request.isAddSeparator());
+    }
+}
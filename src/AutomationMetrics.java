@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro delle latenze dell'automazione: un {@link LatencyHistogram} per ogni operazione
+ * (es. {@code openNotepad}) e per ogni passo atteso (es. {@code NAVIGATE}, la singola freccia).
+ * Esposto tramite JMX e salvabile periodicamente in CSV o JSON per regolare le pause su ogni macchina.
+ */
+public class AutomationMetrics implements AutomationMetricsMXBean {
+
+    /** Nome JMX del registro */
+    public static final String OBJECT_NAME = "clipboard_automation:type=AutomationMetrics";
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper;
+    private long lastDumpedSamples = -1;
+
+    /**
+     * Istogramma di una misura, creato al primo uso
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Registra la durata trascorsa da un istante
+     * @param name nome della misura
+     * @param startNanos istante iniziale da {@link System#nanoTime()}
+     */
+    public void recordSince(String name, long startNanos) {
+        histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public String[] getNames() {
+        return new TreeMap<>(histograms).keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getSummary() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            lines.add(String.format(Locale.ROOT, "%s n=%d p50=%.1f p99=%.1f max=%.1f ms", entry.getKey(),
+                    h.getCount(), h.getPercentileMillis(50), h.getPercentileMillis(99), h.getMaxMillis()));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public long getCount(String name) {
+        LatencyHistogram h = histograms.get(name);
+        return h != null ? h.getCount() : 0;
+    }
+
+    @Override
+    public double getP50Millis(String name) {
+        LatencyHistogram h = histograms.get(name);
+        return h != null ? h.getPercentileMillis(50) : 0;
+    }
+
+    @Override
+    public double getP99Millis(String name) {
+        LatencyHistogram h = histograms.get(name);
+        return h != null ? h.getPercentileMillis(99) : 0;
+    }
+
+    @Override
+    public double getMaxMillis(String name) {
+        LatencyHistogram h = histograms.get(name);
+        return h != null ? h.getMaxMillis() : 0;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : histograms.values()) {
+            h.reset();
+        }
+    }
+
+    /**
+     * Riepilogo compatto (p50 / p99 / massimo) delle misure indicate, per l'interfaccia grafica
+     * @param names misure da includere, nell'ordine; quelle senza campioni vengono saltate
+     */
+    public String compactSummary(String... names) {
+        StringBuilder summary = new StringBuilder();
+        for (String name : names) {
+            LatencyHistogram h = histograms.get(name);
+            if (h == null || h.getCount() == 0) {
+                continue;
+            }
+            if (summary.length() > 0) {
+                summary.append(" · ");
+            }
+            summary.append(String.format(Locale.ROOT, "%s %.0f/%.0f/%.0f ms", name,
+                    h.getPercentileMillis(50), h.getPercentileMillis(99), h.getMaxMillis()));
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT,
+                    "\"%s\":{\"count\":%d,\"mean\":%.3f,\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f}",
+                    entry.getKey(), h.getCount(), h.getMeanMillis(), h.getPercentileMillis(50),
+                    h.getPercentileMillis(99), h.getMaxMillis()));
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Tutte le misure in CSV, con intestazione; tempi in millisecondi
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("name,count,mean_ms,p50_ms,p99_ms,max_ms\n");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            csv.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f%n", entry.getKey(), h.getCount(),
+                    h.getMeanMillis(), h.getPercentileMillis(50), h.getPercentileMillis(99), h.getMaxMillis()));
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Scrive le misure su file, in CSV se il nome termina con ".csv", altrimenti in JSON.
+     * Il file viene sostituito in un colpo solo, così chi lo legge non lo vede mai a metà.
+     */
+    public void dump(Path file) throws IOException {
+        String content = file.getFileName().toString().endsWith(".csv") ? toCsv() : toJson();
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "metrics", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Salva periodicamente le misure in un thread daemon; se non ci sono nuovi campioni il file non viene riscritto
+     * @param file file di destinazione (CSV o JSON)
+     * @param periodMillis intervallo tra due salvataggi
+     */
+    public synchronized void startPeriodicDump(Path file, long periodMillis) {
+        if (dumper != null) {
+            return;
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-dump");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(() -> {
+            long samples = totalSamples();
+            if (samples == lastDumpedSamples) {
+                return;
+            }
+            try {
+                dump(file);
+                lastDumpedSamples = samples;
+            } catch (IOException e) {
+                // Si riprova al prossimo salvataggio
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopPeriodicDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    /**
+     * Registra il registro sul server JMX della piattaforma
+     * @return false se la registrazione non è riuscita (es. nome già in uso)
+     */
+    public boolean registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                return false;
+            }
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException e) {
+            return false;
+        }
+    }
+
+    private long totalSamples() {
+        long samples = 0;
+        for (LatencyHistogram h : histograms.values()) {
+            samples += h.getCount();
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Vista JMX delle latenze dell'automazione (es. da JConsole o VisualVM)
+ */
+public interface AutomationMetricsMXBean {
+
+    /**
+     * Nomi delle misure registrate
+     */
+    String[] getNames();
+
+    /**
+     * Una riga per misura: nome, numero di campioni, p50, p99 e massimo in millisecondi
+     */
+    String[] getSummary();
+
+    long getCount(String name);
+
+    double getP50Millis(String name);
+
+    double getP99Millis(String name);
+
+    double getMaxMillis(String name);
+
+    /**
+     * Tutte le misure in JSON
+     */
+    String toJson();
+
+    void reset();
+}
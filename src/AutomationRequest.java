@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parametri di un'esecuzione dell'automazione, fissati al momento della richiesta.
+ * Viene creata nel thread JavaFX: il thread dell'automazione non legge mai i controlli dell'interfaccia.
+ */
+public final class AutomationRequest {
+
+    private final int numberOfElements;
+    private final boolean addSeparator;
+    private final ClipboardAutomation.AssemblyMode assemblyMode;
+    private final boolean skipDuplicates;
+    private final long startDelayMillis;
+    private final PasteTarget pasteTarget;
+    private final TransformPipeline transformPipeline;
+    private final List<ClipboardHistoryIndex.Item> selection;
+
+    /**
+     * Costruisce una richiesta; i parametri non indicati mantengono il comportamento originale
+     * (separatore, nessuna attesa, Notepad, nessuna trasformazione, ultimi N elementi)
+     */
+    public static final class Builder {
+
+        private final int numberOfElements;
+        private final ClipboardAutomation.AssemblyMode assemblyMode;
+        private boolean addSeparator = true;
+        private boolean skipDuplicates;
+        private long startDelayMillis;
+        private PasteTarget pasteTarget;
+        private TransformPipeline transformPipeline;
+        private List<ClipboardHistoryIndex.Item> selection;
+
+        /**
+         * @param numberOfElements numero di elementi da incollare
+         * @param assemblyMode modalità di assemblaggio
+         */
+        public Builder(int numberOfElements, ClipboardAutomation.AssemblyMode assemblyMode) {
+            this.numberOfElements = numberOfElements;
+            this.assemblyMode = assemblyMode;
+        }
+
+        /**
+         * Se true aggiunge il separatore alla fine
+         */
+        public Builder addSeparator(boolean addSeparator) {
+            this.addSeparator = addSeparator;
+            return this;
+        }
+
+        /**
+         * Se true salta i contenuti ripetuti (solo modalità DIRECT)
+         */
+        public Builder skipDuplicates(boolean skipDuplicates) {
+            this.skipDuplicates = skipDuplicates;
+            return this;
+        }
+
+        /**
+         * Attesa prima di iniziare, per permettere all'utente di prepararsi
+         */
+        public Builder startDelayMillis(long startDelayMillis) {
+            this.startDelayMillis = startDelayMillis;
+            return this;
+        }
+
+        /**
+         * Finestra in cui incollare nella modalità KEYSTROKE (null = Notepad)
+         */
+        public Builder pasteTarget(PasteTarget pasteTarget) {
+            this.pasteTarget = pasteTarget;
+            return this;
+        }
+
+        /**
+         * Trasformazioni degli elementi nella modalità DIRECT (null = nessuna)
+         */
+        public Builder transformPipeline(TransformPipeline transformPipeline) {
+            this.transformPipeline = transformPipeline;
+            return this;
+        }
+
+        /**
+         * Elementi scelti, nell'ordine del risultato, al posto degli ultimi N (null = ultimi N)
+         */
+        public Builder selection(List<ClipboardHistoryIndex.Item> selection) {
+            this.selection = selection;
+            return this;
+        }
+
+        public AutomationRequest build() {
+            return new AutomationRequest(this);
+        }
+    }
+
+    private AutomationRequest(Builder builder) {
+        this.numberOfElements = builder.numberOfElements;
+        this.addSeparator = builder.addSeparator;
+        this.assemblyMode = builder.assemblyMode;
+        this.skipDuplicates = builder.skipDuplicates;
+        this.startDelayMillis = builder.startDelayMillis;
+        this.pasteTarget = builder.pasteTarget;
+        this.transformPipeline = builder.transformPipeline != null ? builder.transformPipeline : TransformPipeline.empty();
+        this.selection = builder.selection != null
+                ? Collections.unmodifiableList(new ArrayList<>(builder.selection))
+                : null;
+    }
+
+    public int getNumberOfElements() {
+        return numberOfElements;
+    }
+
+    public boolean isAddSeparator() {
+        return addSeparator;
+    }
+
+    public ClipboardAutomation.AssemblyMode getAssemblyMode() {
+        return assemblyMode;
+    }
+
+    public boolean isSkipDuplicates() {
+        return skipDuplicates;
+    }
+
+    public long getStartDelayMillis() {
+        return startDelayMillis;
+    }
+
+    public PasteTarget getPasteTarget() {
+        return pasteTarget;
+    }
+
+    public TransformPipeline getTransformPipeline() {
+        return transformPipeline;
+    }
+
+    /**
+     * Elementi scelti, nell'ordine del risultato (null = gli ultimi {@link #getNumberOfElements()})
+     */
+    public List<ClipboardHistoryIndex.Item> getSelection() {
+        return selection;
+    }
+
+    @Override
+    public String toString() {
+        return assemblyMode + (selection != null ? " selection x" + selection.size() : " x" + numberOfElements)
+                + (addSeparator ? " +sep" : "")
+                + (pasteTarget != null ? " +internal" : "")
+                + (transformPipeline.isEmpty() ? "" : " " + transformPipeline);
+    }
+}
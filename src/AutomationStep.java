@@ -0,0 +1,41 @@
+/**
+ * Passi dell'automazione che richiedono un'attesa, con la pausa fissa usata finora come valore di default
+ */
+public enum AutomationStep {
+    /** Apertura di Notepad */
+    OPEN_NOTEPAD(2000),
+    /** Assestamento di Notepad prima del primo incolla */
+    NOTEPAD_SETTLE(1000),
+    /** Comparsa della "Cronologia Appunti" dopo Win+V */
+    OPEN_HISTORY(500),
+    /** Attesa aggiuntiva per il primo rendering della "Cronologia Appunti" */
+    FIRST_HISTORY_RENDER(100),
+    /** Spostamento di una posizione nella lista degli appunti */
+    NAVIGATE(100),
+    /** Pressione di Invio */
+    ENTER(100),
+    /** Protezione contro il doppio incolla dello stesso elemento */
+    DOUBLE_PASTE_GUARD(200),
+    /** Pausa tra due elementi */
+    BETWEEN_ITEMS(100),
+    /** Digitazione di un testo (separatore, intestazioni) */
+    TYPE_TEXT(100),
+    /** Incolla di un testo tramite appunti con Ctrl+V */
+    PASTE_TEXT(100),
+    /** Pausa prima di selezionare tutto */
+    BEFORE_SELECT(100),
+    /** Selezione con Ctrl+A */
+    SELECT_ALL(100),
+    /** Copia con Ctrl+C */
+    COPY(100);
+
+    private final long defaultDelayMillis;
+
+    AutomationStep(long defaultDelayMillis) {
+        this.defaultDelayMillis = defaultDelayMillis;
+    }
+
+    public long getDefaultDelayMillis() {
+        return defaultDelayMillis;
+    }
+}
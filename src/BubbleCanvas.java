@@ -0,0 +1,166 @@
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import java.util.Random;
+
+/**
+ * Bolle decorative disegnate su un unico {@link Canvas} da un solo {@link AnimationTimer}.
+ * Lo stato delle bolle vive in array primitivi preallocati con un numero massimo fisso di bolle:
+ * a regime non vengono creati oggetti né nodi della scena.
+ * Movimento, oscillazione, scala e dissolvenza riproducono le vecchie transizioni.
+ */
+public class BubbleCanvas extends Canvas {
+
+    /** Numero massimo di bolle contemporanee */
+    public static final int MAX_BUBBLES = 64;
+
+    private static final long SPAWN_INTERVAL_NANOS = 800_000_000L;
+    private static final double FADE_SECONDS = 1.5;
+    /** La dissolvenza inizia al 70% della salita */
+    private static final double FADE_START = 0.7;
+    private static final Color BUBBLE_COLOR = Color.rgb(52, 152, 219);
+
+    private final double[] startX = new double[MAX_BUBBLES];
+    private final double[] radius = new double[MAX_BUBBLES];
+    private final double[] opacity = new double[MAX_BUBBLES];
+    private final double[] riseSeconds = new double[MAX_BUBBLES];
+    private final double[] swayOffset = new double[MAX_BUBBLES];
+    private final double[] swaySeconds = new double[MAX_BUBBLES];
+    private final double[] scaleX = new double[MAX_BUBBLES];
+    private final double[] scaleY = new double[MAX_BUBBLES];
+    private final double[] scaleSeconds = new double[MAX_BUBBLES];
+    private final long[] bornNanos = new long[MAX_BUBBLES];
+    private int count;
+
+    private final Random random = new Random();
+    private final AnimationTimer timer;
+    private long lastSpawnNanos;
+    private boolean running;
+    private Runnable frameListener;
+
+    public BubbleCanvas(double width, double height) {
+        super(width, height);
+        setMouseTransparent(true);
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                frame(now);
+            }
+        };
+    }
+
+    /**
+     * Imposta chi viene avvisato a ogni fotogramma (ad esempio il contatore dei risvegli)
+     */
+    public void setFrameListener(Runnable frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Avvia l'animazione; la prima bolla compare dopo un intervallo, come con la vecchia Timeline
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        lastSpawnNanos = 0;
+        timer.start();
+    }
+
+    /**
+     * Ferma l'animazione e cancella le bolle
+     */
+    public void stop() {
+        running = false;
+        timer.stop();
+        count = 0;
+        getGraphicsContext2D().clearRect(0, 0, getWidth(), getHeight());
+    }
+
+    public int getBubbleCount() {
+        return count;
+    }
+
+    private void frame(long now) {
+        if (frameListener != null) {
+            frameListener.run();
+        }
+        if (lastSpawnNanos == 0) {
+            lastSpawnNanos = now;
+        } else if (now - lastSpawnNanos >= SPAWN_INTERVAL_NANOS) {
+            lastSpawnNanos = now;
+            spawn(now);
+        }
+
+        GraphicsContext gc = getGraphicsContext2D();
+        double height = getHeight();
+        gc.clearRect(0, 0, getWidth(), height);
+        gc.setFill(BUBBLE_COLOR);
+
+        int i = 0;
+        while (i < count) {
+            double t = (now - bornNanos[i]) / 1e9;
+            if (t >= riseSeconds[i]) {
+                remove(i);
+                continue;
+            }
+            // Salita lineare dal fondo (centro sotto il bordo) fino al bordo superiore
+            double y = (height + radius[i]) * (1 - t / riseSeconds[i]);
+            // Oscillazione e scala avanti e indietro con andamento morbido
+            double x = startX[i] + swayOffset[i] * wave(t, swaySeconds[i]);
+            double scale = wave(t, scaleSeconds[i]);
+            double rx = radius[i] * (1 + (scaleX[i] - 1) * scale);
+            double ry = radius[i] * (1 + (scaleY[i] - 1) * scale);
+            double fadeStart = riseSeconds[i] * FADE_START;
+            double fade = t < fadeStart ? 1 : Math.max(0, 1 - (t - fadeStart) / FADE_SECONDS);
+
+            gc.setGlobalAlpha(opacity[i] * fade);
+            gc.fillOval(x - rx, y - ry, rx * 2, ry * 2);
+            i++;
+        }
+        gc.setGlobalAlpha(1);
+    }
+
+    /**
+     * 0 -> 1 -> 0 con periodo pari al doppio della durata, come una transizione con inversione automatica
+     */
+    private static double wave(double t, double seconds) {
+        return (1 - Math.cos(Math.PI * t / seconds)) / 2;
+    }
+
+    private void spawn(long now) {
+        if (count == MAX_BUBBLES) {
+            return;
+        }
+        int i = count++;
+        radius[i] = random.nextDouble() * 8 + 3; // Raggio tra 3 e 11
+        opacity[i] = 0.3 + random.nextDouble() * 0.4;
+        startX[i] = random.nextDouble() * getWidth();
+        riseSeconds[i] = 3 + random.nextDouble() * 2;
+        swayOffset[i] = (random.nextDouble() - 0.5) * 50;
+        swaySeconds[i] = 1 + random.nextDouble();
+        scaleX[i] = 0.8 + random.nextDouble() * 0.4;
+        scaleY[i] = 0.8 + random.nextDouble() * 0.4;
+        scaleSeconds[i] = 0.5 + random.nextDouble();
+        bornNanos[i] = now;
+    }
+
+    /**
+     * Rimuove una bolla spostando l'ultima al suo posto
+     */
+    private void remove(int i) {
+        int last = --count;
+        startX[i] = startX[last];
+        radius[i] = radius[last];
+        opacity[i] = opacity[last];
+        riseSeconds[i] = riseSeconds[last];
+        swayOffset[i] = swayOffset[last];
+        swaySeconds[i] = swaySeconds[last];
+        scaleX[i] = scaleX[last];
+        scaleY[i] = scaleY[last];
+        scaleSeconds[i] = scaleSeconds[last];
+        bornNanos[i] = bornNanos[last];
+    }
+}
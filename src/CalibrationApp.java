@@ -0,0 +1,209 @@
+import java.awt.AWTException;
+import java.awt.Robot;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+
+/**
+ * Avvio della calibrazione dei tempi da riga di comando:
+ * {@code java Main --calibrate [--trials N] [--out FILE] [--retains-cursor true|false] [--history-size N]
+ * [--paste-order oldest|newest] [--layout us|it|minimal] [--lang it|en]}.
+ * Apre la finestra di prova, esegue {@link DelayCalibrator}, salva il profilo e termina.
+ * Il comportamento della "Cronologia Appunti" e il layout della tastiera non si misurano sulla finestra di prova:
+ * vengono presi dalle opzioni o, se assenti, dal profilo già salvato.
+ * Sotto Linux può girare in un display virtuale, ad esempio {@code xvfb-run java Main --calibrate}.
+ */
+public class CalibrationApp extends Application {
+
+    /** Attesa iniziale perché la finestra compaia e riceva il fuoco */
+    private static final long WINDOW_SETTLE_MILLIS = 1000;
+
+    private final I18nManager i18n = I18nManager.getInstance();
+    private final PrintStream out = System.out;
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        int trials = DelayCalibrator.DEFAULT_TRIALS;
+        Path file = TimingProfile.defaultFile();
+        Boolean retainsCursor = null;
+        Integer historySize = null;
+        KeystrokePlanner.Order pasteOrder = null;
+        String layout = null;
+        List<String> args = getParameters().getRaw();
+        try {
+            for (int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+                switch (arg) {
+                    case DelayCalibrator.CALIBRATE_FLAG:
+                        break;
+                    case "--trials":
+                        trials = parseTrials(value(args, ++i, arg));
+                        break;
+                    case "--out":
+                        file = Paths.get(value(args, ++i, arg));
+                        break;
+                    case "--retains-cursor":
+                        retainsCursor = parseBoolean(value(args, ++i, arg));
+                        break;
+                    case "--history-size":
+                        historySize = parseHistorySize(value(args, ++i, arg));
+                        break;
+                    case "--paste-order":
+                        pasteOrder = parsePasteOrder(value(args, ++i, arg));
+                        break;
+                    case "--layout":
+                        layout = value(args, ++i, arg);
+                        if (KeyboardLayout.forName(layout) == null) {
+                            throw new IllegalArgumentException(i18n.getText("calibration.error.value", layout));
+                        }
+                        break;
+                    case "--lang":
+                        i18n.setLanguage(value(args, ++i, arg));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(i18n.getText("cli.error.unknown", arg));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            exit(2, e.getMessage() + "\n" + i18n.getText("calibration.usage"));
+            return;
+        }
+
+        CalibrationWindow window = new CalibrationWindow(stage);
+        window.show();
+        int trialsPerValue = trials;
+        Path target = file;
+        Boolean retains = retainsCursor;
+        Integer size = historySize;
+        KeystrokePlanner.Order order = pasteOrder;
+        String keyboard = layout;
+        Thread worker = new Thread(() -> calibrate(window, trialsPerValue, target, retains, size, order, keyboard),
+                "calibration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Misura i tempi e salva il profilo; le opzioni null mantengono il valore già salvato
+     */
+    private void calibrate(CalibrationWindow window, int trials, Path file, Boolean retainsCursor,
+                           Integer historySize, KeystrokePlanner.Order pasteOrder, String layout) {
+        try {
+            Thread.sleep(WINDOW_SETTLE_MILLIS);
+            String start = i18n.getText("calibration.start", String.valueOf(trials));
+            window.setStatus(start);
+            out.println(start);
+
+            DelayCalibrator calibrator = new DelayCalibrator(new RobotKeyEmitter(new Robot()), window,
+                    Toolkit.getDefaultToolkit().getSystemClipboard());
+            TimingProfile previous = loadQuietly(file);
+            String keyboard = layout != null ? layout
+                    : previous != null ? previous.getKeyboardLayout() : KeyboardLayout.minimal().getName();
+            KeyboardLayout typing = KeyboardLayout.forName(keyboard);
+            // Il layout minimo non digita lettere: la digitazione si misura allora con il layout statunitense
+            if (typing != null && !typing.getName().equals(KeyboardLayout.minimal().getName())) {
+                calibrator.setLayout(typing);
+            }
+            calibrator.setTrials(trials);
+            calibrator.setListener((name, defaultMillis, minimumMillis, appliedMillis) -> {
+                String line = minimumMillis >= 0
+                        ? i18n.getText("calibration.result", name, String.valueOf(appliedMillis),
+                                String.valueOf(minimumMillis), String.valueOf(defaultMillis))
+                        : i18n.getText("calibration.unreliable", name, String.valueOf(defaultMillis));
+                window.setStatus(line);
+                out.println(line);
+            });
+            TimingProfile profile = calibrator.calibrate().withKeyboardLayout(keyboard).withHistory(
+                    retainsCursor != null ? retainsCursor : previous != null && previous.isRetainsCursor(),
+                    historySize != null ? historySize : previous != null ? previous.getHistorySize() : 0,
+                    pasteOrder != null ? pasteOrder
+                            : previous != null ? previous.getPasteOrder() : KeystrokePlanner.Order.OLDEST_FIRST);
+            out.println(i18n.getText("calibration.history", String.valueOf(profile.isRetainsCursor()),
+                    String.valueOf(profile.getHistorySize()), profile.getPasteOrder().name(),
+                    profile.getKeyboardLayout()));
+            out.println(i18n.getText("calibration.keys", String.valueOf(calibrator.getLostKeys()),
+                    String.valueOf(calibrator.getDuplicatedKeys())));
+            profile.save(file);
+            exit(0, i18n.getText("calibration.saved", file.toAbsolutePath().toString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exit(1, i18n.getText("calibration.error", "interrupted"));
+        } catch (IOException | RuntimeException | AWTException e) {
+            exit(1, i18n.getText("calibration.error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private static TimingProfile loadQuietly(Path file) {
+        try {
+            return TimingProfile.load(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean parseBoolean(String value) {
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        throw new IllegalArgumentException(i18n.getText("calibration.error.value", value));
+    }
+
+    private int parseHistorySize(String value) {
+        try {
+            int size = Integer.parseInt(value);
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException e) {
+            // Segnalato sotto
+        }
+        throw new IllegalArgumentException(i18n.getText("calibration.error.value", value));
+    }
+
+    private KeystrokePlanner.Order parsePasteOrder(String value) {
+        switch (value) {
+            case "oldest":
+                return KeystrokePlanner.Order.OLDEST_FIRST;
+            case "newest":
+                return KeystrokePlanner.Order.NEWEST_FIRST;
+            default:
+                throw new IllegalArgumentException(i18n.getText("calibration.error.value", value));
+        }
+    }
+
+    private int parseTrials(String value) {
+        try {
+            int trials = Integer.parseInt(value);
+            if (trials > 0) {
+                return trials;
+            }
+        } catch (NumberFormatException e) {
+            // Segnalato sotto
+        }
+        throw new IllegalArgumentException(i18n.getText("calibration.error.trials", value));
+    }
+
+    private String value(List<String> args, int index, String option) {
+        if (index >= args.size()) {
+            throw new IllegalArgumentException(i18n.getText("cli.error.missing", option));
+        }
+        return args.get(index);
+    }
+
+    private void exit(int code, String message) {
+        (code == 0 ? out : System.err).println(message);
+        Platform.exit();
+        System.exit(code);
+    }
+}
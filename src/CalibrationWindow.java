@@ -0,0 +1,68 @@
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+/**
+ * Finestra di prova della calibrazione: un'area di testo che riceve i tasti al posto di Notepad.
+ * I metodi di {@link DelayCalibrator.Target} vengono eseguiti nel thread JavaFX e attendono il risultato.
+ */
+public class CalibrationWindow implements DelayCalibrator.Target {
+
+    private final Stage stage;
+    private final TextArea textArea = new TextArea();
+    private final Label statusLabel = new Label();
+
+    /**
+     * Crea la finestra; va chiamato nel thread JavaFX
+     */
+    public CalibrationWindow(Stage stage) {
+        this.stage = stage;
+        I18nManager i18n = I18nManager.getInstance();
+        textArea.setWrapText(true);
+        statusLabel.setWrapText(true);
+        VBox root = new VBox(10, statusLabel, textArea);
+        root.setPadding(new Insets(15));
+        root.setStyle("-fx-background-color: #f8f9fa;");
+        stage.setTitle(i18n.getText("calibration.window.title"));
+        stage.setScene(new Scene(root, 500, 300));
+        // Resta davanti a tutto, così i tasti arrivano sempre all'area di testo
+        stage.setAlwaysOnTop(true);
+    }
+
+    public void show() {
+        stage.show();
+        textArea.requestFocus();
+    }
+
+    /**
+     * Mostra un messaggio sopra l'area di testo; può essere chiamato da qualsiasi thread
+     */
+    public void setStatus(String text) {
+        Platform.runLater(() -> statusLabel.setText(text));
+    }
+
+    @Override
+    public void reset() throws InterruptedException {
+        FxThread.call(() -> {
+            textArea.clear();
+            stage.toFront();
+            stage.requestFocus();
+            textArea.requestFocus();
+            return null;
+        });
+    }
+
+    @Override
+    public String getText() throws InterruptedException {
+        return FxThread.call(textArea::getText);
+    }
+
+    @Override
+    public String getSelectedText() throws InterruptedException {
+        return FxThread.call(textArea::getSelectedText);
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Destinazione che scrive in UTF-8 su un {@link WritableByteChannel}.
+ * Il testo viene codificato a blocchi in un buffer riutilizzato; gli elementi della cronologia
+ * persistente vengono copiati dal segmento al canale con {@code transferTo}.
+ */
+public class ChannelOutputSink implements OutputSink {
+
+    private static final int BUFFER_BYTES = 8192;
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // Buffer nello heap: il codificatore UTF-8 lavora sugli array invece che carattere per carattere
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_BYTES / 2);
+    private long bytesWritten;
+
+    /**
+     * @param channel canale di destinazione
+     * @param closeChannel se true il canale viene chiuso insieme alla destinazione
+     */
+    public ChannelOutputSink(WritableByteChannel channel, boolean closeChannel) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+    }
+
+    public ChannelOutputSink(WritableByteChannel channel) {
+        this(channel, true);
+    }
+
+    @Override
+    public void write(CharSequence text) throws IOException {
+        if (text.length() == 0) {
+            return;
+        }
+        encoder.reset();
+        if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+            encode(((CharBuffer) text).duplicate(), true);
+        } else if (text instanceof String || text instanceof StringBuilder) {
+            // Copiato a blocchi in un array: il codificatore UTF-8 è veloce solo tra array
+            int length = text.length();
+            int position = 0;
+            chars.clear();
+            while (position < length) {
+                int n = Math.min(chars.remaining(), length - position);
+                if (text instanceof String) {
+                    ((String) text).getChars(position, position + n, chars.array(), chars.position());
+                } else {
+                    ((StringBuilder) text).getChars(position, position + n, chars.array(), chars.position());
+                }
+                position += n;
+                chars.position(chars.position() + n);
+                chars.flip();
+                // Un surrogato alto in fondo al blocco resta nel buffer fino al blocco successivo
+                encode(chars, position == length);
+                chars.compact();
+            }
+        } else {
+            encode(CharBuffer.wrap(text), true);
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void encode(CharBuffer input, boolean endOfInput) throws IOException {
+        while (encoder.encode(input, buffer, endOfInput).isOverflow()) {
+            drain();
+        }
+    }
+
+    @Override
+    public void write(ClipboardHistoryStore.StoredEntry entry) throws IOException {
+        drain();
+        entry.transferTo(channel);
+        bytesWritten += entry.getByteLength();
+    }
+
+    /**
+     * Byte scritti sul canale finora
+     */
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    /**
+     * Svuota il buffer sul canale
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            if (closeChannel) {
+                channel.close();
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
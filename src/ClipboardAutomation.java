@@ -1,6 +1,13 @@
 import java.awt.Robot;
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Classe per l'automazione degli appunti di Windows 11
@@ -8,46 +15,337 @@ import java.io.IOException;
  */
 public class ClipboardAutomation {
     
-    private Robot robot;
+    /**
+     * Modalità di assemblaggio degli elementi
+     */
+    public enum AssemblyMode {
+        /** Notepad + Win+V + pressione dei tasti (comportamento originale) */
+        KEYSTROKE,
+        /** Assemblaggio in memoria e singola scrittura negli appunti */
+        DIRECT
+    }
+    
+    private KeystrokeExecutor executor;
+    
+    private KeyEmitter emitter;
+    
+    private PasteTarget pasteTarget;
+    
+    private volatile String lastResult;
+    
+    private KeystrokePlanner planner = new KeystrokePlanner(new KeystrokeCostModel(KeystrokeCompiler.DEFAULT_EVENT_GAP_MILLIS));
+    
+    private KeystrokeCompiler compiler = new KeystrokeCompiler(planner.getTextInjector());
+    
+    // Programmi precompilati, ricompilati quando cambia la pausa tra gli eventi
+    private KeystrokeProgram historyProgram;
+    private KeystrokeProgram firstHistoryProgram;
+    private KeystrokeProgram enterProgram;
+    private KeystrokeProgram pasteProgram;
+    private KeystrokeProgram separatorProgram;
+    private KeystrokeProgram selectAllProgram;
+    private KeystrokeProgram copyProgram;
+    
+    private volatile KeystrokeProgram lastProgram;
     
     private boolean firstMultipleClipboardUsage;
     
+    private AssemblyMode assemblyMode = AssemblyMode.KEYSTROKE;
+    
+    private DirectAssemblyEngine directEngine;
+    
+    private boolean skipDuplicates;
+    private TransformPipeline transformPipeline = TransformPipeline.empty();
+    
+    private final Map<AutomationStep, ReadinessProbe> readinessProbes = new EnumMap<>(AutomationStep.class);
+    
+    private KeystrokePlanner.Order pasteOrder = KeystrokePlanner.Order.OLDEST_FIRST;
+    
+    private volatile KeystrokePlan lastPlan;
+    
+    private AssemblyTemplate template = AssemblyTemplate.defaults();
+    
+    private final AutomationMetrics metrics = new AutomationMetrics();
+    
     public ClipboardAutomation() throws Exception {
-        this.robot = new Robot();
-        // Imposta un delay tra le pressioni dei tasti per maggiore affidabilità
-        robot.setAutoDelay(50);
+        // Le pause tra le pressioni dei tasti sono compilate nei programmi al posto dell'auto-delay del Robot
+        this(new RobotKeyEmitter(new Robot()));
+    }
+    
+    /**
+     * Crea un'automazione dei tasti su un emettitore qualsiasi (ad esempio uno finto che registra gli eventi)
+     * @param emitter destinazione degli eventi di tastiera
+     */
+    public ClipboardAutomation(KeyEmitter emitter) {
+        compilePrograms();
+        this.emitter = emitter;
+        this.executor = new KeystrokeExecutor(emitter, this::getReadinessProbe);
+        executor.setMetrics(metrics);
         firstMultipleClipboardUsage = true;
     }
     
+    /**
+     * Crea un'automazione in modalità diretta, senza Robot (utilizzabile anche in ambienti headless)
+     * @param source sorgente degli elementi degli appunti
+     * @param clipboard appunti su cui pubblicare il risultato
+     */
+    public ClipboardAutomation(ClipboardEntrySource source, Clipboard clipboard) {
+        compilePrograms();
+        firstMultipleClipboardUsage = true;
+        setDirectSource(source, clipboard);
+    }
+    
+    private void compilePrograms() {
+        historyProgram = compiler.appendOpenHistory(compiler.builder(), false).build();
+        firstHistoryProgram = compiler.appendOpenHistory(compiler.builder(), true).build();
+        enterProgram = compiler.appendEnter(compiler.builder()).build();
+        pasteProgram = compiler.appendPaste(compiler.builder()).build();
+        separatorProgram = compiler.appendText(compiler.builder(), "---").build();
+        selectAllProgram = compiler.appendSelectAll(compiler.builder()).build();
+        copyProgram = compiler.appendCopy(compiler.builder()).build();
+    }
+    
+    /**
+     * Applica i tempi misurati dalla calibrazione: pausa tra gli eventi e attese dei passi calibrati,
+     * layout della tastiera e comportamento della "Cronologia Appunti" indicati nel profilo.
+     * Le sonde già configurate per un passo (diverse dalla pausa fissa) restano in uso.
+     * @param profile profilo prodotto da {@link DelayCalibrator}
+     */
+    public void applyTimingProfile(TimingProfile profile) {
+        KeyboardLayout layout = KeyboardLayout.forName(profile.getKeyboardLayout());
+        if (layout != null) {
+            planner.setTextInjector(new TextInjector(layout));
+        }
+        compiler = new KeystrokeCompiler(profile.getEventGapMillis(), planner.getTextInjector());
+        compilePrograms();
+        // Con il cursore mantenuto la navigazione cresce linearmente con il numero di elementi
+        planner.setRetainsCursor(profile.isRetainsCursor());
+        planner.setHistorySize(profile.getHistorySize());
+        pasteOrder = profile.getPasteOrder();
+        KeystrokeCostModel costModel = planner.getCostModel();
+        costModel.setEventDelayMillis(profile.getEventGapMillis());
+        for (Map.Entry<AutomationStep, Long> entry : profile.getStepMillis().entrySet()) {
+            costModel.setStepMillis(entry.getKey(), entry.getValue());
+            ReadinessProbe probe = readinessProbes.get(entry.getKey());
+            if (probe == null || probe instanceof FixedDelayProbe) {
+                readinessProbes.put(entry.getKey(), new FixedDelayProbe(entry.getValue()));
+            }
+        }
+    }
+    
+    /**
+     * Imposta la sorgente per l'assemblaggio diretto e attiva la modalità DIRECT
+     * @param source sorgente degli elementi degli appunti
+     * @param clipboard appunti di destinazione (null = appunti di sistema)
+     */
+    public void setDirectSource(ClipboardEntrySource source, Clipboard clipboard) {
+        this.directEngine = createDirectEngine(source, clipboard);
+        this.assemblyMode = AssemblyMode.DIRECT;
+    }
+    
+    private DirectAssemblyEngine createDirectEngine(ClipboardEntrySource source, Clipboard clipboard) {
+        Clipboard target = clipboard != null ? clipboard : Toolkit.getDefaultToolkit().getSystemClipboard();
+        DirectAssemblyEngine engine = new DirectAssemblyEngine(source, target);
+        engine.setTemplate(template);
+        engine.setSkipDuplicates(skipDuplicates);
+        engine.setPipeline(transformPipeline);
+        return engine;
+    }
+    
+    /**
+     * Motore per gli elementi scelti: quello della modalità DIRECT se configurato,
+     * altrimenti uno che pubblica negli appunti di sistema
+     */
+    private DirectAssemblyEngine selectionEngine() {
+        DirectAssemblyEngine engine = directEngine;
+        return engine != null ? engine : createDirectEngine(count -> Collections.<String>emptyList(), null);
+    }
+    
+    /**
+     * Se true i contenuti ripetuti nella cronologia vengono assemblati una sola volta.
+     * Vale solo per la modalità DIRECT: la "Cronologia Appunti" di Windows non espone i contenuti.
+     */
+    public void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+        if (directEngine != null) {
+            directEngine.setSkipDuplicates(skipDuplicates);
+        }
+    }
+    
+    /**
+     * Imposta le trasformazioni applicate agli elementi prima dell'assemblaggio (null = nessuna).
+     * Vale solo per la modalità DIRECT; i tempi delle trasformazioni finiscono nelle metriche.
+     */
+    public void setTransformPipeline(TransformPipeline pipeline) {
+        this.transformPipeline = pipeline != null ? pipeline : TransformPipeline.empty();
+        if (!transformPipeline.isEmpty()) {
+            transformPipeline.setMetrics(metrics);
+        }
+        if (directEngine != null) {
+            directEngine.setPipeline(transformPipeline);
+        }
+    }
+    
+    public TransformPipeline getTransformPipeline() {
+        return transformPipeline;
+    }
+    
+    /**
+     * Imposta la finestra in cui incollare al posto di Notepad (null = Notepad).
+     * Con una destinazione interna non si attende l'apertura di Notepad e il testo viene letto
+     * direttamente, senza Ctrl+A e Ctrl+C; il risultato viene poi messo negli appunti.
+     */
+    public void setPasteTarget(PasteTarget pasteTarget) {
+        this.pasteTarget = pasteTarget;
+    }
+    
+    public PasteTarget getPasteTarget() {
+        return pasteTarget;
+    }
+    
+    /**
+     * Testo letto dalla destinazione interna nell'ultima esecuzione (null se è stato usato Notepad)
+     */
+    public String getLastResult() {
+        return lastResult;
+    }
+    
+    /**
+     * Associa a un passo la sonda che ne verifica la prontezza, al posto della pausa fissa
+     * @param step passo dell'automazione
+     * @param probe sonda da usare (null = torna alla pausa fissa di default)
+     */
+    public void setReadinessProbe(AutomationStep step, ReadinessProbe probe) {
+        if (probe == null) {
+            readinessProbes.remove(step);
+        } else {
+            readinessProbes.put(step, probe);
+        }
+    }
+    
+    /**
+     * Restituisce la sonda usata per un passo
+     */
+    public ReadinessProbe getReadinessProbe(AutomationStep step) {
+        ReadinessProbe probe = readinessProbes.get(step);
+        return probe != null ? probe : new FixedDelayProbe(step.getDefaultDelayMillis());
+    }
+    
+    /**
+     * Numero di sonde scadute senza che la condizione si verificasse
+     */
+    public int getProbeTimeouts() {
+        return executor != null ? executor.getProbeTimeouts() : 0;
+    }
+    
+    /**
+     * Imposta chi riceve l'avanzamento dei passi nella modalità KEYSTROKE (null = nessuno).
+     * Viene chiamato nel thread dell'automazione.
+     */
+    public void setProgressListener(KeystrokeExecutor.ProgressListener listener) {
+        if (executor != null) {
+            executor.setProgressListener(listener);
+        }
+    }
+    
+    /**
+     * Latenze misurate di operazioni e passi
+     */
+    public AutomationMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Sostituisce il pianificatore dei tasti (ad esempio con un modello dei costi misurato sulla macchina)
+     */
+    public void setKeystrokePlanner(KeystrokePlanner planner) {
+        this.planner = planner;
+        compiler.setTextInjector(planner.getTextInjector());
+    }
+    
+    /**
+     * Imposta i testi da inserire attorno agli elementi (intestazioni, separatore, piè di pagina)
+     * @param template modello dei testi (null = comportamento originale)
+     */
+    public void setAssemblyTemplate(AssemblyTemplate template) {
+        this.template = template != null ? template : AssemblyTemplate.defaults();
+        if (directEngine != null) {
+            directEngine.setTemplate(this.template);
+        }
+    }
+    
+    public AssemblyTemplate getAssemblyTemplate() {
+        return template;
+    }
+    
+    public KeystrokePlanner getKeystrokePlanner() {
+        return planner;
+    }
+    
+    /**
+     * Imposta l'ordine di incolla degli elementi nella modalità KEYSTROKE
+     */
+    public void setPasteOrder(KeystrokePlanner.Order pasteOrder) {
+        this.pasteOrder = pasteOrder;
+    }
+    
+    /**
+     * Ultimo piano eseguito, con costo stimato ed effettivo (null se non è stato eseguito alcun piano)
+     */
+    public KeystrokePlan getLastPlan() {
+        return lastPlan;
+    }
+    
+    /**
+     * Ultimo programma di tasti compilato da un piano (null se nessuno)
+     */
+    public KeystrokeProgram getLastProgram() {
+        return lastProgram;
+    }
+    
+    public AssemblyMode getAssemblyMode() {
+        return assemblyMode;
+    }
+    
+    /**
+     * Cambia la modalità di assemblaggio
+     * @param assemblyMode nuova modalità
+     */
+    public void setAssemblyMode(AssemblyMode assemblyMode) {
+        if (assemblyMode == AssemblyMode.DIRECT && directEngine == null) {
+            throw new IllegalStateException("Nessuna sorgente configurata per l'assemblaggio diretto");
+        }
+        if (assemblyMode == AssemblyMode.KEYSTROKE && executor == null) {
+            throw new IllegalStateException("Robot non disponibile per l'automazione dei tasti");
+        }
+        this.assemblyMode = assemblyMode;
+    }
+    
     /**
      * Apre Notepad di Windows
      */
     public void openNotepad() throws IOException, InterruptedException {
+        long start = System.nanoTime();
         ProcessBuilder pb = new ProcessBuilder("notepad.exe");
+        armStep(AutomationStep.OPEN_NOTEPAD);
         pb.start();
         
         // Attende che Notepad si apra completamente
-        waitFor(2000);
+        awaitStep(AutomationStep.OPEN_NOTEPAD);
+        metrics.recordSince("openNotepad", start);
     }
     
     /**
      * Preme la combinazione Win+V per aprire gli appunti multipli
      */
     public void openClipboardHistory() throws InterruptedException {
-    	int waitingTime = 500;
-    	
-    	robot.keyPress(KeyEvent.VK_WINDOWS);
-        robot.keyPress(KeyEvent.VK_V);
-        robot.keyRelease(KeyEvent.VK_V);
-        robot.keyRelease(KeyEvent.VK_WINDOWS);
-        
-        // Attende 4 secondi per evitare rallentamenti di rendering grafico la prima volta, le altre volte attende mezzo secondo
+        // La prima volta concede un'attesa aggiuntiva per il rendering grafico della "Cronologia Appunti"
         if (firstMultipleClipboardUsage) {
-        	firstMultipleClipboardUsage = false;
-        	waitFor(waitingTime);
-        	waitingTime = 100;
+            firstMultipleClipboardUsage = false;
+            run(firstHistoryProgram);
+        } else {
+            run(historyProgram);
         }
-        waitFor(waitingTime);
     }
     
     /**
@@ -55,58 +353,44 @@ public class ClipboardAutomation {
      * @param steps numero di passi verso il basso
      */
     public void navigateDown(int steps) throws InterruptedException {
-        for (int i = 0; i < steps; i++) {
-            robot.keyPress(KeyEvent.VK_DOWN);
-            robot.keyRelease(KeyEvent.VK_DOWN);
-            waitFor(100); // Piccola pausa tra le pressioni
-        }
+        navigate(KeyEvent.VK_DOWN, steps);
+    }
+    
+    /**
+     * Preme più volte un tasto di navigazione nella lista degli appunti
+     * @param keyCode tasto da premere (frecce, Home, End)
+     * @param steps numero di pressioni
+     */
+    public void navigate(int keyCode, int steps) throws InterruptedException {
+        run(compiler.appendNavigate(compiler.builder(), keyCode, steps).build());
     }
     
     /**
      * Preme Invio per confermare la selezione
      */
     public void pressEnter() throws InterruptedException {
-        robot.keyPress(KeyEvent.VK_ENTER);
-        robot.keyRelease(KeyEvent.VK_ENTER);
-        waitFor(100); // Piccola pausa tra le pressioni
+        run(enterProgram);
     }
 
     /**
-     * Preme la sequenza per creare il separatore "---"
+     * Inserisce il separatore "---", digitato se il layout di tastiera lo consente, altrimenti incollato
      */
     public void pressTheSeparatorSequence() throws InterruptedException {
-        // -
-        robot.keyPress(KeyEvent.VK_MINUS);
-        robot.keyRelease(KeyEvent.VK_MINUS);
-        // -
-        robot.keyPress(KeyEvent.VK_MINUS);
-        robot.keyRelease(KeyEvent.VK_MINUS);
-        // -
-        robot.keyPress(KeyEvent.VK_MINUS);
-        robot.keyRelease(KeyEvent.VK_MINUS);
-        waitFor(100); // Piccola pausa tra le pressioni
+        run(separatorProgram);
     }
     
     /**
      * Seleziona tutto il testo con Ctrl+A
      */
     public void selectAll() throws InterruptedException {
-        robot.keyPress(KeyEvent.VK_CONTROL);
-        robot.keyPress(KeyEvent.VK_A);
-        robot.keyRelease(KeyEvent.VK_A);
-        robot.keyRelease(KeyEvent.VK_CONTROL);
-        waitFor(100); // Piccola pausa
+        run(selectAllProgram);
     }
     
     /**
      * Copia il testo selezionato con Ctrl+C
      */
     public void copyToClipboard() throws InterruptedException {
-        robot.keyPress(KeyEvent.VK_CONTROL);
-        robot.keyPress(KeyEvent.VK_C);
-        robot.keyRelease(KeyEvent.VK_C);
-        robot.keyRelease(KeyEvent.VK_CONTROL);
-        waitFor(100); // Piccola pausa
+        run(copyProgram);
     }
     
     /**
@@ -117,6 +401,37 @@ public class ClipboardAutomation {
         Thread.sleep(milliseconds);
     }
     
+    /**
+     * Prepara la sonda del passo prima dell'azione che deve produrre il cambiamento
+     * @param step passo dell'automazione
+     */
+    private void armStep(AutomationStep step) {
+        requireExecutor().armStep(step);
+    }
+    
+    /**
+     * Attende che il passo sia pronto tramite la sua sonda, o con la pausa fissa di default.
+     * Alla scadenza l'automazione prosegue comunque, come faceva con la pausa fissa.
+     * @param step passo dell'automazione
+     */
+    private void awaitStep(AutomationStep step) throws InterruptedException {
+        requireExecutor().awaitStep(step);
+    }
+    
+    /**
+     * Esegue un programma di tasti già compilato
+     */
+    private long run(KeystrokeProgram program) throws InterruptedException {
+        return requireExecutor().execute(program);
+    }
+    
+    private KeystrokeExecutor requireExecutor() {
+        if (executor == null) {
+            throw new IllegalStateException("Nessun emettitore di tasti configurato");
+        }
+        return executor;
+    }
+    
     /**
      * Incolla un elemento specifico dagli appunti
      * @param position posizione dell'elemento (1 = primo, 4 = quarto)
@@ -130,11 +445,9 @@ public class ClipboardAutomation {
             navigateDown(position - 1);
         }
         
-        // Incolla l'elemento selezionato
-        pressEnter();
-        
-        // Attende qualch istante per evitare che avvenga un doppio incolla (infatti a volte succede che incolla due volte lo stesso elemento)
-        waitFor(200);
+        // Incolla l'elemento selezionato e attende qualche istante per evitare che avvenga un doppio incolla
+        // (infatti a volte succede che incolla due volte lo stesso elemento)
+        run(pasteProgram);
         
         // Va a capo
         pressEnter();
@@ -146,42 +459,161 @@ public class ClipboardAutomation {
      * @param addSeparator se true aggiunge il separatore "---" alla fine
      */
     public void executeAutomation(int numberOfElements, boolean addSeparator) throws Exception {
+        long start = System.nanoTime();
+        // In modalità diretta gli elementi vengono letti senza Notepad e pubblicati negli appunti in più formati,
+        // prodotti solo quando un'applicazione li chiede
+        if (assemblyMode == AssemblyMode.DIRECT) {
+            directEngine.executeDeferred(numberOfElements, addSeparator);
+            metrics.recordSince("direct", start);
+            return;
+        }
+        
+        lastResult = null;
+        PasteTarget target = pasteTarget;
+        if (target != null) {
+            executeOnTarget(target, numberOfElements, addSeparator);
+            metrics.recordSince("run", start);
+            return;
+        }
+        
         // Apre Notepad
         openNotepad();
         
         // Attendi l'apertura del blocco note
-        waitFor(1000);
+        awaitStep(AutomationStep.NOTEPAD_SETTLE);
         
-        // Incolla gli elementi nell'ordine richiesto: dal più recente al più vecchio
-        for (int i = numberOfElements; i >= 1; i--) {
-            pasteClipboardItem(i);
-            
-            // Pausa tra gli elementi (tranne l'ultimo)
-            if (i > 1) {
-                waitFor(100);
+        // Pianifica la sequenza di tasti più economica: incolla, separatore, seleziona tutto e copia
+        KeystrokePlan plan = planner.plan(numberOfElements, pasteOrder, template, addSeparator, firstMultipleClipboardUsage);
+        executePlan(plan);
+        metrics.recordSince("run", start);
+    }
+    
+    /**
+     * Assembla gli elementi scelti, nell'ordine indicato, e pubblica il risultato negli appunti.
+     * Vale in entrambe le modalità: la "Cronologia Appunti" di Windows non permette di raggiungere
+     * un contenuto preciso, quindi gli elementi scelti vengono sempre assemblati direttamente.
+     * @param entries elementi nell'ordine in cui devono comparire nel risultato
+     * @param addSeparator se true aggiunge il separatore finale
+     */
+    public void executeAutomation(List<String> entries, boolean addSeparator) {
+        long start = System.nanoTime();
+        selectionEngine().executeDeferred(entries, addSeparator);
+        metrics.recordSince("direct", start);
+    }
+    
+    /**
+     * Come {@link #executeAutomation(List, boolean)}, ma scrive il risultato su una destinazione
+     * @param entries elementi nell'ordine in cui devono comparire nel risultato
+     * @param addSeparator se true aggiunge il separatore finale
+     * @param encoder formato del risultato (null = testo semplice con il modello corrente)
+     * @param sink destinazione, chiusa al termine
+     */
+    public void executeAutomation(List<String> entries, boolean addSeparator, OutputEncoder encoder,
+                                  OutputSink sink) throws IOException {
+        try (OutputSink target = sink) {
+            selectionEngine().write(entries, addSeparator,
+                    encoder != null ? encoder : new PlainTextEncoder(template), target);
+        }
+    }
+    
+    /**
+     * Incolla nella destinazione interna, legge il testo dal controllo e lo mette negli appunti
+     */
+    private void executeOnTarget(PasteTarget target, int numberOfElements, boolean addSeparator)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        target.open();
+        metrics.recordSince("openTarget", start);
+        try {
+            // Il testo si legge dal controllo: niente Ctrl+A e Ctrl+C
+            KeystrokePlan plan;
+            planner.setSelectAndCopy(false);
+            try {
+                plan = planner.plan(numberOfElements, pasteOrder, template, addSeparator, firstMultipleClipboardUsage);
+            } finally {
+                planner.setSelectAndCopy(true);
             }
+            executePlan(plan);
+            String text = target.getText();
+            emitter.putClipboardText(text);
+            lastResult = text;
+        } finally {
+            target.close();
         }
-        
-        // Aggiunge il separatore solo se richiesto
-        if (addSeparator) {
-            // Va a capo
-            pressEnter();
-            // Crea il separatore ---
-            pressTheSeparatorSequence();
-            // Va a capo
-            pressEnter();
-            // Va a capo
-            pressEnter();
+    }
+    
+    /**
+     * Esegue l'automazione e scrive il risultato su una destinazione (file, standard output, processo,
+     * o più destinazioni insieme con {@link FanOutSink}).
+     * In modalità DIRECT gli elementi vengono assemblati direttamente sulla destinazione, senza passare
+     * da Notepad né dagli appunti. In modalità KEYSTROKE il testo incollato, già negli appunti,
+     * viene scritto così com'è: il formato non si applica.
+     * @param numberOfElements numero di elementi da assemblare
+     * @param addSeparator se true aggiunge il separatore finale
+     * @param encoder formato del risultato (null = testo semplice con il modello corrente)
+     * @param sink destinazione, chiusa al termine
+     */
+    public void executeAutomation(int numberOfElements, boolean addSeparator, OutputEncoder encoder,
+                                  OutputSink sink) throws Exception {
+        if (assemblyMode == AssemblyMode.KEYSTROKE) {
+            try (OutputSink target = sink) {
+                executeAutomation(numberOfElements, addSeparator);
+                if (lastResult != null) {
+                    target.write(lastResult);
+                } else {
+                    copyClipboardText(target);
+                }
+            }
+            return;
         }
-        
-        // Attende 100 millisecondi prima di selezionare e copiare tutto
-        waitFor(100);
-        
-        // Seleziona tutto il contenuto
-        selectAll();
-        
-        // Copia tutto negli appunti
-        copyToClipboard();
+        try (OutputSink target = sink) {
+            directEngine.write(numberOfElements, addSeparator,
+                    encoder != null ? encoder : new PlainTextEncoder(template), target);
+        }
+    }
+    
+    /**
+     * Copia sulla destinazione il testo messo negli appunti di sistema con Ctrl+C al termine
+     * dell'automazione, a blocchi e senza caricarlo per intero in una String
+     */
+    private void copyClipboardText(OutputSink target) throws IOException {
+        try {
+            TextTransfer.copy(Toolkit.getDefaultToolkit().getSystemClipboard().getContents(null), target);
+        } catch (UnsupportedFlavorException | IllegalStateException e) {
+            throw new IOException("Risultato non disponibile negli appunti", e);
+        }
+    }
+    
+    /**
+     * Compila un piano in un programma di tasti, senza eseguirlo
+     * @param plan piano prodotto dal pianificatore
+     */
+    public KeystrokeProgram compilePlan(KeystrokePlan plan) {
+        return compiler.compile(plan, firstMultipleClipboardUsage);
+    }
+    
+    /**
+     * Stima la durata di un programma senza eseguirlo, con i costi dei passi del pianificatore
+     */
+    public long estimateMillis(KeystrokeProgram program) {
+        return program.estimateMillis(planner.getCostModel()::stepMillis);
+    }
+    
+    /**
+     * Compila ed esegue un piano di tasti registrandone la durata effettiva
+     * @param plan piano prodotto dal pianificatore
+     */
+    public void executePlan(KeystrokePlan plan) throws InterruptedException {
+        KeystrokeProgram program = compilePlan(plan);
+        lastProgram = program;
+        for (KeystrokePlan.Step step : plan.getSteps()) {
+            if (step.getKind() == KeystrokePlan.Kind.OPEN_HISTORY) {
+                firstMultipleClipboardUsage = false;
+                break;
+            }
+        }
+        plan.recordActualMillis(run(program));
+        lastPlan = plan;
     }
     
     /**
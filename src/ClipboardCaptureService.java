@@ -0,0 +1,230 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.FlavorEvent;
+import java.awt.datatransfer.FlavorListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Servizio residente che cattura il contenuto degli appunti in un {@link ClipboardRingBuffer},
+ * oppure lo passa soltanto al listener (ad esempio verso la cronologia persistente) senza tenerlo in memoria.
+ * Reagisce ai cambi di formato tramite {@link FlavorListener}; poiché il listener non scatta quando
+ * cambia solo il testo, interroga anche gli appunti con un intervallo adattivo: l'intervallo raddoppia
+ * finché il contenuto resta uguale e torna al minimo appena cambia.
+ * I testi messi negli appunti dall'automazione stessa ({@link InjectedText}) non vengono catturati.
+ * Funziona anche in ambienti headless con un {@link Clipboard} sostitutivo.
+ */
+public class ClipboardCaptureService {
+
+    /** Intervallo minimo di interrogazione */
+    public static final long DEFAULT_MIN_POLL_MILLIS = 100;
+    /** Intervallo massimo di interrogazione */
+    public static final long DEFAULT_MAX_POLL_MILLIS = 1000;
+
+    private final Clipboard clipboard;
+    private final ClipboardRingBuffer history;
+    private final long minPollMillis;
+    private final long maxPollMillis;
+    private final FlavorListener flavorListener = this::flavorsChanged;
+    private final AtomicLong captures = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+
+    private volatile Consumer<ClipboardEntry> captureListener;
+    private ScheduledExecutorService scheduler;
+    private long pollMillis;
+    private long lastHash;
+    private String lastText;
+
+    /**
+     * @param clipboard appunti da osservare
+     * @param history cronologia in cui salvare gli elementi catturati (null = solo il listener)
+     * @param minPollMillis intervallo minimo di interrogazione
+     * @param maxPollMillis intervallo massimo di interrogazione
+     */
+    public ClipboardCaptureService(Clipboard clipboard, ClipboardRingBuffer history,
+                                   long minPollMillis, long maxPollMillis) {
+        if (minPollMillis <= 0 || maxPollMillis < minPollMillis) {
+            throw new IllegalArgumentException("Intervalli di interrogazione non validi");
+        }
+        this.clipboard = clipboard;
+        this.history = history;
+        this.minPollMillis = minPollMillis;
+        this.maxPollMillis = maxPollMillis;
+    }
+
+    public ClipboardCaptureService(Clipboard clipboard, ClipboardRingBuffer history) {
+        this(clipboard, history, DEFAULT_MIN_POLL_MILLIS, DEFAULT_MAX_POLL_MILLIS);
+    }
+
+    /**
+     * Avvia la cattura in un thread daemon
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "clipboard-capture");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pollMillis = minPollMillis;
+        clipboard.addFlavorListener(flavorListener);
+        scheduler.execute(this::poll);
+    }
+
+    /**
+     * Ferma la cattura
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        clipboard.removeFlavorListener(flavorListener);
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * Cronologia in memoria, o null se gli elementi vanno solo al listener
+     */
+    public ClipboardRingBuffer getHistory() {
+        return history;
+    }
+
+    /**
+     * Imposta chi riceve ogni nuovo elemento catturato (ad esempio la cronologia persistente).
+     * Viene chiamato nel thread di cattura.
+     */
+    public void setCaptureListener(Consumer<ClipboardEntry> captureListener) {
+        this.captureListener = captureListener;
+    }
+
+    /**
+     * Cattura un testo come se fosse appena arrivato negli appunti
+     * @return true se il testo è stato aggiunto alla cronologia (o passato al listener)
+     */
+    public boolean capture(String text) {
+        long hash = ClipboardEntry.hash(text);
+        if (history == null && unchanged(text, hash)) {
+            // Senza cronologia in memoria il confronto con il più recente è quello con l'ultimo contenuto visto
+            duplicates.incrementAndGet();
+            return false;
+        }
+        return store(remember(text, hash));
+    }
+
+    /**
+     * Aggiunge l'elemento alla cronologia, se c'è, e avvisa il listener
+     */
+    private boolean store(ClipboardEntry entry) {
+        if (history != null && !history.add(entry)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        captures.incrementAndGet();
+        Consumer<ClipboardEntry> listener = captureListener;
+        if (listener != null) {
+            listener.accept(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Memorizza l'ultimo contenuto visto e crea l'elemento corrispondente
+     */
+    private synchronized ClipboardEntry remember(String text, long hash) {
+        lastHash = hash;
+        lastText = text;
+        return new ClipboardEntry(text, System.currentTimeMillis(), hash);
+    }
+
+    /**
+     * Verifica se il testo coincide con l'ultimo contenuto visto
+     */
+    private synchronized boolean unchanged(String text, long hash) {
+        return lastText != null && lastHash == hash && lastText.equals(text);
+    }
+
+    public long getCaptureCount() {
+        return captures.get();
+    }
+
+    public long getDuplicateCount() {
+        return duplicates.get();
+    }
+
+    public long getPollCount() {
+        return polls.get();
+    }
+
+    /**
+     * Intervallo di interrogazione corrente
+     */
+    public synchronized long getPollMillis() {
+        return pollMillis;
+    }
+
+    private void flavorsChanged(FlavorEvent event) {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            pollMillis = minPollMillis;
+        }
+        if (current != null) {
+            try {
+                // Controllo immediato, senza attendere la prossima interrogazione
+                current.execute(this::check);
+            } catch (RejectedExecutionException e) {
+                // Servizio fermato nel frattempo
+            }
+        }
+    }
+
+    private void poll() {
+        boolean changed = check();
+        synchronized (this) {
+            if (scheduler == null) {
+                return;
+            }
+            pollMillis = changed ? minPollMillis : Math.min(pollMillis * 2, maxPollMillis);
+            scheduler.schedule(this::poll, pollMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean check() {
+        polls.incrementAndGet();
+        String text;
+        try {
+            if (!clipboard.isDataFlavorAvailable(DataFlavor.stringFlavor)) {
+                return false;
+            }
+            if (InjectedText.isInjected(clipboard)) {
+                // Testo messo dall'automazione solo per incollarlo, o appunti dell'utente rimessi dopo averlo fatto
+                return false;
+            }
+            text = (String) clipboard.getData(DataFlavor.stringFlavor);
+        } catch (Exception e) {
+            // Appunti occupati da un altro processo o contenuto non testuale: si riprova più tardi
+            return false;
+        }
+        if (text == null) {
+            return false;
+        }
+        // Il contenuto invariato tra due interrogazioni non è un duplicato da contare
+        long hash = ClipboardEntry.hash(text);
+        if (unchanged(text, hash)) {
+            return false;
+        }
+        return store(remember(text, hash));
+    }
+}
@@ -0,0 +1,49 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Sonda che considera pronto il passo quando il contenuto degli appunti cambia
+ * (ad esempio dopo Ctrl+C, invece di attendere un tempo fisso)
+ */
+public class ClipboardChangeProbe extends PollingReadinessProbe {
+
+    private final Clipboard clipboard;
+    private Object baseline;
+
+    /**
+     * @param clipboard appunti da osservare
+     * @param timeoutMillis tempo massimo di attesa
+     * @param pollIntervalMillis intervallo tra due controlli
+     */
+    public ClipboardChangeProbe(Clipboard clipboard, long timeoutMillis, long pollIntervalMillis) {
+        super(timeoutMillis, pollIntervalMillis);
+        this.clipboard = clipboard;
+    }
+
+    @Override
+    public void arm() {
+        baseline = fingerprint();
+    }
+
+    @Override
+    protected boolean isReady() {
+        return !Objects.equals(baseline, fingerprint());
+    }
+
+    /**
+     * Impronta del contenuto corrente: il testo se disponibile, altrimenti l'elenco dei formati
+     */
+    private Object fingerprint() {
+        try {
+            if (clipboard.isDataFlavorAvailable(DataFlavor.stringFlavor)) {
+                return clipboard.getData(DataFlavor.stringFlavor);
+            }
+            return Arrays.asList(clipboard.getAvailableDataFlavors());
+        } catch (Exception e) {
+            // Appunti temporaneamente occupati da un altro processo: si riprova al controllo successivo
+            return baseline;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Elemento catturato dagli appunti, con istante di cattura e impronta del contenuto
+ */
+public final class ClipboardEntry {
+
+    /** Occupazione stimata di un elemento escluso il contenuto */
+    public static final long OVERHEAD_BYTES = 64;
+
+    private final String text;
+    private final long timestamp;
+    private final long hash;
+
+    /**
+     * @param text testo dell'elemento
+     * @param timestamp istante di cattura in millisecondi
+     */
+    public ClipboardEntry(String text, long timestamp) {
+        this(text, timestamp, hash(text));
+    }
+
+    /**
+     * @param text testo dell'elemento
+     * @param timestamp istante di cattura in millisecondi
+     * @param hash impronta già calcolata con {@link #hash(CharSequence)}
+     */
+    public ClipboardEntry(String text, long timestamp, long hash) {
+        this.text = text;
+        this.timestamp = timestamp;
+        this.hash = hash;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Impronta a 64 bit del contenuto (FNV-1a sui caratteri)
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Occupazione stimata in memoria (caratteri UTF-16 più l'intestazione degli oggetti)
+     */
+    public long getByteSize() {
+        return 2L * text.length() + OVERHEAD_BYTES;
+    }
+
+    /**
+     * Verifica se l'elemento ha lo stesso contenuto di un testo, confrontando prima le impronte
+     */
+    public boolean sameContent(long otherHash, String otherText) {
+        return hash == otherHash && text.equals(otherText);
+    }
+
+    /**
+     * Calcola l'impronta FNV-1a a 64 bit di un testo
+     */
+    public static long hash(CharSequence text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
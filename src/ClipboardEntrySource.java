@@ -0,0 +1,16 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sorgente degli elementi degli appunti usata dall'assemblaggio diretto.
+ * Permette di sostituire la cronologia reale con una sorgente finta (ad esempio nei test su Linux).
+ */
+public interface ClipboardEntrySource {
+
+    /**
+     * Legge gli ultimi elementi disponibili
+     * @param count numero massimo di elementi da leggere
+     * @return elementi in ordine di cronologia (indice 0 = il più recente, come la posizione 1 di Win+V)
+     */
+    List<String> readEntries(int count) throws IOException;
+}
@@ -1,10 +1,13 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
 import javafx.animation.ParallelTransition;
 import javafx.animation.RotateTransition;
 import javafx.animation.ScaleTransition;
 import javafx.animation.Timeline;
-import javafx.animation.TranslateTransition;
 import javafx.application.Application;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -12,12 +15,16 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.Menu;
+import javafx.scene.control.MenuButton;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.SpinnerValueFactory;
+import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
 import javafx.scene.effect.DropShadow;
 import javafx.scene.effect.GaussianBlur;
 import javafx.scene.layout.BorderPane;
@@ -25,94 +32,119 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Circle;
 import javafx.stage.Stage;
 import javafx.util.Duration;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
 
 /**
  * Interfaccia grafica JavaFX per l'automazione degli appunti
  */
 public class ClipboardGUI extends Application {
     
+    /** Numero massimo di elementi incollabili con la "Cronologia Appunti" di Windows */
+    private static final int MAX_KEYSTROKE_ELEMENTS = 20;
+    /** Numero massimo di elementi assemblabili dalla cronologia interna, e della cronologia in memoria */
+    private static final int HISTORY_CAPACITY = 1000;
+    /** Elementi conservati dalla cronologia persistente e mostrati nel pannello della cronologia */
+    private static final int HISTORY_RETENTION = 100_000;
+    /** Occupazione massima della cronologia in memoria, senza cronologia persistente (32 MB) */
+    private static final long HISTORY_BYTE_BUDGET = 32L * 1024 * 1024;
+    /** Intervallo di compattazione della cronologia persistente (1 minuto) */
+    private static final long HISTORY_COMPACTION_MILLIS = 60_000;
+    /** Attesa prima di premere i tasti, per permettere all'utente di prepararsi */
+    private static final long AUTOMATION_START_DELAY_MILLIS = 2000;
+    /** Intervallo di salvataggio delle latenze misurate (5 minuti) */
+    private static final long METRICS_DUMP_MILLIS = 300_000;
+    
     private ClipboardAutomation automation;
+    private AutomationExecutor automationExecutor;
+    private CoalescingUpdater<String> progressUpdater;
     private Button startButton;
+    private Button cancelButton;
     private Label statusLabel;
+    private Label metricsLabel;
     private Label titleLabel;
     private Label instructionLabel;
     private Label elementsLabel;
     private Spinner<Integer> elementsSpinner;
     private CheckBox separatorCheckBox;
     private CheckBox specialEffectsCheckBox;
+    private CheckBox directModeCheckBox;
+    private CheckBox skipDuplicatesCheckBox;
+    private CheckBox internalTargetCheckBox;
+    private MenuButton transformMenu;
+    private CheckMenuItem trimItem;
+    private CheckMenuItem uniqueItem;
+    private CheckMenuItem sortItem;
+    private CheckMenuItem jsonItem;
+    private TextField filterField;
+    private InternalPasteTarget pasteTarget;
+    private ClipboardCaptureService captureService;
+    private ClipboardHistoryStore historyStore;
+    private ClipboardHistoryIndex historyIndex;
+    private ControlServer controlServer;
+    private volatile HistoryPanel historyPanel;
     private Stage primaryStage;
-    private Pane bubblePane;
-    private List<Circle> bubbles;
-    private Timeline bubbleAnimation;
-    private Random random;
+    private BubbleCanvas bubbleCanvas;
+    private AnimationScheduler animationScheduler;
+    // Effetti e transizioni del pulsante principale, creati una sola volta
+    private DropShadow buttonShadow;
+    private DropShadow buttonHoverShadow;
+    private DropShadow buttonGlow;
+    private ParallelTransition buttonEnterAnimation;
+    private ParallelTransition buttonExitAnimation;
+    private ScaleTransition buttonGrow;
+    private ScaleTransition buttonShrink;
     private I18nManager i18n = I18nManager.getInstance();
     private MenuBar menuBar;
     private Menu languageMenu;
     private MenuItem italianMenuItem;
     private MenuItem englishMenuItem;
     
+    public ClipboardGUI() {
+    }
+    
+    /**
+     * Interfaccia sopra un indice già pronto, senza automazione né cattura: serve a misurare
+     * la costruzione della scena con {@link #createScene()}
+     */
+    ClipboardGUI(ClipboardHistoryIndex historyIndex) {
+        this.historyIndex = historyIndex;
+    }
+    
     @Override
     public void start(Stage primaryStage) {
         try {
             this.primaryStage = primaryStage;
-            this.bubbles = new ArrayList<>();
-            this.random = new Random();
             
             // Inizializza l'automazione
             automation = new ClipboardAutomation();
             
-            // Crea la menu bar
-            createMenuBar();
-            
-            // Crea i componenti dell'interfaccia
-            createComponents();
-            
-            // Configura il layout principale
-            BorderPane mainLayout = new BorderPane();
-            mainLayout.setTop(menuBar);
-            
-            // Configura il layout centrale
-            VBox root = new VBox(20);
-            root.setAlignment(Pos.CENTER);
-            root.setPadding(new Insets(30));
-            root.setStyle("-fx-background-color: #f8f9fa;");
-            
-            titleLabel = new Label(i18n.getText("title.label"));
-            titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
-            
-            instructionLabel = new Label(i18n.getText("instruction.label"));
-            instructionLabel.setStyle("-fx-text-alignment: center; -fx-text-fill: #34495e;");
-            
-            // Crea il pannello di configurazione
-            VBox configPanel = createConfigurationPanel();
+            // Usa i tempi misurati con --calibrate su questa macchina, se disponibili
+            loadTimingProfile();
             
-            root.getChildren().addAll(titleLabel, instructionLabel, configPanel, startButton, statusLabel);
+            // Avvia la cattura della cronologia interna degli appunti per l'assemblaggio diretto
+            ClipboardEntrySource historySource = openHistoryStore();
+            automation.setDirectSource(historySource, null);
+            captureService.start();
+            startControlServer(historySource);
+            automation.setAssemblyMode(ClipboardAutomation.AssemblyMode.KEYSTROKE);
             
-            // Crea il pannello delle bolle sopra tutto
-            bubblePane = new Pane();
-            bubblePane.setPrefSize(500, 370); // Ridotta altezza per escludere la menu bar
-            bubblePane.setMouseTransparent(true);
-            // Posiziona le bolle sotto la menu bar per evitare interferenze
-            bubblePane.setLayoutY(30); // Offset per evitare la menu bar
+            // Finestra interna in cui incollare al posto di Notepad, creata una volta e tenuta nascosta
+            pasteTarget = new InternalPasteTarget();
             
-            // Usa un Pane per sovrapporre le bolle al contenuto
-            Pane mainPane = new Pane();
-            mainPane.getChildren().addAll(root, bubblePane);
+            // Un solo thread per le esecuzioni, con coda limitata e annullamento
+            automationExecutor = new AutomationExecutor(automation);
+            progressUpdater = new CoalescingUpdater<>(javafx.application.Platform::runLater, this::showProgress);
+            automationExecutor.setListener(createAutomationListener());
             
-            // Assicura che root riempia tutto lo spazio disponibile
-            root.prefWidthProperty().bind(mainPane.widthProperty());
-            root.prefHeightProperty().bind(mainPane.heightProperty());
+            // Latenze dei passi consultabili via JMX e salvate periodicamente per regolare le pause
+            automation.getMetrics().registerMBean();
+            automation.getMetrics().startPeriodicDump(
+                ClipboardHistoryStore.defaultDirectory().resolveSibling("metrics.csv"), METRICS_DUMP_MILLIS);
             
-            mainLayout.setCenter(mainPane);
-            
-            // Configura la scena
-            Scene scene = new Scene(mainLayout, 500, 460); // Aumenta altezza per rendere visibile la menu bar
+            // Crea menu bar, componenti e layout
+            Scene scene = createScene();
+            historyPanel.load();
             primaryStage.setTitle(i18n.getText("window.title"));
             primaryStage.setScene(scene);
             primaryStage.setResizable(false);
@@ -136,6 +168,132 @@ public class ClipboardGUI extends Application {
         }
     }
     
+    /**
+     * Crea la menu bar, i componenti e il layout della finestra.
+     * Non avvia servizi né animazioni e non carica la cronologia, quindi si può misurare anche senza display.
+     */
+    Scene createScene() {
+        // Crea la menu bar
+        createMenuBar();
+        
+        // Crea i componenti dell'interfaccia
+        createComponents();
+        
+        // Configura il layout principale
+        BorderPane mainLayout = new BorderPane();
+        mainLayout.setTop(menuBar);
+        
+        // Configura il layout centrale
+        VBox root = new VBox(20);
+        root.setAlignment(Pos.CENTER);
+        root.setPadding(new Insets(30));
+        root.setStyle("-fx-background-color: #f8f9fa;");
+        
+        titleLabel = new Label(i18n.getText("title.label"));
+        titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+        
+        instructionLabel = new Label(i18n.getText("instruction.label"));
+        instructionLabel.setStyle("-fx-text-alignment: center; -fx-text-fill: #34495e;");
+        
+        // Crea il pannello di configurazione
+        VBox configPanel = createConfigurationPanel();
+        
+        // Riga dei pulsanti di avvio e annullamento
+        HBox buttonRow = new HBox(15);
+        buttonRow.setAlignment(Pos.CENTER);
+        buttonRow.getChildren().addAll(startButton, cancelButton);
+        
+        root.getChildren().addAll(titleLabel, instructionLabel, configPanel, buttonRow, statusLabel, metricsLabel);
+        
+        // Crea il canvas delle bolle sopra tutto
+        bubbleCanvas = new BubbleCanvas(500, 370); // Ridotta altezza per escludere la menu bar
+        // Posiziona le bolle sotto la menu bar per evitare interferenze
+        bubbleCanvas.setLayoutY(30); // Offset per evitare la menu bar
+        
+        // Usa un Pane per sovrapporre le bolle al contenuto
+        Pane mainPane = new Pane();
+        mainPane.getChildren().addAll(root, bubbleCanvas);
+        
+        // Assicura che root riempia tutto lo spazio disponibile
+        root.prefWidthProperty().bind(mainPane.widthProperty());
+        root.prefHeightProperty().bind(mainPane.heightProperty());
+        
+        mainLayout.setCenter(mainPane);
+        
+        // Configura la scena
+        return new Scene(mainLayout, 500, 850); // Aumenta altezza per rendere visibile la menu bar
+    }
+    
+    /**
+     * Applica il profilo dei tempi salvato dalla calibrazione, se è stato misurato su questa macchina.
+     * Un profilo assente o illeggibile lascia le pause di default.
+     */
+    private void loadTimingProfile() {
+        try {
+            TimingProfile profile = TimingProfile.load(TimingProfile.defaultFile());
+            if (profile != null && profile.matchesCurrentMachine()) {
+                automation.applyTimingProfile(profile);
+            }
+        } catch (java.io.IOException e) {
+            // Restano le pause di default
+        }
+    }
+    
+    /**
+     * Apre la cronologia persistente e la collega alla cattura degli appunti attraverso l'indice di ricerca.
+     * Se la cartella non è utilizzabile o è già aperta da un'altra istanza dell'applicazione,
+     * l'assemblaggio diretto usa solo la cronologia in memoria
+     * e l'indice tiene i testi in memoria.
+     * Con la cronologia persistente la cattura passa i contenuti direttamente all'indice, che li salva
+     * nei segmenti: nello heap non resta una seconda copia di ogni elemento.
+     */
+    private ClipboardEntrySource openHistoryStore() {
+        java.awt.datatransfer.Clipboard clipboard = java.awt.Toolkit.getDefaultToolkit().getSystemClipboard();
+        ClipboardEntrySource source;
+        try {
+            historyStore = new ClipboardHistoryStore(ClipboardHistoryStore.defaultDirectory());
+            historyStore.setRetention(HISTORY_RETENTION);
+            historyStore.startBackgroundCompaction(HISTORY_COMPACTION_MILLIS);
+            captureService = new ClipboardCaptureService(clipboard, null);
+            source = historyStore;
+        } catch (java.io.IOException e) {
+            ClipboardRingBuffer history = new ClipboardRingBuffer(HISTORY_CAPACITY, HISTORY_BYTE_BUDGET);
+            captureService = new ClipboardCaptureService(clipboard, history);
+            source = history;
+        }
+        historyIndex = new ClipboardHistoryIndex(historyStore, HISTORY_RETENTION,
+            ClipboardHistoryIndex.DEFAULT_MAX_POSTINGS, ClipboardHistoryIndex.DEFAULT_MAX_TEXT_CHARS);
+        // L'indice viene aggiornato nel thread della cattura, mai nel thread JavaFX
+        captureService.setCaptureListener(entry -> {
+            try {
+                HistoryPanel panel = historyPanel;
+                if (historyIndex.add(entry.getText(), entry.getTimestamp()) != null && panel != null) {
+                    panel.itemsAdded();
+                }
+            } catch (java.io.IOException e) {
+                // Elemento non salvato (disco pieno o non scrivibile): la cattura prosegue con i successivi
+            }
+        });
+        return source;
+    }
+    
+    /**
+     * Apre l'endpoint di controllo locale sulla stessa cronologia mostrata nel pannello.
+     * Senza endpoint l'applicazione funziona comunque.
+     */
+    private void startControlServer(ClipboardEntrySource source) {
+        try {
+            controlServer = new ControlServer(source, historyIndex, java.awt.Toolkit.getDefaultToolkit().getSystemClipboard());
+            controlServer.start(0);
+            controlServer.writePortFile(ControlServer.defaultFile());
+        } catch (java.io.IOException e) {
+            if (controlServer != null) {
+                controlServer.stop();
+                controlServer = null;
+            }
+        }
+    }
+    
     /**
      * Crea i componenti dell'interfaccia
      */
@@ -148,19 +306,31 @@ public class ClipboardGUI extends Application {
         startButton.setOnAction(e -> startAutomation());
         
         // Aggiungi effetto ombra al pulsante
-        DropShadow shadow = new DropShadow();
-        shadow.setColor(Color.rgb(0, 0, 0, 0.3));
-        shadow.setOffsetX(2);
-        shadow.setOffsetY(2);
-        shadow.setRadius(5);
-        startButton.setEffect(shadow);
+        buttonShadow = new DropShadow();
+        buttonShadow.setColor(Color.rgb(0, 0, 0, 0.3));
+        buttonShadow.setOffsetX(2);
+        buttonShadow.setOffsetY(2);
+        buttonShadow.setRadius(5);
+        startButton.setEffect(buttonShadow);
+        
+        // Pulsante per annullare l'esecuzione in corso e quelle in coda
+        cancelButton = new Button(i18n.getText("cancel.button"));
+        cancelButton.setStyle("-fx-font-size: 12px; -fx-padding: 10px 20px; " +
+                             "-fx-background-color: #c0392b; -fx-text-fill: white; " +
+                             "-fx-background-radius: 20px; -fx-border-radius: 20px; -fx-cursor: hand;");
+        cancelButton.setDisable(true);
+        cancelButton.setOnAction(e -> cancelAutomation());
         
         statusLabel = new Label(i18n.getText("status.ready"));
         statusLabel.setStyle("-fx-text-fill: #27ae60; -fx-font-weight: bold; -fx-font-size: 12px;");
         
+        // Riepilogo delle latenze (p50/p99/max) dopo ogni esecuzione
+        metricsLabel = new Label();
+        metricsLabel.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 10px;");
+        
         // Spinner per il numero di elementi
         elementsSpinner = new Spinner<>();
-        SpinnerValueFactory<Integer> valueFactory = new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 20, 4);
+        SpinnerValueFactory<Integer> valueFactory = new SpinnerValueFactory.IntegerSpinnerValueFactory(1, MAX_KEYSTROKE_ELEMENTS, 4);
         elementsSpinner.setValueFactory(valueFactory);
         elementsSpinner.setEditable(true);
         elementsSpinner.setPrefWidth(80);
@@ -171,7 +341,8 @@ public class ClipboardGUI extends Application {
             if (newValue != null && !newValue.isEmpty()) {
                 try {
                     int value = Integer.parseInt(newValue);
-                    if (value >= 1 && value <= 20) {
+                    int max = ((SpinnerValueFactory.IntegerSpinnerValueFactory) elementsSpinner.getValueFactory()).getMax();
+                    if (value >= 1 && value <= max) {
                         elementsSpinner.getValueFactory().setValue(value);
                     }
                 } catch (NumberFormatException e) {
@@ -190,6 +361,87 @@ public class ClipboardGUI extends Application {
         specialEffectsCheckBox.setSelected(false); // Disattivato di default
         specialEffectsCheckBox.setStyle("-fx-text-fill: #8e44ad; -fx-font-weight: bold;");
         specialEffectsCheckBox.setOnAction(e -> toggleSpecialEffects());
+        
+        // Il suggerimento mostra i risvegli dell'animazione, calcolati solo quando viene aperto
+        Tooltip wakeupsTooltip = new Tooltip();
+        wakeupsTooltip.setOnShowing(e -> wakeupsTooltip.setText(i18n.getText("effects.wakeups",
+            String.valueOf(animationScheduler != null ? animationScheduler.getWakeupsPerMinute() : 0))));
+        specialEffectsCheckBox.setTooltip(wakeupsTooltip);
+        
+        // CheckBox per l'assemblaggio diretto dalla cronologia interna
+        directModeCheckBox = new CheckBox(i18n.getText("direct.checkbox"));
+        directModeCheckBox.setSelected(false);
+        directModeCheckBox.setStyle("-fx-text-fill: #2c3e50;");
+        directModeCheckBox.setOnAction(e -> toggleDirectMode());
+        
+        // CheckBox per saltare i contenuti ripetuti (solo con la cronologia interna)
+        skipDuplicatesCheckBox = new CheckBox(i18n.getText("skipduplicates.checkbox"));
+        skipDuplicatesCheckBox.setSelected(false);
+        skipDuplicatesCheckBox.setDisable(true);
+        skipDuplicatesCheckBox.setStyle("-fx-text-fill: #2c3e50;");
+        
+        // CheckBox per incollare nella finestra interna invece che in Notepad (solo automazione dei tasti)
+        internalTargetCheckBox = new CheckBox(i18n.getText("internaltarget.checkbox"));
+        internalTargetCheckBox.setSelected(false);
+        internalTargetCheckBox.setStyle("-fx-text-fill: #2c3e50;");
+        
+        // Trasformazioni degli elementi prima dell'assemblaggio (solo con la cronologia interna)
+        trimItem = new CheckMenuItem(i18n.getText("transform.trim"));
+        uniqueItem = new CheckMenuItem(i18n.getText("transform.unique"));
+        sortItem = new CheckMenuItem(i18n.getText("transform.sort"));
+        jsonItem = new CheckMenuItem(i18n.getText("transform.json"));
+        transformMenu = new MenuButton(i18n.getText("transform.menu"), null, trimItem, uniqueItem, sortItem, jsonItem);
+        transformMenu.setDisable(true);
+        filterField = new TextField();
+        filterField.setPromptText(i18n.getText("transform.filter.prompt"));
+        filterField.setPrefWidth(180);
+        filterField.setDisable(true);
+        
+        // Cronologia con ricerca e scelta degli elementi; l'indice si costruisce in background
+        historyPanel = new HistoryPanel(historyIndex);
+        historyPanel.getSelectedItems().addListener(
+            (javafx.collections.ListChangeListener<ClipboardHistoryIndex.Item>) change ->
+                elementsSpinner.setDisable(!historyPanel.getSelectedItems().isEmpty()));
+    }
+    
+    /**
+     * Gestisce il passaggio tra la "Cronologia Appunti" di Windows e la cronologia interna.
+     * Con la cronologia interna il limite di 20 elementi non è più necessario.
+     */
+    private void toggleDirectMode() {
+        boolean direct = directModeCheckBox.isSelected();
+        SpinnerValueFactory.IntegerSpinnerValueFactory factory =
+            (SpinnerValueFactory.IntegerSpinnerValueFactory) elementsSpinner.getValueFactory();
+        factory.setMax(direct ? HISTORY_CAPACITY : MAX_KEYSTROKE_ELEMENTS);
+        skipDuplicatesCheckBox.setDisable(!direct);
+        internalTargetCheckBox.setDisable(direct);
+        transformMenu.setDisable(!direct);
+        filterField.setDisable(!direct);
+    }
+    
+    /**
+     * Trasformazioni scelte, nell'ordine: spazi, filtro, righe uniche, ordinamento, JSON
+     * @throws PatternSyntaxException se il filtro non è un'espressione valida
+     */
+    private TransformPipeline createTransformPipeline() {
+        List<TransformStage> stages = new ArrayList<>();
+        if (trimItem.isSelected()) {
+            stages.add(TransformStage.trim());
+        }
+        String filter = filterField.getText();
+        if (filter != null && !filter.isEmpty()) {
+            stages.add(TransformStage.filterLines(filter));
+        }
+        if (uniqueItem.isSelected()) {
+            stages.add(TransformStage.uniqueLines());
+        }
+        if (sortItem.isSelected()) {
+            stages.add(TransformStage.sortLines());
+        }
+        if (jsonItem.isSelected()) {
+            stages.add(TransformStage.prettyJson());
+        }
+        return new TransformPipeline(stages);
     }
     
     /**
@@ -222,57 +474,148 @@ public class ClipboardGUI extends Application {
         separatorRow.setAlignment(Pos.CENTER);
         separatorRow.getChildren().add(separatorCheckBox);
         
+        // Riga per l'assemblaggio diretto
+        HBox directRow = new HBox(10);
+        directRow.setAlignment(Pos.CENTER);
+        directRow.getChildren().add(directModeCheckBox);
+        
+        // Riga per i contenuti ripetuti
+        HBox duplicatesRow = new HBox(10);
+        duplicatesRow.setAlignment(Pos.CENTER);
+        duplicatesRow.getChildren().add(skipDuplicatesCheckBox);
+        
+        // Riga per le trasformazioni
+        HBox transformRow = new HBox(10);
+        transformRow.setAlignment(Pos.CENTER);
+        transformRow.getChildren().addAll(transformMenu, filterField);
+        
+        // Riga per la finestra interna
+        HBox targetRow = new HBox(10);
+        targetRow.setAlignment(Pos.CENTER);
+        targetRow.getChildren().add(internalTargetCheckBox);
+        
         // Riga per gli effetti speciali
         HBox effectsRow = new HBox(10);
         effectsRow.setAlignment(Pos.CENTER);
         effectsRow.getChildren().add(specialEffectsCheckBox);
         
-        configPanel.getChildren().addAll(elementsRow, separatorRow, effectsRow);
+        configPanel.getChildren().addAll(elementsRow, historyPanel, separatorRow, directRow, duplicatesRow, transformRow,
+            targetRow, effectsRow);
         return configPanel;
     }
     
     /**
-     * Avvia il processo di automazione
+     * Accoda un'esecuzione dell'automazione.
+     * I parametri vengono letti qui, nel thread JavaFX; l'esecuzione avviene nel thread dell'automazione.
      */
     private void startAutomation() {
-        // Disabilita il pulsante durante l'esecuzione
-        startButton.setDisable(true);
-        statusLabel.setText(i18n.getText("status.running"));
-        statusLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
-        
-        // Esegue l'automazione in un thread separato per non bloccare l'interfaccia
-        Thread automationThread = new Thread(() -> {
+        boolean direct = directModeCheckBox.isSelected();
+        TransformPipeline pipeline = null;
+        if (direct) {
             try {
-                // Piccola pausa prima di iniziare per permettere all'utente di prepararsi
-                Thread.sleep(2000);
-                
-                // Ottiene i valori configurati dall'utente
-                int numberOfElements = elementsSpinner.getValue();
-                boolean addSeparator = separatorCheckBox.isSelected();
-                
-                // Esegue l'automazione con i parametri configurati
-                automation.executeAutomation(numberOfElements, addSeparator);
-                
-                // Aggiorna l'interfaccia nel thread JavaFX
-                javafx.application.Platform.runLater(() -> {
-                    statusLabel.setText(i18n.getText("status.completed"));
-                    statusLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
-                    startButton.setDisable(false);
-                });
-                
-            } catch (Exception ex) {
-                // Gestisce gli errori
+                pipeline = createTransformPipeline();
+            } catch (PatternSyntaxException e) {
+                statusLabel.setText(i18n.getText("transform.error.regex", e.getDescription()));
+                statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+                return;
+            }
+        }
+        List<ClipboardHistoryIndex.Item> selection = historyPanel.getSelection();
+        boolean selected = !selection.isEmpty();
+        AutomationRequest request = new AutomationRequest.Builder(elementsSpinner.getValue(),
+                direct ? ClipboardAutomation.AssemblyMode.DIRECT : ClipboardAutomation.AssemblyMode.KEYSTROKE)
+            .addSeparator(separatorCheckBox.isSelected())
+            .skipDuplicates(skipDuplicatesCheckBox.isSelected())
+            // Senza tasti da premere non serve attendere l'utente
+            .startDelayMillis(direct || selected ? 0 : AUTOMATION_START_DELAY_MILLIS)
+            .pasteTarget(!direct && internalTargetCheckBox.isSelected() ? pasteTarget : null)
+            .transformPipeline(pipeline)
+            .selection(selected ? selection : null)
+            .build();
+        
+        try {
+            automationExecutor.submit(request);
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            statusLabel.setText(i18n.getText("status.queuefull"));
+            statusLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
+            return;
+        }
+        
+        cancelButton.setDisable(false);
+        animationScheduler.setAutomationRunning(true);
+        int queued = automationExecutor.getQueuedCount();
+        statusLabel.setText(queued > 0
+            ? i18n.getText("status.queued", String.valueOf(queued))
+            : i18n.getText("status.running"));
+        statusLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
+    }
+    
+    /**
+     * Annulla l'esecuzione in corso (tra un tasto e l'altro) e quelle in coda
+     */
+    private void cancelAutomation() {
+        automationExecutor.cancelAll();
+    }
+    
+    /**
+     * Riceve gli eventi delle esecuzioni nel thread dell'automazione e li porta nel thread JavaFX.
+     * L'avanzamento dei passi passa dal {@link CoalescingUpdater}: al più un aggiornamento per fotogramma.
+     */
+    private AutomationExecutor.Listener createAutomationListener() {
+        return new AutomationExecutor.Listener() {
+            @Override
+            public void jobStarted(AutomationExecutor.Job job) {
                 javafx.application.Platform.runLater(() -> {
-                    statusLabel.setText(i18n.getText("status.error"));
-                    statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-                    startButton.setDisable(false);
-                    showErrorDialog(i18n.getText("error.automation.title"), i18n.getText("error.automation.message") + ex.getMessage());
+                    statusLabel.setText(i18n.getText("status.running"));
+                    statusLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
                 });
             }
-        });
-        
-        automationThread.setDaemon(true);
-        automationThread.start();
+            
+            @Override
+            public void jobProgress(AutomationExecutor.Job job, AutomationStep step, int done, int total) {
+                progressUpdater.post(i18n.getText("status.progress", String.valueOf(done * 100 / total)));
+            }
+            
+            @Override
+            public void jobFinished(AutomationExecutor.Job job) {
+                javafx.application.Platform.runLater(() -> showJobResult(job));
+            }
+        };
+    }
+    
+    private void showProgress(String text) {
+        // Un aggiornamento arrivato dopo la fine dell'esecuzione non sovrascrive l'esito
+        if (automationExecutor.getCurrentJob() != null) {
+            statusLabel.setText(text);
+        }
+    }
+    
+    private void showJobResult(AutomationExecutor.Job job) {
+        switch (job.getState()) {
+            case COMPLETED:
+                statusLabel.setText(i18n.getText("status.completed"));
+                statusLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
+                break;
+            case CANCELLED:
+                statusLabel.setText(i18n.getText("status.cancelled"));
+                statusLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
+                break;
+            default:
+                // Gestisce gli errori
+                statusLabel.setText(i18n.getText("status.error"));
+                statusLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+                Throwable error = job.getError();
+                showErrorDialog(i18n.getText("error.automation.title"),
+                    i18n.getText("error.automation.message") + (error != null ? error.getMessage() : ""));
+                break;
+        }
+        metricsLabel.setText(automation.getMetrics().compactSummary(
+            "openNotepad", "OPEN_HISTORY", "NAVIGATE", "DOUBLE_PASTE_GUARD", "COPY", "run", "direct",
+            "stage.trim", "stage.filter", "stage.unique", "stage.sort", "stage.json"));
+        if (automationExecutor.isIdle()) {
+            cancelButton.setDisable(true);
+            animationScheduler.setAutomationRunning(false);
+        }
     }
     
     /**
@@ -309,7 +652,18 @@ public class ClipboardGUI extends Application {
         elementsLabel.setText(i18n.getText("elements.label"));
         separatorCheckBox.setText(i18n.getText("separator.checkbox"));
         specialEffectsCheckBox.setText(i18n.getText("effects.checkbox"));
+        directModeCheckBox.setText(i18n.getText("direct.checkbox"));
+        skipDuplicatesCheckBox.setText(i18n.getText("skipduplicates.checkbox"));
+        internalTargetCheckBox.setText(i18n.getText("internaltarget.checkbox"));
+        transformMenu.setText(i18n.getText("transform.menu"));
+        trimItem.setText(i18n.getText("transform.trim"));
+        uniqueItem.setText(i18n.getText("transform.unique"));
+        sortItem.setText(i18n.getText("transform.sort"));
+        jsonItem.setText(i18n.getText("transform.json"));
+        filterField.setPromptText(i18n.getText("transform.filter.prompt"));
+        historyPanel.updateTexts();
         startButton.setText(i18n.getText("start.button"));
+        cancelButton.setText(i18n.getText("cancel.button"));
         
         // Aggiorna il messaggio di stato solo se è quello di default
         String currentStatus = statusLabel.getText();
@@ -334,65 +688,22 @@ public class ClipboardGUI extends Application {
     }
     
     /**
-     * Inizializza l'animazione delle bolle
+     * Inizializza l'animazione delle bolle.
+     * L'animazione gira solo quando serve: lo decide l'{@link AnimationScheduler}.
      */
     private void initializeBubbleAnimation() {
-        bubbleAnimation = new Timeline();
-        bubbleAnimation.setCycleCount(Timeline.INDEFINITE);
-        
-        // Crea bolle periodicamente
-        bubbleAnimation.getKeyFrames().add(
-            new javafx.animation.KeyFrame(Duration.millis(800), e -> createBubble())
-        );
-        
-        bubbleAnimation.play();
+        animationScheduler = new AnimationScheduler(bubbleCanvas::start, bubbleCanvas::stop);
+        bubbleCanvas.setFrameListener(animationScheduler::recordWakeup);
+        
+        // Nessuna animazione con la finestra ridotta a icona o nascosta
+        primaryStage.iconifiedProperty().addListener((obs, oldValue, newValue) -> updateWindowVisibility());
+        primaryStage.showingProperty().addListener((obs, oldValue, newValue) -> updateWindowVisibility());
+        updateWindowVisibility();
+        animationScheduler.setEffectsEnabled(specialEffectsCheckBox.isSelected());
     }
     
-    /**
-     * Crea una nuova bolla
-     */
-    private void createBubble() {
-        if (!specialEffectsCheckBox.isSelected()) return;
-        
-        Circle bubble = new Circle();
-        bubble.setRadius(random.nextDouble() * 8 + 3); // Raggio tra 3 e 11
-        bubble.setFill(Color.rgb(52, 152, 219, 0.3 + random.nextDouble() * 0.4));
-        bubble.setCenterX(random.nextDouble() * 500);
-        bubble.setCenterY(370 + bubble.getRadius()); // Inizia dal fondo dell'area ridotta
-        
-        bubblePane.getChildren().add(bubble);
-        bubbles.add(bubble);
-        
-        // Animazione di movimento verso l'alto - limitata all'area disponibile
-        TranslateTransition moveUp = new TranslateTransition(Duration.seconds(3 + random.nextDouble() * 2), bubble);
-        moveUp.setToY(-370 - bubble.getRadius()); // Si ferma prima della menu bar
-        
-        // Animazione di oscillazione orizzontale
-        TranslateTransition sway = new TranslateTransition(Duration.seconds(1 + random.nextDouble()), bubble);
-        sway.setToX((random.nextDouble() - 0.5) * 50);
-        sway.setCycleCount(Timeline.INDEFINITE);
-        sway.setAutoReverse(true);
-        
-        // Animazione di scala
-        ScaleTransition scale = new ScaleTransition(Duration.seconds(0.5 + random.nextDouble()), bubble);
-        scale.setToX(0.8 + random.nextDouble() * 0.4);
-        scale.setToY(0.8 + random.nextDouble() * 0.4);
-        scale.setCycleCount(Timeline.INDEFINITE);
-        scale.setAutoReverse(true);
-        
-        // Animazione di dissolvenza che inizia quando la bolla raggiunge il 70% del percorso
-        FadeTransition fade = new FadeTransition(Duration.seconds(1.5), bubble);
-        fade.setFromValue(1.0);
-        fade.setToValue(0.0);
-        fade.setDelay(Duration.seconds((3 + random.nextDouble() * 2) * 0.7)); // Inizia al 70% del movimento
-        
-        ParallelTransition bubbleAnim = new ParallelTransition(moveUp, sway, scale, fade);
-        bubbleAnim.setOnFinished(e -> {
-            bubblePane.getChildren().remove(bubble);
-            bubbles.remove(bubble);
-        });
-        
-        bubbleAnim.play();
+    private void updateWindowVisibility() {
+        animationScheduler.setWindowVisible(primaryStage.isShowing() && !primaryStage.isIconified());
     }
     
     /**
@@ -406,111 +717,108 @@ public class ClipboardGUI extends Application {
         applyHoverEffects(elementsSpinner);
         applyHoverEffects(separatorCheckBox);
         applyHoverEffects(specialEffectsCheckBox);
+        applyHoverEffects(directModeCheckBox);
+        applyHoverEffects(skipDuplicatesCheckBox);
+        applyHoverEffects(internalTargetCheckBox);
     }
     
     /**
-     * Applica effetti speciali al pulsante principale
+     * Applica effetti speciali al pulsante principale.
+     * Effetti e transizioni vengono creati una volta sola e riavviati a ogni passaggio del mouse.
      */
     private void applyButtonEffects() {
+        // Rotazione estremamente sottile (5 gradi) e ingrandimento, con effetti speciali
+        RotateTransition rotateIn = new RotateTransition(Duration.millis(300), startButton);
+        rotateIn.setToAngle(5); // Rotazione assoluta a 5 gradi
+        rotateIn.setInterpolator(Interpolator.EASE_BOTH);
+        ScaleTransition scaleIn = new ScaleTransition(Duration.millis(300), startButton);
+        scaleIn.setToX(1.2);
+        scaleIn.setToY(1.2);
+        scaleIn.setInterpolator(Interpolator.EASE_BOTH);
+        buttonEnterAnimation = new ParallelTransition(rotateIn, scaleIn);
+        
+        // Rotazione di ritorno a 0 gradi e scala normale
+        RotateTransition rotateOut = new RotateTransition(Duration.millis(200), startButton);
+        rotateOut.setToAngle(0); // Rotazione assoluta a 0 gradi
+        rotateOut.setInterpolator(Interpolator.EASE_IN);
+        ScaleTransition scaleOut = new ScaleTransition(Duration.millis(200), startButton);
+        scaleOut.setToX(1.0);
+        scaleOut.setToY(1.0);
+        scaleOut.setInterpolator(Interpolator.EASE_IN);
+        buttonExitAnimation = new ParallelTransition(rotateOut, scaleOut);
+        
+        // Animazioni semplici di ingrandimento, senza effetti speciali
+        buttonGrow = new ScaleTransition(Duration.millis(200), startButton);
+        buttonGrow.setToX(1.1);
+        buttonGrow.setToY(1.1);
+        buttonShrink = new ScaleTransition(Duration.millis(200), startButton);
+        buttonShrink.setToX(1.0);
+        buttonShrink.setToY(1.0);
+        
+        // Effetto glow
+        buttonGlow = new DropShadow();
+        buttonGlow.setColor(Color.rgb(39, 174, 96, 0.8));
+        buttonGlow.setRadius(20);
+        buttonGlow.setSpread(0.3);
+        
+        // Effetto ombra più pronunciato
+        buttonHoverShadow = new DropShadow();
+        buttonHoverShadow.setColor(Color.rgb(0, 0, 0, 0.5));
+        buttonHoverShadow.setOffsetX(3);
+        buttonHoverShadow.setOffsetY(3);
+        buttonHoverShadow.setRadius(8);
+        
         startButton.setOnMouseEntered(e -> {
+            stopButtonAnimations();
             if (specialEffectsCheckBox.isSelected()) {
                 // Reset forzato a 0 gradi prima dell'animazione
                 startButton.setRotate(0);
-                
-                // Animazione di rotazione estremamente sottile (5 gradi)
-                RotateTransition rotate = new RotateTransition(Duration.millis(300), startButton);
-                rotate.setToAngle(5); // Rotazione assoluta a 5 gradi
-                rotate.setInterpolator(Interpolator.EASE_BOTH);
-                
-                // Animazione di scala
-                ScaleTransition scale = new ScaleTransition(Duration.millis(300), startButton);
-                scale.setToX(1.2);
-                scale.setToY(1.2);
-                scale.setInterpolator(Interpolator.EASE_BOTH);
-                
-                // Effetto glow
-                DropShadow glow = new DropShadow();
-                glow.setColor(Color.rgb(39, 174, 96, 0.8));
-                glow.setRadius(20);
-                glow.setSpread(0.3);
-                startButton.setEffect(glow);
-                
-                ParallelTransition enterAnim = new ParallelTransition(rotate, scale);
-                enterAnim.play();
+                startButton.setEffect(buttonGlow);
+                buttonEnterAnimation.playFromStart();
             } else {
-                // Animazione semplice di ingrandimento
-                ScaleTransition scale = new ScaleTransition(Duration.millis(200), startButton);
-                scale.setToX(1.1);
-                scale.setToY(1.1);
-                scale.play();
-                
-                // Effetto ombra più pronunciato
-                DropShadow shadow = new DropShadow();
-                shadow.setColor(Color.rgb(0, 0, 0, 0.5));
-                shadow.setOffsetX(3);
-                shadow.setOffsetY(3);
-                shadow.setRadius(8);
-                startButton.setEffect(shadow);
+                startButton.setEffect(buttonHoverShadow);
+                buttonGrow.playFromStart();
             }
         });
         
         startButton.setOnMouseExited(e -> {
+            stopButtonAnimations();
+            // Ripristina ombra normale
+            startButton.setEffect(buttonShadow);
             if (specialEffectsCheckBox.isSelected()) {
-                // Rotazione di ritorno a 0 gradi
-                RotateTransition rotate = new RotateTransition(Duration.millis(200), startButton);
-                rotate.setToAngle(0); // Rotazione assoluta a 0 gradi
-                rotate.setInterpolator(Interpolator.EASE_IN);
-                
-                // Ritorno alla scala normale
-                ScaleTransition scale = new ScaleTransition(Duration.millis(200), startButton);
-                scale.setToX(1.0);
-                scale.setToY(1.0);
-                scale.setInterpolator(Interpolator.EASE_IN);
-                
-                // Ripristina ombra normale
-                DropShadow shadow = new DropShadow();
-                shadow.setColor(Color.rgb(0, 0, 0, 0.3));
-                shadow.setOffsetX(2);
-                shadow.setOffsetY(2);
-                shadow.setRadius(5);
-                startButton.setEffect(shadow);
-                
-                ParallelTransition exitAnim = new ParallelTransition(rotate, scale);
-                exitAnim.play();
+                buttonExitAnimation.playFromStart();
             } else {
-                // Ritorno semplice alla scala normale
-                ScaleTransition scale = new ScaleTransition(Duration.millis(200), startButton);
-                scale.setToX(1.0);
-                scale.setToY(1.0);
-                scale.play();
-                
-                // Ripristina ombra normale
-                DropShadow shadow = new DropShadow();
-                shadow.setColor(Color.rgb(0, 0, 0, 0.3));
-                shadow.setOffsetX(2);
-                shadow.setOffsetY(2);
-                shadow.setRadius(5);
-                startButton.setEffect(shadow);
+                buttonShrink.playFromStart();
             }
         });
     }
     
+    private void stopButtonAnimations() {
+        buttonEnterAnimation.stop();
+        buttonExitAnimation.stop();
+        buttonGrow.stop();
+        buttonShrink.stop();
+    }
+    
     /**
-     * Applica effetti hover ai componenti
+     * Applica effetti hover ai componenti; le due transizioni vengono create una volta sola
      */
     private void applyHoverEffects(javafx.scene.Node component) {
+        ScaleTransition grow = new ScaleTransition(Duration.millis(150), component);
+        grow.setToX(1.05);
+        grow.setToY(1.05);
+        ScaleTransition shrink = new ScaleTransition(Duration.millis(150), component);
+        shrink.setToX(1.0);
+        shrink.setToY(1.0);
+        
         component.setOnMouseEntered(e -> {
-            ScaleTransition scale = new ScaleTransition(Duration.millis(150), component);
-            scale.setToX(1.05);
-            scale.setToY(1.05);
-            scale.play();
+            shrink.stop();
+            grow.playFromStart();
         });
         
         component.setOnMouseExited(e -> {
-            ScaleTransition scale = new ScaleTransition(Duration.millis(150), component);
-            scale.setToX(1.0);
-            scale.setToY(1.0);
-            scale.play();
+            grow.stop();
+            shrink.playFromStart();
         });
     }
     
@@ -518,11 +826,8 @@ public class ClipboardGUI extends Application {
      * Gestisce il toggle degli effetti speciali
      */
     private void toggleSpecialEffects() {
-        if (!specialEffectsCheckBox.isSelected()) {
-            // Rimuovi tutte le bolle esistenti
-            bubblePane.getChildren().clear();
-            bubbles.clear();
-        }
+        // Con gli effetti disattivati l'animazione si ferma e le bolle esistenti vengono rimosse
+        animationScheduler.setEffectsEnabled(specialEffectsCheckBox.isSelected());
     }
     
     /**
@@ -530,8 +835,41 @@ public class ClipboardGUI extends Application {
      */
     private void closeWithAnimation() {
         // Ferma l'animazione delle bolle
-        if (bubbleAnimation != null) {
-            bubbleAnimation.stop();
+        if (bubbleCanvas != null) {
+            bubbleCanvas.stop();
+        }
+        
+        // Annulla le esecuzioni in corso e in coda
+        if (automationExecutor != null) {
+            automationExecutor.shutdown();
+        }
+        
+        // Salva le ultime misure
+        if (automation != null) {
+            automation.getMetrics().stopPeriodicDump();
+            try {
+                automation.getMetrics().dump(ClipboardHistoryStore.defaultDirectory().resolveSibling("metrics.csv"));
+            } catch (java.io.IOException e) {
+                // Misure non essenziali
+            }
+        }
+        
+        // Ferma la cattura degli appunti e le ricerche
+        if (captureService != null) {
+            captureService.stop();
+        }
+        if (historyPanel != null) {
+            historyPanel.shutdown();
+        }
+        if (controlServer != null) {
+            controlServer.stop();
+        }
+        if (historyStore != null) {
+            try {
+                historyStore.close();
+            } catch (java.io.IOException e) {
+                // Chiusura comunque in corso
+            }
         }
         
         // Animazione di zoom out
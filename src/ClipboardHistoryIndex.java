@@ -0,0 +1,647 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cronologia degli appunti con indice dei trigrammi per la ricerca mentre si digita.
+ * L'indice viene aggiornato a ogni nuovo elemento: per ogni trigramma (tre caratteri consecutivi,
+ * senza distinzione tra maiuscole e minuscole) tiene gli elementi che lo contengono, in ordine di arrivo.
+ * Una ricerca interseca le liste dei trigrammi della query partendo dalla più corta e verifica
+ * i candidati sul testo; si ferma appena ha trovato abbastanza risultati. Il testo viene completato
+ * con due caratteri di riempimento, così ogni carattere inizia un trigramma: una query di uno o due
+ * caratteri unisce le liste dei trigrammi che iniziano con la query, senza leggere i contenuti.
+ * <p>
+ * Con la cronologia persistente i contenuti restano nei segmenti mappati e nello heap stanno solo
+ * l'indice e i riferimenti; senza, i testi vengono tenuti in memoria entro un limite di caratteri.
+ * Numero di elementi, posizioni dell'indice e caratteri in memoria sono limitati: oltre i limiti
+ * gli elementi più vecchi escono dall'indice. Di ogni elemento vengono indicizzati solo i primi
+ * {@link #INDEXED_CHARS} caratteri. Tutti i metodi possono essere chiamati da qualsiasi thread.
+ */
+public class ClipboardHistoryIndex {
+
+    /** Numero massimo di elementi per default */
+    public static final int DEFAULT_MAX_ENTRIES = 50_000;
+    /** Numero massimo di posizioni nelle liste dei trigrammi per default (circa 32 MB) */
+    public static final int DEFAULT_MAX_POSTINGS = 8 * 1024 * 1024;
+    /** Caratteri tenuti in memoria senza cronologia persistente (32 M) */
+    public static final long DEFAULT_MAX_TEXT_CHARS = 32L * 1024 * 1024;
+    /** Caratteri indicizzati di ogni elemento */
+    public static final int INDEXED_CHARS = 4096;
+
+    /** Carattere di riempimento dopo la fine del testo */
+    private static final char PAD = '\0';
+
+    /**
+     * Elemento della cronologia; il contenuto viene letto solo su richiesta
+     */
+    public static final class Item {
+        private final long id;
+        private final long timestamp;
+        private final long hash;
+        private final int length;
+        private final String text;
+        private final ClipboardHistoryStore store;
+        private final int trigrams;
+
+        private Item(long id, long timestamp, long hash, int length, String text, ClipboardHistoryStore store,
+                     int trigrams) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.hash = hash;
+            this.length = length;
+            this.text = text;
+            this.store = store;
+            this.trigrams = trigrams;
+        }
+
+        /**
+         * Identificativo dell'elemento: con la cronologia persistente è il suo numero progressivo
+         */
+        public long getId() {
+            return id;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * Lunghezza del contenuto in byte UTF-8
+         */
+        public int getByteLength() {
+            return length;
+        }
+
+        /**
+         * Contenuto completo
+         * @throws IOException se l'elemento è stato eliminato dalla cronologia persistente
+         */
+        public String getText() throws IOException {
+            return text != null ? text : stored().getText();
+        }
+
+        /**
+         * Inizio del contenuto, senza leggere il resto dalla cronologia persistente
+         * @param maxChars numero massimo di caratteri
+         */
+        public String getPrefix(int maxChars) throws IOException {
+            if (text != null) {
+                return text.length() > maxChars ? text.substring(0, maxChars) : text;
+            }
+            return stored().getPrefix(maxChars);
+        }
+
+        private ClipboardHistoryStore.StoredEntry stored() throws IOException {
+            ClipboardHistoryStore.StoredEntry entry = store.getBySequence(id);
+            if (entry == null) {
+                throw new IOException("Elemento non più presente nella cronologia: " + id);
+            }
+            return entry;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " (" + length + " byte)";
+        }
+    }
+
+    /**
+     * Elementi che contengono un trigramma, in ordine di arrivo; le posizioni prima di start sono libere
+     */
+    private static final class Postings {
+        int[] ordinals = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        /**
+         * Prima posizione con un elemento ancora presente
+         */
+        int start(int firstOrdinal) {
+            if (size == 0 || ordinals[0] >= firstOrdinal) {
+                return 0;
+            }
+            int i = Arrays.binarySearch(ordinals, 0, size, firstOrdinal);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        boolean contains(int ordinal, int from) {
+            return Arrays.binarySearch(ordinals, from, size, ordinal) >= 0;
+        }
+    }
+
+    private final ClipboardHistoryStore store;
+    private final int maxEntries;
+    private final long maxPostings;
+    private final long maxTextChars;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    /** Trigrammi presenti, per primo carattere: servono alle query di uno o due caratteri */
+    private final Map<Character, Set<Long>> byFirstChar = new HashMap<>();
+
+    /** Elementi in un anello: l'elemento con numero d'ordine n sta in items[n % items.length] */
+    private Item[] items = new Item[1024];
+    private int firstOrdinal;
+    private int nextOrdinal;
+    private long nextId;
+    private long livePostings;
+    private long deadPostings;
+    private long textChars;
+    private boolean loaded;
+
+    /**
+     * Cronologia in memoria con i limiti di default
+     */
+    public ClipboardHistoryIndex() {
+        this(null, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_POSTINGS, DEFAULT_MAX_TEXT_CHARS);
+    }
+
+    /**
+     * Indice sopra la cronologia persistente, con i limiti di default
+     */
+    public ClipboardHistoryIndex(ClipboardHistoryStore store) {
+        this(store, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_POSTINGS, DEFAULT_MAX_TEXT_CHARS);
+    }
+
+    /**
+     * @param store cronologia persistente in cui salvare i contenuti (null = solo in memoria)
+     * @param maxEntries numero massimo di elementi indicizzati
+     * @param maxPostings numero massimo di posizioni nelle liste dei trigrammi
+     * @param maxTextChars caratteri tenuti in memoria senza cronologia persistente
+     */
+    public ClipboardHistoryIndex(ClipboardHistoryStore store, int maxEntries, long maxPostings, long maxTextChars) {
+        this.store = store;
+        this.maxEntries = Math.max(maxEntries, 1);
+        this.maxPostings = Math.max(maxPostings, 1);
+        this.maxTextChars = Math.max(maxTextChars, 1);
+    }
+
+    /**
+     * Indicizza gli elementi già presenti nella cronologia persistente, dal più vecchio al più recente.
+     * Va chiamato fuori dal thread JavaFX: legge l'inizio di ogni contenuto.
+     * Avviene una sola volta: se un'aggiunta arriva prima, il caricamento viene fatto da quella,
+     * così nessun elemento compare due volte e gli identificativi crescono con la posizione.
+     */
+    public synchronized void load() throws IOException {
+        if (store == null || loaded) {
+            return;
+        }
+        loaded = true;
+        List<ClipboardHistoryStore.StoredEntry> entries = store.latest(maxEntries);
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            ClipboardHistoryStore.StoredEntry entry = entries.get(i);
+            index(entry.getSequence(), entry.getTimestamp(), entry.getHash(), entry.getByteLength(), null,
+                    entry.getPrefix(INDEXED_CHARS));
+        }
+    }
+
+    /**
+     * Aggiunge un elemento come il più recente. Con la cronologia persistente il contenuto viene salvato lì,
+     * e gli elementi eliminati nel frattempo dalla compattazione escono dall'indice.
+     * Le aggiunte sono serializzate, così gli identificativi crescono con l'ordine di arrivo.
+     * @return l'elemento aggiunto, o null se uguale al più recente
+     */
+    public synchronized Item add(String text, long timestamp) throws IOException {
+        if (store != null) {
+            load();
+            ClipboardHistoryStore.StoredEntry entry = store.append(text, timestamp);
+            removeBefore(store.getFirstSequence());
+            if (entry == null) {
+                return null;
+            }
+            return index(entry.getSequence(), timestamp, entry.getHash(), entry.getByteLength(), null, text);
+        }
+        long hash = ClipboardEntry.hash(text);
+        lock.readLock().lock();
+        try {
+            Item newest = nextOrdinal > firstOrdinal ? item(nextOrdinal - 1) : null;
+            if (newest != null && newest.hash == hash && newest.text.equals(text)) {
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return index(-1, timestamp, hash, utf8Length(text), text, text);
+    }
+
+    /**
+     * Cerca gli elementi che contengono la query, senza distinzione tra maiuscole e minuscole
+     * @param query testo da cercare (vuoto = gli elementi più recenti)
+     * @param limit numero massimo di risultati
+     * @return elementi trovati, dal più recente
+     */
+    public List<Item> search(String query, int limit) {
+        String folded = fold(query, query.length());
+        lock.readLock().lock();
+        try {
+            List<Item> result = new ArrayList<>(Math.min(Math.max(limit, 0), 256));
+            if (limit <= 0) {
+                return result;
+            }
+            if (folded.isEmpty()) {
+                for (int n = nextOrdinal - 1; n >= firstOrdinal && result.size() < limit; n--) {
+                    result.add(item(n));
+                }
+                return result;
+            }
+            if (folded.length() < 3) {
+                searchPrefix(folded, limit, result);
+                return result;
+            }
+            Postings[] lists = queryPostings(folded);
+            if (lists == null) {
+                return result;
+            }
+            int[] starts = new int[lists.length];
+            for (int l = 0; l < lists.length; l++) {
+                starts[l] = lists[l].start(firstOrdinal);
+            }
+            // La lista più corta guida l'intersezione, dal più recente
+            Postings shortest = lists[0];
+            for (int i = shortest.size - 1; i >= starts[0] && result.size() < limit; i--) {
+                int ordinal = shortest.ordinals[i];
+                boolean candidate = true;
+                for (int l = 1; l < lists.length && candidate; l++) {
+                    candidate = lists[l].contains(ordinal, starts[l]);
+                }
+                // Con un solo trigramma la query è il trigramma stesso: non serve verificare il testo
+                Item item = candidate ? item(ordinal) : null;
+                if (item != null && (folded.length() == 3 || matches(item, folded))) {
+                    result.add(item);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Unisce, dal più recente, le liste dei trigrammi che iniziano con una query di uno o due caratteri
+     */
+    private void searchPrefix(String folded, int limit, List<Item> result) {
+        Set<Long> keys = byFirstChar.get(folded.charAt(0));
+        if (keys == null) {
+            return;
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (Long key : keys) {
+            if (folded.length() == 1 || (char) (key >>> 16) == folded.charAt(1)) {
+                lists.add(postings.get(key));
+            }
+        }
+        // Testa di ogni lista: {numero d'ordine, lista, posizione}, dal più recente
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(lists.size(), 1),
+                (a, b) -> Integer.compare(b[0], a[0]));
+        for (int l = 0; l < lists.size(); l++) {
+            Postings list = lists.get(l);
+            if (list.size > 0 && list.ordinals[list.size - 1] >= firstOrdinal) {
+                heads.add(new int[] { list.ordinals[list.size - 1], l, list.size - 1 });
+            }
+        }
+        int last = -1;
+        while (!heads.isEmpty() && result.size() < limit) {
+            int[] head = heads.poll();
+            if (head[0] != last) {
+                last = head[0];
+                result.add(item(last));
+            }
+            Postings list = lists.get(head[1]);
+            if (head[2] > 0 && list.ordinals[head[2] - 1] >= firstOrdinal) {
+                head[0] = list.ordinals[--head[2]];
+                heads.add(head);
+            }
+        }
+    }
+
+    /**
+     * Elemento in una posizione della cronologia
+     * @param position 0 = il più recente
+     */
+    public Item get(int position) {
+        lock.readLock().lock();
+        try {
+            if (position < 0 || position >= nextOrdinal - firstOrdinal) {
+                throw new IndexOutOfBoundsException("Posizione non presente nella cronologia: " + position);
+            }
+            return item(nextOrdinal - 1 - position);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca un elemento dal suo identificativo
+     * @return l'elemento, o null se non è (più) nell'indice
+     */
+    public Item find(long id) {
+        lock.readLock().lock();
+        try {
+            int ordinal = lastOrdinalUpTo(id);
+            return ordinal >= firstOrdinal && item(ordinal).id == id ? item(ordinal) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Elemento in una posizione contata da un elemento dato, verso i più vecchi: permette di scorrere
+     * la cronologia com'era quando quell'elemento era il più recente, anche se nel frattempo ne sono arrivati altri
+     * @param newestId identificativo dell'elemento in posizione 0
+     * @param position 0 = l'elemento indicato
+     * @return l'elemento, o null se non è (più) nell'indice
+     */
+    public Item get(long newestId, int position) {
+        lock.readLock().lock();
+        try {
+            int ordinal = lastOrdinalUpTo(newestId) - position;
+            return position >= 0 && ordinal >= firstOrdinal ? item(ordinal) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Numero di elementi nell'indice con identificativo minore o uguale a quello indicato
+     */
+    public int countUpTo(long id) {
+        lock.readLock().lock();
+        try {
+            return lastOrdinalUpTo(id) - firstOrdinal + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Numero di elementi indicizzati
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nextOrdinal - firstOrdinal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Posizioni occupate nelle liste dei trigrammi, comprese quelle non ancora liberate
+     */
+    public long getPostingCount() {
+        lock.readLock().lock();
+        try {
+            return livePostings + deadPostings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Numero di trigrammi distinti nell'indice
+     */
+    public int getTrigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Toglie dall'indice gli elementi con identificativo minore di quello indicato
+     */
+    public void removeBefore(long id) {
+        lock.writeLock().lock();
+        try {
+            while (firstOrdinal < nextOrdinal && item(firstOrdinal).id < id) {
+                evictOldest();
+            }
+            sweepIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Numero d'ordine dell'ultimo elemento con identificativo minore o uguale a quello indicato,
+     * o firstOrdinal - 1 se non ce ne sono. Gli identificativi crescono con il numero d'ordine.
+     */
+    private int lastOrdinalUpTo(long id) {
+        int low = firstOrdinal;
+        int high = nextOrdinal - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (item(mid).id <= id) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private Item index(long id, long timestamp, long hash, int length, String text, String indexedText) {
+        // I trigrammi distinti vengono calcolati prima di prendere il lock, così le ricerche non aspettano
+        String folded = fold(indexedText, INDEXED_CHARS);
+        long[] keys = new long[folded.length()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = trigram(folded, i);
+        }
+        Arrays.sort(keys);
+        int trigrams = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[trigrams++] = keys[i];
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            int ordinal = nextOrdinal;
+            for (int i = 0; i < trigrams; i++) {
+                Long key = keys[i];
+                Postings list = postings.get(key);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(key, list);
+                    Character first = (char) (keys[i] >>> 32);
+                    Set<Long> firstKeys = byFirstChar.get(first);
+                    if (firstKeys == null) {
+                        firstKeys = new HashSet<>();
+                        byFirstChar.put(first, firstKeys);
+                    }
+                    firstKeys.add(key);
+                }
+                list.add(ordinal);
+            }
+            Item item = new Item(id >= 0 ? id : nextId++, timestamp, hash, length, text, store, trigrams);
+            if (nextOrdinal - firstOrdinal == items.length) {
+                growItems();
+            }
+            items[ordinal % items.length] = item;
+            nextOrdinal++;
+            livePostings += trigrams;
+            textChars += text != null ? text.length() : 0;
+            // Oltre i limiti escono gli elementi più vecchi, ma non quello appena aggiunto
+            while (nextOrdinal - firstOrdinal > 1 && (nextOrdinal - firstOrdinal > maxEntries
+                    || livePostings > maxPostings || textChars > maxTextChars)) {
+                evictOldest();
+            }
+            sweepIfNeeded();
+            return item;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fa uscire l'elemento più vecchio; le sue posizioni nelle liste vengono liberate in seguito
+     */
+    private void evictOldest() {
+        Item oldest = item(firstOrdinal);
+        items[firstOrdinal % items.length] = null;
+        firstOrdinal++;
+        livePostings -= oldest.trigrams;
+        deadPostings += oldest.trigrams;
+        textChars -= oldest.text != null ? oldest.text.length() : 0;
+    }
+
+    /**
+     * Libera le posizioni degli elementi usciti quando superano quelle ancora valide,
+     * così che l'indice non occupi mai più del doppio del limite
+     */
+    private void sweepIfNeeded() {
+        if (deadPostings <= livePostings) {
+            return;
+        }
+        Iterator<Map.Entry<Long, Postings>> lists = postings.entrySet().iterator();
+        while (lists.hasNext()) {
+            Map.Entry<Long, Postings> entry = lists.next();
+            Postings list = entry.getValue();
+            int start = list.start(firstOrdinal);
+            if (start == list.size) {
+                lists.remove();
+                Character first = (char) (entry.getKey() >>> 32);
+                Set<Long> keys = byFirstChar.get(first);
+                keys.remove(entry.getKey());
+                if (keys.isEmpty()) {
+                    byFirstChar.remove(first);
+                }
+            } else if (start > 0) {
+                list.size -= start;
+                int capacity = list.ordinals.length > 4 * list.size ? Math.max(list.size, 4) : list.ordinals.length;
+                int[] ordinals = capacity != list.ordinals.length ? new int[capacity] : list.ordinals;
+                System.arraycopy(list.ordinals, start, ordinals, 0, list.size);
+                list.ordinals = ordinals;
+            }
+        }
+        deadPostings = 0;
+    }
+
+    private void growItems() {
+        Item[] grown = new Item[items.length * 2];
+        for (int n = firstOrdinal; n < nextOrdinal; n++) {
+            grown[n % grown.length] = items[n % items.length];
+        }
+        items = grown;
+    }
+
+    private Item item(int ordinal) {
+        return items[ordinal % items.length];
+    }
+
+    /**
+     * Liste dei trigrammi distinti della query, dalla più corta
+     * @return null se un trigramma non compare in nessun elemento
+     */
+    private Postings[] queryPostings(String folded) {
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            keys.add(trigram(folded, i));
+        }
+        List<Postings> lists = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            Postings list = postings.get(key);
+            if (list == null) {
+                return null;
+            }
+            lists.add(list);
+        }
+        Collections.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        return lists.toArray(new Postings[0]);
+    }
+
+    /**
+     * Verifica che la parte indicizzata dell'elemento contenga la query
+     */
+    private static boolean matches(Item item, String folded) {
+        try {
+            return fold(item.getPrefix(INDEXED_CHARS), INDEXED_CHARS).contains(folded);
+        } catch (IOException e) {
+            // Elemento appena eliminato dalla compattazione
+            return false;
+        }
+    }
+
+    /**
+     * Trigramma che inizia in i; oltre la fine del testo vale il carattere di riempimento
+     */
+    private static long trigram(String folded, int i) {
+        return ((long) folded.charAt(i) << 32) | ((long) charAt(folded, i + 1) << 16) | charAt(folded, i + 2);
+    }
+
+    private static char charAt(String folded, int i) {
+        return i < folded.length() ? folded.charAt(i) : PAD;
+    }
+
+    /**
+     * Testo in minuscolo, carattere per carattere, limitato a maxChars caratteri
+     */
+    private static String fold(String text, int maxChars) {
+        int length = Math.min(text.length(), maxChars);
+        char[] folded = new char[length];
+        for (int i = 0; i < length; i++) {
+            folded[i] = Character.toLowerCase(text.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
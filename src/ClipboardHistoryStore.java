@@ -0,0 +1,846 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cronologia persistente degli appunti.
+ * I contenuti sono accodati a file di segmento ({@code segment-NNNNNNNN.log}); un indice a record fissi
+ * mappato in memoria ({@code history-N.idx}) punta a ciascun contenuto. All'avvio viene letta solo
+ * l'intestazione dell'indice, quindi il tempo di apertura non cresce con la cronologia.
+ * I contenuti vengono decodificati solo quando servono e restano fuori dallo heap, nei segmenti mappati.
+ * I contenuti sono indirizzati per impronta: un testo già presente non viene riscritto e il nuovo
+ * record dell'indice punta semplicemente al contenuto esistente.
+ * Gli elementi oltre il limite di conservazione vengono eliminati da una compattazione in background.
+ * Un solo processo alla volta può aprire la cartella in scrittura ({@code history.lock}); gli altri
+ * la aprono in sola lettura con {@link #openReadOnly}.
+ */
+public class ClipboardHistoryStore implements ClipboardEntrySource, Closeable {
+
+    /** Dimensione oltre la quale si apre un nuovo segmento (64 MB) */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    /** Numero di elementi conservati per default */
+    public static final int DEFAULT_RETENTION = 10000;
+
+    private static final int MAGIC = 0x43424849;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 32;
+    private static final int INITIAL_INDEX_RECORDS = 1024;
+    /** Un segmento con meno di un quarto di contenuti ancora referenziati viene svuotato */
+    private static final int RELOCATION_RATIO = 4;
+    private static final String LOCK_FILE = "history.lock";
+    /** Tentativi di apertura in sola lettura se l'indice viene sostituito nel frattempo */
+    private static final int READ_ONLY_ATTEMPTS = 3;
+
+    /**
+     * La cartella è già aperta in scrittura da un'altra istanza
+     */
+    public static final class LockedException extends IOException {
+        LockedException(Path directory) {
+            super("Cronologia già in uso da un'altra istanza: " + directory);
+        }
+    }
+
+    /**
+     * Elemento della cronologia persistente; il contenuto viene letto solo su richiesta
+     */
+    public static final class StoredEntry {
+        private final ClipboardHistoryStore store;
+        private final long sequence;
+        private final int segment;
+        private final long offset;
+        private final int length;
+        private final long timestamp;
+        private final long hash;
+
+        StoredEntry(ClipboardHistoryStore store, long sequence, int segment, long offset, int length, long timestamp,
+                    long hash) {
+            this.store = store;
+            this.sequence = sequence;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+            this.hash = hash;
+        }
+
+        /**
+         * Numero progressivo dell'elemento: non cambia con la compattazione,
+         * ma vale solo finché la cronologia resta aperta
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * Lunghezza del contenuto in byte UTF-8
+         */
+        public int getByteLength() {
+            return length;
+        }
+
+        /**
+         * Vista in sola lettura del contenuto, fuori dallo heap
+         */
+        public ByteBuffer body() throws IOException {
+            return store.body(segment, offset, length);
+        }
+
+        /**
+         * Copia il contenuto così com'è (UTF-8) verso un canale; verso un file la copia avviene
+         * nel kernel senza passare dallo heap
+         */
+        public void transferTo(WritableByteChannel target) throws IOException {
+            store.transfer(segment, offset, length, target);
+        }
+
+        /**
+         * Decodifica il contenuto
+         */
+        public String getText() throws IOException {
+            return StandardCharsets.UTF_8.decode(body()).toString();
+        }
+
+        /**
+         * Decodifica solo l'inizio del contenuto, senza leggere il resto
+         * @param maxChars numero massimo di caratteri
+         */
+        public String getPrefix(int maxChars) throws IOException {
+            ByteBuffer bytes = body();
+            // In UTF-8 un carattere occupa al più tre byte (una coppia surrogata ne occupa quattro)
+            if (bytes.remaining() > 3L * maxChars) {
+                bytes.limit(3 * maxChars);
+            }
+            CharBuffer chars = CharBuffer.allocate(Math.min(maxChars, bytes.remaining()));
+            // Una sequenza troncata alla fine della vista non viene decodificata
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(bytes, chars, false);
+            chars.flip();
+            return chars.toString();
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean readOnly;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, MappedByteBuffer> segmentMaps = new HashMap<>();
+    private final DeduplicationStats deduplicationStats = new DeduplicationStats();
+
+    /** Impronta -> record che contiene il contenuto; costruita al primo salvataggio, non all'avvio */
+    private Map<Long, StoredEntry> bodies;
+
+    private int indexGeneration;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private long count;
+    /** Numero progressivo del record 0 dell'indice */
+    private long firstSequence;
+    private int retention = DEFAULT_RETENTION;
+
+    private int activeSegment;
+    private FileChannel activeChannel;
+
+    private ScheduledExecutorService compactor;
+    private FileChannel lockChannel;
+
+    /**
+     * Apre (o crea) la cronologia nella cartella indicata
+     * @param directory cartella dei file della cronologia
+     */
+    public ClipboardHistoryStore(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * @param directory cartella dei file della cronologia
+     * @param segmentBytes dimensione oltre la quale si apre un nuovo segmento
+     */
+    public ClipboardHistoryStore(Path directory, long segmentBytes) throws IOException {
+        this(directory, segmentBytes, false);
+    }
+
+    private ClipboardHistoryStore(Path directory, long segmentBytes, boolean readOnly) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.readOnly = readOnly;
+        if (readOnly) {
+            openLatestIndex();
+            return;
+        }
+        Files.createDirectories(directory);
+        lockDirectory();
+        try {
+            indexGeneration = findLatestGeneration();
+            openIndex(indexPath(indexGeneration), false);
+            if (count > 0) {
+                activeSegment = index.getInt(recordOffset(count - 1));
+            } else {
+                activeSegment = 1;
+            }
+            activeChannel = openSegmentForAppend(activeSegment);
+            removeStaleIndexes();
+        } catch (IOException | RuntimeException e) {
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Apre in sola lettura una cronologia esistente, anche mentre un'altra istanza la usa in scrittura.
+     * Non crea, non cancella e non modifica alcun file: vede gli elementi presenti all'apertura.
+     * Se nel frattempo l'altra istanza compatta la cronologia e cancella un segmento, la lettura
+     * dei contenuti di quel segmento fallisce con un'eccezione, senza danni per i dati.
+     * @throws NoSuchFileException se la cartella non contiene una cronologia
+     */
+    public static ClipboardHistoryStore openReadOnly(Path directory) throws IOException {
+        return new ClipboardHistoryStore(directory, DEFAULT_SEGMENT_BYTES, true);
+    }
+
+    /**
+     * Verifica se la cronologia è aperta in sola lettura
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Cartella predefinita della cronologia, condivisa dall'interfaccia grafica e dalla riga di comando
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".clipboard_automation", "history");
+    }
+
+    /**
+     * Imposta il numero massimo di elementi conservati dalla compattazione
+     */
+    public void setRetention(int retention) {
+        this.retention = Math.max(retention, 1);
+    }
+
+    /**
+     * Contatori di riuso dei contenuti
+     */
+    public DeduplicationStats getDeduplicationStats() {
+        return deduplicationStats;
+    }
+
+    /**
+     * Accoda un elemento; un elemento uguale al più recente non viene salvato di nuovo,
+     * un contenuto già presente più indietro viene referenziato senza riscriverlo
+     * @return l'elemento salvato, o null se uguale al più recente
+     */
+    public StoredEntry append(String text, long timestamp) throws IOException {
+        checkWritable();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        long hash = ClipboardEntry.hash(text);
+        lock.writeLock().lock();
+        try {
+            if (count > 0) {
+                StoredEntry newest = record(count - 1);
+                if (newest.hash == hash && newest.length == bytes.length && newest.getText().equals(text)) {
+                    return null;
+                }
+            }
+            StoredEntry existing = findBody(hash, bytes);
+            int segment;
+            long offset;
+            if (existing != null) {
+                segment = existing.segment;
+                offset = existing.offset;
+            } else {
+                offset = writeBody(ByteBuffer.wrap(bytes));
+                segment = activeSegment;
+            }
+            deduplicationStats.record(bytes.length, existing != null);
+
+            StoredEntry entry = new StoredEntry(this, firstSequence + count, segment, offset, bytes.length,
+                    timestamp, hash);
+            writeRecord(count, entry);
+            // Il contatore viene aggiornato per ultimo: un record incompleto non è mai visibile
+            count++;
+            index.putLong(8, count);
+            if (existing == null) {
+                bodies.put(hash, entry);
+            }
+            return entry;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Numero di elementi salvati
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce un elemento senza leggerne il contenuto
+     * @param position 0 = il più recente
+     */
+    public StoredEntry get(int position) {
+        lock.readLock().lock();
+        try {
+            if (position < 0 || position >= count) {
+                throw new IndexOutOfBoundsException("Posizione non presente nella cronologia: " + position);
+            }
+            return record(count - 1 - position);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce un elemento dal suo numero progressivo, senza leggerne il contenuto
+     * @return l'elemento, o null se eliminato dalla compattazione o mai salvato
+     */
+    public StoredEntry getBySequence(long sequence) {
+        lock.readLock().lock();
+        try {
+            long i = sequence - firstSequence;
+            return i >= 0 && i < count ? record(i) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Numero progressivo dell'elemento più vecchio ancora conservato
+     */
+    public long getFirstSequence() {
+        lock.readLock().lock();
+        try {
+            return firstSequence;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ultimi elementi, dal più recente al più vecchio, senza leggerne il contenuto
+     */
+    public List<StoredEntry> latest(int max) {
+        lock.readLock().lock();
+        try {
+            int n = (int) Math.min(Math.max(max, 0), count);
+            List<StoredEntry> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(record(count - 1 - i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> readEntries(int max) throws IOException {
+        List<StoredEntry> entries = latest(max);
+        List<String> texts = new ArrayList<>(entries.size());
+        for (StoredEntry entry : entries) {
+            texts.add(entry.getText());
+        }
+        return texts;
+    }
+
+    /**
+     * Elimina gli elementi oltre il limite di conservazione: riscrive l'indice con i soli elementi
+     * conservati, sposta nel segmento attivo i pochi contenuti ancora referenziati dai segmenti
+     * quasi vuoti e cancella i segmenti non più referenziati.
+     * Il nuovo indice diventa valido solo quando l'intestazione viene scritta, dopo che record e contenuti
+     * spostati sono su disco; il vecchio viene cancellato solo dopo. Un'interruzione a metà lascia
+     * valido il vecchio indice, e all'apertura successiva quello incompleto viene scartato.
+     */
+    public void compact() throws IOException {
+        checkWritable();
+        lock.writeLock().lock();
+        try {
+            long firstLive = count - retention;
+            if (firstLive <= 0) {
+                return;
+            }
+            long live = count - firstLive;
+            long oldCount = count;
+            long oldFirstSequence = firstSequence;
+            int nextGeneration = indexGeneration + 1;
+            Path oldIndex = indexPath(indexGeneration);
+            MappedByteBuffer oldMap = index;
+            FileChannel oldChannel = indexChannel;
+
+            // Intestazione non valida finché la copia non è completa
+            openIndex(indexPath(nextGeneration), true);
+            try {
+                ensureIndexCapacity(live);
+                for (long i = 0; i < live; i++) {
+                    int from = recordOffset(firstLive + i);
+                    int to = recordOffset(i);
+                    for (int b = 0; b < RECORD_BYTES; b += 8) {
+                        index.putLong(to + b, oldMap.getLong(from + b));
+                    }
+                }
+                count = live;
+                firstSequence += firstLive;
+                relocateSparseSegments();
+                activeChannel.force(false);
+                index.putLong(8, count);
+                index.force();
+                index.putInt(0, MAGIC);
+                index.force();
+            } catch (IOException | RuntimeException e) {
+                indexChannel.close();
+                deleteQuietly(indexPath(nextGeneration));
+                index = oldMap;
+                indexChannel = oldChannel;
+                count = oldCount;
+                firstSequence = oldFirstSequence;
+                throw e;
+            }
+            indexGeneration = nextGeneration;
+            bodies = null;
+
+            oldChannel.close();
+            deleteQuietly(oldIndex);
+            removeUnreferencedSegments();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Avvia la compattazione periodica in un thread daemon
+     * @param periodMillis intervallo tra due compattazioni
+     */
+    public synchronized void startBackgroundCompaction(long periodMillis) {
+        checkWritable();
+        if (compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "history-compaction");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                // Si riprova alla prossima compattazione
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdownNow();
+                compactor = null;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            synchronized (segmentMaps) {
+                segmentMaps.clear();
+            }
+            if (readOnly) {
+                return;
+            }
+            index.force();
+            indexChannel.close();
+            activeChannel.close();
+            // Chiudendo il canale il lock sulla cartella viene rilasciato
+            lockChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vista sul contenuto di un elemento all'interno del segmento mappato
+     */
+    ByteBuffer body(int segment, long offset, int length) throws IOException {
+        lock.readLock().lock();
+        try {
+            MappedByteBuffer map;
+            synchronized (segmentMaps) {
+                map = segmentMaps.get(segment);
+                if (map == null || map.capacity() < offset + length) {
+                    // Il segmento attivo cresce: la mappatura viene rifatta quando non basta più
+                    try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    }
+                    segmentMaps.put(segment, map);
+                }
+            }
+            ByteBuffer view = map.duplicate();
+            view.position((int) offset);
+            view.limit((int) offset + length);
+            return view.slice().asReadOnlyBuffer();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void transfer(int segment, long offset, int length, WritableByteChannel target) throws IOException {
+        lock.readLock().lock();
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            long position = offset;
+            long end = offset + length;
+            while (position < end) {
+                long written = channel.transferTo(position, end - position, target);
+                if (written <= 0) {
+                    throw new IOException("Segmento troncato: " + segmentPath(segment));
+                }
+                position += written;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca un contenuto identico già salvato
+     */
+    private StoredEntry findBody(long hash, byte[] bytes) throws IOException {
+        if (bodies == null) {
+            // Costruita alla prima necessità leggendo solo l'indice, mai i contenuti
+            bodies = new HashMap<>();
+            for (long i = 0; i < count; i++) {
+                StoredEntry entry = record(i);
+                bodies.put(entry.hash, entry);
+            }
+        }
+        StoredEntry candidate = bodies.get(hash);
+        if (candidate == null || candidate.length != bytes.length) {
+            return null;
+        }
+        return candidate.body().equals(ByteBuffer.wrap(bytes)) ? candidate : null;
+    }
+
+    /**
+     * Accoda un contenuto al segmento attivo, aprendone uno nuovo se necessario
+     * @return posizione del contenuto nel segmento attivo
+     */
+    private long writeBody(ByteBuffer buffer) throws IOException {
+        if (activeChannel.size() > 0 && activeChannel.size() + buffer.remaining() > segmentBytes) {
+            activeChannel.force(false);
+            activeChannel.close();
+            activeSegment++;
+            activeChannel = openSegmentForAppend(activeSegment);
+        }
+        long offset = activeChannel.size();
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer);
+        }
+        return offset;
+    }
+
+    private void writeRecord(long i, StoredEntry entry) throws IOException {
+        ensureIndexCapacity(i + 1);
+        int position = recordOffset(i);
+        index.putInt(position, entry.segment);
+        index.putLong(position + 4, entry.offset);
+        index.putInt(position + 12, entry.length);
+        index.putLong(position + 16, entry.timestamp);
+        index.putLong(position + 24, entry.hash);
+    }
+
+    /**
+     * Sposta nel segmento attivo i contenuti ancora referenziati da segmenti quasi vuoti,
+     * così che quei segmenti possano essere cancellati
+     */
+    private void relocateSparseSegments() throws IOException {
+        Map<Integer, Long> liveBytes = new HashMap<>();
+        Set<String> counted = new HashSet<>();
+        for (long i = 0; i < count; i++) {
+            StoredEntry entry = record(i);
+            if (counted.add(entry.segment + ":" + entry.offset)) {
+                liveBytes.merge(entry.segment, (long) entry.length, Long::sum);
+            }
+        }
+        Set<Integer> sparse = new HashSet<>();
+        for (Map.Entry<Integer, Long> segment : liveBytes.entrySet()) {
+            if (segment.getKey() != activeSegment
+                    && segment.getValue() * RELOCATION_RATIO < Files.size(segmentPath(segment.getKey()))) {
+                sparse.add(segment.getKey());
+            }
+        }
+        if (sparse.isEmpty()) {
+            return;
+        }
+        // Un contenuto condiviso da più record viene spostato una sola volta
+        Map<String, StoredEntry> moved = new HashMap<>();
+        for (long i = 0; i < count; i++) {
+            StoredEntry entry = record(i);
+            if (!sparse.contains(entry.segment)) {
+                continue;
+            }
+            String key = entry.segment + ":" + entry.offset;
+            StoredEntry target = moved.get(key);
+            if (target == null) {
+                long offset = writeBody(entry.body());
+                target = new StoredEntry(this, entry.sequence, activeSegment, offset, entry.length,
+                        entry.timestamp, entry.hash);
+                moved.put(key, target);
+            }
+            writeRecord(i, new StoredEntry(this, entry.sequence, target.segment, target.offset, entry.length,
+                    entry.timestamp, entry.hash));
+        }
+    }
+
+    private StoredEntry record(long i) {
+        int position = recordOffset(i);
+        return new StoredEntry(this, firstSequence + i, index.getInt(position), index.getLong(position + 4),
+                index.getInt(position + 12), index.getLong(position + 16), index.getLong(position + 24));
+    }
+
+    private static int recordOffset(long i) {
+        return (int) (HEADER_BYTES + i * RECORD_BYTES);
+    }
+
+    /**
+     * @param fresh true per un nuovo indice di compattazione, con l'intestazione non valida finché non è completo
+     */
+    private void openIndex(Path path, boolean fresh) throws IOException {
+        indexChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        boolean empty = fresh || indexChannel.size() < HEADER_BYTES;
+        long size = Math.max(indexChannel.size(), HEADER_BYTES + (long) INITIAL_INDEX_RECORDS * RECORD_BYTES);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (empty) {
+            index.putInt(0, fresh ? 0 : MAGIC);
+            index.putInt(4, VERSION);
+            index.putLong(8, 0);
+            count = 0;
+        } else {
+            if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                throw new IOException("Indice della cronologia non valido: " + path);
+            }
+            count = index.getLong(8);
+        }
+    }
+
+    /**
+     * Mappa in sola lettura la generazione più recente con l'intestazione scritta.
+     * Se una compattazione dell'altra istanza la sostituisce e la cancella nel frattempo, si riprova.
+     */
+    private void openLatestIndex() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                indexGeneration = findLatestGeneration();
+                if (indexGeneration < 0) {
+                    throw new NoSuchFileException(directory.toString());
+                }
+                Path path = indexPath(indexGeneration);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                    throw new IOException("Indice della cronologia non valido: " + path);
+                }
+                count = Math.min(index.getLong(8), (index.capacity() - HEADER_BYTES) / RECORD_BYTES);
+                return;
+            } catch (NoSuchFileException e) {
+                if (attempt >= READ_ONLY_ATTEMPTS || !Files.isDirectory(directory)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Prende il lock esclusivo sulla cartella, mantenuto fino alla chiusura
+     * @throws LockedException se la cartella è già aperta in scrittura
+     */
+    private void lockDirectory() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock directoryLock;
+        try {
+            directoryLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Già aperta in scrittura da questo stesso processo
+            directoryLock = null;
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new LockedException(directory);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("Cronologia aperta in sola lettura");
+        }
+    }
+
+    private void ensureIndexCapacity(long records) throws IOException {
+        long required = HEADER_BYTES + records * RECORD_BYTES;
+        if (required <= index.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Indice della cronologia troppo grande");
+        }
+        long size = Math.min(Math.max(required, 2L * index.capacity()), Integer.MAX_VALUE);
+        index.force();
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private FileChannel openSegmentForAppend(int segment) throws IOException {
+        return FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%08d.log", segment));
+    }
+
+    private Path indexPath(int generation) {
+        return directory.resolve("history-" + generation + ".idx");
+    }
+
+    /**
+     * Trova la generazione più recente con l'intestazione scritta.
+     * Le generazioni più recenti rimaste incomplete per una compattazione interrotta vengono cancellate;
+     * in sola lettura vengono solo saltate, perché possono essere la compattazione in corso di chi scrive.
+     * @return la generazione, 0 per una cronologia nuova (-1 in sola lettura)
+     */
+    private int findLatestGeneration() throws IOException {
+        List<Integer> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "history-*.idx")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+                } catch (NumberFormatException e) {
+                    // File estraneo: ignorato
+                }
+            }
+        }
+        generations.sort(null);
+        for (int i = generations.size() - 1; i >= 0; i--) {
+            int generation = generations.get(i);
+            if ((i == 0 && !readOnly) || isCommitted(indexPath(generation))) {
+                return generation;
+            }
+            if (!readOnly) {
+                deleteQuietly(indexPath(generation));
+            }
+        }
+        return readOnly ? -1 : 0;
+    }
+
+    private static boolean isCommitted(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Legge l'intestazione completa
+            }
+            return !header.hasRemaining() && header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+        }
+    }
+
+    /**
+     * Cancella gli indici di generazioni precedenti.
+     * Su Windows un file ancora mappato non può essere cancellato: verrà rimosso in un secondo momento.
+     */
+    private void removeStaleIndexes() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "history-*.idx")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    if (Integer.parseInt(name.substring(8, name.length() - 4)) < indexGeneration) {
+                        deleteQuietly(file);
+                    }
+                } catch (NumberFormatException e) {
+                    // File estraneo: ignorato
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancella i segmenti che nessun record conservato referenzia più
+     */
+    private void removeUnreferencedSegments() throws IOException {
+        Set<Integer> referenced = new HashSet<>();
+        referenced.add(activeSegment);
+        for (long i = 0; i < count; i++) {
+            referenced.add(index.getInt(recordOffset(i)));
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    int segment = Integer.parseInt(name.substring(8, name.length() - 4));
+                    if (!referenced.contains(segment)) {
+                        synchronized (segmentMaps) {
+                            segmentMaps.remove(segment);
+                        }
+                        deleteQuietly(file);
+                    }
+                } catch (NumberFormatException e) {
+                    // File estraneo: ignorato
+                }
+            }
+        }
+        removeStaleIndexes();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // File ancora in uso: verrà cancellato alla prossima compattazione o al prossimo avvio
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.StringSelection;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Destinazione sugli appunti.
+ * Gli appunti accettano solo il contenuto completo, pubblicato con un'unica operazione alla chiusura.
+ * I risultati brevi vengono raccolti in memoria; oltre la soglia il testo viene scritto in un file
+ * temporaneo (vedi {@link SpoolOutputSink}) e pubblicato come {@link StreamingTextTransferable}.
+ * Su X11 il contenuto resta negli appunti solo finché il processo che l'ha pubblicato è vivo:
+ * chi esce subito dopo la pubblicazione attende prima {@link #awaitLostOwnership()}.
+ */
+public class ClipboardOutputSink implements OutputSink {
+
+    /** Caratteri oltre i quali il risultato passa da un file temporaneo */
+    public static final int DEFAULT_SPOOL_THRESHOLD_CHARS = SpoolOutputSink.DEFAULT_THRESHOLD_CHARS;
+
+    private final Clipboard clipboard;
+    private final SpoolOutputSink spool;
+    private final CountDownLatch lost = new CountDownLatch(1);
+    private volatile boolean published;
+
+    /**
+     * @param clipboard appunti su cui pubblicare
+     * @param spoolThresholdChars caratteri oltre i quali usare un file temporaneo
+     */
+    public ClipboardOutputSink(Clipboard clipboard, int spoolThresholdChars) {
+        this.clipboard = clipboard;
+        this.spool = new SpoolOutputSink(spoolThresholdChars);
+    }
+
+    public ClipboardOutputSink(Clipboard clipboard) {
+        this(clipboard, DEFAULT_SPOOL_THRESHOLD_CHARS);
+    }
+
+    @Override
+    public void write(CharSequence text) throws IOException {
+        spool.write(text);
+    }
+
+    @Override
+    public void write(ClipboardHistoryStore.StoredEntry entry) throws IOException {
+        spool.write(entry);
+    }
+
+    /**
+     * True se il risultato è stato scritto in un file temporaneo
+     */
+    public boolean isSpooled() {
+        return spool.isSpooled();
+    }
+
+    /**
+     * Caratteri scritti finora
+     */
+    public long getChars() {
+        return spool.getChars();
+    }
+
+    /**
+     * Testo raccolto finora; se è in un file temporaneo viene caricato per intero
+     */
+    public String getText() throws IOException {
+        return spool.getText();
+    }
+
+    /**
+     * True se il risultato è stato pubblicato negli appunti
+     */
+    public boolean isPublished() {
+        return published;
+    }
+
+    /**
+     * Attende che un'altra applicazione sostituisca il contenuto pubblicato
+     */
+    public void awaitLostOwnership() throws InterruptedException {
+        lost.await();
+    }
+
+    @Override
+    public void close() throws IOException {
+        spool.close();
+        if (!spool.isSpooled()) {
+            StringSelection selection = new StringSelection(spool.getText());
+            clipboard.setContents(selection, owner(selection));
+        } else {
+            StreamingTextTransferable contents = new StreamingTextTransferable(spool.getFile(), spool.getChars());
+            clipboard.setContents(contents, owner(contents));
+        }
+        published = true;
+    }
+
+    private ClipboardOwner owner(ClipboardOwner contents) {
+        return (c, t) -> {
+            contents.lostOwnership(c, t);
+            lost.countDown();
+        };
+    }
+}
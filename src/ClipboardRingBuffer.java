@@ -0,0 +1,180 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cronologia degli appunti in un buffer circolare limitato per numero di elementi e per byte.
+ * Quando uno dei due limiti viene superato, gli elementi più vecchi vengono scartati.
+ * Un elemento uguale al più recente non viene aggiunto una seconda volta.
+ * I contenuti sono indirizzati per impronta: più elementi con lo stesso testo condividono
+ * un'unica copia, che pesa sul limite di byte una sola volta.
+ */
+public class ClipboardRingBuffer implements ClipboardEntrySource {
+
+    /**
+     * Contenuto condiviso con il numero di elementi che lo referenziano
+     */
+    private static final class SharedBody {
+        private final String text;
+        private int references;
+
+        SharedBody(String text) {
+            this.text = text;
+        }
+    }
+
+    private final ClipboardEntry[] entries;
+    private final long byteBudget;
+    private final Map<Long, SharedBody> bodies = new HashMap<>();
+    private final DeduplicationStats deduplicationStats = new DeduplicationStats();
+    private int head;
+    private int size;
+    private long usedBytes;
+
+    /**
+     * @param capacity numero massimo di elementi
+     * @param byteBudget occupazione massima stimata in byte
+     */
+    public ClipboardRingBuffer(int capacity, long byteBudget) {
+        if (capacity <= 0 || byteBudget <= 0) {
+            throw new IllegalArgumentException("Capacità del buffer non valida");
+        }
+        this.entries = new ClipboardEntry[capacity];
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Aggiunge un elemento come il più recente
+     * @return false se l'elemento è uguale al più recente o supera da solo il limite di byte
+     */
+    public synchronized boolean add(ClipboardEntry entry) {
+        if (entry.getByteSize() > byteBudget) {
+            return false;
+        }
+        if (size > 0) {
+            ClipboardEntry newest = entries[(head - 1 + entries.length) % entries.length];
+            if (newest.sameContent(entry.getHash(), entry.getText())) {
+                return false;
+            }
+        }
+        if (size == entries.length) {
+            evictOldest();
+        }
+
+        // Riusa il contenuto se è già presente (a parità di impronta si confronta comunque il testo)
+        SharedBody body = bodies.get(entry.getHash());
+        boolean reused = body != null && body.text.equals(entry.getText());
+        if (reused) {
+            entry = new ClipboardEntry(body.text, entry.getTimestamp(), entry.getHash());
+        } else if (body == null) {
+            body = new SharedBody(entry.getText());
+            bodies.put(entry.getHash(), body);
+            usedBytes += bodyBytes(entry);
+        } else {
+            // Collisione di impronta: il contenuto resta privato dell'elemento
+            body = null;
+            usedBytes += bodyBytes(entry);
+        }
+        if (body != null) {
+            body.references++;
+        }
+        deduplicationStats.record(bodyBytes(entry), reused);
+
+        entries[head] = entry;
+        head = (head + 1) % entries.length;
+        size++;
+        usedBytes += ClipboardEntry.OVERHEAD_BYTES;
+        while (usedBytes > byteBudget) {
+            evictOldest();
+        }
+        return true;
+    }
+
+    /**
+     * Contatori di riuso dei contenuti
+     */
+    public DeduplicationStats getDeduplicationStats() {
+        return deduplicationStats;
+    }
+
+    /**
+     * Restituisce l'elemento alla posizione indicata
+     * @param index 0 = il più recente
+     */
+    public synchronized ClipboardEntry get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Posizione non presente nella cronologia: " + index);
+        }
+        return entries[(head - 1 - index + 2 * entries.length) % entries.length];
+    }
+
+    /**
+     * Ultimi elementi, dal più recente al più vecchio
+     */
+    public synchronized List<ClipboardEntry> latest(int count) {
+        int n = Math.min(Math.max(count, 0), size);
+        List<ClipboardEntry> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> readEntries(int count) {
+        List<ClipboardEntry> latest = latest(count);
+        List<String> texts = new ArrayList<>(latest.size());
+        for (ClipboardEntry entry : latest) {
+            texts.add(entry.getText());
+        }
+        return texts;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+        bodies.clear();
+        head = 0;
+        size = 0;
+        usedBytes = 0;
+    }
+
+    private void evictOldest() {
+        int tail = (head - size + entries.length) % entries.length;
+        ClipboardEntry entry = entries[tail];
+        SharedBody body = bodies.get(entry.getHash());
+        if (body != null && body.text == entry.getText()) {
+            if (--body.references == 0) {
+                bodies.remove(entry.getHash());
+                usedBytes -= bodyBytes(entry);
+            }
+        } else {
+            usedBytes -= bodyBytes(entry);
+        }
+        usedBytes -= ClipboardEntry.OVERHEAD_BYTES;
+        entries[tail] = null;
+        size--;
+    }
+
+    private static long bodyBytes(ClipboardEntry entry) {
+        return entry.getByteSize() - ClipboardEntry.OVERHEAD_BYTES;
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Raggruppa aggiornamenti frequenti in un solo passaggio al thread dell'interfaccia.
+ * Finché un aggiornamento è in attesa di essere consegnato, i successivi sostituiscono il valore
+ * senza pianificare altro: al più un {@code Platform.runLater} pendente, che consegna l'ultimo valore.
+ * @param <T> tipo del valore aggiornato
+ */
+public class CoalescingUpdater<T> {
+
+    private final Consumer<Runnable> dispatcher;
+    private final Consumer<T> consumer;
+    private final AtomicReference<T> latest = new AtomicReference<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param dispatcher esegue un'azione nel thread dell'interfaccia (es. Platform::runLater)
+     * @param consumer riceve l'ultimo valore nel thread dell'interfaccia
+     */
+    public CoalescingUpdater(Consumer<Runnable> dispatcher, Consumer<T> consumer) {
+        this.dispatcher = dispatcher;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Pubblica un valore; può essere chiamato da qualsiasi thread
+     */
+    public void post(T value) {
+        latest.set(value);
+        if (scheduled.compareAndSet(false, true)) {
+            dispatcher.accept(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        // Liberato prima di leggere: un valore pubblicato ora pianifica una nuova consegna
+        scheduled.set(false);
+        T value = latest.getAndSet(null);
+        if (value != null) {
+            consumer.accept(value);
+        }
+    }
+}
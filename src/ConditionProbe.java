@@ -0,0 +1,24 @@
+import java.util.function.BooleanSupplier;
+
+/**
+ * Sonda basata su una condizione arbitraria, ad esempio "la finestra di destinazione ha il focus"
+ */
+public class ConditionProbe extends PollingReadinessProbe {
+
+    private final BooleanSupplier condition;
+
+    /**
+     * @param condition condizione da verificare
+     * @param timeoutMillis tempo massimo di attesa
+     * @param pollIntervalMillis intervallo tra due controlli
+     */
+    public ConditionProbe(BooleanSupplier condition, long timeoutMillis, long pollIntervalMillis) {
+        super(timeoutMillis, pollIntervalMillis);
+        this.condition = condition;
+    }
+
+    @Override
+    protected boolean isReady() {
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,326 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Client minimo dell'endpoint di controllo ({@link ControlServer}).
+ * Una connessione aperta resta calda: le richieste successive costano un solo giro sul loopback.
+ * Con {@link #sendAll} le richieste partono tutte insieme e le risposte vengono lette in ordine.
+ * <pre>
+ * --send REQUEST [--send REQUEST]... [--repeat N] [--port-file FILE] [--lang it|en]
+ * </pre>
+ * Da riga di comando i risultati vanno sullo standard output; esito e tempi di ogni richiesta
+ * (andata e ritorno, e servizio nel server) sul flusso degli errori.
+ */
+public class ControlClient implements Closeable {
+
+    /** Argomento che attiva il client al posto dell'interfaccia grafica */
+    public static final String SEND_FLAG = "--send";
+
+    /**
+     * Risposta del server a una richiesta
+     */
+    public static final class Response {
+        private final boolean ok;
+        private final String tag;
+        private final long serverMicros;
+        private final byte[] payload;
+        private final String message;
+        private final long roundTripNanos;
+
+        Response(boolean ok, String tag, long serverMicros, byte[] payload, String message, long roundTripNanos) {
+            this.ok = ok;
+            this.tag = tag;
+            this.serverMicros = serverMicros;
+            this.payload = payload;
+            this.message = message;
+            this.roundTripNanos = roundTripNanos;
+        }
+
+        public boolean isOk() {
+            return ok;
+        }
+
+        /** Etichetta indicata nella richiesta, o null */
+        public String getTag() {
+            return tag;
+        }
+
+        /** Tempo di servizio misurato nel server */
+        public long getServerMicros() {
+            return serverMicros;
+        }
+
+        /** Tempo dall'invio della richiesta alla lettura completa della risposta */
+        public long getRoundTripNanos() {
+            return roundTripNanos;
+        }
+
+        /** Risultato ({@code sink=reply}), vuoto per le altre richieste */
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        public String getText() {
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+
+        /** Messaggio di errore come inviato dal server ({@code CODICE [valore]}), o null */
+        public String getMessage() {
+            return message;
+        }
+
+        /** Codice di errore inviato dal server, o null */
+        public String getErrorCode() {
+            if (message == null) {
+                return null;
+            }
+            int space = message.indexOf(' ');
+            return space < 0 ? message : message.substring(0, space);
+        }
+
+        /**
+         * Messaggio di errore nella lingua corrente ({@code control.server.CODICE});
+         * un codice che il client non conosce viene mostrato così come è arrivato
+         */
+        public String getLocalizedMessage() {
+            String code = getErrorCode();
+            if (code == null) {
+                return null;
+            }
+            String value = code.length() < message.length() ? message.substring(code.length() + 1) : "";
+            String key = "control.server." + code;
+            String text = I18nManager.getInstance().getText(key, value);
+            return text.equals(key) ? message : text;
+        }
+    }
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+
+    /**
+     * Si collega al server sulla porta di loopback e presenta il token
+     */
+    public ControlClient(int port, String token) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+        out = new BufferedOutputStream(socket.getOutputStream());
+        Response auth = send("AUTH " + token);
+        if (!auth.isOk()) {
+            socket.close();
+            throw new IOException(auth.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Si collega al server indicato nel file scritto da {@link ControlServer#writePortFile}
+     */
+    public static ControlClient connect(Path portFile) throws IOException {
+        List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+        String[] parts = lines.isEmpty() ? new String[0] : lines.get(0).trim().split(" ");
+        if (parts.length != 2) {
+            throw new IOException("File di controllo non valido: " + portFile);
+        }
+        try {
+            return new ControlClient(Integer.parseInt(parts[0]), parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("File di controllo non valido: " + portFile, e);
+        }
+    }
+
+    /**
+     * Invia una richiesta e ne attende la risposta
+     */
+    public Response send(String request) throws IOException {
+        List<String> requests = new ArrayList<>(1);
+        requests.add(request);
+        return sendAll(requests).get(0);
+    }
+
+    /**
+     * Invia tutte le richieste senza attendere, poi legge le risposte nell'ordine delle richieste.
+     * Il tempo di andata e ritorno di ciascuna parte dall'invio del gruppo.
+     */
+    public List<Response> sendAll(List<String> requests) throws IOException {
+        long start = System.nanoTime();
+        for (String request : requests) {
+            if (request.indexOf('\n') >= 0 || request.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("Una richiesta deve stare su una riga");
+            }
+            out.write(request.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+        out.flush();
+        List<Response> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            responses.add(read(start));
+        }
+        return responses;
+    }
+
+    private Response read(long start) throws IOException {
+        line.reset();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Connessione chiusa dal server");
+            }
+            line.write(b);
+        }
+        String header = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        boolean ok = header.startsWith("OK");
+        String tag = null;
+        long micros = 0;
+        int bytes = 0;
+        String message = null;
+        String[] words = header.split(" ");
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].startsWith("tag=")) {
+                tag = words[i].substring(4);
+            } else if (words[i].startsWith("us=")) {
+                micros = Long.parseLong(words[i].substring(3));
+            } else if (ok && words[i].startsWith("bytes=")) {
+                bytes = Integer.parseInt(words[i].substring(6));
+            } else if (!ok) {
+                // Il resto della riga è il messaggio di errore
+                message = String.join(" ", Arrays.copyOfRange(words, i, words.length));
+                break;
+            }
+        }
+        byte[] payload = new byte[bytes];
+        int read = 0;
+        while (read < bytes) {
+            int n = in.read(payload, read, bytes - read);
+            if (n < 0) {
+                throw new EOFException("Connessione chiusa dal server");
+            }
+            read += n;
+        }
+        return new Response(ok, tag, micros, payload, message, System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Verifica se gli argomenti chiedono il client
+     */
+    public static boolean isClient(String[] args) {
+        for (String arg : args) {
+            if (SEND_FLAG.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Invia le richieste indicate sulla riga di comando
+     * @return codice di uscita: 0 se tutte le risposte sono OK
+     */
+    static int run(String[] args, PrintStream stdout, PrintStream err) {
+        I18nManager i18n = I18nManager.getInstance();
+        List<String> requests = new ArrayList<>();
+        Path portFile = ControlServer.defaultFile();
+        int repeat = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case SEND_FLAG:
+                        requests.add(value(args, ++i, arg, i18n));
+                        break;
+                    case "--repeat":
+                        try {
+                            repeat = Integer.parseInt(value(args, ++i, arg, i18n));
+                        } catch (NumberFormatException e) {
+                            repeat = 0;
+                        }
+                        if (repeat < 1) {
+                            throw new IllegalArgumentException(i18n.getText("control.error.repeat", args[i]));
+                        }
+                        break;
+                    case "--port-file":
+                        portFile = Paths.get(value(args, ++i, arg, i18n));
+                        break;
+                    case "--lang":
+                        i18n.setLanguage(value(args, ++i, arg, i18n));
+                        break;
+                    case "--help":
+                    case "-h":
+                        err.println(i18n.getText("control.usage"));
+                        return HeadlessCli.EXIT_OK;
+                    default:
+                        throw new IllegalArgumentException(i18n.getText("cli.error.unknown", arg));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(i18n.getText("control.usage"));
+            return HeadlessCli.EXIT_USAGE;
+        }
+
+        boolean success = true;
+        try (ControlClient client = connect(portFile)) {
+            // Con --repeat le richieste successive alla prima mostrano i tempi a connessione calda
+            for (int round = 0; round < repeat; round++) {
+                List<Response> responses = client.sendAll(requests);
+                for (int i = 0; i < responses.size(); i++) {
+                    Response response = responses.get(i);
+                    String name = response.getTag() != null ? response.getTag() : requests.get(i);
+                    String timing = String.format(Locale.ROOT, "%.2f", response.getRoundTripNanos() / 1e6);
+                    String server = String.format(Locale.ROOT, "%.2f", response.getServerMicros() / 1e3);
+                    if (response.isOk()) {
+                        stdout.write(response.getPayload());
+                        err.println(i18n.getText("control.response.ok", name, timing, server));
+                    } else {
+                        err.println(i18n.getText("control.response.failed", name, response.getLocalizedMessage(), timing));
+                        success = false;
+                    }
+                }
+            }
+            stdout.flush();
+        } catch (NoSuchFileException | ConnectException e) {
+            err.println(i18n.getText("control.error.noserver", portFile.toString()));
+            return HeadlessCli.EXIT_FAILURE;
+        } catch (IOException e) {
+            err.println(i18n.getText("cli.error.io", String.valueOf(e.getMessage())));
+            return HeadlessCli.EXIT_FAILURE;
+        }
+        return success ? HeadlessCli.EXIT_OK : HeadlessCli.EXIT_FAILURE;
+    }
+
+    private static String value(String[] args, int i, String option, I18nManager i18n) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(i18n.getText("cli.error.missing", option));
+        }
+        return args[i];
+    }
+}
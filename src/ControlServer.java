@@ -0,0 +1,531 @@
+import java.awt.datatransfer.Clipboard;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Endpoint di controllo locale: accetta richieste di assemblaggio su una porta TCP di loopback,
+ * con un protocollo a righe pensato per script e programmi della stessa macchina.
+ * <pre>
+ * AUTH TOKEN
+ * PING
+ * ASSEMBLE [n=N | ids=ID,ID...] [separator=true|false] [format=plain|markdown|jsonl|html|rtf]
+ *          [sink=reply|clipboard|file:PATH] [transform=STAGE]... [tag=TAG]
+ * STATS
+ * QUIT
+ * </pre>
+ * Ogni risposta è una riga {@code OK tag=TAG us=MICROS bytes=N} seguita da N byte UTF-8
+ * (il risultato con {@code sink=reply}), oppure {@code ERR tag=TAG us=MICROS CODICE [valore]};
+ * {@code us} è il tempo di servizio misurato nel server. I valori con spazi vanno tra virgolette.
+ * Il codice di errore è una parola inglese stabile (es. {@code unknown-command}), seguita dal valore
+ * che lo ha causato: è il client a tradurlo nella lingua dell'utente ({@code control.server.CODICE}).
+ * Le richieste possono essere inviate una dietro l'altra senza attendere le risposte: ogni connessione
+ * le esegue e risponde nell'ordine di arrivo, e le risposte partono a gruppi quando non ci sono
+ * altre richieste già arrivate. Gli assemblaggi sono diretti (mai tasti simulati) e uno alla volta.
+ * Porta e token casuale vengono scritti in {@code ~/.clipboard_automation/control.port}:
+ * la prima richiesta di ogni connessione deve presentare il token.
+ */
+public class ControlServer {
+
+    /** Nome del file con porta e token, accanto alla cronologia */
+    public static final String FILE_NAME = "control.port";
+    /** Elementi assemblati se la richiesta non li indica */
+    public static final int DEFAULT_ELEMENTS = 4;
+    /** Lunghezza massima di una richiesta, in byte */
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    /**
+     * Richiesta non eseguibile, con il codice di errore inviato al client
+     */
+    static final class RequestException extends Exception {
+        RequestException(String code) {
+            super(code);
+        }
+
+        /**
+         * @param code codice di errore
+         * @param value valore della richiesta che ha causato l'errore
+         */
+        RequestException(String code, String value) {
+            super(code + " " + value);
+        }
+    }
+
+    private final ClipboardAutomation automation;
+    private final ClipboardHistoryIndex index;
+    private final Clipboard clipboard;
+    private final String token;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private ExecutorService connectionExecutor;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private Path portFile;
+
+    /**
+     * @param source elementi per {@code n=N}
+     * @param index cronologia in cui cercare gli elementi per {@code ids=...} (null = non disponibile)
+     * @param clipboard appunti per {@code sink=clipboard} (null = non disponibili, ad esempio senza display)
+     */
+    public ControlServer(ClipboardEntrySource source, ClipboardHistoryIndex index, Clipboard clipboard) {
+        // Un'automazione propria, sempre diretta: le richieste non toccano quella dell'interfaccia
+        this.automation = new ClipboardAutomation(source, clipboard != null ? clipboard : new Clipboard("control"));
+        this.index = index;
+        this.clipboard = clipboard;
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder hex = new StringBuilder(32);
+        for (byte b : random) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        this.token = hex.toString();
+    }
+
+    /**
+     * Posizione predefinita del file con porta e token ({@code ~/.clipboard_automation/control.port})
+     */
+    public static Path defaultFile() {
+        return ClipboardHistoryStore.defaultDirectory().resolveSibling(FILE_NAME);
+    }
+
+    /**
+     * Apre la porta sull'interfaccia di loopback e inizia ad accettare connessioni
+     * @param port porta (0 = una libera scelta dal sistema)
+     * @return la porta aperta
+     */
+    public synchronized int start(int port) throws IOException {
+        if (serverSocket != null) {
+            return serverSocket.getLocalPort();
+        }
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        connectionExecutor = Executors.newCachedThreadPool(
+            r -> daemon(r, "control-" + connections.incrementAndGet()));
+        ServerSocket socket = serverSocket;
+        acceptThread = daemon(() -> accept(socket), "control-accept");
+        acceptThread.start();
+        return serverSocket.getLocalPort();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Scrive porta e token nel file indicato, sostituendolo in un colpo solo.
+     * Il file temporaneo viene creato leggibile solo dall'utente (sui file system POSIX).
+     */
+    public synchronized void writePortFile(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "control", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(getPort() + " " + token + "\n");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        portFile = file;
+    }
+
+    /**
+     * Chiude la porta e le connessioni aperte; il file della porta viene cancellato se è ancora il nostro
+     */
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Chiusura comunque in corso
+        }
+        connectionExecutor.shutdownNow();
+        // Le letture bloccate sui socket non rispondono alle interruzioni
+        for (Socket socket : openSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Connessione già chiusa
+            }
+        }
+        serverSocket = null;
+        if (portFile != null) {
+            try {
+                List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && lines.get(0).endsWith(" " + token)) {
+                    Files.deleteIfExists(portFile);
+                }
+            } catch (IOException e) {
+                // File già sostituito o cancellato
+            }
+            portFile = null;
+        }
+    }
+
+    /**
+     * Attende la chiusura della porta
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptThread;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    public synchronized int getPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Tempi di servizio delle richieste ("control") e delle trasformazioni
+     */
+    public AutomationMetrics getMetrics() {
+        return automation.getMetrics();
+    }
+
+    private void accept(ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try {
+                Socket connection = socket.accept();
+                try {
+                    connectionExecutor.execute(() -> serve(connection));
+                } catch (java.util.concurrent.RejectedExecutionException e) {
+                    connection.close();
+                }
+            } catch (IOException e) {
+                // Porta chiusa da stop()
+            }
+        }
+    }
+
+    /**
+     * Serve una connessione: le richieste vengono eseguite in ordine e le risposte accumulate
+     * nel buffer finché ne arrivano altre, poi inviate insieme
+     */
+    private void serve(Socket connection) {
+        openSockets.add(connection);
+        try (Socket socket = connection) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            boolean authenticated = false;
+            while (readLine(in, line)) {
+                long start = System.nanoTime();
+                String request = new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+                if (request.isEmpty()) {
+                    continue;
+                }
+                Reply reply;
+                boolean quit = false;
+                if (!authenticated) {
+                    authenticated = request.equals("AUTH " + token);
+                    reply = authenticated ? Reply.ok(null, null) : Reply.error(null, "bad-token");
+                    quit = !authenticated;
+                } else {
+                    List<String> words = split(request);
+                    String command = words.get(0).toUpperCase(Locale.ROOT);
+                    quit = command.equals("QUIT");
+                    reply = handle(command, words.subList(1, words.size()));
+                }
+                reply.write(out, (System.nanoTime() - start) / 1000);
+                if (quit || in.available() == 0) {
+                    out.flush();
+                }
+                if (quit) {
+                    return;
+                }
+            }
+        } catch (SocketException e) {
+            // Connessione chiusa dal client o da stop()
+        } catch (IOException e) {
+            // Connessione interrotta: le altre restano aperte
+        } finally {
+            openSockets.remove(connection);
+        }
+    }
+
+    /**
+     * Legge una riga terminata da '\n' (senza il terminatore e un eventuale '\r')
+     * @return false a fine flusso
+     */
+    private static boolean readLine(InputStream in, ByteArrayOutputStream line) throws IOException {
+        line.reset();
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                return true;
+            }
+            if (b != '\r') {
+                if (line.size() == MAX_LINE_BYTES) {
+                    throw new IOException("Richiesta troppo lunga");
+                }
+                line.write(b);
+            }
+        }
+        return line.size() > 0;
+    }
+
+    /**
+     * Esegue una richiesta già autenticata
+     */
+    Reply handle(String command, List<String> words) {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<TransformStage> stages = new ArrayList<>();
+        String tag = null;
+        try {
+            for (String word : words) {
+                int eq = word.indexOf('=');
+                if (eq <= 0) {
+                    throw new RequestException("bad-argument", word);
+                }
+                String key = word.substring(0, eq).toLowerCase(Locale.ROOT);
+                String value = word.substring(eq + 1);
+                if (key.equals("tag")) {
+                    if (value.isEmpty() || value.matches(".*\\s.*")) {
+                        throw new RequestException("bad-tag", value);
+                    }
+                    tag = value;
+                } else if (key.equals("transform")) {
+                    try {
+                        stages.add(TransformStage.parse(value));
+                    } catch (IllegalArgumentException e) {
+                        throw new RequestException("bad-transform", value);
+                    }
+                } else {
+                    options.put(key, value);
+                }
+            }
+            switch (command) {
+                case "PING":
+                case "QUIT":
+                    return Reply.ok(tag, null);
+                case "STATS":
+                    return Reply.ok(tag, getMetrics().compactSummary("control").getBytes(StandardCharsets.UTF_8));
+                case "ASSEMBLE":
+                    long start = System.nanoTime();
+                    Reply reply = Reply.ok(tag, assemble(options, stages));
+                    getMetrics().recordSince("control", start);
+                    return reply;
+                default:
+                    throw new RequestException("unknown-command", command);
+            }
+        } catch (RequestException e) {
+            return Reply.error(tag, e.getMessage());
+        } catch (Exception e) {
+            // Errore durante l'esecuzione (es. lettura della cronologia o scrittura del file)
+            return Reply.error(tag, "failed " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        }
+    }
+
+    /**
+     * Assembla gli elementi richiesti sulla destinazione indicata
+     * @return il risultato per {@code sink=reply}, altrimenti null
+     */
+    private byte[] assemble(Map<String, String> options, List<TransformStage> stages) throws Exception {
+        boolean addSeparator = Boolean.parseBoolean(remove(options, "separator", "true"));
+        String format = remove(options, "format", "plain");
+        if (!Arrays.asList(HeadlessCli.FORMATS).contains(format)) {
+            throw new RequestException("bad-format", format);
+        }
+        String ids = options.remove("ids");
+        int elements = DEFAULT_ELEMENTS;
+        String count = options.remove("n");
+        if (count != null && ids != null) {
+            throw new RequestException("conflicting-selection");
+        }
+        if (count != null) {
+            try {
+                elements = Integer.parseInt(count);
+            } catch (NumberFormatException e) {
+                elements = 0;
+            }
+            if (elements < 1) {
+                throw new RequestException("bad-count", count);
+            }
+        }
+        List<String> entries = ids != null ? readSelected(ids) : null;
+
+        String sinkName = remove(options, "sink", "reply");
+        if (!options.isEmpty()) {
+            throw new RequestException("unknown-option", options.keySet().iterator().next());
+        }
+        ByteArrayOutputStream reply = null;
+        OutputSink sink;
+        if (sinkName.equals("reply")) {
+            reply = new ByteArrayOutputStream(4096);
+            sink = new ChannelOutputSink(Channels.newChannel(reply));
+        } else if (sinkName.equals("clipboard")) {
+            if (clipboard == null) {
+                throw new RequestException("no-clipboard");
+            }
+            sink = new ClipboardOutputSink(clipboard);
+        } else if (sinkName.startsWith("file:") && sinkName.length() > 5) {
+            sink = new FileOutputSink(Paths.get(sinkName.substring(5)));
+        } else {
+            throw new RequestException("bad-sink", sinkName);
+        }
+
+        OutputEncoder encoder = HeadlessCli.encoder(format);
+        synchronized (automation) {
+            automation.setTransformPipeline(stages.isEmpty() ? null : new TransformPipeline(stages));
+            try {
+                if (entries != null) {
+                    automation.executeAutomation(entries, addSeparator, encoder, sink);
+                } else {
+                    automation.executeAutomation(elements, addSeparator, encoder, sink);
+                }
+            } finally {
+                automation.setTransformPipeline(null);
+            }
+        }
+        return reply != null ? reply.toByteArray() : null;
+    }
+
+    /**
+     * Legge i contenuti degli elementi indicati, nell'ordine della richiesta
+     */
+    private List<String> readSelected(String ids) throws IOException, RequestException {
+        if (index == null) {
+            throw new RequestException("no-history");
+        }
+        String[] parts = ids.split(",");
+        List<String> entries = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            long id;
+            try {
+                id = Long.parseLong(part.trim());
+            } catch (NumberFormatException e) {
+                throw new RequestException("bad-id", part);
+            }
+            ClipboardHistoryIndex.Item item = index.find(id);
+            if (item == null) {
+                throw new RequestException("not-found", String.valueOf(id));
+            }
+            entries.add(item.getText());
+        }
+        return entries;
+    }
+
+    private static String remove(Map<String, String> options, String key, String defaultValue) {
+        String value = options.remove(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Divide una richiesta in parole separate da spazi; tra virgolette gli spazi fanno parte del valore
+     * e {@code \"} e {@code \\} indicano una virgoletta e una barra (le altre barre restano tali)
+     */
+    static List<String> split(String request) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean quoted = false;
+        boolean inWord = false;
+        for (int i = 0; i < request.length(); i++) {
+            char c = request.charAt(i);
+            if (quoted) {
+                if (c == '\\' && i + 1 < request.length()
+                        && (request.charAt(i + 1) == '"' || request.charAt(i + 1) == '\\')) {
+                    word.append(request.charAt(++i));
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    word.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                inWord = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Risposta a una richiesta
+     */
+    static final class Reply {
+        private final boolean ok;
+        private final String tag;
+        private final byte[] payload;
+        private final String message;
+
+        private Reply(boolean ok, String tag, byte[] payload, String message) {
+            this.ok = ok;
+            this.tag = tag;
+            this.payload = payload;
+            this.message = message;
+        }
+
+        static Reply ok(String tag, byte[] payload) {
+            return new Reply(true, tag, payload, null);
+        }
+
+        static Reply error(String tag, String message) {
+            return new Reply(false, tag, null, message);
+        }
+
+        void write(OutputStream out, long micros) throws IOException {
+            StringBuilder header = new StringBuilder(ok ? "OK" : "ERR");
+            if (tag != null) {
+                header.append(" tag=").append(tag);
+            }
+            header.append(" us=").append(micros);
+            if (ok) {
+                header.append(" bytes=").append(payload != null ? payload.length : 0);
+            } else {
+                // Il messaggio resta su una riga
+                header.append(' ').append(message.replace('\n', ' ').replace('\r', ' '));
+            }
+            header.append('\n');
+            out.write(header.toString().getBytes(StandardCharsets.UTF_8));
+            if (payload != null) {
+                out.write(payload);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contatori della deduplicazione dei contenuti: byte risparmiati e percentuale di riuso
+ */
+public class DeduplicationStats {
+
+    private final AtomicLong entries = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * Registra un elemento salvato
+     * @param bytes dimensione del contenuto
+     * @param reusedBody true se il contenuto era già presente e non è stato salvato di nuovo
+     */
+    public void record(long bytes, boolean reusedBody) {
+        entries.incrementAndGet();
+        if (reusedBody) {
+            reused.incrementAndGet();
+            bytesSaved.addAndGet(bytes);
+        }
+    }
+
+    public long getEntries() {
+        return entries.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Frazione di elementi che hanno riusato un contenuto già presente (da 0 a 1)
+     */
+    public double getReuseRate() {
+        long total = entries.get();
+        return total == 0 ? 0 : (double) reused.get() / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("entries=%d, reused=%d (%.1f%%), saved=%d bytes",
+                getEntries(), getReused(), getReuseRate() * 100, getBytesSaved());
+    }
+}
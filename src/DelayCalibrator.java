@@ -0,0 +1,340 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.event.KeyEvent;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Misura le pause minime dell'automazione su una finestra locale di prova invece che su Notepad.
+ * Per ogni valore cerca, con una ricerca binaria, la pausa più breve per cui tutte le prove
+ * terminano senza tasti persi né duplicati, poi la moltiplica per un margine di sicurezza.
+ * Vengono misurati la pausa tra gli eventi di tastiera e le attese dei passi riproducibili in
+ * un'area di testo (digitazione, Invio, incolla, selezione, copia); l'apertura di Notepad e la
+ * "Cronologia Appunti" non hanno un equivalente locale e mantengono le pause di default.
+ * Non usa tasti specifici di Windows, quindi funziona anche su Linux con Xvfb.
+ */
+public class DelayCalibrator {
+
+    /** Opzione della riga di comando che avvia la calibrazione */
+    public static final String CALIBRATE_FLAG = "--calibrate";
+    /** Prove per ogni valore candidato */
+    public static final int DEFAULT_TRIALS = 20;
+    /** Fattore applicato alla pausa minima trovata */
+    public static final double DEFAULT_SAFETY_MARGIN = 1.5;
+    /** Passi misurabili sulla finestra di prova */
+    public static final AutomationStep[] CALIBRATED_STEPS = {
+        AutomationStep.TYPE_TEXT, AutomationStep.ENTER, AutomationStep.PASTE_TEXT,
+        AutomationStep.SELECT_ALL, AutomationStep.COPY
+    };
+
+    /** Se nemmeno questo multiplo del default basta, il valore viene considerato non misurabile */
+    private static final int MAX_GROWTH = 8;
+    /** Precisione della ricerca binaria */
+    private static final long RESOLUTION_MILLIS = 2;
+    /** Pausa minima salvata, per le variazioni di carico del sistema */
+    private static final long MIN_APPLIED_MILLIS = 5;
+    /** Il testo è considerato stabile se non cambia per questo intervallo */
+    private static final long STABLE_MILLIS = 150;
+    private static final long STABLE_TIMEOUT_MILLIS = 2000;
+    private static final String SAMPLE = "abcdefghijklmnopqrstuvwxyz";
+    private static final String PASTED = "calibrazione incollata";
+
+    /**
+     * Finestra di prova che riceve i tasti. I metodi vengono chiamati dal thread della calibrazione.
+     */
+    public interface Target {
+        /**
+         * Svuota il testo e porta il fuoco sull'area di testo
+         */
+        void reset() throws InterruptedException;
+
+        String getText() throws InterruptedException;
+
+        String getSelectedText() throws InterruptedException;
+    }
+
+    /**
+     * Riceve i risultati man mano che vengono misurati
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param name nome del valore ("eventGap" o nome del passo)
+         * @param defaultMillis pausa usata finora
+         * @param minimumMillis pausa minima senza errori (-1 se non trovata)
+         * @param appliedMillis pausa salvata nel profilo
+         */
+        void measured(String name, long defaultMillis, long minimumMillis, long appliedMillis);
+    }
+
+    @FunctionalInterface
+    private interface Trial {
+        boolean run(long millis) throws InterruptedException;
+    }
+
+    private final KeyEmitter emitter;
+    private final Target target;
+    private final Clipboard clipboard;
+    private final KeystrokeExecutor executor;
+    // La finestra di prova confronta il testo arrivato: un layout sbagliato risulta in tasti persi
+    private KeyboardLayout layout = KeyboardLayout.us();
+    private int trials = DEFAULT_TRIALS;
+    private double safetyMargin = DEFAULT_SAFETY_MARGIN;
+    private Listener listener;
+    private long lostKeys;
+    private long duplicatedKeys;
+    // Attesa della prova in corso, usata dalle sonde dei programmi di prova
+    private volatile long trialDelayMillis;
+
+    /**
+     * @param emitter emettitore reale dei tasti
+     * @param target finestra di prova con il fuoco
+     * @param clipboard appunti di sistema, per misurare la copia
+     */
+    public DelayCalibrator(KeyEmitter emitter, Target target, Clipboard clipboard) {
+        this.emitter = emitter;
+        this.target = target;
+        this.clipboard = clipboard;
+        // Come nell'automazione, l'attesa del passo segue subito l'ultimo evento
+        this.executor = new KeystrokeExecutor(emitter, step -> new FixedDelayProbe(trialDelayMillis));
+    }
+
+    public void setLayout(KeyboardLayout layout) {
+        this.layout = layout;
+    }
+
+    public void setTrials(int trials) {
+        if (trials <= 0) {
+            throw new IllegalArgumentException("Numero di prove non valido: " + trials);
+        }
+        this.trials = trials;
+    }
+
+    public void setSafetyMargin(double safetyMargin) {
+        if (safetyMargin < 1) {
+            throw new IllegalArgumentException("Il margine di sicurezza deve essere almeno 1");
+        }
+        this.safetyMargin = safetyMargin;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Tasti persi nelle prove fallite durante la ricerca
+     */
+    public long getLostKeys() {
+        return lostKeys;
+    }
+
+    /**
+     * Tasti duplicati nelle prove fallite durante la ricerca
+     */
+    public long getDuplicatedKeys() {
+        return duplicatedKeys;
+    }
+
+    /**
+     * Esegue la calibrazione completa
+     * @return profilo con i valori trovati; i valori non misurabili restano ai default
+     */
+    public TimingProfile calibrate() throws InterruptedException {
+        long gap = measure("eventGap", KeystrokeCompiler.DEFAULT_EVENT_GAP_MILLIS, this::typingTrial);
+        long eventGap = gap >= 0 ? gap : KeystrokeCompiler.DEFAULT_EVENT_GAP_MILLIS;
+
+        Map<AutomationStep, Long> steps = new EnumMap<>(AutomationStep.class);
+        for (AutomationStep step : CALIBRATED_STEPS) {
+            long millis = measure(step.name(), step.getDefaultDelayMillis(), delay -> stepTrial(step, eventGap, delay));
+            if (millis >= 0) {
+                steps.put(step, millis);
+            }
+        }
+        return new TimingProfile(TimingProfile.currentMachine(), System.currentTimeMillis(), eventGap, steps);
+    }
+
+    /**
+     * Cerca la pausa minima e applica il margine
+     * @return pausa da salvare, -1 se nessuna pausa fino a {@link #MAX_GROWTH} volte il default è affidabile
+     */
+    private long measure(String name, long defaultMillis, Trial trial) throws InterruptedException {
+        long minimum = search(defaultMillis, trial);
+        long applied = minimum >= 0 ? Math.max((long) Math.ceil(minimum * safetyMargin), MIN_APPLIED_MILLIS) : -1;
+        Listener current = listener;
+        if (current != null) {
+            current.measured(name, defaultMillis, minimum, applied);
+        }
+        return applied;
+    }
+
+    /**
+     * Ricerca binaria della pausa più breve per cui tutte le prove riescono.
+     * Se il default non basta, raddoppia il limite superiore finché non trova un valore affidabile.
+     */
+    private long search(long defaultMillis, Trial trial) throws InterruptedException {
+        // lo è sempre un valore che fallisce (o -1, prima dello zero), hi uno che riesce
+        long lo = -1;
+        long hi = Math.max(defaultMillis, 1);
+        while (!passes(trial, hi)) {
+            if (hi >= defaultMillis * MAX_GROWTH) {
+                return -1;
+            }
+            lo = hi;
+            hi *= 2;
+        }
+        while (hi - lo > RESOLUTION_MILLIS) {
+            long mid = lo + (hi - lo) / 2;
+            if (passes(trial, mid)) {
+                hi = mid;
+            } else {
+                lo = mid;
+            }
+        }
+        return hi;
+    }
+
+    /**
+     * True se tutte le prove con la pausa indicata riescono; si ferma alla prima che fallisce
+     */
+    private boolean passes(Trial trial, long millis) throws InterruptedException {
+        for (int i = 0; i < trials; i++) {
+            if (!trial.run(millis)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Digita l'alfabeto con la pausa indicata tra gli eventi e verifica che arrivi intero
+     */
+    private boolean typingTrial(long gap) throws InterruptedException {
+        target.reset();
+        executor.execute(typed(new KeystrokeProgram.Builder(gap), SAMPLE).build());
+        return matches(SAMPLE, awaitStableText());
+    }
+
+    /**
+     * Esegue l'azione del passo, attende la pausa indicata e verifica che l'effetto sia già visibile;
+     * poi attende che il testo si stabilizzi per scoprire eventuali tasti duplicati in ritardo
+     */
+    private boolean stepTrial(AutomationStep step, long gap, long delay) throws InterruptedException {
+        target.reset();
+        KeystrokeProgram.Builder builder = new KeystrokeProgram.Builder(gap);
+        builder.arm(step);
+        String expected;
+        switch (step) {
+            case TYPE_TEXT:
+                String separator = layout.canType("---") ? "---" : "abc";
+                typed(builder, separator);
+                expected = separator;
+                break;
+            case ENTER:
+                builder.tap(KeyEvent.VK_ENTER);
+                expected = "\n";
+                break;
+            case PASTE_TEXT:
+                builder.setClipboard(PASTED).chord(KeyEvent.VK_CONTROL, KeyEvent.VK_V);
+                expected = PASTED;
+                break;
+            case SELECT_ALL:
+            case COPY:
+                executor.execute(typed(new KeystrokeProgram.Builder(gap), SAMPLE).build());
+                if (!matches(SAMPLE, awaitStableText())) {
+                    return false;
+                }
+                if (step == AutomationStep.COPY) {
+                    // La selezione usa la pausa di default: qui si misura solo la copia
+                    emitter.putClipboardText("");
+                    builder.chord(KeyEvent.VK_CONTROL, KeyEvent.VK_A)
+                           .sleep(AutomationStep.SELECT_ALL.getDefaultDelayMillis());
+                }
+                builder.chord(KeyEvent.VK_CONTROL, step == AutomationStep.COPY ? KeyEvent.VK_C : KeyEvent.VK_A);
+                expected = SAMPLE;
+                break;
+            default:
+                throw new IllegalArgumentException("Passo non calibrabile: " + step);
+        }
+        trialDelayMillis = delay;
+        executor.execute(builder.await(step).build());
+
+        boolean landed;
+        if (step == AutomationStep.SELECT_ALL) {
+            landed = SAMPLE.equals(target.getSelectedText());
+        } else if (step == AutomationStep.COPY) {
+            landed = SAMPLE.equals(clipboardText());
+        } else {
+            landed = expected.equals(target.getText());
+        }
+        return matches(expected, awaitStableText()) && landed;
+    }
+
+    private KeystrokeProgram.Builder typed(KeystrokeProgram.Builder builder, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            KeyboardLayout.Keystroke keystroke = layout.lookup(text.charAt(i));
+            if (keystroke == null) {
+                throw new IllegalArgumentException("Carattere non digitabile con il layout " + layout.getName()
+                        + ": " + text.charAt(i));
+            }
+            if (keystroke.isShift()) {
+                builder.chord(KeyEvent.VK_SHIFT, keystroke.getKeyCode());
+            } else {
+                builder.tap(keystroke.getKeyCode());
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Confronta il testo atteso con quello arrivato, contando i tasti persi o duplicati
+     */
+    private boolean matches(String expected, String actual) {
+        if (actual.length() < expected.length()) {
+            lostKeys += expected.length() - actual.length();
+        } else if (actual.length() > expected.length()) {
+            duplicatedKeys += actual.length() - expected.length();
+        }
+        return expected.equals(actual);
+    }
+
+    /**
+     * Attende che il testo della finestra smetta di cambiare
+     */
+    private String awaitStableText() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + STABLE_TIMEOUT_MILLIS;
+        String text = target.getText();
+        long stableSince = System.currentTimeMillis();
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            String current = target.getText();
+            if (!current.equals(text)) {
+                text = current;
+                stableSince = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - stableSince >= STABLE_MILLIS) {
+                break;
+            }
+        }
+        return text;
+    }
+
+    private String clipboardText() {
+        try {
+            return (String) clipboard.getData(DataFlavor.stringFlavor);
+        } catch (Exception e) {
+            // Appunti occupati o vuoti: la copia non è ancora arrivata
+            return null;
+        }
+    }
+
+    /**
+     * Verifica se tra gli argomenti c'è l'opzione di calibrazione
+     */
+    public static boolean isCalibration(String[] args) {
+        for (String arg : args) {
+            if (CALIBRATE_FLAG.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
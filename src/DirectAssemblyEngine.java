@@ -0,0 +1,284 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.StringSelection;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Motore di assemblaggio diretto in memoria.
+ * Produce lo stesso testo che l'automazione otterrebbe in Notepad (stesso ordine e stesso separatore)
+ * e lo inserisce negli appunti con un'unica operazione, senza Notepad né pressioni di tasti.
+ */
+public class DirectAssemblyEngine {
+
+    private final ClipboardEntrySource source;
+    private final Clipboard clipboard;
+    private AssemblyTemplate template = AssemblyTemplate.defaults();
+    private boolean skipDuplicates;
+    private TransformPipeline pipeline = TransformPipeline.empty();
+
+    public DirectAssemblyEngine(ClipboardEntrySource source, Clipboard clipboard) {
+        this.source = source;
+        this.clipboard = clipboard;
+    }
+
+    /**
+     * Imposta i testi da inserire attorno agli elementi
+     */
+    public void setTemplate(AssemblyTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Se true un contenuto ripetuto nella cronologia viene assemblato una sola volta,
+     * nella posizione della copia più recente
+     */
+    public void setSkipDuplicates(boolean skipDuplicates) {
+        this.skipDuplicates = skipDuplicates;
+    }
+
+    /**
+     * Imposta le trasformazioni da applicare agli elementi prima dell'assemblaggio
+     * (null = nessuna). Con delle trasformazioni i contenuti della cronologia persistente
+     * vengono sempre letti nello heap.
+     */
+    public void setPipeline(TransformPipeline pipeline) {
+        this.pipeline = pipeline != null ? pipeline : TransformPipeline.empty();
+    }
+
+    /**
+     * Legge gli elementi, li assembla e pubblica il risultato negli appunti
+     * @param numberOfElements numero di elementi da assemblare
+     * @param addSeparator se true aggiunge il separatore "---" alla fine
+     * @return il testo pubblicato negli appunti
+     */
+    public String execute(int numberOfElements, boolean addSeparator) throws IOException {
+        String text = assemble(readTexts(numberOfElements), addSeparator);
+        publish(text);
+        return text;
+    }
+
+    /**
+     * Come {@link #execute}, ma negli appunti pubblica un {@link AssembledTransferable}:
+     * gli elementi vengono letti subito, il testo e gli altri formati vengono prodotti solo quando
+     * un'applicazione li chiede, e oltre la soglia passano da un file temporaneo invece che da una String
+     * @param numberOfElements numero di elementi da assemblare
+     * @param addSeparator se true aggiunge il separatore finale
+     * @return il contenuto pubblicato
+     */
+    public AssembledTransferable executeDeferred(int numberOfElements, boolean addSeparator) throws IOException {
+        AssembledTransferable contents = snapshot(numberOfElements, addSeparator);
+        clipboard.setContents(contents, contents);
+        return contents;
+    }
+
+    /**
+     * Come {@link #executeDeferred(int, boolean)}, ma con elementi scelti dall'utente invece degli ultimi N.
+     * Le trasformazioni si applicano, i contenuti ripetuti non vengono saltati.
+     * @param entries elementi nell'ordine in cui devono comparire nel risultato
+     * @param addSeparator se true aggiunge il separatore finale
+     * @return il contenuto pubblicato
+     */
+    public AssembledTransferable executeDeferred(List<String> entries, boolean addSeparator) {
+        Snapshot snapshot = select(entries, addSeparator);
+        AssembledTransferable contents = new AssembledTransferable(snapshot, template, snapshot.estimatedChars());
+        clipboard.setContents(contents, contents);
+        return contents;
+    }
+
+    /**
+     * Legge gli elementi e restituisce il risultato da produrre in seguito, in qualsiasi formato.
+     * Dalla cronologia persistente vengono letti solo i riferimenti ai contenuti
+     * @param numberOfElements numero di elementi da assemblare
+     * @param addSeparator se true aggiunge il separatore finale
+     */
+    public AssembledTransferable snapshot(int numberOfElements, boolean addSeparator) throws IOException {
+        Snapshot snapshot = read(numberOfElements, addSeparator);
+        return new AssembledTransferable(snapshot, template, snapshot.estimatedChars());
+    }
+
+    /**
+     * Legge gli elementi e li scrive uno alla volta sulla destinazione, nel formato indicato.
+     * Dalla cronologia persistente i contenuti non vengono caricati nello heap quando il formato
+     * e la destinazione possono copiarli direttamente. La destinazione non viene chiusa.
+     * @param numberOfElements numero di elementi da assemblare
+     * @param addSeparator se true aggiunge il separatore finale
+     * @param encoder formato del risultato
+     * @param sink destinazione
+     */
+    public void write(int numberOfElements, boolean addSeparator, OutputEncoder encoder, OutputSink sink)
+            throws IOException {
+        read(numberOfElements, addSeparator).render(encoder, sink);
+    }
+
+    /**
+     * Come {@link #write(int, boolean, OutputEncoder, OutputSink)}, con elementi scelti dall'utente
+     * @param entries elementi nell'ordine in cui devono comparire nel risultato
+     */
+    public void write(List<String> entries, boolean addSeparator, OutputEncoder encoder, OutputSink sink)
+            throws IOException {
+        select(entries, addSeparator).render(encoder, sink);
+    }
+
+    /**
+     * Elementi scelti, riportati in ordine di cronologia: il primo del risultato diventa il più vecchio
+     */
+    private Snapshot select(List<String> entries, boolean addSeparator) {
+        List<String> texts = new ArrayList<>(entries);
+        Collections.reverse(texts);
+        return new Snapshot(pipeline.apply(texts), addSeparator);
+    }
+
+    private Snapshot read(int numberOfElements, boolean addSeparator) throws IOException {
+        if (source instanceof ClipboardHistoryStore && !skipDuplicates && pipeline.isEmpty()) {
+            ClipboardHistoryStore store = (ClipboardHistoryStore) source;
+            return new Snapshot(store, store.latest(numberOfElements), addSeparator);
+        }
+        return new Snapshot(readTexts(numberOfElements), addSeparator);
+    }
+
+    /**
+     * Legge i contenuti degli elementi, senza ripetizioni se richiesto, e li trasforma
+     */
+    private List<String> readTexts(int numberOfElements) throws IOException {
+        List<String> entries = skipDuplicates
+                ? readDistinctEntries(numberOfElements)
+                : source.readEntries(numberOfElements);
+        return pipeline.apply(entries);
+    }
+
+    /**
+     * Elementi letti in un certo istante: numeri progressivi della cronologia persistente oppure testi
+     * (indice 0 = il più recente).
+     * I numeri progressivi vengono risolti solo alla produzione del risultato, anche molto dopo:
+     * nel frattempo la compattazione può spostare i contenuti e cancellare i segmenti che li contenevano.
+     */
+    private static final class Snapshot implements AssembledTransferable.Renderer {
+        private final ClipboardHistoryStore store;
+        private final long[] sequences;
+        private final List<String> texts;
+        private final boolean addSeparator;
+        private final long estimatedChars;
+
+        Snapshot(ClipboardHistoryStore store, List<ClipboardHistoryStore.StoredEntry> stored, boolean addSeparator) {
+            this.store = store;
+            this.sequences = new long[stored.size()];
+            this.texts = null;
+            this.addSeparator = addSeparator;
+            long total = 0;
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = stored.get(i).getSequence();
+                // La lunghezza in byte limita dall'alto quella in caratteri
+                total += stored.get(i).getByteLength();
+            }
+            this.estimatedChars = total;
+        }
+
+        Snapshot(List<String> texts, boolean addSeparator) {
+            this.store = null;
+            this.sequences = null;
+            this.texts = texts;
+            this.addSeparator = addSeparator;
+            long total = 0;
+            for (String text : texts) {
+                total += text.length();
+            }
+            this.estimatedChars = total;
+        }
+
+        /**
+         * Caratteri dei contenuti; per la cronologia persistente la lunghezza in byte, che li limita dall'alto
+         */
+        long estimatedChars() {
+            return estimatedChars;
+        }
+
+        @Override
+        public void render(OutputEncoder encoder, OutputSink sink) throws IOException {
+            int count = sequences != null ? sequences.length : texts.size();
+            encoder.begin(sink, count);
+            for (int i = count - 1; i >= 0; i--) {
+                if (sequences == null) {
+                    encoder.item(sink, count - i, i + 1, count, texts.get(i));
+                    continue;
+                }
+                try {
+                    encoder.item(sink, count - i, i + 1, count, resolve(i));
+                } catch (NoSuchFileException e) {
+                    // Contenuto spostato da una compattazione tra la risoluzione e la lettura
+                    encoder.item(sink, count - i, i + 1, count, resolve(i));
+                }
+            }
+            encoder.end(sink, addSeparator);
+        }
+
+        private ClipboardHistoryStore.StoredEntry resolve(int i) throws IOException {
+            ClipboardHistoryStore.StoredEntry entry = store.getBySequence(sequences[i]);
+            if (entry == null) {
+                throw new IOException("Elemento non più presente nella cronologia: " + sequences[i]);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Assembla gli elementi nello stesso ordine dell'automazione con Notepad:
+     * la posizione più alta viene incollata per prima, la posizione 1 per ultima
+     * @param entries elementi in ordine di cronologia (indice 0 = il più recente)
+     * @param addSeparator se true aggiunge il separatore del modello alla fine
+     */
+    public String assemble(List<String> entries, boolean addSeparator) {
+        String trailer = template.trailer(addSeparator);
+        int count = entries.size();
+        int capacity = template.getHeader().length() + trailer.length();
+        for (String entry : entries) {
+            capacity += entry.length() + template.getItemHeader().length() + 1;
+        }
+
+        StringBuilder result = new StringBuilder(capacity);
+        result.append(template.getHeader());
+        for (int i = count - 1; i >= 0; i--) {
+            result.append(template.renderItemHeader(count - i, i + 1, count));
+            result.append(entries.get(i)).append('\n');
+        }
+        result.append(trailer);
+        return result.toString();
+    }
+
+    /**
+     * Legge i primi elementi distinti, allargando la lettura finché non ne trova abbastanza
+     * o la cronologia finisce
+     */
+    private List<String> readDistinctEntries(int numberOfElements) throws IOException {
+        int window = numberOfElements;
+        while (true) {
+            List<String> entries = source.readEntries(window);
+            List<String> distinct = new ArrayList<>(numberOfElements);
+            Set<String> seen = new HashSet<>();
+            for (String entry : entries) {
+                if (seen.add(entry)) {
+                    distinct.add(entry);
+                    if (distinct.size() == numberOfElements) {
+                        return distinct;
+                    }
+                }
+            }
+            if (entries.size() < window || window > Integer.MAX_VALUE / 2) {
+                return distinct;
+            }
+            window *= 2;
+        }
+    }
+
+    /**
+     * Inserisce il testo negli appunti con un'unica operazione
+     */
+    public void publish(String text) {
+        StringSelection selection = new StringSelection(text);
+        clipboard.setContents(selection, selection);
+    }
+}
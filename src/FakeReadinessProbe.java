@@ -0,0 +1,37 @@
+/**
+ * Sonda finta e deterministica per i test su Linux: non dorme mai e restituisce
+ * gli esiti prestabiliti, uno per ogni attesa (l'ultimo esito viene ripetuto)
+ */
+public class FakeReadinessProbe implements ReadinessProbe {
+
+    private final boolean[] outcomes;
+    private int armCount;
+    private int awaitCount;
+
+    /**
+     * @param outcomes esiti delle attese successive (false = scadenza simulata)
+     */
+    public FakeReadinessProbe(boolean... outcomes) {
+        this.outcomes = outcomes.length > 0 ? outcomes.clone() : new boolean[] { true };
+    }
+
+    @Override
+    public synchronized void arm() {
+        armCount++;
+    }
+
+    @Override
+    public synchronized boolean await() {
+        boolean outcome = outcomes[Math.min(awaitCount, outcomes.length - 1)];
+        awaitCount++;
+        return outcome;
+    }
+
+    public synchronized int getArmCount() {
+        return armCount;
+    }
+
+    public synchronized int getAwaitCount() {
+        return awaitCount;
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Destinazione che inoltra lo stesso risultato a più destinazioni in parallelo
+ * (appunti, file, processi). Il risultato viene prodotto una sola volta; ogni destinazione
+ * ha il proprio thread e una coda limitata di pezzi, così una destinazione lenta non
+ * rallenta le altre. Se la coda di una destinazione resta piena oltre il tempo massimo,
+ * quella destinazione viene abbandonata e le altre proseguono.
+ * La chiusura attende tutte le destinazioni e non fallisce per gli errori delle singole
+ * destinazioni: l'esito di ognuna si legge con {@link #getResults()}.
+ * Una destinazione aggiunta con {@link #add(String, Opener)} viene aperta nel suo thread: se l'apertura
+ * fallisce, l'errore finisce nel suo esito come per ogni altro errore di scrittura.
+ */
+public class FanOutSink implements OutputSink {
+
+    /** Pezzi in coda per ciascuna destinazione */
+    public static final int DEFAULT_QUEUE_CHUNKS = 64;
+    /** Attesa massima di una destinazione con la coda piena o in chiusura */
+    public static final long DEFAULT_STALL_MILLIS = 10_000;
+    /** Dimensione massima di un pezzo, così la memoria in coda resta limitata */
+    static final int CHUNK_CHARS = 8192;
+
+    // Marcatore di fine, confrontato per identità
+    private static final String END = new String("");
+
+    /**
+     * Apertura di una destinazione, eseguita nel thread della destinazione
+     */
+    public interface Opener {
+        OutputSink open() throws IOException;
+    }
+
+    /**
+     * Esito di una destinazione
+     */
+    public static final class Result {
+        private final String name;
+        private final Throwable error;
+        private final long chars;
+        private final long latencyMillis;
+
+        Result(String name, Throwable error, long chars, long latencyMillis) {
+            this.name = name;
+            this.error = error;
+            this.chars = chars;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Errore della destinazione (null se riuscita)
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Caratteri scritti sulla destinazione
+         */
+        public long getChars() {
+            return chars;
+        }
+
+        /**
+         * Tempo dal primo pezzo alla chiusura della destinazione
+         */
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + (error == null ? "ok" : String.valueOf(error.getMessage()))
+                    + " (" + chars + " caratteri, " + latencyMillis + " ms)";
+        }
+    }
+
+    /**
+     * Una destinazione con la sua coda e il suo thread
+     */
+    private final class Branch implements Runnable {
+        final String name;
+        final Opener opener;
+        OutputSink sink;
+        final BlockingQueue<String> queue;
+        final Thread thread;
+        volatile Throwable error;
+        volatile long chars;
+        volatile long finishedAt;
+
+        Branch(String name, Opener opener) {
+            this.name = name;
+            this.opener = opener;
+            this.queue = new ArrayBlockingQueue<>(queueChunks);
+            this.thread = new Thread(this, "fanout-" + name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Accoda un pezzo; se la destinazione è ferma da troppo tempo la abbandona
+         */
+        void offer(String piece) throws InterruptedException {
+            if (error != null) {
+                return;
+            }
+            if (!queue.offer(piece, stallMillis, TimeUnit.MILLISECONDS)) {
+                fail(new IOException("Destinazione " + name + " troppo lenta: abbandonata dopo " + stallMillis + " ms"));
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (error == null) {
+                error = cause;
+            }
+            // Libera la memoria e sblocca il thread se è in attesa di un pezzo
+            queue.clear();
+            queue.offer(END);
+        }
+
+        @Override
+        public void run() {
+            try {
+                sink = opener.open();
+                while (true) {
+                    String piece = queue.take();
+                    if (piece == END || error != null) {
+                        break;
+                    }
+                    sink.write(piece);
+                    chars += piece.length();
+                }
+            } catch (IOException | RuntimeException | InterruptedException e) {
+                fail(e);
+            } finally {
+                try {
+                    if (sink != null) {
+                        sink.close();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+                finishedAt = System.nanoTime();
+            }
+        }
+    }
+
+    private final List<Branch> branches = new ArrayList<>();
+    private final int queueChunks;
+    private final long stallMillis;
+    private AutomationMetrics metrics;
+    private long startedAt;
+    private List<Result> results;
+
+    /**
+     * @param queueChunks pezzi in coda per ciascuna destinazione
+     * @param stallMillis attesa massima di una destinazione che non accetta altri pezzi
+     */
+    public FanOutSink(int queueChunks, long stallMillis) {
+        if (queueChunks <= 0 || stallMillis <= 0) {
+            throw new IllegalArgumentException("Coda o attesa non valida");
+        }
+        this.queueChunks = queueChunks;
+        this.stallMillis = stallMillis;
+    }
+
+    public FanOutSink() {
+        this(DEFAULT_QUEUE_CHUNKS, DEFAULT_STALL_MILLIS);
+    }
+
+    /**
+     * Aggiunge una destinazione; va chiamato prima della prima scrittura
+     * @param name nome usato nei risultati e nelle misure
+     */
+    public FanOutSink add(String name, OutputSink sink) {
+        return add(name, () -> sink);
+    }
+
+    /**
+     * Aggiunge una destinazione che viene aperta nel suo thread alla prima scrittura;
+     * va chiamato prima della prima scrittura
+     * @param name nome usato nei risultati e nelle misure
+     */
+    public FanOutSink add(String name, Opener opener) {
+        if (startedAt != 0) {
+            throw new IllegalStateException("Destinazioni da aggiungere prima della prima scrittura");
+        }
+        branches.add(new Branch(name, opener));
+        return this;
+    }
+
+    /**
+     * Registra la latenza di ogni destinazione come "sink.&lt;nome&gt;" (null = nessuna misura)
+     */
+    public void setMetrics(AutomationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(CharSequence text) throws IOException {
+        start();
+        int offset = 0;
+        while (offset < text.length()) {
+            // Un'unica copia immutabile del pezzo, condivisa da tutte le destinazioni
+            int end = Math.min(offset + CHUNK_CHARS, text.length());
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end--;
+            }
+            String piece = text.subSequence(offset, end).toString();
+            offset = end;
+            for (Branch branch : branches) {
+                try {
+                    branch.offer(piece);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Scrittura interrotta", e);
+                }
+            }
+        }
+    }
+
+    private void start() {
+        if (startedAt == 0) {
+            startedAt = System.nanoTime();
+            for (Branch branch : branches) {
+                branch.thread.start();
+            }
+        }
+    }
+
+    /**
+     * Chiude tutte le destinazioni e attende che abbiano finito, al massimo il tempo di attesa per ciascuna
+     */
+    @Override
+    public void close() throws IOException {
+        if (results != null) {
+            return;
+        }
+        start();
+        boolean interrupted = false;
+        for (Branch branch : branches) {
+            try {
+                branch.offer(END);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                branch.fail(e);
+            }
+        }
+        List<Result> list = new ArrayList<>(branches.size());
+        for (Branch branch : branches) {
+            try {
+                branch.thread.join(interrupted ? 1 : stallMillis);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (branch.thread.isAlive()) {
+                branch.fail(new IOException("Destinazione " + branch.name + " non chiusa entro " + stallMillis + " ms"));
+            }
+            long end = branch.finishedAt != 0 ? branch.finishedAt : System.nanoTime();
+            AutomationMetrics m = metrics;
+            if (m != null) {
+                m.histogram("sink." + branch.name).record(end - startedAt);
+            }
+            list.add(new Result(branch.name, branch.error, branch.chars, (end - startedAt) / 1_000_000L));
+        }
+        results = Collections.unmodifiableList(list);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Esito di ogni destinazione, nell'ordine di aggiunta (null prima della chiusura)
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * True se tutte le destinazioni sono riuscite (false prima della chiusura)
+     */
+    public boolean isSuccess() {
+        if (results == null) {
+            return false;
+        }
+        for (Result result : results) {
+            if (!result.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,22 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Destinazione su file; il file viene creato o sovrascritto
+ */
+public class FileOutputSink extends ChannelOutputSink {
+
+    private final Path path;
+
+    public FileOutputSink(Path path) throws IOException {
+        super(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
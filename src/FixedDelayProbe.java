@@ -0,0 +1,23 @@
+/**
+ * Sonda che si limita ad attendere un tempo fisso (comportamento originale delle pause)
+ */
+public class FixedDelayProbe implements ReadinessProbe {
+
+    private final long milliseconds;
+
+    public FixedDelayProbe(long milliseconds) {
+        this.milliseconds = milliseconds;
+    }
+
+    @Override
+    public boolean await() throws InterruptedException {
+        if (milliseconds > 0) {
+            Thread.sleep(milliseconds);
+        }
+        return true;
+    }
+
+    public long getMilliseconds() {
+        return milliseconds;
+    }
+}
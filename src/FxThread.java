@@ -0,0 +1,39 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javafx.application.Platform;
+
+/**
+ * Esecuzione sincrona di operazioni nel thread JavaFX da altri thread (automazione, calibrazione)
+ */
+public final class FxThread {
+
+    /** Oltre questa attesa il thread JavaFX viene considerato bloccato */
+    public static final long TIMEOUT_MILLIS = 5000;
+
+    private FxThread() {
+    }
+
+    /**
+     * Esegue l'operazione nel thread JavaFX e ne attende il risultato.
+     * Se chiamato dal thread JavaFX la esegue direttamente.
+     */
+    public static <T> T call(Callable<T> action) throws InterruptedException {
+        FutureTask<T> task = new FutureTask<>(action);
+        if (Platform.isFxApplicationThread()) {
+            task.run();
+        } else {
+            Platform.runLater(task);
+        }
+        try {
+            return task.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Il thread JavaFX non risponde", e);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+import java.awt.HeadlessException;
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Riga di comando senza interfaccia grafica.
+ * Assembla gli ultimi elementi della cronologia interna (o quelli letti dallo standard input)
+ * con l'assemblaggio diretto, senza mai caricare classi {@code javafx.*}: l'avvio resta nell'ordine
+ * delle decine di millisecondi.
+ * <pre>
+ * --headless [--elements N] [--no-separator] [--out FILE|-]... [--clipboard] [--pipe COMMAND]...
+ *            [--format plain|markdown|jsonl|html|rtf] [--transform STAGE]... [--stdin [--null]]
+ *            [--history DIR] [--lang it|en]
+ * --headless --serve [--port N] [--stdin [--null]] [--history DIR]
+ * </pre>
+ * Le trasformazioni ({@link TransformStage#parse}) vengono applicate agli elementi nell'ordine indicato;
+ * il tempo di ciascuna viene riportato sul flusso degli errori.
+ * Con più destinazioni il risultato viene scritto su tutte in parallelo ({@link FanOutSink})
+ * e l'esito di ciascuna viene riportato sul flusso degli errori.
+ * Con {@code --clipboard} su X11 il processo resta attivo finché un'altra applicazione non sostituisce
+ * il contenuto degli appunti, perché lì il contenuto è servito da chi lo ha pubblicato.
+ * Con {@code --serve} resta in ascolto sull'endpoint di controllo ({@link ControlServer}) finché non
+ * viene interrotto, senza display: le richieste si inviano con {@code --send} ({@link ControlClient}).
+ */
+public class HeadlessCli {
+
+    /** Argomento che attiva la riga di comando al posto dell'interfaccia grafica */
+    public static final String HEADLESS_FLAG = "--headless";
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+
+    /** Formati del risultato accettati da --format */
+    static final String[] FORMATS = { "plain", "markdown", "jsonl", "html", "rtf" };
+
+    private int elements = 4;
+    private boolean addSeparator = true;
+    private final List<Path> outputs = new ArrayList<>();
+    private final List<List<String>> pipes = new ArrayList<>();
+    private boolean toStdout;
+    private boolean toClipboard;
+    private String format = "plain";
+    private final List<TransformStage> stages = new ArrayList<>();
+    private boolean fromStdin;
+    private boolean nullSeparated;
+    private Path historyDirectory = ClipboardHistoryStore.defaultDirectory();
+    private boolean serve;
+    private int port;
+    private ClipboardOutputSink clipboardSink;
+    private final I18nManager i18n = I18nManager.getInstance();
+
+    public static void main(String[] args) {
+        System.exit(new HeadlessCli().run(args, System.err));
+    }
+
+    /**
+     * Verifica se gli argomenti chiedono la riga di comando
+     */
+    public static boolean isHeadless(String[] args) {
+        for (String arg : args) {
+            if (HEADLESS_FLAG.equals(arg)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Esegue il comando
+     * @param args argomenti della riga di comando
+     * @param err flusso per gli errori e l'aiuto
+     * @return codice di uscita
+     */
+    int run(String[] args, PrintStream err) {
+        try {
+            if (!parse(args)) {
+                err.println(i18n.getText("cli.usage"));
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(i18n.getText("cli.usage"));
+            return EXIT_USAGE;
+        }
+
+        try {
+            ClipboardEntrySource source = fromStdin ? readStdin() : openHistory();
+            if (source == null) {
+                err.println(i18n.getText("cli.error.nohistory", historyDirectory.toString()));
+                return EXIT_FAILURE;
+            }
+            int exitCode;
+            try {
+                if (serve) {
+                    return serve(source, err);
+                }
+                DirectAssemblyEngine engine = new DirectAssemblyEngine(source, null);
+                TransformPipeline pipeline = new TransformPipeline(stages);
+                engine.setPipeline(pipeline);
+                exitCode = write(engine, err);
+                for (Map.Entry<String, Long> stage : pipeline.getLastStageNanos().entrySet()) {
+                    err.println(i18n.getText("cli.transform.timing", stage.getKey(),
+                            String.format(Locale.ROOT, "%.1f", stage.getValue() / 1e6)));
+                }
+            } finally {
+                if (source instanceof ClipboardHistoryStore) {
+                    ((ClipboardHistoryStore) source).close();
+                }
+            }
+            holdClipboard(err);
+            return exitCode;
+        } catch (IOException e) {
+            err.println(i18n.getText("cli.error.io", String.valueOf(e.getMessage())));
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Apre l'endpoint di controllo sulla cronologia e resta in ascolto finché il processo non viene interrotto
+     * @return codice di uscita
+     */
+    private int serve(ClipboardEntrySource source, PrintStream err) throws IOException {
+        ClipboardHistoryIndex index = null;
+        if (source instanceof ClipboardHistoryStore) {
+            index = new ClipboardHistoryIndex((ClipboardHistoryStore) source);
+            index.load();
+        }
+        Clipboard clipboard;
+        try {
+            clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+        } catch (HeadlessException e) {
+            // Senza display restano le destinazioni reply e file
+            clipboard = null;
+        }
+        ControlServer server = new ControlServer(source, index, clipboard);
+        server.start(port);
+        Path portFile = ControlServer.defaultFile();
+        server.writePortFile(portFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        err.println(i18n.getText("cli.serve.listening", String.valueOf(server.getPort()), portFile.toString()));
+        try {
+            server.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop();
+        return EXIT_OK;
+    }
+
+    /**
+     * Scrive il risultato sulla destinazione, o su tutte in parallelo se sono più di una
+     * @return codice di uscita
+     */
+    private int write(DirectAssemblyEngine engine, PrintStream err) throws IOException {
+        if (destinationCount() <= 1) {
+            OutputSink single;
+            try {
+                single = openSink();
+            } catch (HeadlessException e) {
+                err.println(i18n.getText("cli.error.noclipboard"));
+                return EXIT_FAILURE;
+            }
+            try (OutputSink sink = single) {
+                engine.write(elements, addSeparator, encoder(), sink);
+            }
+            return EXIT_OK;
+        }
+        FanOutSink fanOut = new FanOutSink();
+        boolean opened = openSinks(fanOut, err);
+        try (OutputSink sink = fanOut) {
+            engine.write(elements, addSeparator, encoder(), sink);
+        }
+        for (FanOutSink.Result result : fanOut.getResults()) {
+            err.println(result.isSuccess()
+                    ? i18n.getText("cli.sink.ok", result.getName(), String.valueOf(result.getLatencyMillis()))
+                    : i18n.getText("cli.sink.failed", result.getName(), String.valueOf(result.getError().getMessage())));
+        }
+        return opened && fanOut.isSuccess() ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    /**
+     * Su X11 gli appunti vengono serviti dal processo che li ha pubblicati: se esce, il contenuto si perde.
+     * In quel caso attende che un'altra applicazione lo sostituisca; altrove il sistema ne conserva una copia.
+     */
+    private void holdClipboard(PrintStream err) {
+        if (clipboardSink == null || !clipboardSink.isPublished()
+                || !"sun.awt.X11.XToolkit".equals(Toolkit.getDefaultToolkit().getClass().getName())) {
+            return;
+        }
+        err.println(i18n.getText("cli.clipboard.holding"));
+        try {
+            clipboardSink.awaitLostOwnership();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Legge gli argomenti
+     * @return false se è stato chiesto l'aiuto
+     */
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case HEADLESS_FLAG:
+                    break;
+                case "--elements":
+                case "-n":
+                    try {
+                        elements = Integer.parseInt(value(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException(i18n.getText("cli.error.elements", args[i]));
+                    }
+                    if (elements < 1) {
+                        throw new IllegalArgumentException(i18n.getText("cli.error.elements", args[i]));
+                    }
+                    break;
+                case "--no-separator":
+                    addSeparator = false;
+                    break;
+                case "--out":
+                case "-o":
+                    String file = value(args, ++i, arg);
+                    if (file.equals("-")) {
+                        toStdout = true;
+                    } else {
+                        outputs.add(Paths.get(file));
+                    }
+                    break;
+                case "--clipboard":
+                    toClipboard = true;
+                    break;
+                case "--pipe":
+                    String command = value(args, ++i, arg);
+                    // Stesse regole delle richieste di controllo: le virgolette raggruppano gli argomenti
+                    List<String> words = ControlServer.split(command);
+                    if (words.isEmpty()) {
+                        throw new IllegalArgumentException(i18n.getText("cli.error.missing", arg));
+                    }
+                    pipes.add(words);
+                    break;
+                case "--format":
+                    format = value(args, ++i, arg);
+                    if (!Arrays.asList(FORMATS).contains(format)) {
+                        throw new IllegalArgumentException(i18n.getText("cli.error.format", format));
+                    }
+                    break;
+                case "--transform":
+                case "-t":
+                    String spec = value(args, ++i, arg);
+                    try {
+                        stages.add(TransformStage.parse(spec));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException(i18n.getText("cli.error.transform", spec));
+                    }
+                    break;
+                case "--stdin":
+                    fromStdin = true;
+                    break;
+                case "--null":
+                case "-0":
+                    nullSeparated = true;
+                    break;
+                case "--history":
+                    historyDirectory = Paths.get(value(args, ++i, arg));
+                    break;
+                case "--lang":
+                    i18n.setLanguage(value(args, ++i, arg));
+                    break;
+                case "--serve":
+                    serve = true;
+                    break;
+                case "--port":
+                    try {
+                        port = Integer.parseInt(value(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        port = -1;
+                    }
+                    if (port < 0 || port > 65535) {
+                        throw new IllegalArgumentException(i18n.getText("cli.error.port", args[i]));
+                    }
+                    break;
+                case "--help":
+                case "-h":
+                    return false;
+                default:
+                    throw new IllegalArgumentException(i18n.getText("cli.error.unknown", arg));
+            }
+        }
+        return true;
+    }
+
+    private String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(i18n.getText("cli.error.missing", option));
+        }
+        return args[i];
+    }
+
+    /**
+     * Legge gli elementi dallo standard input, uno per riga (o separati da NUL con --null).
+     * L'ultimo elemento letto è il più recente, quindi il risultato li riporta nell'ordine di lettura.
+     */
+    private ClipboardEntrySource readStdin() throws IOException {
+        InMemoryEntrySource source = new InMemoryEntrySource();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        if (nullSeparated) {
+            StringBuilder entry = new StringBuilder();
+            int c;
+            while ((c = reader.read()) >= 0) {
+                if (c == 0) {
+                    source.push(entry.toString());
+                    entry.setLength(0);
+                } else {
+                    entry.append((char) c);
+                }
+            }
+            if (entry.length() > 0) {
+                source.push(entry.toString());
+            }
+        } else {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                source.push(line);
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Apre in sola lettura la cronologia interna salvata dall'interfaccia grafica, senza crearla se non esiste.
+     * L'interfaccia grafica può continuare a usarla in scrittura nel frattempo.
+     */
+    private ClipboardEntrySource openHistory() throws IOException {
+        if (!Files.isDirectory(historyDirectory)) {
+            return null;
+        }
+        try {
+            return ClipboardHistoryStore.openReadOnly(historyDirectory);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private int destinationCount() {
+        return outputs.size() + pipes.size() + (toStdout ? 1 : 0) + (toClipboard ? 1 : 0);
+    }
+
+    /**
+     * Apre l'unica destinazione richiesta (standard output se non ne è stata indicata alcuna)
+     * @throws HeadlessException se sono richiesti gli appunti e non c'è un display
+     */
+    private OutputSink openSink() throws IOException {
+        if (!outputs.isEmpty()) {
+            return new FileOutputSink(outputs.get(0));
+        }
+        if (!pipes.isEmpty()) {
+            return new ProcessOutputSink(pipes.get(0));
+        }
+        if (toClipboard) {
+            clipboardSink = new ClipboardOutputSink(Toolkit.getDefaultToolkit().getSystemClipboard());
+            return clipboardSink;
+        }
+        return new StdoutOutputSink();
+    }
+
+    /**
+     * Apre tutte le destinazioni richieste; i file e i processi che non si aprono vengono segnalati e saltati.
+     * Gli appunti vengono aperti nel thread della loro destinazione, e un errore finisce nel loro esito.
+     * @return false se almeno una destinazione non si è aperta
+     */
+    private boolean openSinks(FanOutSink fanOut, PrintStream err) {
+        boolean opened = true;
+        for (Path file : outputs) {
+            try {
+                fanOut.add(file.toString(), new FileOutputSink(file));
+            } catch (IOException e) {
+                err.println(i18n.getText("cli.sink.failed", file.toString(), String.valueOf(e.getMessage())));
+                opened = false;
+            }
+        }
+        for (List<String> command : pipes) {
+            try {
+                fanOut.add(String.join(" ", command), new ProcessOutputSink(command));
+            } catch (IOException e) {
+                err.println(i18n.getText("cli.sink.failed", String.join(" ", command), String.valueOf(e.getMessage())));
+                opened = false;
+            }
+        }
+        if (toClipboard) {
+            fanOut.add("clipboard", () -> {
+                try {
+                    clipboardSink = new ClipboardOutputSink(Toolkit.getDefaultToolkit().getSystemClipboard());
+                } catch (HeadlessException e) {
+                    throw new IOException(i18n.getText("cli.error.noclipboard"), e);
+                }
+                return clipboardSink;
+            });
+        }
+        if (toStdout) {
+            fanOut.add("stdout", new StdoutOutputSink());
+        }
+        return opened;
+    }
+
+    private OutputEncoder encoder() {
+        return encoder(format);
+    }
+
+    /**
+     * Codificatore del formato indicato (uno di {@link #FORMATS}; altrimenti testo semplice)
+     */
+    static OutputEncoder encoder(String format) {
+        switch (format) {
+            case "markdown":
+                return new MarkdownEncoder();
+            case "jsonl":
+                return new JsonLinesEncoder();
+            case "html":
+                return new HtmlEncoder();
+            case "rtf":
+                return new RtfEncoder();
+            default:
+                return new PlainTextEncoder();
+        }
+    }
+}
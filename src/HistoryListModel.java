@@ -0,0 +1,95 @@
+import java.util.Collections;
+import java.util.List;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * L'intera cronologia indicizzata come elenco osservabile virtuale, dal più recente.
+ * Non copia gli elementi: {@link #size} e {@link #get} leggono dall'indice le posizioni contate
+ * dall'elemento in cima, quindi mostrare 100.000 elementi costa quanto mostrarne dieci.
+ * I nuovi elementi entrano nell'elenco solo con {@link #sync}, come aggiunte in cima: la ListView
+ * conserva scelta e posizione di scorrimento senza ricostruire nulla.
+ * Va usato nel thread JavaFX; l'indice può ricevere elementi da qualsiasi thread nel frattempo.
+ */
+public class HistoryListModel extends ObservableListBase<ClipboardHistoryIndex.Item> {
+
+    private final ClipboardHistoryIndex index;
+    /** Identificativo dell'elemento in cima all'elenco, -1 se l'elenco è vuoto */
+    private long newestId = -1;
+    private int size;
+
+    public HistoryListModel(ClipboardHistoryIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Elemento in una posizione dell'elenco
+     * @return l'elemento, o null se nel frattempo è uscito dall'indice e {@link #sync} non è ancora stato chiamato
+     */
+    @Override
+    public ClipboardHistoryIndex.Item get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Posizione non presente nell'elenco: " + position);
+        }
+        return index.get(newestId, position);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Posizione di un elemento per bisezione sull'indice, senza scorrere l'elenco
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof ClipboardHistoryIndex.Item) || size == 0) {
+            return -1;
+        }
+        ClipboardHistoryIndex.Item item = (ClipboardHistoryIndex.Item) o;
+        if (item.getId() > newestId) {
+            return -1;
+        }
+        int position = index.countUpTo(newestId) - index.countUpTo(item.getId());
+        return position < size && index.get(newestId, position) == item ? position : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Allinea l'elenco all'indice: gli elementi arrivati dall'ultima chiamata vengono aggiunti in cima
+     * e quelli usciti dall'indice vengono tolti dal fondo, con un'unica notifica
+     */
+    public void sync() {
+        List<ClipboardHistoryIndex.Item> newest = index.search("", 1);
+        long id = newest.isEmpty() ? -1 : newest.get(0).getId();
+        // Elementi ancora presenti tra quelli già nell'elenco, e totale con i nuovi
+        int kept = size > 0 ? Math.min(index.countUpTo(newestId), size) : 0;
+        int total = id >= 0 ? index.countUpTo(id) : 0;
+        int removed = size - kept;
+        int added = total - kept;
+        if (removed == 0 && added == 0) {
+            return;
+        }
+        newestId = id;
+        size = total;
+        beginChange();
+        if (removed > 0) {
+            // Gli elementi usciti non sono più leggibili dall'indice
+            nextRemove(kept, Collections.<ClipboardHistoryIndex.Item>nCopies(removed, null));
+        }
+        if (added > 0) {
+            nextAdd(0, added);
+        }
+        endChange();
+    }
+}
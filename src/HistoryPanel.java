@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+/**
+ * Pannello della cronologia degli appunti: campo di ricerca, elenco degli elementi e conteggio di quelli scelti.
+ * L'elenco è una ListView virtualizzata con celle di altezza fissa, riusate durante lo scorrimento:
+ * una cella mostra dimensione ed età subito, dai dati dell'indice, e chiede l'anteprima del testo
+ * al {@link PreviewLoader}, che la calcola in background. Nell'elenco stanno solo i riferimenti agli
+ * elementi, quindi si può scorrere l'intera cronologia senza caricarne i contenuti nello heap.
+ * Senza query l'elenco è un {@link HistoryListModel} che legge direttamente dall'indice: un elemento
+ * catturato entra in cima senza ripetere la ricerca. Con una query l'elenco contiene i risultati,
+ * ricalcolati solo quando la query cambia.
+ * Ricerche e caricamento dell'indice avvengono nel thread di ricerca, mai nel thread JavaFX.
+ */
+public class HistoryPanel extends VBox {
+
+    /** Risultati mostrati per una query; senza query si vede l'intera cronologia indicizzata */
+    private static final int QUERY_LIMIT = 1000;
+    /** Altezza fissa delle righe: la ListView non deve misurare le celle durante lo scorrimento */
+    private static final double CELL_HEIGHT = 24;
+    private static final Comparator<ClipboardHistoryIndex.Item> NEWEST_FIRST =
+        (a, b) -> Long.compare(b.getId(), a.getId());
+
+    private final ClipboardHistoryIndex index;
+    private final I18nManager i18n = I18nManager.getInstance();
+    private final ExecutorService searchExecutor;
+    private final ExecutorService previewExecutor;
+    private final PreviewLoader previews;
+    private final AtomicLong searchGeneration = new AtomicLong();
+    private volatile String query = "";
+    private final TextField searchField = new TextField();
+    private final ListView<ClipboardHistoryIndex.Item> list = new ListView<>();
+    private final HistoryListModel history;
+    private final Label selectionLabel = new Label();
+
+    /**
+     * Crea il pannello; va chiamato nel thread JavaFX
+     * @param index cronologia da mostrare
+     */
+    public HistoryPanel(ClipboardHistoryIndex index) {
+        super(5);
+        this.index = index;
+        searchExecutor = Executors.newSingleThreadExecutor(r -> daemon(r, "history-search"));
+        previewExecutor = Executors.newSingleThreadExecutor(r -> daemon(r, "history-preview"));
+        previews = new PreviewLoader(previewExecutor, Platform::runLater, PreviewLoader.DEFAULT_CAPACITY);
+        history = new HistoryListModel(index);
+
+        // Ricerca mentre si digita
+        searchField.textProperty().addListener((obs, oldValue, newValue) -> {
+            query = newValue != null ? newValue : "";
+            refresh();
+        });
+
+        // Si può scegliere qualsiasi insieme di elementi, anche non consecutivi
+        list.setPrefHeight(180);
+        list.setFixedCellSize(CELL_HEIGHT);
+        list.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        list.setCellFactory(view -> new HistoryCell());
+        list.setItems(history);
+        list.getSelectionModel().getSelectedItems().addListener(
+            (javafx.collections.ListChangeListener<ClipboardHistoryIndex.Item>) change -> updateSelectionLabel());
+
+        selectionLabel.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 10px;");
+        setAlignment(Pos.CENTER);
+        getChildren().addAll(searchField, list, selectionLabel);
+        updateTexts();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    }
+
+    /**
+     * Indicizza in background la cronologia già salvata, poi mostra gli elementi
+     */
+    public void load() {
+        searchExecutor.execute(() -> {
+            try {
+                index.load();
+            } catch (IOException e) {
+                // Restano visibili gli elementi catturati da ora in poi
+            }
+            itemsAdded();
+        });
+    }
+
+    /**
+     * Segnala nuovi elementi nell'indice. Senza query entrano in cima all'elenco, senza ripetere
+     * la ricerca né toccare scelta e scorrimento; con una query i risultati restano quelli della query.
+     * Può essere chiamato da qualsiasi thread.
+     */
+    public void itemsAdded() {
+        Platform.runLater(() -> {
+            history.sync();
+            if (list.getItems() == history) {
+                updateSelectionLabel();
+            }
+        });
+    }
+
+    /**
+     * Ripete la ricerca nel thread di ricerca e mostra i risultati nel thread JavaFX.
+     * Senza query torna a mostrare l'intera cronologia, senza cercare.
+     * Una ricerca superata da una più recente viene saltata, così mentre si digita non si accumulano.
+     * Può essere chiamato da qualsiasi thread.
+     */
+    public void refresh() {
+        long generation = searchGeneration.incrementAndGet();
+        String text = query;
+        if (text.isEmpty()) {
+            Platform.runLater(() -> {
+                if (generation == searchGeneration.get()) {
+                    history.sync();
+                    showItems(history);
+                }
+            });
+            return;
+        }
+        searchExecutor.execute(() -> {
+            if (generation != searchGeneration.get()) {
+                return;
+            }
+            List<ClipboardHistoryIndex.Item> items = index.search(text, QUERY_LIMIT);
+            Platform.runLater(() -> {
+                if (generation == searchGeneration.get()) {
+                    showItems(FXCollections.observableArrayList(items));
+                }
+            });
+        });
+    }
+
+    /**
+     * Elementi scelti (osservabili, nel thread JavaFX)
+     */
+    public ObservableList<ClipboardHistoryIndex.Item> getSelectedItems() {
+        return list.getSelectionModel().getSelectedItems();
+    }
+
+    /**
+     * Elementi scelti nell'ordine del risultato: dal più vecchio al più recente, come con Notepad
+     */
+    public List<ClipboardHistoryIndex.Item> getSelection() {
+        List<ClipboardHistoryIndex.Item> selection = new ArrayList<>(getSelectedItems());
+        // Un elemento uscito dall'indice dopo l'ultima sincronizzazione non si può più assemblare
+        selection.removeIf(item -> item == null);
+        selection.sort(Comparator.comparingLong(ClipboardHistoryIndex.Item::getId));
+        return selection;
+    }
+
+    /**
+     * Aggiorna i testi con la lingua corrente
+     */
+    public void updateTexts() {
+        searchField.setPromptText(i18n.getText("history.search.prompt"));
+        updateSelectionLabel();
+        list.refresh();
+    }
+
+    /**
+     * Ferma i thread di ricerca e delle anteprime
+     */
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+        previewExecutor.shutdownNow();
+    }
+
+    /**
+     * Mostra gli elementi mantenendo scelti quelli ancora presenti.
+     * Entrambi gli elenchi sono dal più recente, quindi ogni elemento scelto si ritrova per bisezione
+     * (sull'indice stesso per l'intera cronologia).
+     */
+    private void showItems(ObservableList<ClipboardHistoryIndex.Item> items) {
+        List<ClipboardHistoryIndex.Item> selected = new ArrayList<>(getSelectedItems());
+        list.setItems(items);
+        int[] indices = new int[selected.size()];
+        int found = 0;
+        for (ClipboardHistoryIndex.Item item : selected) {
+            int i = item == null ? -1
+                : items == history ? history.indexOf(item) : Collections.binarySearch(items, item, NEWEST_FIRST);
+            if (i >= 0) {
+                indices[found++] = i;
+            }
+        }
+        if (found > 0) {
+            int[] rest = new int[found - 1];
+            System.arraycopy(indices, 1, rest, 0, rest.length);
+            list.getSelectionModel().selectIndices(indices[0], rest);
+        }
+        updateSelectionLabel();
+    }
+
+    private void updateSelectionLabel() {
+        int selected = getSelectedItems().size();
+        selectionLabel.setText(selected > 0
+            ? i18n.getText("history.selected", String.valueOf(selected))
+            : i18n.getText("history.none", String.valueOf(list.getItems().size())));
+    }
+
+    /**
+     * Dimensione leggibile di un contenuto
+     */
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    /**
+     * Età di un elemento nell'unità più adatta
+     */
+    private String formatAge(long millis) {
+        long seconds = Math.max(millis / 1000, 0);
+        if (seconds < 60) {
+            return i18n.getText("history.age.seconds", String.valueOf(seconds));
+        }
+        if (seconds < 3600) {
+            return i18n.getText("history.age.minutes", String.valueOf(seconds / 60));
+        }
+        if (seconds < 86400) {
+            return i18n.getText("history.age.hours", String.valueOf(seconds / 3600));
+        }
+        return i18n.getText("history.age.days", String.valueOf(seconds / 86400));
+    }
+
+    /**
+     * Riga dell'elenco: anteprima a sinistra, dimensione ed età a destra.
+     * I controlli vengono creati una volta per cella e riusati per ogni elemento mostrato.
+     */
+    private final class HistoryCell extends ListCell<ClipboardHistoryIndex.Item> {
+        private final Label preview = new Label();
+        private final Label details = new Label();
+        private final HBox row = new HBox(8, preview, details);
+
+        HistoryCell() {
+            preview.setMinWidth(0);
+            preview.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(preview, Priority.ALWAYS);
+            details.setMinWidth(Region.USE_PREF_SIZE);
+            details.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 10px;");
+            row.setAlignment(Pos.CENTER_LEFT);
+            setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        }
+
+        @Override
+        protected void updateItem(ClipboardHistoryIndex.Item item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setGraphic(null);
+                return;
+            }
+            details.setText(formatSize(item.getByteLength()) + " · "
+                + formatAge(System.currentTimeMillis() - item.getTimestamp()));
+            String cached = previews.getCached(item);
+            if (cached != null) {
+                preview.setText(cached);
+            } else {
+                preview.setText("…");
+                // La cella può essere già passata a un altro elemento quando l'anteprima arriva
+                previews.request(item, (loaded, text) -> {
+                    if (getItem() == loaded) {
+                        preview.setText(text);
+                    }
+                });
+            }
+            setGraphic(row);
+        }
+    }
+}
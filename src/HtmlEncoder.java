@@ -0,0 +1,61 @@
+import java.io.IOException;
+
+/**
+ * HTML: un elenco numerato con un elemento per voce, il contenuto in un blocco preformattato.
+ * Il separatore diventa una linea orizzontale. Il contenuto viene convertito a blocchi,
+ * senza costruire la voce intera in memoria.
+ */
+public class HtmlEncoder implements OutputEncoder {
+
+    private static final int CHUNK_CHARS = 4096;
+
+    private final StringBuilder chunk = new StringBuilder(CHUNK_CHARS + 8);
+
+    @Override
+    public void begin(OutputSink sink, int count) throws IOException {
+        sink.write("<html><body>\n<ol>\n");
+    }
+
+    @Override
+    public void item(OutputSink sink, int index, int position, int count, String text) throws IOException {
+        chunk.setLength(0);
+        chunk.append("<li><pre>");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            escape(c);
+            // Una coppia surrogata non viene mai divisa tra due blocchi
+            if (chunk.length() >= CHUNK_CHARS && !Character.isHighSurrogate(c)) {
+                sink.write(chunk);
+                chunk.setLength(0);
+            }
+        }
+        chunk.append("</pre></li>\n");
+        sink.write(chunk);
+    }
+
+    @Override
+    public void end(OutputSink sink, boolean addSeparator) throws IOException {
+        sink.write(addSeparator ? "</ol>\n<hr>\n</body></html>\n" : "</ol>\n</body></html>\n");
+    }
+
+    private void escape(char c) {
+        switch (c) {
+            case '&':
+                chunk.append("&amp;");
+                break;
+            case '<':
+                chunk.append("&lt;");
+                break;
+            case '>':
+                chunk.append("&gt;");
+                break;
+            case '"':
+                chunk.append("&quot;");
+                break;
+            case '\r':
+                break;
+            default:
+                chunk.append(c);
+        }
+    }
+}
@@ -1,108 +1,199 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * Testi localizzati dell'applicazione.
+ * Le traduzioni sono lette dai file {@code i18n_<lingua>.properties} (UTF-8) nel classpath
+ * la prima volta che la lingua viene usata; ogni testo viene scomposto una sola volta in parti fisse
+ * e parametri {0}, {1}, ... La lingua corrente è un'istantanea immutabile, quindi i testi possono
+ * essere letti da qualsiasi thread.
+ */
 public class I18nManager {
-    private static I18nManager instance;
-    private String currentLanguage = "en"; // Default inglese (English)
-    private Map<String, Map<String, String>> translations;
-    private List<Consumer<String>> languageChangeListeners;
-    
+    private static final String DEFAULT_LANGUAGE = "en"; // Default inglese (English)
+    /** Oltre questa capacità il buffer di formattazione del thread non viene conservato */
+    private static final int MAX_RETAINED_BUFFER = 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final Map<String, Language> languages = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> languageChangeListeners = new CopyOnWriteArrayList<>();
+    private volatile Language current;
+
+    private static final class Holder {
+        static final I18nManager INSTANCE = new I18nManager();
+    }
+
     private I18nManager() {
-        translations = new HashMap<>();
-        languageChangeListeners = new ArrayList<>();
-        initializeTranslations();
+        Language language = language(DEFAULT_LANGUAGE);
+        current = language != null ? language : new Language(DEFAULT_LANGUAGE, Collections.<String, Template>emptyMap());
     }
-    
+
     public static I18nManager getInstance() {
-        if (instance == null) {
-            instance = new I18nManager();
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Testi di una lingua, immutabili
+     */
+    private static final class Language {
+        final String code;
+        final Map<String, Template> templates;
+
+        Language(String code, Map<String, Template> templates) {
+            this.code = code;
+            this.templates = templates;
         }
-        return instance;
     }
-    
-    private void initializeTranslations() {
-        // Traduzioni italiane
-        Map<String, String> italian = new HashMap<>();
-        italian.put("app.title", "Automazione Appunti");
-        italian.put("window.title", "Clipboard Automation");
-        italian.put("title.label", "Automazione Appunti");
-        italian.put("instruction.label", "Configura i parametri e assicurati di avere abbastanza elementi\nnegli appunti di sistema prima di avviare l'automazione.");
-        italian.put("elements.label", "Numero di elementi da incollare:");
-        italian.put("separator.checkbox", "Aggiungi separatore \"---\" alla fine");
-        italian.put("effects.checkbox", "Effetti speciali");
-        italian.put("start.button", "Avvia Automazione");
-        italian.put("status.ready", "Pronto per l'automazione");
-        italian.put("status.running", "Automazione in corso...");
-        italian.put("status.completed", "Automazione completata con successo!");
-        italian.put("status.error", "Errore durante l'automazione");
-        italian.put("error.init.title", "Errore di inizializzazione");
-        italian.put("error.init.message", "Impossibile inizializzare l'automazione: ");
-        italian.put("error.automation.title", "Errore di automazione");
-        italian.put("error.automation.message", "Si è verificato un errore: ");
-        italian.put("menu.language", "Lingua");
-        italian.put("menu.italian", "Italiano");
-        italian.put("menu.english", "English");
-        
-        // Traduzioni inglesi
-        Map<String, String> english = new HashMap<>();
-        english.put("app.title", "Clipboard Automation");
-        english.put("window.title", "Clipboard Automation");
-        english.put("title.label", "Clipboard Automation");
-        english.put("instruction.label", "Configure the parameters and make sure you have enough elements\nin the system clipboard before starting the automation.");
-        english.put("elements.label", "Number of elements to paste:");
-        english.put("separator.checkbox", "Add separator \"---\" at the end");
-        english.put("effects.checkbox", "Special effects");
-        english.put("start.button", "Start Automation");
-        english.put("status.ready", "Ready for automation");
-        english.put("status.running", "Automation in progress...");
-        english.put("status.completed", "Automation completed successfully!");
-        english.put("status.error", "Error during automation");
-        english.put("error.init.title", "Initialization Error");
-        english.put("error.init.message", "Unable to initialize automation: ");
-        english.put("error.automation.title", "Automation Error");
-        english.put("error.automation.message", "An error occurred: ");
-        english.put("menu.language", "Language");
-        english.put("menu.italian", "Italiano");
-        english.put("menu.english", "English");
-        
-        translations.put("it", italian);
-        translations.put("en", english);
+
+    /**
+     * Testo scomposto in parti fisse e indici dei parametri:
+     * literals[0] params[0] literals[1] params[1] ... literals[n]
+     */
+    private static final class Template {
+        final String source;
+        final String[] literals;
+        final int[] params;
+
+        private Template(String source, String[] literals, int[] params) {
+            this.source = source;
+            this.literals = literals;
+            this.params = params;
+        }
+
+        static Template parse(String source) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> params = new ArrayList<>();
+            int literalStart = 0;
+            int i = 0;
+            while (i < source.length()) {
+                int close = source.charAt(i) == '{' ? placeholderEnd(source, i) : -1;
+                if (close < 0) {
+                    i++;
+                    continue;
+                }
+                literals.add(source.substring(literalStart, i));
+                params.add(Integer.parseInt(source.substring(i + 1, close)));
+                i = close + 1;
+                literalStart = i;
+            }
+            literals.add(source.substring(literalStart));
+            int[] indexes = new int[params.size()];
+            for (int p = 0; p < indexes.length; p++) {
+                indexes[p] = params.get(p);
+            }
+            return new Template(source, literals.toArray(new String[0]), indexes);
+        }
+
+        /**
+         * @return posizione della '}' che chiude un parametro che inizia in start, -1 se non è un parametro
+         */
+        private static int placeholderEnd(String source, int start) {
+            int i = start + 1;
+            while (i < source.length() && i - start <= 9 && Character.isDigit(source.charAt(i))) {
+                i++;
+            }
+            return i > start + 1 && i < source.length() && source.charAt(i) == '}' ? i : -1;
+        }
+
+        String format(String... args) {
+            if (params.length == 0) {
+                return source;
+            }
+            StringBuilder result = BUFFER.get();
+            result.setLength(0);
+            result.append(literals[0]);
+            for (int p = 0; p < params.length; p++) {
+                int index = params[p];
+                if (index < args.length) {
+                    result.append(args[index]);
+                } else {
+                    // Parametro non fornito: resta com'è
+                    result.append('{').append(index).append('}');
+                }
+                result.append(literals[p + 1]);
+            }
+            String text = result.toString();
+            if (result.capacity() > MAX_RETAINED_BUFFER) {
+                BUFFER.remove();
+            }
+            return text;
+        }
+    }
+
+    /**
+     * Restituisce la lingua, caricandola alla prima richiesta
+     * @return null se non esiste il file delle traduzioni
+     */
+    private Language language(String code) {
+        return languages.computeIfAbsent(code, I18nManager::load);
+    }
+
+    private static Language load(String code) {
+        try (InputStream in = I18nManager.class.getResourceAsStream("/i18n_" + code + ".properties")) {
+            if (in == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            Map<String, Template> templates = new HashMap<>();
+            for (String key : properties.stringPropertyNames()) {
+                templates.put(key, Template.parse(properties.getProperty(key)));
+            }
+            return new Language(code, Collections.unmodifiableMap(templates));
+        } catch (IOException e) {
+            return null;
+        }
     }
-    
+
     public String getText(String key) {
-        Map<String, String> currentTranslations = translations.get(currentLanguage);
-        return currentTranslations.getOrDefault(key, key);
+        Template template = current.templates.get(key);
+        return template != null ? template.source : key;
     }
-    
+
     public String getText(String key, String... params) {
-        String text = getText(key);
-        for (int i = 0; i < params.length; i++) {
-            text = text.replace("{" + i + "}", params[i]);
-        }
-        return text;
+        Template template = current.templates.get(key);
+        return template != null ? template.format(params) : key;
     }
-    
+
     public void setLanguage(String language) {
-        if (translations.containsKey(language) && !currentLanguage.equals(language)) {
-            currentLanguage = language;
-            notifyLanguageChange();
+        Language next = language != null ? language(language) : null;
+        if (next == null) {
+            return;
         }
+        synchronized (this) {
+            if (current == next) {
+                return;
+            }
+            current = next;
+        }
+        notifyLanguageChange(next.code);
     }
-    
+
     public String getCurrentLanguage() {
-        return currentLanguage;
+        return current.code;
     }
-    
+
     public void addLanguageChangeListener(Consumer<String> listener) {
         languageChangeListeners.add(listener);
     }
-    
-    private void notifyLanguageChange() {
+
+    private void notifyLanguageChange(String language) {
         for (Consumer<String> listener : languageChangeListeners) {
-            listener.accept(currentLanguage);
+            listener.accept(language);
         }
     }
-}
\ No newline at end of file
+}
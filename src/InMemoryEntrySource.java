@@ -0,0 +1,33 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Sorgente di elementi mantenuta in memoria.
+ * Utile come sorgente finta per i test e per alimentare l'assemblaggio diretto da codice.
+ */
+public class InMemoryEntrySource implements ClipboardEntrySource {
+
+    private final LinkedList<String> entries = new LinkedList<>();
+
+    /**
+     * Aggiunge un elemento come il più recente della cronologia
+     * @param text testo dell'elemento
+     */
+    public synchronized void push(String text) {
+        entries.addFirst(text);
+    }
+
+    /**
+     * Svuota la cronologia
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized List<String> readEntries(int count) {
+        int size = Math.min(Math.max(count, 0), entries.size());
+        return new ArrayList<>(entries.subList(0, size));
+    }
+}
@@ -0,0 +1,107 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.FlavorMap;
+import java.awt.datatransfer.SystemFlavorMap;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.ByteArrayInputStream;
+
+/**
+ * Testo messo negli appunti dall'automazione solo per incollarlo nella finestra di destinazione
+ * (separatori, intestazioni) o per rimettere il contenuto dell'utente dopo averlo fatto.
+ * Oltre al testo offre i formati con cui Windows lo tiene fuori dalla "Cronologia Appunti"
+ * ({@code CanIncludeInClipboardHistory} = 0) e dai programmi che osservano gli appunti
+ * ({@code ExcludeClipboardContentFromMonitorProcessing}); {@link ClipboardCaptureService}
+ * riconosce quest'ultimo e non cattura il testo.
+ */
+public final class InjectedText implements Transferable, ClipboardOwner {
+
+    /** Formato nativo che esclude il contenuto dai programmi che osservano gli appunti */
+    public static final String EXCLUDE_FROM_MONITORS = "ExcludeClipboardContentFromMonitorProcessing";
+    /** Formato nativo che decide se il contenuto entra nella "Cronologia Appunti" */
+    public static final String CAN_INCLUDE_IN_HISTORY = "CanIncludeInClipboardHistory";
+
+    /** Presenza del formato {@link #EXCLUDE_FROM_MONITORS} */
+    public static final DataFlavor EXCLUDE_FLAVOR =
+        register(EXCLUDE_FROM_MONITORS, "application/x-exclude-clipboard-monitor;class=java.io.InputStream");
+    /** Valore del formato {@link #CAN_INCLUDE_IN_HISTORY}, sempre 0 */
+    public static final DataFlavor HISTORY_FLAVOR =
+        register(CAN_INCLUDE_IN_HISTORY, "application/x-clipboard-history;class=java.io.InputStream");
+
+    private static final DataFlavor[] FLAVORS = { DataFlavor.stringFlavor, EXCLUDE_FLAVOR, HISTORY_FLAVOR };
+
+    private final String text;
+
+    public InjectedText(String text) {
+        this.text = text;
+    }
+
+    private static DataFlavor register(String nativeFormat, String mimeType) {
+        DataFlavor flavor;
+        try {
+            flavor = new DataFlavor(mimeType);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        // Il formato viene scritto negli appunti con il nome nativo, senza conversioni
+        FlavorMap map = SystemFlavorMap.getDefaultFlavorMap();
+        if (map instanceof SystemFlavorMap) {
+            ((SystemFlavorMap) map).addUnencodedNativeForFlavor(flavor, nativeFormat);
+            ((SystemFlavorMap) map).addFlavorForUnencodedNative(nativeFormat, flavor);
+        }
+        return flavor;
+    }
+
+    /**
+     * Verifica se il contenuto degli appunti è stato messo dall'automazione
+     */
+    public static boolean isInjected(Clipboard clipboard) {
+        try {
+            return clipboard.isDataFlavorAvailable(EXCLUDE_FLAVOR);
+        } catch (IllegalStateException e) {
+            // Appunti occupati da un altro processo
+            return false;
+        }
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        for (DataFlavor supported : FLAVORS) {
+            if (supported.equals(flavor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException {
+        if (DataFlavor.stringFlavor.equals(flavor)) {
+            return text;
+        }
+        if (EXCLUDE_FLAVOR.equals(flavor)) {
+            // Conta solo la presenza del formato
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        if (HISTORY_FLAVOR.equals(flavor)) {
+            // DWORD 0: non entra nella "Cronologia Appunti" né negli appunti condivisi tra dispositivi
+            return new ByteArrayInputStream(new byte[4]);
+        }
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    @Override
+    public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        // Nessuna risorsa da liberare
+    }
+}
@@ -0,0 +1,57 @@
+import javafx.scene.Scene;
+import javafx.scene.control.TextArea;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+/**
+ * Destinazione interna dell'automazione: una finestra senza decorazioni con un'area di testo,
+ * creata una sola volta e tenuta nascosta. Rispetto a Notepad non c'è un processo da avviare
+ * né una finestra da chiudere, e il risultato si legge direttamente dal controllo.
+ */
+public class InternalPasteTarget implements PasteTarget {
+
+    /** Attesa massima del fuoco dopo la comparsa della finestra */
+    private static final long FOCUS_TIMEOUT_MILLIS = 1000;
+
+    private final Stage stage = new Stage(StageStyle.UNDECORATED);
+    private final TextArea textArea = new TextArea();
+
+    /**
+     * Crea la finestra nascosta; va chiamato nel thread JavaFX
+     */
+    public InternalPasteTarget() {
+        textArea.setWrapText(true);
+        stage.setScene(new Scene(textArea, 400, 300));
+        // Davanti alle altre finestre, così la "Cronologia Appunti" incolla sempre qui
+        stage.setAlwaysOnTop(true);
+    }
+
+    @Override
+    public void open() throws InterruptedException {
+        FxThread.call(() -> {
+            textArea.clear();
+            stage.show();
+            stage.toFront();
+            stage.requestFocus();
+            textArea.requestFocus();
+            return null;
+        });
+        long deadline = System.currentTimeMillis() + FOCUS_TIMEOUT_MILLIS;
+        while (!FxThread.call(stage::isFocused) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public String getText() throws InterruptedException {
+        return FxThread.call(textArea::getText);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        FxThread.call(() -> {
+            stage.hide();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.IOException;
+
+/**
+ * JSON Lines: un oggetto per riga con ordine, posizione e contenuto dell'elemento.
+ * Il separatore non ha senso in questo formato e viene ignorato.
+ * Il contenuto viene convertito a blocchi, senza costruire la riga intera in memoria.
+ */
+public class JsonLinesEncoder implements OutputEncoder {
+
+    private static final int CHUNK_CHARS = 4096;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder chunk = new StringBuilder(CHUNK_CHARS + 8);
+
+    @Override
+    public void begin(OutputSink sink, int count) {
+    }
+
+    @Override
+    public void item(OutputSink sink, int index, int position, int count, String text) throws IOException {
+        chunk.setLength(0);
+        chunk.append("{\"index\":").append(index)
+             .append(",\"position\":").append(position)
+             .append(",\"count\":").append(count)
+             .append(",\"text\":\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            escape(c);
+            // Una coppia surrogata non viene mai divisa tra due blocchi
+            if (chunk.length() >= CHUNK_CHARS && !Character.isHighSurrogate(c)) {
+                sink.write(chunk);
+                chunk.setLength(0);
+            }
+        }
+        chunk.append("\"}\n");
+        sink.write(chunk);
+    }
+
+    @Override
+    public void end(OutputSink sink, boolean addSeparator) {
+    }
+
+    private void escape(char c) {
+        switch (c) {
+            case '"':
+                chunk.append("\\\"");
+                break;
+            case '\\':
+                chunk.append("\\\\");
+                break;
+            case '\n':
+                chunk.append("\\n");
+                break;
+            case '\r':
+                chunk.append("\\r");
+                break;
+            case '\t':
+                chunk.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    chunk.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                } else {
+                    chunk.append(c);
+                }
+        }
+    }
+}
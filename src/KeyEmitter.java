@@ -0,0 +1,41 @@
+/**
+ * Destinazione degli eventi di tastiera prodotti da un {@link KeystrokeProgram}
+ */
+public interface KeyEmitter {
+
+    void keyPress(int keyCode);
+
+    void keyRelease(int keyCode);
+
+    /**
+     * Mette un testo negli appunti, per incollarlo poi con Ctrl+V
+     * @param text testo da inserire
+     */
+    void putClipboardText(String text);
+
+    /**
+     * Mette negli appunti un testo da incollare subito con Ctrl+V nella finestra di destinazione,
+     * fuori dalla "Cronologia Appunti" e dalla cronologia interna ({@link InjectedText}), e conserva
+     * il testo che l'utente aveva negli appunti per {@link #restoreClipboard}.
+     * Per default equivale a {@link #putClipboardText}.
+     * @param text testo da incollare
+     */
+    default void injectClipboardText(String text) {
+        putClipboardText(text);
+    }
+
+    /**
+     * Rimette negli appunti il testo che l'utente aveva prima di {@link #injectClipboardText}.
+     * Per default non fa nulla.
+     */
+    default void restoreClipboard() {
+    }
+
+    /**
+     * Pausa tra due eventi; le implementazioni finte possono registrarla senza dormire
+     * @param milliseconds durata della pausa
+     */
+    default void pause(long milliseconds) throws InterruptedException {
+        Thread.sleep(milliseconds);
+    }
+}
@@ -0,0 +1,147 @@
+import java.awt.event.KeyEvent;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tabella carattere -> tasto per un layout di tastiera.
+ * I caratteri assenti dalla tabella non vengono mai digitati: si ricorre all'incolla tramite appunti.
+ * Il layout effettivo della tastiera non si ricava dalla lingua della JVM: va indicato ({@link #forName}),
+ * altrimenti si usa {@link #minimal()}, che digita solo i tasti uguali su tutti i layout.
+ */
+public final class KeyboardLayout {
+
+    /**
+     * Tasto da premere per ottenere un carattere
+     */
+    public static final class Keystroke {
+        private final int keyCode;
+        private final boolean shift;
+
+        Keystroke(int keyCode, boolean shift) {
+            this.keyCode = keyCode;
+            this.shift = shift;
+        }
+
+        public int getKeyCode() {
+            return keyCode;
+        }
+
+        public boolean isShift() {
+            return shift;
+        }
+    }
+
+    private final String name;
+    private final Map<Character, Keystroke> table = new HashMap<>();
+
+    private KeyboardLayout(String name) {
+        this.name = name;
+        // Tasti uguali su tutti i layout
+        put('\n', KeyEvent.VK_ENTER, false);
+        put('\t', KeyEvent.VK_TAB, false);
+        put(' ', KeyEvent.VK_SPACE, false);
+    }
+
+    /**
+     * Layout statunitense
+     */
+    public static KeyboardLayout us() {
+        KeyboardLayout layout = new KeyboardLayout("us");
+        layout.putLettersAndDigits();
+        layout.put('-', KeyEvent.VK_MINUS, false);
+        layout.put('_', KeyEvent.VK_MINUS, true);
+        layout.put('=', KeyEvent.VK_EQUALS, false);
+        layout.put('+', KeyEvent.VK_EQUALS, true);
+        layout.put('.', KeyEvent.VK_PERIOD, false);
+        layout.put('>', KeyEvent.VK_PERIOD, true);
+        layout.put(',', KeyEvent.VK_COMMA, false);
+        layout.put('<', KeyEvent.VK_COMMA, true);
+        layout.put(';', KeyEvent.VK_SEMICOLON, false);
+        layout.put(':', KeyEvent.VK_SEMICOLON, true);
+        layout.put('/', KeyEvent.VK_SLASH, false);
+        layout.put('?', KeyEvent.VK_SLASH, true);
+        layout.put('#', KeyEvent.VK_3, true);
+        layout.put('*', KeyEvent.VK_8, true);
+        layout.put('(', KeyEvent.VK_9, true);
+        layout.put(')', KeyEvent.VK_0, true);
+        return layout;
+    }
+
+    /**
+     * Layout italiano (solo i tasti in posizione certa)
+     */
+    public static KeyboardLayout italian() {
+        KeyboardLayout layout = new KeyboardLayout("it");
+        layout.putLettersAndDigits();
+        layout.put('-', KeyEvent.VK_MINUS, false);
+        layout.put('_', KeyEvent.VK_MINUS, true);
+        layout.put('.', KeyEvent.VK_PERIOD, false);
+        layout.put(':', KeyEvent.VK_PERIOD, true);
+        layout.put(',', KeyEvent.VK_COMMA, false);
+        layout.put(';', KeyEvent.VK_COMMA, true);
+        return layout;
+    }
+
+    /**
+     * Layout sconosciuto: si digitano solo Invio, Tab e spazio, tutto il resto (separatore compreso)
+     * passa dagli appunti
+     */
+    public static KeyboardLayout minimal() {
+        return new KeyboardLayout("minimal");
+    }
+
+    /**
+     * Layout dal nome ({@code us}, {@code it}, {@code minimal})
+     * @return il layout, o null se il nome non è noto
+     */
+    public static KeyboardLayout forName(String name) {
+        switch (name) {
+            case "us":
+                return us();
+            case "it":
+                return italian();
+            case "minimal":
+                return minimal();
+            default:
+                return null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Restituisce il tasto per un carattere, o null se il carattere non può essere digitato
+     */
+    public Keystroke lookup(char c) {
+        return table.get(c);
+    }
+
+    /**
+     * Verifica che ogni carattere del testo sia presente nella tabella
+     */
+    public boolean canType(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!table.containsKey(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void putLettersAndDigits() {
+        for (char c = 'a'; c <= 'z'; c++) {
+            int keyCode = KeyEvent.VK_A + (c - 'a');
+            put(c, keyCode, false);
+            put(Character.toUpperCase(c), keyCode, true);
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            put(c, KeyEvent.VK_0 + (c - '0'), false);
+        }
+    }
+
+    private void put(char c, int keyCode, boolean shift) {
+        table.put(c, new Keystroke(keyCode, shift));
+    }
+}
@@ -0,0 +1,129 @@
+import java.awt.event.KeyEvent;
+
+/**
+ * Compila le sequenze di tasti dell'automazione in {@link KeystrokeProgram} immutabili
+ */
+public class KeystrokeCompiler {
+
+    /** Pausa tra gli eventi, pari al vecchio auto-delay del Robot */
+    public static final long DEFAULT_EVENT_GAP_MILLIS = 50;
+
+    private final long eventGapMillis;
+    private TextInjector textInjector;
+
+    public KeystrokeCompiler(long eventGapMillis, TextInjector textInjector) {
+        this.eventGapMillis = eventGapMillis;
+        this.textInjector = textInjector;
+    }
+
+    public KeystrokeCompiler(TextInjector textInjector) {
+        this(DEFAULT_EVENT_GAP_MILLIS, textInjector);
+    }
+
+    public void setTextInjector(TextInjector textInjector) {
+        this.textInjector = textInjector;
+    }
+
+    public long getEventGapMillis() {
+        return eventGapMillis;
+    }
+
+    public KeystrokeProgram.Builder builder() {
+        return new KeystrokeProgram.Builder(eventGapMillis);
+    }
+
+    /**
+     * Win+V e attesa della "Cronologia Appunti"; la prima volta aggiunge l'attesa per il rendering
+     */
+    public KeystrokeProgram.Builder appendOpenHistory(KeystrokeProgram.Builder builder, boolean first) {
+        builder.arm(AutomationStep.OPEN_HISTORY)
+               .chord(KeyEvent.VK_WINDOWS, KeyEvent.VK_V)
+               .await(AutomationStep.OPEN_HISTORY);
+        if (first) {
+            builder.await(AutomationStep.FIRST_HISTORY_RENDER);
+        }
+        return builder;
+    }
+
+    /**
+     * Pressioni ripetute di un tasto di navigazione
+     */
+    public KeystrokeProgram.Builder appendNavigate(KeystrokeProgram.Builder builder, int keyCode, int steps) {
+        for (int i = 0; i < steps; i++) {
+            builder.arm(AutomationStep.NAVIGATE).tap(keyCode).await(AutomationStep.NAVIGATE);
+        }
+        return builder;
+    }
+
+    public KeystrokeProgram.Builder appendEnter(KeystrokeProgram.Builder builder) {
+        return builder.arm(AutomationStep.ENTER).tap(KeyEvent.VK_ENTER).await(AutomationStep.ENTER);
+    }
+
+    /**
+     * Invio sull'elemento selezionato seguito dalla protezione contro il doppio incolla
+     */
+    public KeystrokeProgram.Builder appendPaste(KeystrokeProgram.Builder builder) {
+        builder.arm(AutomationStep.DOUBLE_PASTE_GUARD);
+        appendEnter(builder);
+        return builder.await(AutomationStep.DOUBLE_PASTE_GUARD);
+    }
+
+    /**
+     * Inserisce un testo, digitato se possibile con il layout corrente, altrimenti incollato tramite appunti
+     */
+    public KeystrokeProgram.Builder appendText(KeystrokeProgram.Builder builder, String text) {
+        return textInjector.append(builder, text, textInjector.shouldUseClipboard(text));
+    }
+
+    public KeystrokeProgram.Builder appendSelectAll(KeystrokeProgram.Builder builder) {
+        return builder.arm(AutomationStep.SELECT_ALL)
+                      .chord(KeyEvent.VK_CONTROL, KeyEvent.VK_A)
+                      .await(AutomationStep.SELECT_ALL);
+    }
+
+    public KeystrokeProgram.Builder appendCopy(KeystrokeProgram.Builder builder) {
+        return builder.arm(AutomationStep.COPY)
+                      .chord(KeyEvent.VK_CONTROL, KeyEvent.VK_C)
+                      .await(AutomationStep.COPY);
+    }
+
+    /**
+     * Compila un intero piano in un unico programma
+     * @param plan piano prodotto da {@link KeystrokePlanner}
+     * @param firstHistoryUsage true se la "Cronologia Appunti" non è ancora stata aperta in questa sessione
+     */
+    public KeystrokeProgram compile(KeystrokePlan plan, boolean firstHistoryUsage) {
+        KeystrokeProgram.Builder builder = builder();
+        boolean first = firstHistoryUsage;
+        for (KeystrokePlan.Step step : plan.getSteps()) {
+            switch (step.getKind()) {
+                case OPEN_HISTORY:
+                    appendOpenHistory(builder, first);
+                    first = false;
+                    break;
+                case NAVIGATE:
+                    appendNavigate(builder, step.getKeyCode(), step.getRepeat());
+                    break;
+                case PASTE:
+                    appendPaste(builder);
+                    break;
+                case NEWLINE:
+                    appendEnter(builder);
+                    break;
+                case TEXT:
+                    textInjector.append(builder, step.getText(), step.isViaClipboard());
+                    break;
+                case WAIT:
+                    builder.await(step.getWaitStep());
+                    break;
+                case SELECT_ALL:
+                    appendSelectAll(builder);
+                    break;
+                case COPY:
+                    appendCopy(builder);
+                    break;
+            }
+        }
+        return builder.build();
+    }
+}
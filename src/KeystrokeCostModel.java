@@ -0,0 +1,97 @@
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Modello dei costi (in millisecondi) usato dal pianificatore dei tasti.
+ * Ogni evento del Robot costa il suo auto-delay, ogni passo costa la sua attesa.
+ */
+public class KeystrokeCostModel {
+
+    private long eventDelayMillis;
+    private final Map<AutomationStep, Long> stepMillis = new EnumMap<>(AutomationStep.class);
+    private final Map<Integer, Long> keyMillis = new HashMap<>();
+
+    /**
+     * Crea il modello con le attese di default dei passi
+     * @param eventDelayMillis ritardo automatico per ogni evento del Robot (pressione o rilascio)
+     */
+    public KeystrokeCostModel(long eventDelayMillis) {
+        this.eventDelayMillis = eventDelayMillis;
+        for (AutomationStep step : AutomationStep.values()) {
+            stepMillis.put(step, step.getDefaultDelayMillis());
+        }
+    }
+
+    /**
+     * Imposta l'attesa stimata di un passo
+     */
+    public void setStepMillis(AutomationStep step, long milliseconds) {
+        stepMillis.put(step, milliseconds);
+    }
+
+    /**
+     * Imposta il costo misurato di un tasto di navigazione (pressione, rilascio e attesa)
+     */
+    public void setKeyMillis(int keyCode, long milliseconds) {
+        keyMillis.put(keyCode, milliseconds);
+    }
+
+    /**
+     * Imposta il ritardo per ogni evento (ad esempio quello misurato dalla calibrazione)
+     */
+    public void setEventDelayMillis(long eventDelayMillis) {
+        this.eventDelayMillis = eventDelayMillis;
+    }
+
+    public long getEventDelayMillis() {
+        return eventDelayMillis;
+    }
+
+    public long stepMillis(AutomationStep step) {
+        return stepMillis.get(step);
+    }
+
+    /**
+     * Costo di un tasto di navigazione (frecce, Home, End)
+     */
+    public long keyMillis(int keyCode) {
+        Long measured = keyMillis.get(keyCode);
+        return measured != null ? measured : 2 * eventDelayMillis + stepMillis(AutomationStep.NAVIGATE);
+    }
+
+    /**
+     * Costo dell'apertura della "Cronologia Appunti" (Win+V)
+     * @param first true se è la prima apertura della sessione
+     */
+    public long openHistoryMillis(boolean first) {
+        long cost = 4 * eventDelayMillis + stepMillis(AutomationStep.OPEN_HISTORY);
+        return first ? cost + stepMillis(AutomationStep.FIRST_HISTORY_RENDER) : cost;
+    }
+
+    public long enterMillis() {
+        return 2 * eventDelayMillis + stepMillis(AutomationStep.ENTER);
+    }
+
+    /**
+     * Costo di una combinazione con modificatore (Ctrl+A, Ctrl+C)
+     */
+    public long chordMillis(AutomationStep step) {
+        return 4 * eventDelayMillis + stepMillis(step);
+    }
+
+    /**
+     * Costo della digitazione di un testo tasto per tasto
+     * @param events numero di eventi di tastiera necessari
+     */
+    public long typingMillis(int events) {
+        return eventDelayMillis * events + stepMillis(AutomationStep.TYPE_TEXT);
+    }
+
+    /**
+     * Costo dell'incolla di un testo tramite appunti, indipendente dalla lunghezza del testo
+     */
+    public long clipboardPasteMillis() {
+        return chordMillis(AutomationStep.PASTE_TEXT);
+    }
+}
@@ -0,0 +1,152 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Function;
+
+/**
+ * Esegue un {@link KeystrokeProgram} su un {@link KeyEmitter}.
+ * Tra un'istruzione e l'altra controlla l'interruzione del thread; in caso di interruzione
+ * rilascia i tasti ancora premuti (es. Ctrl o Win) prima di uscire.
+ */
+public class KeystrokeExecutor {
+
+    /**
+     * Riceve l'avanzamento dell'esecuzione, nel thread che esegue il programma
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param step passo appena completato
+         * @param done istruzioni eseguite
+         * @param total istruzioni del programma
+         */
+        void onProgress(AutomationStep step, int done, int total);
+    }
+
+    private final KeyEmitter emitter;
+    private final Function<AutomationStep, ReadinessProbe> probes;
+    private int probeTimeouts;
+    private long lastRunMillis = -1;
+    private volatile ProgressListener progressListener;
+    private volatile AutomationMetrics metrics;
+    // Istante in cui ciascun passo è stato preparato (0 = non preparato), indicizzato per ordinale
+    private final long[] armedAt = new long[AutomationStep.values().length];
+
+    /**
+     * @param emitter destinazione degli eventi di tastiera
+     * @param probes sonda da usare per ciascun passo
+     */
+    public KeystrokeExecutor(KeyEmitter emitter, Function<AutomationStep, ReadinessProbe> probes) {
+        this.emitter = emitter;
+        this.probes = probes;
+    }
+
+    /**
+     * Imposta chi riceve l'avanzamento (null = nessuno); viene avvisato alla fine di ogni passo
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Imposta il registro in cui misurare ogni passo, dalla preparazione alla fine dell'attesa (null = nessuno)
+     */
+    public void setMetrics(AutomationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Prepara la sonda di un passo e inizia a misurarlo
+     */
+    public void armStep(AutomationStep step) {
+        armedAt[step.ordinal()] = System.nanoTime();
+        probes.apply(step).arm();
+    }
+
+    /**
+     * Esegue il programma
+     * @return durata effettiva in millisecondi
+     */
+    public long execute(KeystrokeProgram program) throws InterruptedException {
+        long start = System.nanoTime();
+        Deque<Integer> pressed = new ArrayDeque<>();
+        ProgressListener listener = progressListener;
+        int total = program.getInstructions().size();
+        int done = 0;
+        try {
+            for (KeystrokeProgram.Instruction instruction : program.getInstructions()) {
+                done++;
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                switch (instruction.getOp()) {
+                    case PRESS:
+                        emitter.keyPress(instruction.getKeyCode());
+                        pressed.push(instruction.getKeyCode());
+                        break;
+                    case RELEASE:
+                        emitter.keyRelease(instruction.getKeyCode());
+                        pressed.remove(instruction.getKeyCode());
+                        break;
+                    case SLEEP:
+                        emitter.pause(instruction.getMillis());
+                        break;
+                    case SET_CLIPBOARD:
+                        emitter.injectClipboardText(instruction.getText());
+                        break;
+                    case RESTORE_CLIPBOARD:
+                        emitter.restoreClipboard();
+                        break;
+                    case ARM:
+                        armStep(instruction.getStep());
+                        break;
+                    case AWAIT:
+                        awaitStep(instruction.getStep());
+                        if (listener != null) {
+                            listener.onProgress(instruction.getStep(), done, total);
+                        }
+                        break;
+                }
+            }
+        } finally {
+            // Non lascia mai tasti premuti, anche in caso di interruzione
+            while (!pressed.isEmpty()) {
+                emitter.keyRelease(pressed.pop());
+            }
+        }
+        lastRunMillis = (System.nanoTime() - start) / 1_000_000L;
+        return lastRunMillis;
+    }
+
+    /**
+     * Attende la sonda di un passo; alla scadenza prosegue comunque, come faceva la pausa fissa
+     */
+    public void awaitStep(AutomationStep step) throws InterruptedException {
+        long start = armedAt[step.ordinal()];
+        armedAt[step.ordinal()] = 0;
+        if (start == 0) {
+            start = System.nanoTime();
+        }
+        boolean ready = probes.apply(step).await();
+        AutomationMetrics m = metrics;
+        if (m != null) {
+            m.recordSince(step.name(), start);
+            if (!ready) {
+                m.recordSince("timeout." + step.name(), start);
+            }
+        }
+        if (!ready) {
+            probeTimeouts++;
+        }
+    }
+
+    public int getProbeTimeouts() {
+        return probeTimeouts;
+    }
+
+    /**
+     * Durata dell'ultima esecuzione completata (-1 se nessuna)
+     */
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+}
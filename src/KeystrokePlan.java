@@ -0,0 +1,154 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Piano di pressione dei tasti prodotto da {@link KeystrokePlanner}, con costo stimato e costo effettivo
+ */
+public class KeystrokePlan {
+
+    /**
+     * Tipi di operazione del piano
+     */
+    public enum Kind {
+        /** Apertura della "Cronologia Appunti" con Win+V */
+        OPEN_HISTORY,
+        /** Tasto di navigazione ripetuto (frecce, Home, End) */
+        NAVIGATE,
+        /** Invio sull'elemento selezionato, seguito dalla protezione contro il doppio incolla */
+        PASTE,
+        /** Invio per andare a capo */
+        NEWLINE,
+        /** Inserimento di un testo (separatore, intestazioni), digitato o incollato tramite appunti */
+        TEXT,
+        /** Attesa di un passo */
+        WAIT,
+        /** Seleziona tutto con Ctrl+A */
+        SELECT_ALL,
+        /** Copia con Ctrl+C */
+        COPY
+    }
+
+    /**
+     * Singola operazione del piano
+     */
+    public static final class Step {
+        private final Kind kind;
+        private final int keyCode;
+        private final int repeat;
+        private final AutomationStep waitStep;
+        private final long estimatedMillis;
+        private final String text;
+        private final boolean viaClipboard;
+
+        Step(Kind kind, int keyCode, int repeat, AutomationStep waitStep, long estimatedMillis) {
+            this(kind, keyCode, repeat, waitStep, estimatedMillis, null, false);
+        }
+
+        Step(Kind kind, int keyCode, int repeat, AutomationStep waitStep, long estimatedMillis,
+             String text, boolean viaClipboard) {
+            this.kind = kind;
+            this.keyCode = keyCode;
+            this.repeat = repeat;
+            this.waitStep = waitStep;
+            this.estimatedMillis = estimatedMillis;
+            this.text = text;
+            this.viaClipboard = viaClipboard;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public int getKeyCode() {
+            return keyCode;
+        }
+
+        public int getRepeat() {
+            return repeat;
+        }
+
+        public AutomationStep getWaitStep() {
+            return waitStep;
+        }
+
+        public long getEstimatedMillis() {
+            return estimatedMillis;
+        }
+
+        /**
+         * Testo da inserire (solo per {@link Kind#TEXT})
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * True se il testo viene incollato tramite appunti invece che digitato
+         */
+        public boolean isViaClipboard() {
+            return viaClipboard;
+        }
+    }
+
+    private final int itemCount;
+    private final List<Step> steps;
+    private final long estimatedMillis;
+    private final int navigationKeys;
+    private volatile long actualMillis = -1;
+
+    KeystrokePlan(int itemCount, List<Step> steps) {
+        this.itemCount = itemCount;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        long estimate = 0;
+        int keys = 0;
+        for (Step step : steps) {
+            estimate += step.getEstimatedMillis();
+            if (step.getKind() == Kind.NAVIGATE) {
+                keys += step.getRepeat();
+            }
+        }
+        this.estimatedMillis = estimate;
+        this.navigationKeys = keys;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public long getEstimatedMillis() {
+        return estimatedMillis;
+    }
+
+    /**
+     * Numero totale di pressioni dei tasti di navigazione
+     */
+    public int getNavigationKeys() {
+        return navigationKeys;
+    }
+
+    /**
+     * Durata misurata dell'esecuzione (-1 se il piano non è ancora stato eseguito)
+     */
+    public long getActualMillis() {
+        return actualMillis;
+    }
+
+    /**
+     * Registra la durata effettiva dell'esecuzione
+     */
+    public void recordActualMillis(long milliseconds) {
+        this.actualMillis = milliseconds;
+    }
+
+    @Override
+    public String toString() {
+        return "KeystrokePlan[items=" + itemCount + ", navigationKeys=" + navigationKeys
+                + ", estimated=" + estimatedMillis + "ms, actual="
+                + (actualMillis < 0 ? "n/a" : actualMillis + "ms") + "]";
+    }
+}
@@ -0,0 +1,218 @@
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pianificatore della sequenza di tasti più economica per incollare gli elementi dalla "Cronologia Appunti".
+ * Per ogni elemento confronta gli spostamenti possibili (frecce dalla posizione corrente, Home, End)
+ * secondo il {@link KeystrokeCostModel} e sceglie il più economico.
+ * Se la lista mantiene la posizione del cursore tra un'apertura e l'altra, la navigazione cresce
+ * linearmente con il numero di elementi invece che in modo quadratico.
+ * I testi incollati tramite appunti prima di un elemento spostano di una posizione gli elementi
+ * nella cronologia: il pianificatore ne tiene conto.
+ */
+public class KeystrokePlanner {
+
+    /**
+     * Ordine di incolla degli elementi
+     */
+    public enum Order {
+        /** Dalla posizione più alta alla posizione 1 (comportamento originale) */
+        OLDEST_FIRST,
+        /** Dalla posizione 1 alla posizione più alta */
+        NEWEST_FIRST
+    }
+
+    private final KeystrokeCostModel costModel;
+    private boolean retainsCursor;
+    private int historySize;
+    private boolean homeEndSupported = true;
+    private boolean selectAndCopy = true;
+    // Senza un layout indicato nel profilo si digitano solo i tasti uguali su tutti i layout
+    private TextInjector textInjector = new TextInjector(KeyboardLayout.minimal());
+
+    /**
+     * @param costModel modello dei costi dei tasti
+     */
+    public KeystrokePlanner(KeystrokeCostModel costModel) {
+        this.costModel = costModel;
+    }
+
+    /**
+     * Indica se la lista, alla riapertura, parte dall'ultimo elemento selezionato invece che dal primo
+     */
+    public void setRetainsCursor(boolean retainsCursor) {
+        this.retainsCursor = retainsCursor;
+    }
+
+    /**
+     * Numero totale di elementi nella cronologia, se noto (0 = sconosciuto, il tasto End non viene usato)
+     */
+    public void setHistorySize(int historySize) {
+        this.historySize = Math.max(historySize, 0);
+    }
+
+    public void setHomeEndSupported(boolean homeEndSupported) {
+        this.homeEndSupported = homeEndSupported;
+    }
+
+    /**
+     * Se false il piano termina dopo l'ultimo testo, senza Ctrl+A e Ctrl+C
+     * (la destinazione espone il testo direttamente, vedi {@link PasteTarget})
+     */
+    public void setSelectAndCopy(boolean selectAndCopy) {
+        this.selectAndCopy = selectAndCopy;
+    }
+
+    public KeystrokeCostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Imposta l'iniettore che decide se i testi vengono digitati o incollati
+     */
+    public void setTextInjector(TextInjector textInjector) {
+        this.textInjector = textInjector;
+    }
+
+    public TextInjector getTextInjector() {
+        return textInjector;
+    }
+
+    /**
+     * Compila la richiesta nella sequenza di tasti più economica
+     * @param numberOfElements numero di elementi da incollare
+     * @param order ordine di incolla
+     * @param addSeparator se true aggiunge il separatore "---" alla fine
+     * @param firstHistoryUsage true se la "Cronologia Appunti" non è ancora stata aperta in questa sessione
+     */
+    public KeystrokePlan plan(int numberOfElements, Order order, boolean addSeparator, boolean firstHistoryUsage) {
+        return plan(numberOfElements, order, AssemblyTemplate.defaults(), addSeparator, firstHistoryUsage);
+    }
+
+    /**
+     * Compila la richiesta nella sequenza di tasti più economica, con intestazioni e separatori del modello
+     * @param numberOfElements numero di elementi da incollare
+     * @param order ordine di incolla
+     * @param template testi da inserire attorno agli elementi
+     * @param addSeparator se true aggiunge il separatore del modello alla fine
+     * @param firstHistoryUsage true se la "Cronologia Appunti" non è ancora stata aperta in questa sessione
+     */
+    public KeystrokePlan plan(int numberOfElements, Order order, AssemblyTemplate template, boolean addSeparator,
+                              boolean firstHistoryUsage) {
+        List<KeystrokePlan.Step> steps = new ArrayList<>();
+        int cursor = 1;
+        int shift = 0;
+        boolean first = firstHistoryUsage;
+
+        shift += addText(steps, template.getHeader(), numberOfElements > 0);
+
+        for (int n = 0; n < numberOfElements; n++) {
+            int position = order == Order.OLDEST_FIRST ? numberOfElements - n : n + 1;
+
+            shift += addText(steps, template.renderItemHeader(n + 1, position, numberOfElements), true);
+
+            steps.add(new KeystrokePlan.Step(KeystrokePlan.Kind.OPEN_HISTORY, 0, 1, AutomationStep.OPEN_HISTORY,
+                    costModel.openHistoryMillis(first)));
+            first = false;
+
+            // Ogni testo incollato tramite appunti ha spinto gli elementi una posizione più in basso
+            int target = position + shift;
+            int start = retainsCursor ? cursor : 1;
+            addCheapestMove(steps, start, target, historySize > 0 ? historySize + shift : 0);
+            cursor = target;
+
+            steps.add(new KeystrokePlan.Step(KeystrokePlan.Kind.PASTE, KeyEvent.VK_ENTER, 1,
+                    AutomationStep.DOUBLE_PASTE_GUARD,
+                    costModel.enterMillis() + costModel.stepMillis(AutomationStep.DOUBLE_PASTE_GUARD)));
+            steps.add(newline());
+
+            if (n < numberOfElements - 1) {
+                steps.add(waitStep(AutomationStep.BETWEEN_ITEMS));
+            }
+        }
+
+        addText(steps, template.trailer(addSeparator), false);
+
+        if (selectAndCopy) {
+            steps.add(waitStep(AutomationStep.BEFORE_SELECT));
+            steps.add(new KeystrokePlan.Step(KeystrokePlan.Kind.SELECT_ALL, KeyEvent.VK_A, 1, AutomationStep.SELECT_ALL,
+                    costModel.chordMillis(AutomationStep.SELECT_ALL)));
+            steps.add(new KeystrokePlan.Step(KeystrokePlan.Kind.COPY, KeyEvent.VK_C, 1, AutomationStep.COPY,
+                    costModel.chordMillis(AutomationStep.COPY)));
+        }
+
+        return new KeystrokePlan(numberOfElements, steps);
+    }
+
+    /**
+     * Aggiunge lo spostamento più economico dalla posizione corrente alla posizione desiderata
+     */
+    private void addCheapestMove(List<KeystrokePlan.Step> steps, int from, int to, int historySize) {
+        // Frecce dalla posizione corrente
+        int arrowKey = to >= from ? KeyEvent.VK_DOWN : KeyEvent.VK_UP;
+        int arrows = Math.abs(to - from);
+        long best = arrows * costModel.keyMillis(arrowKey);
+        int jumpKey = 0;
+        int afterJumpKey = arrowKey;
+        int afterJump = arrows;
+
+        if (homeEndSupported) {
+            // Home e poi giù
+            long viaHome = costModel.keyMillis(KeyEvent.VK_HOME) + (to - 1) * costModel.keyMillis(KeyEvent.VK_DOWN);
+            if (from != 1 && viaHome < best) {
+                best = viaHome;
+                jumpKey = KeyEvent.VK_HOME;
+                afterJumpKey = KeyEvent.VK_DOWN;
+                afterJump = to - 1;
+            }
+            // End e poi su, solo se la dimensione della cronologia è nota
+            if (historySize >= to && from != historySize) {
+                long viaEnd = costModel.keyMillis(KeyEvent.VK_END) + (historySize - to) * costModel.keyMillis(KeyEvent.VK_UP);
+                if (viaEnd < best) {
+                    best = viaEnd;
+                    jumpKey = KeyEvent.VK_END;
+                    afterJumpKey = KeyEvent.VK_UP;
+                    afterJump = historySize - to;
+                }
+            }
+        }
+
+        if (jumpKey != 0) {
+            steps.add(navigate(jumpKey, 1));
+        }
+        if (afterJump > 0) {
+            steps.add(navigate(afterJumpKey, afterJump));
+        }
+    }
+
+    private KeystrokePlan.Step navigate(int keyCode, int repeat) {
+        return new KeystrokePlan.Step(KeystrokePlan.Kind.NAVIGATE, keyCode, repeat, AutomationStep.NAVIGATE,
+                repeat * costModel.keyMillis(keyCode));
+    }
+
+    /**
+     * Aggiunge l'inserimento di un testo, digitato o incollato
+     * @param itemsFollow true se dopo il testo verranno incollati altri elementi dalla cronologia
+     * @return 1 se il testo entra nella cronologia spostando gli elementi, altrimenti 0
+     */
+    private int addText(List<KeystrokePlan.Step> steps, String text, boolean itemsFollow) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+        boolean viaClipboard = textInjector.shouldUseClipboard(text);
+        long cost = viaClipboard ? costModel.clipboardPasteMillis() : textInjector.typingMillis(text, costModel);
+        AutomationStep waitStep = viaClipboard ? AutomationStep.PASTE_TEXT : AutomationStep.TYPE_TEXT;
+        steps.add(new KeystrokePlan.Step(KeystrokePlan.Kind.TEXT, 0, 1, waitStep, cost, text, viaClipboard));
+        return viaClipboard && itemsFollow ? 1 : 0;
+    }
+
+    private KeystrokePlan.Step newline() {
+        return new KeystrokePlan.Step(KeystrokePlan.Kind.NEWLINE, KeyEvent.VK_ENTER, 1, AutomationStep.ENTER,
+                costModel.enterMillis());
+    }
+
+    private KeystrokePlan.Step waitStep(AutomationStep step) {
+        return new KeystrokePlan.Step(KeystrokePlan.Kind.WAIT, 0, 1, step, costModel.stepMillis(step));
+    }
+}
@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Programma di tasti compilato e immutabile.
+ * La compilazione fonde le pause adiacenti e scarta le pause tra eventi rese superflue
+ * da un'attesa esplicita successiva; il programma può essere stimato senza eseguirlo.
+ */
+public final class KeystrokeProgram {
+
+    /**
+     * Operazioni del programma
+     */
+    public enum Op {
+        /** Pressione di un tasto */
+        PRESS,
+        /** Rilascio di un tasto */
+        RELEASE,
+        /** Pausa fissa */
+        SLEEP,
+        /** Scrittura negli appunti di un testo da incollare */
+        SET_CLIPBOARD,
+        /** Ripristino del testo che l'utente aveva negli appunti */
+        RESTORE_CLIPBOARD,
+        /** Preparazione della sonda di un passo */
+        ARM,
+        /** Attesa della sonda di un passo */
+        AWAIT
+    }
+
+    /**
+     * Singola istruzione del programma
+     */
+    public static final class Instruction {
+        private final Op op;
+        private final int keyCode;
+        private final long millis;
+        private final AutomationStep step;
+        private final String text;
+
+        private Instruction(Op op, int keyCode, long millis, AutomationStep step) {
+            this(op, keyCode, millis, step, null);
+        }
+
+        private Instruction(Op op, int keyCode, long millis, AutomationStep step, String text) {
+            this.op = op;
+            this.keyCode = keyCode;
+            this.millis = millis;
+            this.step = step;
+            this.text = text;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        public int getKeyCode() {
+            return keyCode;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public AutomationStep getStep() {
+            return step;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            switch (op) {
+                case PRESS:
+                case RELEASE:
+                    return op + "(" + keyCode + ")";
+                case SLEEP:
+                    return op + "(" + millis + "ms)";
+                case SET_CLIPBOARD:
+                    return op + "(" + text.length() + " chars)";
+                case RESTORE_CLIPBOARD:
+                    return op.toString();
+                default:
+                    return op + "(" + step + ")";
+            }
+        }
+    }
+
+    private final List<Instruction> instructions;
+    private final int eventCount;
+
+    private KeystrokeProgram(List<Instruction> instructions) {
+        this.instructions = Collections.unmodifiableList(instructions);
+        int events = 0;
+        for (Instruction instruction : instructions) {
+            if (instruction.op == Op.PRESS || instruction.op == Op.RELEASE) {
+                events++;
+            }
+        }
+        this.eventCount = events;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Numero di eventi di tastiera (pressioni e rilasci)
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Somma delle pause fisse del programma
+     */
+    public long getSleepMillis() {
+        long total = 0;
+        for (Instruction instruction : instructions) {
+            if (instruction.op == Op.SLEEP) {
+                total += instruction.millis;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Stima la durata del programma senza eseguirlo
+     * @param awaitEstimate durata stimata dell'attesa di ciascun passo
+     */
+    public long estimateMillis(ToLongFunction<AutomationStep> awaitEstimate) {
+        long total = 0;
+        for (Instruction instruction : instructions) {
+            if (instruction.op == Op.SLEEP) {
+                total += instruction.millis;
+            } else if (instruction.op == Op.AWAIT) {
+                total += awaitEstimate.applyAsLong(instruction.step);
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "KeystrokeProgram" + instructions;
+    }
+
+    /**
+     * Costruttore incrementale del programma
+     */
+    public static final class Builder {
+
+        private final long eventGapMillis;
+        private final List<Instruction> source = new ArrayList<>();
+
+        /**
+         * @param eventGapMillis pausa minima dopo ogni evento, al posto dell'auto-delay del Robot
+         */
+        public Builder(long eventGapMillis) {
+            this.eventGapMillis = eventGapMillis;
+        }
+
+        public Builder press(int keyCode) {
+            source.add(new Instruction(Op.PRESS, keyCode, 0, null));
+            return this;
+        }
+
+        public Builder release(int keyCode) {
+            source.add(new Instruction(Op.RELEASE, keyCode, 0, null));
+            return this;
+        }
+
+        /**
+         * Pressione e rilascio di un tasto
+         */
+        public Builder tap(int keyCode) {
+            return press(keyCode).release(keyCode);
+        }
+
+        /**
+         * Combinazione modificatore + tasto (es. Ctrl+A)
+         */
+        public Builder chord(int modifier, int keyCode) {
+            return press(modifier).press(keyCode).release(keyCode).release(modifier);
+        }
+
+        public Builder sleep(long milliseconds) {
+            if (milliseconds > 0) {
+                source.add(new Instruction(Op.SLEEP, 0, milliseconds, null));
+            }
+            return this;
+        }
+
+        /**
+         * Scrive un testo negli appunti (da incollare poi con Ctrl+V)
+         */
+        public Builder setClipboard(String text) {
+            source.add(new Instruction(Op.SET_CLIPBOARD, 0, 0, null, text));
+            return this;
+        }
+
+        /**
+         * Rimette negli appunti il testo che l'utente aveva prima di {@link #setClipboard}
+         */
+        public Builder restoreClipboard() {
+            source.add(new Instruction(Op.RESTORE_CLIPBOARD, 0, 0, null));
+            return this;
+        }
+
+        public Builder arm(AutomationStep step) {
+            source.add(new Instruction(Op.ARM, 0, 0, step));
+            return this;
+        }
+
+        public Builder await(AutomationStep step) {
+            source.add(new Instruction(Op.AWAIT, 0, 0, step));
+            return this;
+        }
+
+        /**
+         * Accoda un programma già compilato
+         */
+        public Builder append(KeystrokeProgram program) {
+            source.addAll(program.instructions);
+            return this;
+        }
+
+        /**
+         * Compila il programma: inserisce le pause tra gli eventi, fonde le pause adiacenti
+         * e scarta le pause tra eventi seguite da un'attesa esplicita
+         */
+        public KeystrokeProgram build() {
+            List<Instruction> compiled = new ArrayList<>(source.size() * 2);
+            long pendingGap = 0;
+            long pendingSleep = 0;
+
+            for (Instruction instruction : source) {
+                switch (instruction.op) {
+                    case SLEEP:
+                        // La pausa esplicita assorbe quella tra gli eventi
+                        pendingGap = 0;
+                        pendingSleep += instruction.millis;
+                        break;
+                    case AWAIT:
+                        pendingGap = 0;
+                        flush(compiled, 0, pendingSleep);
+                        pendingSleep = 0;
+                        compiled.add(instruction);
+                        break;
+                    default:
+                        flush(compiled, pendingGap, pendingSleep);
+                        pendingGap = 0;
+                        pendingSleep = 0;
+                        compiled.add(instruction);
+                        if (instruction.op == Op.PRESS || instruction.op == Op.RELEASE) {
+                            pendingGap = eventGapMillis;
+                        }
+                        break;
+                }
+            }
+            flush(compiled, pendingGap, pendingSleep);
+            return new KeystrokeProgram(compiled);
+        }
+
+        private static void flush(List<Instruction> compiled, long gap, long sleep) {
+            long milliseconds = Math.max(gap, sleep);
+            if (milliseconds > 0) {
+                compiled.add(new Instruction(Op.SLEEP, 0, milliseconds, null));
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Istogramma delle latenze a intervalli fissi.
+ * Gli intervalli crescono in modo geometrico (fattore radice di 2) da 50 microsecondi a oltre 10 minuti:
+ * registrare un valore costa un logaritmo e qualche incremento atomico, senza allocazioni né lock.
+ * I percentili sono approssimati al limite superiore dell'intervallo, con un errore massimo del 41%.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 48;
+    private static final long FIRST_BOUND_NANOS = 50_000L;
+    private static final double LOG_RATIO = Math.log(Math.sqrt(2));
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Registra una durata
+     * @param nanos durata in nanosecondi
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max;
+        while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+            // Riprova: un altro thread ha aggiornato il massimo
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Percentile approssimato
+     * @param percentile tra 0 e 100
+     * @return limite superiore dell'intervallo che contiene il percentile, in millisecondi (mai oltre il massimo)
+     */
+    public double getPercentileMillis(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBoundNanos(i), maxNanos.get()) / 1e6;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Azzera l'istogramma
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos <= FIRST_BOUND_NANOS) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log((double) nanos / FIRST_BOUND_NANOS) / LOG_RATIO);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long upperBoundNanos(int bucket) {
+        if (bucket == BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.ceil(FIRST_BOUND_NANOS * Math.exp(bucket * LOG_RATIO));
+    }
+}
@@ -6,6 +6,21 @@
 public class Main {
 
 	public static void main(String[] args) {
+		// Richieste all'endpoint di controllo dell'applicazione già avviata
+		if (ControlClient.isClient(args)) {
+			ControlClient.main(args);
+			return;
+		}
+		// Con --headless non viene caricata alcuna classe JavaFX
+		if (HeadlessCli.isHeadless(args)) {
+			HeadlessCli.main(args);
+			return;
+		}
+		// Calibrazione dei tempi su una finestra di prova
+		if (DelayCalibrator.isCalibration(args)) {
+			CalibrationApp.main(args);
+			return;
+		}
 		// Avvia l'interfaccia grafica JavaFX
 		ClipboardGUI.main(args);
 	}
@@ -0,0 +1,41 @@
+import java.io.IOException;
+
+/**
+ * Markdown: ogni elemento in un blocco di codice preceduto da un titolo, separatore come linea orizzontale.
+ * La recinzione del blocco è più lunga di qualsiasi sequenza di apici inversi presente nel contenuto.
+ */
+public class MarkdownEncoder implements OutputEncoder {
+
+    @Override
+    public void begin(OutputSink sink, int count) {
+    }
+
+    @Override
+    public void item(OutputSink sink, int index, int position, int count, String text) throws IOException {
+        String fence = fence(text);
+        sink.write("### " + index + "/" + count + "\n\n" + fence + "\n");
+        sink.write(text);
+        sink.write(text.endsWith("\n") ? fence + "\n\n" : "\n" + fence + "\n\n");
+    }
+
+    @Override
+    public void end(OutputSink sink, boolean addSeparator) throws IOException {
+        if (addSeparator) {
+            sink.write("---\n");
+        }
+    }
+
+    private static String fence(String text) {
+        int longest = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            run = text.charAt(i) == '`' ? run + 1 : 0;
+            longest = Math.max(longest, run);
+        }
+        StringBuilder fence = new StringBuilder("```");
+        while (fence.length() <= longest) {
+            fence.append('`');
+        }
+        return fence.toString();
+    }
+}
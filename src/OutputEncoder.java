@@ -0,0 +1,37 @@
+import java.io.IOException;
+
+/**
+ * Formato del risultato assemblato.
+ * Riceve gli elementi uno alla volta, nell'ordine di incolla, e li scrive subito sulla destinazione.
+ */
+public interface OutputEncoder {
+
+    /**
+     * Inizio del documento
+     * @param count numero di elementi
+     */
+    void begin(OutputSink sink, int count) throws IOException;
+
+    /**
+     * Un elemento
+     * @param index ordine di incolla (da 1)
+     * @param position posizione nella cronologia (1 = il più recente)
+     * @param count numero di elementi
+     * @param text contenuto dell'elemento
+     */
+    void item(OutputSink sink, int index, int position, int count, String text) throws IOException;
+
+    /**
+     * Un elemento della cronologia persistente; per default viene decodificato
+     */
+    default void item(OutputSink sink, int index, int position, int count, ClipboardHistoryStore.StoredEntry entry)
+            throws IOException {
+        item(sink, index, position, count, entry.getText());
+    }
+
+    /**
+     * Fine del documento
+     * @param addSeparator se true aggiunge il separatore finale
+     */
+    void end(OutputSink sink, boolean addSeparator) throws IOException;
+}
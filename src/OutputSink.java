@@ -0,0 +1,23 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destinazione del risultato assemblato.
+ * Il testo arriva a pezzi, nell'ordine di assemblaggio, così che il documento completo
+ * non debba mai esistere in memoria (tranne dove la destinazione lo richiede, come gli appunti).
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * Scrive un pezzo di testo
+     */
+    void write(CharSequence text) throws IOException;
+
+    /**
+     * Scrive il contenuto di un elemento della cronologia persistente.
+     * Le destinazioni basate su canali lo copiano senza decodificarlo.
+     */
+    default void write(ClipboardHistoryStore.StoredEntry entry) throws IOException {
+        write(entry.getText());
+    }
+}
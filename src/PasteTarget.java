@@ -0,0 +1,22 @@
+/**
+ * Finestra in cui l'automazione dei tasti incolla gli elementi, al posto di Notepad.
+ * Il testo incollato viene letto direttamente, senza Ctrl+A e Ctrl+C.
+ * I metodi vengono chiamati dal thread dell'automazione.
+ */
+public interface PasteTarget {
+
+    /**
+     * Svuota la finestra, la mostra e le dà il fuoco; ritorna quando può ricevere i tasti
+     */
+    void open() throws InterruptedException;
+
+    /**
+     * Testo presente nella finestra
+     */
+    String getText() throws InterruptedException;
+
+    /**
+     * Nasconde la finestra, che resta pronta per la prossima esecuzione
+     */
+    void close() throws InterruptedException;
+}
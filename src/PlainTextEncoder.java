@@ -0,0 +1,43 @@
+import java.io.IOException;
+
+/**
+ * Testo semplice, identico a quello ottenuto con Notepad o con l'assemblaggio diretto.
+ * Il contenuto degli elementi viene passato alla destinazione senza trasformazioni.
+ */
+public class PlainTextEncoder implements OutputEncoder {
+
+    private final AssemblyTemplate template;
+
+    public PlainTextEncoder(AssemblyTemplate template) {
+        this.template = template != null ? template : AssemblyTemplate.defaults();
+    }
+
+    public PlainTextEncoder() {
+        this(AssemblyTemplate.defaults());
+    }
+
+    @Override
+    public void begin(OutputSink sink, int count) throws IOException {
+        sink.write(template.getHeader());
+    }
+
+    @Override
+    public void item(OutputSink sink, int index, int position, int count, String text) throws IOException {
+        sink.write(template.renderItemHeader(index, position, count));
+        sink.write(text);
+        sink.write("\n");
+    }
+
+    @Override
+    public void item(OutputSink sink, int index, int position, int count, ClipboardHistoryStore.StoredEntry entry)
+            throws IOException {
+        sink.write(template.renderItemHeader(index, position, count));
+        sink.write(entry);
+        sink.write("\n");
+    }
+
+    @Override
+    public void end(OutputSink sink, boolean addSeparator) throws IOException {
+        sink.write(template.trailer(addSeparator));
+    }
+}
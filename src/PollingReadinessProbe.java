@@ -0,0 +1,44 @@
+/**
+ * Base per le sonde che interrogano periodicamente una condizione fino a una scadenza
+ */
+public abstract class PollingReadinessProbe implements ReadinessProbe {
+
+    private final long timeoutMillis;
+    private final long pollIntervalMillis;
+
+    /**
+     * @param timeoutMillis tempo massimo di attesa
+     * @param pollIntervalMillis intervallo tra due controlli successivi
+     */
+    protected PollingReadinessProbe(long timeoutMillis, long pollIntervalMillis) {
+        if (timeoutMillis < 0 || pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Tempi della sonda non validi");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Controlla la condizione una sola volta
+     */
+    protected abstract boolean isReady();
+
+    @Override
+    public boolean await() throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (true) {
+            if (isReady()) {
+                return true;
+            }
+            long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+            if (remaining <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(pollIntervalMillis, remaining));
+        }
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
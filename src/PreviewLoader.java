@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Anteprime degli elementi della cronologia: la prima riga non vuota, troncata.
+ * Vengono calcolate in background leggendo solo l'inizio del contenuto e conservate in una piccola cache LRU.
+ * Le richieste in attesa sono servite dalla più recente, così durante lo scorrimento le righe visibili
+ * arrivano per prime; oltre un certo numero le richieste più vecchie vengono scartate.
+ * Le anteprime pronte vengono consegnate a gruppi: al più un passaggio pendente al thread dell'interfaccia.
+ */
+public class PreviewLoader {
+
+    /** Numero di anteprime conservate per default */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Lunghezza massima di un'anteprima */
+    public static final int PREVIEW_CHARS = 120;
+    /** Caratteri letti per trovare la prima riga non vuota */
+    private static final int READ_CHARS = 512;
+    /** Richieste in attesa oltre le quali le più vecchie vengono scartate */
+    private static final int MAX_PENDING = 256;
+
+    /**
+     * Riceve un'anteprima nel thread dell'interfaccia
+     */
+    public interface Callback {
+        void previewReady(ClipboardHistoryIndex.Item item, String preview);
+    }
+
+    private static final class Request {
+        final ClipboardHistoryIndex.Item item;
+        final List<Callback> callbacks = new ArrayList<>(1);
+
+        Request(ClipboardHistoryIndex.Item item) {
+            this.item = item;
+        }
+    }
+
+    private final Executor worker;
+    private final Consumer<Runnable> dispatcher;
+    private final Map<Long, String> cache;
+    private final Deque<Request> pending = new ArrayDeque<>();
+    private final Map<Long, Request> pendingById = new HashMap<>();
+    private final Queue<Runnable> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param worker esegue il calcolo delle anteprime (un solo thread basta)
+     * @param dispatcher esegue un'azione nel thread dell'interfaccia (es. Platform::runLater)
+     * @param capacity numero di anteprime conservate
+     */
+    public PreviewLoader(Executor worker, Consumer<Runnable> dispatcher, int capacity) {
+        this.worker = worker;
+        this.dispatcher = dispatcher;
+        this.cache = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Anteprima già calcolata
+     * @return l'anteprima, o null se va richiesta
+     */
+    public String getCached(ClipboardHistoryIndex.Item item) {
+        synchronized (cache) {
+            return cache.get(item.getId());
+        }
+    }
+
+    /**
+     * Chiede l'anteprima di un elemento; il callback viene chiamato nel thread dell'interfaccia,
+     * anche subito se l'anteprima è già in cache
+     */
+    public void request(ClipboardHistoryIndex.Item item, Callback callback) {
+        String cached = getCached(item);
+        if (cached != null) {
+            deliver(() -> callback.previewReady(item, cached));
+            return;
+        }
+        synchronized (pending) {
+            Request request = pendingById.get(item.getId());
+            if (request != null) {
+                // Richiesta di nuovo: torna in testa
+                pending.remove(request);
+            } else {
+                request = new Request(item);
+                pendingById.put(item.getId(), request);
+                if (pending.size() == MAX_PENDING) {
+                    pendingById.remove(pending.removeLast().item.getId());
+                }
+            }
+            request.callbacks.add(callback);
+            pending.addFirst(request);
+        }
+        worker.execute(this::loadNext);
+    }
+
+    /**
+     * Calcola l'anteprima della richiesta più recente; le richieste scartate lasciano esecuzioni a vuoto
+     */
+    private void loadNext() {
+        Request request;
+        synchronized (pending) {
+            request = pending.pollFirst();
+            if (request == null) {
+                return;
+            }
+            pendingById.remove(request.item.getId());
+        }
+        String preview;
+        try {
+            preview = preview(request.item.getPrefix(READ_CHARS));
+        } catch (IOException e) {
+            // Elemento eliminato dalla compattazione
+            preview = request.item.toString();
+        }
+        synchronized (cache) {
+            cache.put(request.item.getId(), preview);
+        }
+        String result = preview;
+        for (Callback callback : request.callbacks) {
+            deliver(() -> callback.previewReady(request.item, result));
+        }
+    }
+
+    private void deliver(Runnable action) {
+        ready.add(action);
+        if (scheduled.compareAndSet(false, true)) {
+            dispatcher.accept(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Liberato prima di consegnare: un'anteprima pronta ora pianifica un nuovo passaggio
+        scheduled.set(false);
+        Runnable action;
+        while ((action = ready.poll()) != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Prima riga non vuota, senza spazi iniziali e finali, troncata a {@link #PREVIEW_CHARS} caratteri
+     */
+    public static String preview(String prefix) {
+        int start = 0;
+        while (start < prefix.length()) {
+            int end = prefix.indexOf('\n', start);
+            if (end < 0) {
+                end = prefix.length();
+            }
+            String line = prefix.substring(start, end).trim();
+            if (!line.isEmpty()) {
+                return line.length() > PREVIEW_CHARS ? line.substring(0, PREVIEW_CHARS - 1) + "…" : line;
+            }
+            start = end + 1;
+        }
+        return "";
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.List;
+
+/**
+ * Destinazione su un processo locale: il testo viene scritto sul suo standard input
+ * (ad esempio {@code clip.exe}, {@code xclip} o un'altra applicazione).
+ * L'output del processo è quello del programma. Alla chiusura attende la fine del processo:
+ * un codice di uscita diverso da zero è un errore.
+ */
+public class ProcessOutputSink extends ChannelOutputSink {
+
+    private final Process process;
+    private final String name;
+
+    /**
+     * @param command comando e argomenti del processo da avviare
+     */
+    public ProcessOutputSink(List<String> command) throws IOException {
+        this(new ProcessBuilder(command).redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start(), String.join(" ", command));
+    }
+
+    private ProcessOutputSink(Process process, String name) {
+        super(Channels.newChannel(process.getOutputStream()), true);
+        this.process = process;
+        this.name = name;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } catch (IOException e) {
+            // Il processo ha chiuso lo standard input prima del tempo
+            process.destroy();
+            throw e;
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("Il processo " + name + " è terminato con codice " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrotto in attesa del processo " + name, e);
+        }
+    }
+}
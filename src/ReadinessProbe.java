@@ -0,0 +1,18 @@
+/**
+ * Verifica che l'ambiente sia pronto per il passo successivo dell'automazione.
+ * Sostituisce le pause fisse: invece di dormire un tempo stabilito, attende la condizione reale entro una scadenza.
+ */
+public interface ReadinessProbe {
+
+    /**
+     * Memorizza lo stato di partenza, da chiamare prima dell'azione che deve produrre il cambiamento
+     */
+    default void arm() {
+    }
+
+    /**
+     * Attende che la condizione sia soddisfatta
+     * @return true se la condizione si è verificata, false se è scaduto il tempo massimo
+     */
+    boolean await() throws InterruptedException;
+}
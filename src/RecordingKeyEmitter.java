@@ -0,0 +1,63 @@
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Emettitore finto che registra gli eventi e le pause senza dormire, per i test deterministici su Linux
+ */
+public class RecordingKeyEmitter implements KeyEmitter {
+
+    private final List<String> events = new ArrayList<>();
+    private long pausedMillis;
+
+    @Override
+    public synchronized void keyPress(int keyCode) {
+        events.add("+" + KeyEvent.getKeyText(keyCode));
+    }
+
+    @Override
+    public synchronized void keyRelease(int keyCode) {
+        events.add("-" + KeyEvent.getKeyText(keyCode));
+    }
+
+    @Override
+    public synchronized void putClipboardText(String text) {
+        events.add("=" + text);
+    }
+
+    @Override
+    public synchronized void injectClipboardText(String text) {
+        events.add("=" + text);
+    }
+
+    @Override
+    public synchronized void restoreClipboard() {
+        events.add("<");
+    }
+
+    @Override
+    public synchronized void pause(long milliseconds) {
+        events.add("~" + milliseconds);
+        pausedMillis += milliseconds;
+    }
+
+    /**
+     * Eventi registrati: "+Tasto" pressione, "-Tasto" rilascio, "~ms" pausa, "=testo" appunti,
+     * "<" ripristino degli appunti dell'utente
+     */
+    public synchronized List<String> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * Somma delle pause che sarebbero state attese
+     */
+    public synchronized long getPausedMillis() {
+        return pausedMillis;
+    }
+
+    public synchronized void clear() {
+        events.clear();
+        pausedMillis = 0;
+    }
+}
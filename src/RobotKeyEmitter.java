@@ -0,0 +1,83 @@
+import java.awt.Robot;
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * Emettitore reale basato su {@link Robot}.
+ * L'auto-delay del Robot viene azzerato: le pause necessarie sono già compilate nel programma.
+ */
+public class RobotKeyEmitter implements KeyEmitter {
+
+    private final Robot robot;
+    /** true tra {@link #injectClipboardText} e {@link #restoreClipboard} */
+    private boolean saved;
+    /** Testo dell'utente da rimettere negli appunti, o null se non era testo */
+    private String savedText;
+
+    public RobotKeyEmitter(Robot robot) {
+        this.robot = robot;
+        robot.setAutoDelay(0);
+    }
+
+    @Override
+    public void keyPress(int keyCode) {
+        robot.keyPress(keyCode);
+    }
+
+    @Override
+    public void keyRelease(int keyCode) {
+        robot.keyRelease(keyCode);
+    }
+
+    @Override
+    public void putClipboardText(String text) {
+        StringSelection selection = new StringSelection(text);
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, selection);
+    }
+
+    /**
+     * Alla prima iniezione legge il testo dell'utente; un contenuto non testuale (es. un'immagine)
+     * non può essere rimesso e resta sostituito
+     */
+    @Override
+    public void injectClipboardText(String text) {
+        Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+        if (!saved) {
+            savedText = readText(clipboard);
+            saved = true;
+        }
+        InjectedText contents = new InjectedText(text);
+        clipboard.setContents(contents, contents);
+    }
+
+    @Override
+    public void restoreClipboard() {
+        if (!saved) {
+            return;
+        }
+        saved = false;
+        if (savedText != null) {
+            // Anche il testo rimesso resta fuori dalle cronologie, dove è già entrato quando l'utente lo ha copiato
+            InjectedText contents = new InjectedText(savedText);
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(contents, contents);
+            savedText = null;
+        }
+    }
+
+    private static String readText(Clipboard clipboard) {
+        try {
+            return clipboard.isDataFlavorAvailable(DataFlavor.stringFlavor)
+                ? (String) clipboard.getData(DataFlavor.stringFlavor)
+                : null;
+        } catch (Exception e) {
+            // Appunti occupati da un altro processo o contenuto illeggibile
+            return null;
+        }
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+
+/**
+ * RTF: ogni elemento preceduto da un titolo in grassetto, in carattere a spaziatura fissa.
+ * Il risultato è solo ASCII: i caratteri oltre 0x7F diventano {@code \}{@code uN?} (unità UTF-16).
+ * Il contenuto viene convertito a blocchi, senza costruire l'elemento intero in memoria.
+ */
+public class RtfEncoder implements OutputEncoder {
+
+    private static final int CHUNK_CHARS = 4096;
+
+    private final StringBuilder chunk = new StringBuilder(CHUNK_CHARS + 16);
+
+    @Override
+    public void begin(OutputSink sink, int count) throws IOException {
+        sink.write("{\\rtf1\\ansi\\deff0{\\fonttbl{\\f0\\fmodern Courier New;}}\\f0\\fs20\n");
+    }
+
+    @Override
+    public void item(OutputSink sink, int index, int position, int count, String text) throws IOException {
+        chunk.setLength(0);
+        chunk.append("{\\b ").append(index).append('/').append(count).append("}\\par\n");
+        for (int i = 0; i < text.length(); i++) {
+            escape(text.charAt(i));
+            if (chunk.length() >= CHUNK_CHARS) {
+                sink.write(chunk);
+                chunk.setLength(0);
+            }
+        }
+        chunk.append("\\par\n");
+        sink.write(chunk);
+    }
+
+    @Override
+    public void end(OutputSink sink, boolean addSeparator) throws IOException {
+        sink.write(addSeparator ? "---\\par\n}\n" : "}\n");
+    }
+
+    private void escape(char c) {
+        switch (c) {
+            case '\\':
+            case '{':
+            case '}':
+                chunk.append('\\').append(c);
+                break;
+            case '\n':
+                chunk.append("\\par\n");
+                break;
+            case '\r':
+                break;
+            case '\t':
+                chunk.append("\\tab ");
+                break;
+            default:
+                if (c < 0x80) {
+                    chunk.append(c);
+                } else {
+                    // Parametro con segno a 16 bit, '?' per i lettori che non conoscono \\u
+                    chunk.append("\\u").append((int) (short) c).append('?');
+                }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Sonda che considera pronto il passo quando una piccola regione dello schermo cambia
+ * (ad esempio la comparsa della "Cronologia Appunti" dopo Win+V)
+ */
+public class ScreenRegionChangeProbe extends PollingReadinessProbe {
+
+    private final Robot robot;
+    private final Rectangle region;
+    private int[] baseline;
+
+    /**
+     * @param robot robot usato per catturare lo schermo
+     * @param region regione da campionare (meglio se piccola, la cattura costa proporzionalmente all'area)
+     * @param timeoutMillis tempo massimo di attesa
+     * @param pollIntervalMillis intervallo tra due catture
+     */
+    public ScreenRegionChangeProbe(Robot robot, Rectangle region, long timeoutMillis, long pollIntervalMillis) {
+        super(timeoutMillis, pollIntervalMillis);
+        this.robot = robot;
+        this.region = new Rectangle(region);
+    }
+
+    @Override
+    public void arm() {
+        baseline = sample();
+    }
+
+    @Override
+    protected boolean isReady() {
+        if (baseline == null) {
+            // Senza stato di partenza non è possibile rilevare il cambiamento
+            baseline = sample();
+            return false;
+        }
+        return !Arrays.equals(baseline, sample());
+    }
+
+    private int[] sample() {
+        BufferedImage image = robot.createScreenCapture(region);
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Destinazione che conserva il testo per rileggerlo anche più volte: in memoria finché è breve,
+ * oltre la soglia in un file temporaneo (UTF-8) scritto con un buffer fisso, così la memoria usata
+ * non cresce con la dimensione del risultato.
+ */
+public class SpoolOutputSink implements OutputSink {
+
+    /** Caratteri oltre i quali il testo passa in un file temporaneo */
+    public static final int DEFAULT_THRESHOLD_CHARS = 1 << 20;
+
+    private final int thresholdChars;
+    private final StringBuilder text = new StringBuilder();
+    private Path file;
+    private ChannelOutputSink spool;
+    private long chars;
+
+    /**
+     * @param thresholdChars caratteri oltre i quali usare un file temporaneo
+     */
+    public SpoolOutputSink(int thresholdChars) {
+        this.thresholdChars = thresholdChars;
+    }
+
+    public SpoolOutputSink() {
+        this(DEFAULT_THRESHOLD_CHARS);
+    }
+
+    @Override
+    public void write(CharSequence text) throws IOException {
+        if (file == null && this.text.length() + text.length() > thresholdChars) {
+            toFile();
+        }
+        if (file != null) {
+            spool.write(text);
+        } else {
+            this.text.append(text);
+        }
+        chars += text.length();
+    }
+
+    @Override
+    public void write(ClipboardHistoryStore.StoredEntry entry) throws IOException {
+        // La lunghezza in byte UTF-8 limita dall'alto quella in caratteri
+        if (file == null && text.length() + entry.getByteLength() > thresholdChars) {
+            toFile();
+        }
+        if (file == null) {
+            write(entry.getText());
+            return;
+        }
+        // Copia diretta dal segmento della cronologia al file temporaneo, senza decodifica
+        spool.write(entry);
+        chars += countChars(entry);
+    }
+
+    /**
+     * Sposta il testo raccolto finora in un file temporaneo, dove prosegue la scrittura
+     * @return il file temporaneo
+     */
+    public Path toFile() throws IOException {
+        if (file != null) {
+            return file;
+        }
+        Path created = TemporaryFiles.create("clipboard_automation", ".txt");
+        spool = new ChannelOutputSink(FileChannel.open(created, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+        file = created;
+        spool.write(text);
+        text.setLength(0);
+        text.trimToSize();
+        return file;
+    }
+
+    /**
+     * Caratteri di un elemento copiato in byte: in UTF-8 ogni carattere che non è una continuazione
+     * (10xxxxxx) inizia un code point, e i code point di 4 byte valgono due caratteri
+     */
+    private static long countChars(ClipboardHistoryStore.StoredEntry entry) throws IOException {
+        ByteBuffer body = entry.body();
+        byte[] chunk = new byte[Math.min(body.remaining(), 8192)];
+        long count = 0;
+        while (body.hasRemaining()) {
+            int n = Math.min(body.remaining(), chunk.length);
+            body.get(chunk, 0, n);
+            for (int i = 0; i < n; i++) {
+                int b = chunk[i] & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    count += b >= 0xF0 ? 2 : 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * True se il testo è in un file temporaneo
+     */
+    public boolean isSpooled() {
+        return file != null;
+    }
+
+    /**
+     * File temporaneo, o null se il testo è in memoria
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Caratteri scritti finora
+     */
+    public long getChars() {
+        return chars;
+    }
+
+    /**
+     * Testo scritto finora; se è in un file temporaneo viene caricato per intero
+     */
+    public String getText() throws IOException {
+        if (file == null) {
+            return text.toString();
+        }
+        spool.flush();
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Nuovo lettore sul testo scritto finora
+     */
+    public Reader openReader() throws IOException {
+        if (file == null) {
+            return new StringReader(text.toString());
+        }
+        spool.flush();
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Nuovo flusso sul testo scritto finora, in UTF-8
+     */
+    public InputStream openInputStream() throws IOException {
+        if (file == null) {
+            return new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        spool.flush();
+        return Files.newInputStream(file);
+    }
+
+    /**
+     * Chiude il file temporaneo, che resta leggibile fino a {@link #delete()}
+     */
+    @Override
+    public void close() throws IOException {
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    /**
+     * Cancella il file temporaneo, se presente
+     */
+    public void delete() throws IOException {
+        close();
+        if (file != null) {
+            TemporaryFiles.delete(file);
+        }
+    }
+}
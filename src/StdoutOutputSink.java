@@ -0,0 +1,21 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+/**
+ * Destinazione sullo standard output; alla chiusura lo svuota ma non lo chiude
+ */
+public class StdoutOutputSink extends ChannelOutputSink {
+
+    public StdoutOutputSink() {
+        super(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Il testo già scritto con System.out resta prima del nostro
+        System.out.flush();
+        super.close();
+    }
+}
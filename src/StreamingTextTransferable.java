@@ -0,0 +1,92 @@
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Contenuto degli appunti letto da un file temporaneo (UTF-8) invece che da una String in memoria.
+ * Chi legge con un Reader o un InputStream riceve ogni volta un nuovo flusso sul file;
+ * {@link DataFlavor#stringFlavor} è offerto per compatibilità e carica il testo intero.
+ * Il file viene cancellato quando gli appunti passano a un altro contenuto.
+ */
+public final class StreamingTextTransferable implements Transferable, ClipboardOwner {
+
+    /** Testo come {@link java.io.Reader}, il formato letto da {@link TextTransfer} */
+    public static final DataFlavor READER_FLAVOR = textFlavor("text/plain;class=java.io.Reader");
+    /** Testo come {@link java.io.InputStream} in UTF-8 */
+    public static final DataFlavor STREAM_FLAVOR = textFlavor("text/plain;charset=UTF-8;class=java.io.InputStream");
+
+    private static final DataFlavor[] FLAVORS = { READER_FLAVOR, STREAM_FLAVOR, DataFlavor.stringFlavor };
+
+    private final Path file;
+    private final long chars;
+
+    /**
+     * @param file file temporaneo con il testo in UTF-8, di proprietà di questo oggetto
+     * @param chars lunghezza del testo in caratteri
+     */
+    public StreamingTextTransferable(Path file, long chars) {
+        this.file = file;
+        this.chars = chars;
+        TemporaryFiles.track(file);
+    }
+
+    private static DataFlavor textFlavor(String mimeType) {
+        try {
+            return new DataFlavor(mimeType);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getChars() {
+        return chars;
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        for (DataFlavor supported : FLAVORS) {
+            if (supported.equals(flavor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        if (READER_FLAVOR.equals(flavor)) {
+            return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+        if (STREAM_FLAVOR.equals(flavor)) {
+            return Files.newInputStream(file);
+        }
+        if (DataFlavor.stringFlavor.equals(flavor)) {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        }
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    @Override
+    public void lostOwnership(Clipboard clipboard, Transferable contents) {
+        try {
+            TemporaryFiles.delete(file);
+        } catch (IOException e) {
+            // Verrà cancellato all'uscita
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * File temporanei dei risultati ancora in uso, cancellati all'uscita da un unico hook.
+ * A differenza di {@link java.io.File#deleteOnExit}, che conserva ogni percorso fino all'uscita,
+ * un file esce dall'elenco appena viene cancellato: l'elenco contiene solo i file ancora presenti.
+ */
+public final class TemporaryFiles {
+
+    private static final Set<Path> LIVE = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(TemporaryFiles::deleteAll, "temporary-files"));
+    }
+
+    private TemporaryFiles() {
+    }
+
+    /**
+     * Crea un file temporaneo, da cancellare con {@link #delete} o all'uscita
+     */
+    public static Path create(String prefix, String suffix) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        LIVE.add(file);
+        return file;
+    }
+
+    /**
+     * Aggiunge un file a quelli da cancellare all'uscita
+     */
+    public static void track(Path file) {
+        LIVE.add(file);
+    }
+
+    /**
+     * Cancella il file; se non ci riesce resta nell'elenco e si riprova all'uscita
+     */
+    public static void delete(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        LIVE.remove(file);
+    }
+
+    /**
+     * Numero di file ancora da cancellare
+     */
+    public static int size() {
+        return LIVE.size();
+    }
+
+    private static void deleteAll() {
+        for (Path file : LIVE) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Ancora aperto da un'altra applicazione: resta nella cartella temporanea
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.awt.event.KeyEvent;
+
+/**
+ * Inserisce testi (separatori, intestazioni) nella finestra di destinazione.
+ * I testi brevi digitabili con il layout corrente vengono digitati; tutti gli altri vengono
+ * messi negli appunti e incollati con un solo Ctrl+V, con un costo indipendente dalla lunghezza.
+ * Il testo incollato resta fuori dalle cronologie ({@link InjectedText}) e gli appunti dell'utente
+ * vengono ripristinati subito dopo.
+ */
+public class TextInjector {
+
+    /** Lunghezza massima di un testo digitato tasto per tasto */
+    public static final int DEFAULT_MAX_TYPED_LENGTH = 16;
+
+    private final KeyboardLayout layout;
+    private final int maxTypedLength;
+
+    /**
+     * @param layout layout di tastiera usato per la digitazione
+     * @param maxTypedLength lunghezza oltre la quale si incolla sempre tramite appunti
+     */
+    public TextInjector(KeyboardLayout layout, int maxTypedLength) {
+        this.layout = layout;
+        this.maxTypedLength = maxTypedLength;
+    }
+
+    public TextInjector(KeyboardLayout layout) {
+        this(layout, DEFAULT_MAX_TYPED_LENGTH);
+    }
+
+    public KeyboardLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Decide se il testo deve essere incollato tramite appunti.
+     * I testi brevi vengono digitati anche quando l'incolla costerebbe meno, perché ogni testo
+     * messo negli appunti finisce anche nella "Cronologia Appunti".
+     * @param text testo da inserire
+     */
+    public boolean shouldUseClipboard(String text) {
+        return text.length() > maxTypedLength || !layout.canType(text);
+    }
+
+    /**
+     * Costo stimato della digitazione del testo
+     */
+    public long typingMillis(String text, KeystrokeCostModel costModel) {
+        int events = 0;
+        for (int i = 0; i < text.length(); i++) {
+            KeyboardLayout.Keystroke keystroke = layout.lookup(text.charAt(i));
+            events += keystroke != null && keystroke.isShift() ? 4 : 2;
+        }
+        return costModel.typingMillis(events);
+    }
+
+    /**
+     * Accoda il testo al programma, digitato o incollato
+     */
+    public KeystrokeProgram.Builder append(KeystrokeProgram.Builder builder, String text, boolean viaClipboard) {
+        return viaClipboard ? appendPasted(builder, text) : appendTyped(builder, text);
+    }
+
+    /**
+     * Digita il testo tasto per tasto secondo il layout
+     */
+    public KeystrokeProgram.Builder appendTyped(KeystrokeProgram.Builder builder, String text) {
+        builder.arm(AutomationStep.TYPE_TEXT);
+        for (int i = 0; i < text.length(); i++) {
+            KeyboardLayout.Keystroke keystroke = layout.lookup(text.charAt(i));
+            if (keystroke == null) {
+                throw new IllegalArgumentException("Carattere non digitabile con il layout " + layout.getName()
+                        + ": " + text.charAt(i));
+            }
+            if (keystroke.isShift()) {
+                builder.chord(KeyEvent.VK_SHIFT, keystroke.getKeyCode());
+            } else {
+                builder.tap(keystroke.getKeyCode());
+            }
+        }
+        return builder.await(AutomationStep.TYPE_TEXT);
+    }
+
+    /**
+     * Mette il testo negli appunti, lo incolla con Ctrl+V e, incollato il testo, rimette negli appunti
+     * il contenuto dell'utente. Il testo incollato non entra nella "Cronologia Appunti".
+     */
+    public KeystrokeProgram.Builder appendPasted(KeystrokeProgram.Builder builder, String text) {
+        return builder.arm(AutomationStep.PASTE_TEXT)
+                      .setClipboard(text)
+                      .chord(KeyEvent.VK_CONTROL, KeyEvent.VK_V)
+                      .await(AutomationStep.PASTE_TEXT)
+                      .restoreClipboard();
+    }
+}
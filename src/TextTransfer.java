@@ -0,0 +1,62 @@
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Copia del testo degli appunti su una destinazione a blocchi di dimensione fissa,
+ * tramite {@link DataFlavor#getReaderForText}: anche un contenuto di decine di megabyte
+ * non viene mai caricato per intero in una String.
+ */
+public final class TextTransfer {
+
+    /** Caratteri letti per ogni blocco */
+    public static final int BUFFER_CHARS = 8192;
+
+    private TextTransfer() {
+    }
+
+    /**
+     * Copia il testo sulla destinazione, che non viene chiusa.
+     * La destinazione riceve sempre lo stesso buffer: deve copiarne il contenuto prima di ritornare.
+     * @return caratteri copiati
+     * @throws UnsupportedFlavorException se gli appunti sono vuoti o il contenuto non è testo
+     */
+    public static long copy(Transferable contents, OutputSink sink) throws IOException, UnsupportedFlavorException {
+        DataFlavor flavor = contents != null ? readerFlavor(contents.getTransferDataFlavors()) : null;
+        if (flavor == null) {
+            throw new UnsupportedFlavorException(DataFlavor.stringFlavor);
+        }
+        char[] buffer = new char[BUFFER_CHARS];
+        CharBuffer view = CharBuffer.wrap(buffer);
+        long total = 0;
+        try (Reader reader = flavor.getReaderForText(contents)) {
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                if (n > 0) {
+                    view.clear();
+                    view.limit(n);
+                    sink.write(view);
+                    total += n;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Formato da cui leggere: un testo già disponibile come Reader, se offerto, altrimenti
+     * quello scelto da {@link DataFlavor#selectBestTextFlavor}, che preferisce {@link DataFlavor#stringFlavor}
+     * e caricherebbe il contenuto per intero
+     */
+    private static DataFlavor readerFlavor(DataFlavor[] flavors) {
+        for (DataFlavor flavor : flavors) {
+            if (flavor.isRepresentationClassReader() && "text".equals(flavor.getPrimaryType())) {
+                return flavor;
+            }
+        }
+        return DataFlavor.selectBestTextFlavor(flavors);
+    }
+}
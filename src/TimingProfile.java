@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Tempi misurati su una macchina da {@link DelayCalibrator}: pausa tra gli eventi di tastiera
+ * e attese dei passi che è stato possibile misurare. I passi assenti mantengono la pausa di default.
+ * Il profilo è salvato in un file properties e vale solo per la macchina su cui è stato misurato.
+ * Contiene anche il comportamento della "Cronologia Appunti" usato da {@link KeystrokePlanner}
+ * (mantenimento del cursore, numero di elementi, ordine di incolla): non si può misurare sulla finestra
+ * di prova, quindi viene indicato a {@code --calibrate} e conservato tra una calibrazione e l'altra.
+ * Allo stesso modo viene indicato il layout della tastiera ({@link KeyboardLayout#forName}) usato per
+ * digitare i testi brevi; senza layout i testi vengono incollati tramite appunti.
+ */
+public final class TimingProfile {
+
+    /** Nome del file del profilo, accanto alla cronologia interna */
+    public static final String FILE_NAME = "timing.properties";
+
+    private static final String MACHINE_KEY = "machine";
+    private static final String CREATED_KEY = "created";
+    private static final String EVENT_GAP_KEY = "eventGapMillis";
+    private static final String STEP_PREFIX = "step.";
+    private static final String RETAINS_CURSOR_KEY = "history.retainsCursor";
+    private static final String HISTORY_SIZE_KEY = "history.size";
+    private static final String PASTE_ORDER_KEY = "history.pasteOrder";
+    private static final String KEYBOARD_LAYOUT_KEY = "keyboard.layout";
+
+    private final String machine;
+    private final long created;
+    private final long eventGapMillis;
+    private final Map<AutomationStep, Long> stepMillis;
+    private final boolean retainsCursor;
+    private final int historySize;
+    private final KeystrokePlanner.Order pasteOrder;
+    private final String keyboardLayout;
+
+    /**
+     * @param machine identificativo della macchina (vedi {@link #currentMachine()})
+     * @param created istante della misura
+     * @param eventGapMillis pausa dopo ogni evento di tastiera
+     * @param stepMillis attese misurate dei passi
+     */
+    public TimingProfile(String machine, long created, long eventGapMillis, Map<AutomationStep, Long> stepMillis) {
+        this(machine, created, eventGapMillis, stepMillis, false, 0, KeystrokePlanner.Order.OLDEST_FIRST,
+                KeyboardLayout.minimal().getName());
+    }
+
+    private TimingProfile(String machine, long created, long eventGapMillis, Map<AutomationStep, Long> stepMillis,
+                          boolean retainsCursor, int historySize, KeystrokePlanner.Order pasteOrder,
+                          String keyboardLayout) {
+        this.machine = machine;
+        this.created = created;
+        this.eventGapMillis = eventGapMillis;
+        Map<AutomationStep, Long> copy = new EnumMap<>(AutomationStep.class);
+        copy.putAll(stepMillis);
+        this.stepMillis = Collections.unmodifiableMap(copy);
+        this.retainsCursor = retainsCursor;
+        this.historySize = Math.max(historySize, 0);
+        this.pasteOrder = pasteOrder;
+        this.keyboardLayout = keyboardLayout;
+    }
+
+    /**
+     * Stesso profilo con il comportamento della "Cronologia Appunti" indicato
+     */
+    public TimingProfile withHistory(boolean retainsCursor, int historySize, KeystrokePlanner.Order pasteOrder) {
+        return new TimingProfile(machine, created, eventGapMillis, stepMillis, retainsCursor, historySize, pasteOrder,
+                keyboardLayout);
+    }
+
+    /**
+     * Stesso profilo con il layout della tastiera indicato
+     * @param keyboardLayout nome del layout (vedi {@link KeyboardLayout#forName})
+     */
+    public TimingProfile withKeyboardLayout(String keyboardLayout) {
+        return new TimingProfile(machine, created, eventGapMillis, stepMillis, retainsCursor, historySize, pasteOrder,
+                keyboardLayout);
+    }
+
+    /**
+     * Identificativo della macchina corrente: nome host, sistema operativo e architettura
+     */
+    public static String currentMachine() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return host + "/" + System.getProperty("os.name") + "/" + System.getProperty("os.arch");
+    }
+
+    /**
+     * Posizione predefinita del profilo ({@code ~/.clipboard_automation/timing.properties})
+     */
+    public static Path defaultFile() {
+        return ClipboardHistoryStore.defaultDirectory().resolveSibling(FILE_NAME);
+    }
+
+    /**
+     * Legge un profilo salvato
+     * @return il profilo, o null se il file non esiste
+     */
+    public static TimingProfile load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            Map<AutomationStep, Long> steps = new EnumMap<>(AutomationStep.class);
+            for (AutomationStep step : AutomationStep.values()) {
+                String value = properties.getProperty(STEP_PREFIX + step.name());
+                if (value != null) {
+                    steps.put(step, Long.parseLong(value.trim()));
+                }
+            }
+            return new TimingProfile(properties.getProperty(MACHINE_KEY, ""),
+                    Long.parseLong(properties.getProperty(CREATED_KEY, "0").trim()),
+                    Long.parseLong(properties.getProperty(EVENT_GAP_KEY,
+                            String.valueOf(KeystrokeCompiler.DEFAULT_EVENT_GAP_MILLIS)).trim()),
+                    steps,
+                    Boolean.parseBoolean(properties.getProperty(RETAINS_CURSOR_KEY, "false").trim()),
+                    Integer.parseInt(properties.getProperty(HISTORY_SIZE_KEY, "0").trim()),
+                    KeystrokePlanner.Order.valueOf(properties.getProperty(PASTE_ORDER_KEY,
+                            KeystrokePlanner.Order.OLDEST_FIRST.name()).trim()),
+                    properties.getProperty(KEYBOARD_LAYOUT_KEY, KeyboardLayout.minimal().getName()).trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Profilo dei tempi non valido: " + file, e);
+        }
+    }
+
+    /**
+     * Salva il profilo; il file viene sostituito in un colpo solo
+     */
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(MACHINE_KEY, machine);
+        properties.setProperty(CREATED_KEY, String.valueOf(created));
+        properties.setProperty(EVENT_GAP_KEY, String.valueOf(eventGapMillis));
+        for (Map.Entry<AutomationStep, Long> entry : stepMillis.entrySet()) {
+            properties.setProperty(STEP_PREFIX + entry.getKey().name(), String.valueOf(entry.getValue()));
+        }
+        properties.setProperty(RETAINS_CURSOR_KEY, String.valueOf(retainsCursor));
+        properties.setProperty(HISTORY_SIZE_KEY, String.valueOf(historySize));
+        properties.setProperty(PASTE_ORDER_KEY, pasteOrder.name());
+        properties.setProperty(KEYBOARD_LAYOUT_KEY, keyboardLayout);
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "timing", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Clipboard Automation - tempi misurati con --calibrate");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * True se il profilo è stato misurato su questa macchina
+     */
+    public boolean matchesCurrentMachine() {
+        return machine.equals(currentMachine());
+    }
+
+    public String getMachine() {
+        return machine;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getEventGapMillis() {
+        return eventGapMillis;
+    }
+
+    /**
+     * Attese misurate, solo per i passi calibrati
+     */
+    public Map<AutomationStep, Long> getStepMillis() {
+        return stepMillis;
+    }
+
+    /**
+     * Attesa del passo: quella misurata se presente, altrimenti la pausa di default
+     */
+    public long stepMillis(AutomationStep step) {
+        Long millis = stepMillis.get(step);
+        return millis != null ? millis : step.getDefaultDelayMillis();
+    }
+
+    /**
+     * True se la "Cronologia Appunti", alla riapertura, parte dall'ultimo elemento selezionato
+     */
+    public boolean isRetainsCursor() {
+        return retainsCursor;
+    }
+
+    /**
+     * Numero di elementi nella "Cronologia Appunti" (0 = sconosciuto)
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public KeystrokePlanner.Order getPasteOrder() {
+        return pasteOrder;
+    }
+
+    /**
+     * Nome del layout della tastiera (vedi {@link KeyboardLayout#forName})
+     */
+    public String getKeyboardLayout() {
+        return keyboardLayout;
+    }
+
+    @Override
+    public String toString() {
+        return "TimingProfile[" + machine + ", eventGap=" + eventGapMillis + "ms, " + stepMillis
+                + ", retainsCursor=" + retainsCursor + ", historySize=" + historySize + ", " + pasteOrder
+                + ", layout=" + keyboardLayout + "]";
+    }
+}
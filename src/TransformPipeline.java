@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sequenza di trasformazioni applicata agli elementi prima dell'assemblaggio.
+ * Gli elementi sono indipendenti e vengono trasformati in parallelo su un {@link ForkJoinPool};
+ * ogni risultato torna nella posizione dell'elemento, quindi l'ordine non cambia.
+ * Il tempo di ogni trasformazione viene misurato elemento per elemento: con le metriche impostate
+ * finisce nell'istogramma {@code stage.<nome>}, così un'espressione regolare costosa su un elemento
+ * grande si vede nel valore massimo.
+ */
+public final class TransformPipeline {
+
+    /** Caratteri sotto i quali un gruppo di elementi viene trasformato da un solo task */
+    private static final long LEAF_CHARS = 16 * 1024;
+
+    private static final TransformPipeline EMPTY = new TransformPipeline(Collections.<TransformStage>emptyList());
+
+    private final List<TransformStage> stages;
+    private final ForkJoinPool pool;
+    private volatile AutomationMetrics metrics;
+    private volatile long[] lastStageNanos = new long[0];
+
+    /**
+     * @param stages trasformazioni, nell'ordine di applicazione
+     * @param pool pool su cui trasformare gli elementi
+     */
+    public TransformPipeline(List<TransformStage> stages, ForkJoinPool pool) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+        this.pool = pool;
+    }
+
+    public TransformPipeline(List<TransformStage> stages) {
+        this(stages, ForkJoinPool.commonPool());
+    }
+
+    public TransformPipeline(TransformStage... stages) {
+        this(Arrays.asList(stages));
+    }
+
+    /**
+     * Sequenza senza trasformazioni
+     */
+    public static TransformPipeline empty() {
+        return EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+    public List<TransformStage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Registra i tempi delle trasformazioni nelle metriche indicate (null = nessuna registrazione)
+     */
+    public void setMetrics(AutomationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Trasforma gli elementi
+     * @param entries elementi (indice 0 = il più recente)
+     * @return elementi trasformati, nello stesso ordine
+     */
+    public List<String> apply(List<String> entries) {
+        if (stages.isEmpty() || entries.isEmpty()) {
+            return entries;
+        }
+        String[] input = entries.toArray(new String[0]);
+        String[] output = new String[input.length];
+        // Caratteri cumulati: dividono il lavoro in base alla dimensione, non al numero degli elementi
+        long[] offsets = new long[input.length + 1];
+        for (int i = 0; i < input.length; i++) {
+            offsets[i + 1] = offsets[i] + input[i].length();
+        }
+        AtomicLongArray stageNanos = new AtomicLongArray(stages.size());
+        TransformTask task = new TransformTask(input, output, offsets, 0, input.length, stageNanos);
+        if (input.length == 1) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        long[] totals = new long[stages.size()];
+        for (int s = 0; s < totals.length; s++) {
+            totals[s] = stageNanos.get(s);
+        }
+        lastStageNanos = totals;
+        return Arrays.asList(output);
+    }
+
+    /**
+     * Tempo complessivo di ogni trasformazione nell'ultima esecuzione, sommato su tutti gli elementi
+     * @return nome della trasformazione -> nanosecondi, nell'ordine di applicazione
+     */
+    public Map<String, Long> getLastStageNanos() {
+        long[] totals = lastStageNanos;
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int s = 0; s < totals.length; s++) {
+            result.merge(stages.get(s).getName(), totals[s], Long::sum);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return stages.toString();
+    }
+
+    /**
+     * Trasforma gli elementi da {@code from} a {@code to}, dividendo l'intervallo finché contiene
+     * più di un elemento e più di {@link #LEAF_CHARS} caratteri
+     */
+    private final class TransformTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] input;
+        private final String[] output;
+        private final long[] offsets;
+        private final int from;
+        private final int to;
+        private final AtomicLongArray stageNanos;
+
+        TransformTask(String[] input, String[] output, long[] offsets, int from, int to, AtomicLongArray stageNanos) {
+            this.input = input;
+            this.output = output;
+            this.offsets = offsets;
+            this.from = from;
+            this.to = to;
+            this.stageNanos = stageNanos;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && offsets[to] - offsets[from] > LEAF_CHARS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TransformTask(input, output, offsets, from, middle, stageNanos),
+                          new TransformTask(input, output, offsets, middle, to, stageNanos));
+                return;
+            }
+            AutomationMetrics metrics = TransformPipeline.this.metrics;
+            for (int i = from; i < to; i++) {
+                String text = input[i];
+                for (int s = 0; s < stages.size(); s++) {
+                    TransformStage stage = stages.get(s);
+                    long start = System.nanoTime();
+                    text = stage.apply(text);
+                    long elapsed = System.nanoTime() - start;
+                    stageNanos.addAndGet(s, elapsed);
+                    if (metrics != null) {
+                        metrics.histogram("stage." + stage.getName()).record(elapsed);
+                    }
+                }
+                output[i] = text;
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Trasformazione applicata a un elemento prima dell'assemblaggio.
+ * Le trasformazioni non hanno stato e possono essere usate da più thread insieme.
+ * Quelle che lavorano per righe trattano "\r\n" come "\n" e conservano l'a capo finale.
+ */
+public abstract class TransformStage {
+
+    private final String name;
+
+    protected TransformStage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Nome breve, usato nelle misure ({@code stage.<nome>}) e sulla riga di comando
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Trasforma il contenuto di un elemento
+     */
+    public abstract String apply(String text);
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Toglie gli spazi in fondo a ogni riga e quelli all'inizio e alla fine dell'elemento
+     */
+    public static TransformStage trim() {
+        return new LineStage("trim") {
+            @Override
+            List<String> lines(List<String> lines) {
+                List<String> result = new ArrayList<>(lines.size());
+                for (String line : lines) {
+                    int end = line.length();
+                    while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+                        end--;
+                    }
+                    result.add(line.substring(0, end));
+                }
+                return result;
+            }
+
+            @Override
+            public String apply(String text) {
+                return super.apply(text).trim();
+            }
+        };
+    }
+
+    /**
+     * Tiene solo la prima occorrenza di ogni riga
+     */
+    public static TransformStage uniqueLines() {
+        return new LineStage("unique") {
+            @Override
+            List<String> lines(List<String> lines) {
+                return new ArrayList<>(new LinkedHashSet<>(lines));
+            }
+        };
+    }
+
+    /**
+     * Ordina le righe
+     */
+    public static TransformStage sortLines() {
+        return new LineStage("sort") {
+            @Override
+            List<String> lines(List<String> lines) {
+                List<String> sorted = new ArrayList<>(lines);
+                Collections.sort(sorted);
+                return sorted;
+            }
+        };
+    }
+
+    /**
+     * Tiene solo le righe che contengono l'espressione regolare
+     * @throws PatternSyntaxException se l'espressione non è valida
+     */
+    public static TransformStage filterLines(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return new LineStage("filter") {
+            @Override
+            List<String> lines(List<String> lines) {
+                List<String> kept = new ArrayList<>();
+                for (String line : lines) {
+                    if (pattern.matcher(line).find()) {
+                        kept.add(line);
+                    }
+                }
+                return kept;
+            }
+        };
+    }
+
+    /**
+     * Indenta il JSON; un elemento che non è un oggetto o un array JSON resta com'è
+     */
+    public static TransformStage prettyJson() {
+        return new TransformStage("json") {
+            @Override
+            public String apply(String text) {
+                return JsonFormatter.format(text);
+            }
+        };
+    }
+
+    /**
+     * Trasformazione da una specifica testuale: {@code trim}, {@code unique}, {@code sort}, {@code json}
+     * o {@code filter:REGEX}
+     * @throws IllegalArgumentException se la specifica non è valida
+     */
+    public static TransformStage parse(String spec) {
+        switch (spec) {
+            case "trim":
+                return trim();
+            case "unique":
+                return uniqueLines();
+            case "sort":
+                return sortLines();
+            case "json":
+                return prettyJson();
+            default:
+                if (spec.startsWith("filter:")) {
+                    return filterLines(spec.substring("filter:".length()));
+                }
+                throw new IllegalArgumentException(spec);
+        }
+    }
+
+    /**
+     * Trasformazione che lavora sulla lista delle righe
+     */
+    private abstract static class LineStage extends TransformStage {
+
+        private static final Pattern LINE_BREAK = Pattern.compile("\r?\n");
+
+        LineStage(String name) {
+            super(name);
+        }
+
+        abstract List<String> lines(List<String> lines);
+
+        @Override
+        public String apply(String text) {
+            // L'a capo finale può essere "\r\n": il '\r' non deve restare nell'ultima riga
+            int end = text.endsWith("\r\n") ? text.length() - 2
+                    : text.endsWith("\n") ? text.length() - 1 : text.length();
+            boolean trailingNewline = end < text.length();
+            String body = text.substring(0, end);
+            List<String> lines = lines(Arrays.asList(LINE_BREAK.split(body, -1)));
+            String result = String.join("\n", lines);
+            return trailingNewline && !result.isEmpty() ? result + "\n" : result;
+        }
+    }
+
+    /**
+     * Indentazione del JSON a due spazi, carattere per carattere: le stringhe vengono copiate così come sono
+     */
+    private static final class JsonFormatter {
+
+        static String format(String text) {
+            String json = text.trim();
+            if (json.isEmpty() || (json.charAt(0) != '{' && json.charAt(0) != '[')) {
+                return text;
+            }
+            StringBuilder out = new StringBuilder(json.length() * 2);
+            int depth = 0;
+            boolean inString = false;
+            for (int i = 0; i < json.length(); i++) {
+                char c = json.charAt(i);
+                if (inString) {
+                    out.append(c);
+                    if (c == '\\' && i + 1 < json.length()) {
+                        out.append(json.charAt(++i));
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                    continue;
+                }
+                switch (c) {
+                    case '"':
+                        inString = true;
+                        out.append(c);
+                        break;
+                    case '{':
+                    case '[':
+                        out.append(c);
+                        depth++;
+                        // Oggetto o array vuoto: resta su una riga
+                        int next = skipWhitespace(json, i + 1);
+                        if (next < json.length() && json.charAt(next) == (c == '{' ? '}' : ']')) {
+                            out.append(json.charAt(next));
+                            depth--;
+                            i = next;
+                        } else {
+                            newline(out, depth);
+                        }
+                        break;
+                    case '}':
+                    case ']':
+                        depth--;
+                        if (depth < 0) {
+                            return text;
+                        }
+                        newline(out, depth);
+                        out.append(c);
+                        break;
+                    case ',':
+                        out.append(c);
+                        newline(out, depth);
+                        break;
+                    case ':':
+                        out.append(": ");
+                        break;
+                    default:
+                        if (!Character.isWhitespace(c)) {
+                            out.append(c);
+                        }
+                }
+            }
+            // JSON incompleto: meglio lasciarlo com'è
+            return depth == 0 && !inString ? out.toString() : text;
+        }
+
+        private static int skipWhitespace(String json, int i) {
+            while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private static void newline(StringBuilder out, int depth) {
+            out.append('\n');
+            for (int i = 0; i < depth; i++) {
+                out.append("  ");
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.StringSelection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// Appunti locali al posto di quelli di sistema, non disponibili senza display
+class ClipboardCaptureServiceTest {
+
+    private final Clipboard clipboard = new Clipboard("test");
+    private final ClipboardRingBuffer history = new ClipboardRingBuffer(3, Long.MAX_VALUE);
+
+    @Test
+    void capturesReachTheListenerAndHistoryInOrder() {
+        ClipboardCaptureService service = new ClipboardCaptureService(clipboard, history);
+        List<String> received = new ArrayList<>();
+        service.setCaptureListener(entry -> received.add(entry.getText()));
+
+        for (String text : new String[] {"a", "b", "b", "c", "d"}) {
+            service.capture(text);
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c", "d"), received);
+        assertEquals(Arrays.asList("d", "c", "b"), history.readEntries(3));
+        assertEquals(4, service.getCaptureCount());
+        assertEquals(1, service.getDuplicateCount());
+    }
+
+    @Test
+    void pollingCapturesClipboardChangesInOrder() throws Exception {
+        ClipboardCaptureService service = new ClipboardCaptureService(clipboard, history, 1, 5);
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        service.setCaptureListener(entry -> received.add(entry.getText()));
+        service.start();
+        try {
+            for (String text : new String[] {"first", "second", "third", "fourth"}) {
+                clipboard.setContents(new StringSelection(text), null);
+                String captured = received.poll(5, TimeUnit.SECONDS);
+                assertNotNull(captured, "Testo non catturato: " + text);
+                assertEquals(text, captured);
+            }
+        } finally {
+            service.stop();
+        }
+
+        assertFalse(service.isRunning());
+        assertEquals(Arrays.asList("fourth", "third", "second"), history.readEntries(3));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void withoutHistoryCapturesOnlyReachTheListener() {
+        ClipboardCaptureService service = new ClipboardCaptureService(clipboard, null);
+        ClipboardHistoryIndex index = new ClipboardHistoryIndex();
+        service.setCaptureListener(entry -> {
+            try {
+                index.add(entry.getText(), entry.getTimestamp());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        for (String text : new String[] {"a", "a", "b", "a"}) {
+            service.capture(text);
+        }
+
+        assertEquals(3, index.size());
+        assertEquals(3, service.getCaptureCount());
+        assertEquals(1, service.getDuplicateCount());
+        assertNull(service.getHistory());
+    }
+
+    @Test
+    void textInjectedByTheAutomationIsNotCaptured() throws Exception {
+        ClipboardCaptureService service = new ClipboardCaptureService(clipboard, history, 1, 5);
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        service.setCaptureListener(entry -> received.add(entry.getText()));
+        service.start();
+        try {
+            InjectedText separator = new InjectedText("---");
+            clipboard.setContents(separator, separator);
+            // Alcune interrogazioni con il separatore negli appunti
+            long polls = service.getPollCount();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.getPollCount() < polls + 3 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(service.getPollCount() >= polls + 3);
+            assertTrue(received.isEmpty());
+
+            clipboard.setContents(new StringSelection("copiato"), null);
+
+            assertEquals("copiato", received.poll(5, TimeUnit.SECONDS));
+        } finally {
+            service.stop();
+        }
+
+        assertEquals(Arrays.asList("copiato"), history.readEntries(3));
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClipboardHistoryIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void addBeforeLoadIndexesEachItemOnceInOrder() throws Exception {
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory.resolve("history"))) {
+            store.append("primo", 1);
+            store.append("secondo", 2);
+            ClipboardHistoryIndex index = new ClipboardHistoryIndex(store);
+
+            // La cattura arriva prima del caricamento in background
+            index.add("terzo", 3);
+            index.load();
+
+            assertEquals(3, index.size());
+            assertEquals("terzo", index.get(0).getText());
+            assertEquals("primo", index.get(2).getText());
+            assertTrue(index.get(0).getId() > index.get(1).getId());
+            assertTrue(index.get(1).getId() > index.get(2).getId());
+            for (int i = 0; i < index.size(); i++) {
+                assertSame(index.get(i), index.find(index.get(i).getId()));
+            }
+        }
+    }
+
+    @Test
+    void searchFindsItemsInMemory() throws Exception {
+        ClipboardHistoryIndex index = new ClipboardHistoryIndex();
+        index.add("hello world", 1);
+        index.add("goodbye", 2);
+        index.add("Hello again", 3);
+
+        assertEquals(2, index.search("hello", 10).size());
+        assertEquals("Hello again", index.search("hello", 10).get(0).getText());
+        assertEquals(1, index.search("bye", 10).size());
+    }
+}
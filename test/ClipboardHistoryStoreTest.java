@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ClipboardHistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compactionKeepsTheNewestEntries() throws Exception {
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory)) {
+            store.setRetention(2);
+            store.append("uno", 1);
+            store.append("due", 2);
+            store.append("tre", 3);
+            store.compact();
+
+            assertEquals(Arrays.asList("tre", "due"), store.readEntries(10));
+        }
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory)) {
+            assertEquals(Arrays.asList("tre", "due"), store.readEntries(10));
+        }
+    }
+
+    @Test
+    void incompleteGenerationIsDiscardedOnOpen() throws Exception {
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory)) {
+            store.append("uno", 1);
+            store.append("due", 2);
+        }
+        // Compattazione interrotta: il nuovo indice esiste ma l'intestazione non è stata scritta
+        Path incomplete = directory.resolve("history-1.idx");
+        Files.write(incomplete, new byte[64]);
+
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory)) {
+            assertEquals(Arrays.asList("due", "uno"), store.readEntries(10));
+        }
+        assertFalse(Files.exists(incomplete));
+    }
+
+    @Test
+    void secondWriterIsRejectedWhileTheFirstIsOpen() throws Exception {
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory)) {
+            store.append("uno", 1);
+            assertThrows(ClipboardHistoryStore.LockedException.class, () -> new ClipboardHistoryStore(directory));
+        }
+        // Il lock viene rilasciato alla chiusura
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory)) {
+            assertEquals(Arrays.asList("uno"), store.readEntries(10));
+        }
+    }
+
+    @Test
+    void readOnlyOpenLeavesTheWritersCompactionInPlace() throws Exception {
+        try (ClipboardHistoryStore writer = new ClipboardHistoryStore(directory)) {
+            writer.append("uno", 1);
+            writer.append("due", 2);
+            // Compattazione del processo che scrive ancora in corso
+            Path inProgress = directory.resolve("history-1.idx");
+            Files.write(inProgress, new byte[64]);
+
+            try (ClipboardHistoryStore reader = ClipboardHistoryStore.openReadOnly(directory)) {
+                assertTrue(reader.isReadOnly());
+                assertEquals(Arrays.asList("due", "uno"), reader.readEntries(10));
+                assertThrows(IllegalStateException.class, () -> reader.append("tre", 3));
+                assertThrows(IllegalStateException.class, reader::compact);
+            }
+            assertTrue(Files.exists(inProgress));
+            Files.delete(inProgress);
+        }
+    }
+
+    @Test
+    void readOnlyOpenDoesNotCreateAHistory() throws Exception {
+        Path missing = directory.resolve("missing");
+        assertThrows(NoSuchFileException.class, () -> ClipboardHistoryStore.openReadOnly(missing));
+        assertFalse(Files.exists(missing));
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class ClipboardRingBufferTest {
+
+    private static ClipboardEntry entry(String text) {
+        return new ClipboardEntry(text, 0);
+    }
+
+    @Test
+    void wrapAroundKeepsTheNewestEntriesInOrder() {
+        ClipboardRingBuffer buffer = new ClipboardRingBuffer(3, Long.MAX_VALUE);
+        InMemoryEntrySource expected = new InMemoryEntrySource();
+        for (int i = 0; i < 10; i++) {
+            String text = "e" + i;
+            assertTrue(buffer.add(entry(text)));
+            expected.push(text);
+            assertEquals(expected.readEntries(3), buffer.readEntries(Integer.MAX_VALUE));
+        }
+
+        assertEquals(3, buffer.size());
+        assertEquals("e9", buffer.get(0).getText());
+        assertEquals("e7", buffer.get(2).getText());
+        assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(3));
+    }
+
+    @Test
+    void onlyTheNewestEntryIsDeduplicated() {
+        ClipboardRingBuffer buffer = new ClipboardRingBuffer(5, Long.MAX_VALUE);
+
+        assertTrue(buffer.add(entry("a")));
+        assertFalse(buffer.add(entry("a")));
+        assertTrue(buffer.add(entry("b")));
+        assertTrue(buffer.add(entry("a")));
+
+        assertEquals(Arrays.asList("a", "b", "a"), buffer.readEntries(5));
+        // Lo stesso testo condivide un'unica copia
+        assertSame(buffer.get(0).getText(), buffer.get(2).getText());
+    }
+
+    @Test
+    void usedBytesAfterWrapAroundMatchTheRemainingEntries() {
+        ClipboardRingBuffer wrapped = new ClipboardRingBuffer(3, Long.MAX_VALUE);
+        for (String text : new String[] {"a", "bb", "a", "ccc", "a", "dddd", "bb"}) {
+            wrapped.add(entry(text));
+        }
+        ClipboardRingBuffer fresh = new ClipboardRingBuffer(3, Long.MAX_VALUE);
+        for (String text : new String[] {"a", "dddd", "bb"}) {
+            fresh.add(entry(text));
+        }
+
+        assertEquals(fresh.readEntries(3), wrapped.readEntries(3));
+        assertEquals(fresh.getUsedBytes(), wrapped.getUsedBytes());
+
+        wrapped.clear();
+        assertEquals(0, wrapped.size());
+        assertEquals(0, wrapped.getUsedBytes());
+    }
+
+    @Test
+    void byteBudgetEvictsTheOldestEntries() {
+        long entryBytes = entry("xxxx").getByteSize();
+        ClipboardRingBuffer buffer = new ClipboardRingBuffer(10, 2 * entryBytes);
+
+        buffer.add(entry("1111"));
+        buffer.add(entry("2222"));
+        buffer.add(entry("3333"));
+
+        assertEquals(Arrays.asList("3333", "2222"), buffer.readEntries(10));
+        assertTrue(buffer.getUsedBytes() <= buffer.getByteBudget());
+        // Un elemento più grande dell'intero limite viene rifiutato
+        StringBuilder large = new StringBuilder();
+        while (entry(large.toString()).getByteSize() <= buffer.getByteBudget()) {
+            large.append('x');
+        }
+        assertFalse(buffer.add(entry(large.toString())));
+        assertEquals(2, buffer.size());
+    }
+}
@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Server e client sulla porta di loopback, senza appunti né cronologia
+ */
+class ControlServerTest {
+
+    private ControlServer server;
+    private int port;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        I18nManager.getInstance().setLanguage("en");
+        InMemoryEntrySource source = new InMemoryEntrySource();
+        source.push("primo");
+        source.push("secondo");
+        source.push("terzo");
+        server = new ControlServer(source, null, null);
+        port = server.start(0);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void wrongTokenIsRejected() throws Exception {
+        IOException e = assertThrows(IOException.class, () -> new ControlClient(port, "sbagliato"));
+        assertEquals(I18nManager.getInstance().getText("control.server.bad-token"), e.getMessage());
+
+        // Il rifiuto non tocca le altre connessioni
+        try (ControlClient client = new ControlClient(port, server.getToken())) {
+            assertTrue(client.send("PING").isOk());
+        }
+    }
+
+    @Test
+    void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+        try (ControlClient client = new ControlClient(port, server.getToken())) {
+            List<ControlClient.Response> responses = client.sendAll(Arrays.asList(
+                    "PING tag=a",
+                    "ASSEMBLE n=2 separator=false tag=b",
+                    "STATS tag=c",
+                    "ASSEMBLE n=1 separator=false tag=d",
+                    "PING"));
+
+            assertEquals(5, responses.size());
+            assertEquals(Arrays.asList("a", "b", "c", "d", null), Arrays.asList(responses.get(0).getTag(),
+                    responses.get(1).getTag(), responses.get(2).getTag(), responses.get(3).getTag(),
+                    responses.get(4).getTag()));
+            for (ControlClient.Response response : responses) {
+                assertTrue(response.isOk(), response.getMessage());
+            }
+            assertEquals(0, responses.get(0).getPayload().length);
+            assertEquals("secondo\nterzo\n", responses.get(1).getText());
+            assertEquals("terzo\n", responses.get(3).getText());
+        }
+    }
+
+    @Test
+    void invalidRequestsAnswerWithErrorCodesAndKeepTheConnection() throws Exception {
+        try (ControlClient client = new ControlClient(port, server.getToken())) {
+            List<ControlClient.Response> responses = client.sendAll(Arrays.asList(
+                    "FOO tag=x",
+                    "ASSEMBLE n=0 tag=y",
+                    "ASSEMBLE ids=1",
+                    "ASSEMBLE sink=clipboard",
+                    "ASSEMBLE n=1 ids=2",
+                    "PING tag=z"));
+
+            assertFalse(responses.get(0).isOk());
+            assertEquals("x", responses.get(0).getTag());
+            assertEquals("unknown-command FOO", responses.get(0).getMessage());
+            assertEquals("unknown-command", responses.get(0).getErrorCode());
+            assertEquals(I18nManager.getInstance().getText("control.server.unknown-command", "FOO"),
+                    responses.get(0).getLocalizedMessage());
+            assertEquals("y", responses.get(1).getTag());
+            assertEquals("bad-count 0", responses.get(1).getMessage());
+            assertEquals("no-history", responses.get(2).getMessage());
+            assertEquals("no-clipboard", responses.get(3).getMessage());
+            assertEquals("conflicting-selection", responses.get(4).getMessage());
+            assertTrue(responses.get(5).isOk());
+            assertEquals("z", responses.get(5).getTag());
+        }
+    }
+
+    @Test
+    void unknownErrorCodeIsShownAsReceived() {
+        ControlClient.Response response = new ControlClient.Response(false, null, 0, new byte[0], "new-code 42", 0);
+
+        assertEquals("new-code", response.getErrorCode());
+        assertEquals("new-code 42", response.getLocalizedMessage());
+    }
+
+    @Test
+    void quitClosesTheConnection() throws Exception {
+        try (ControlClient client = new ControlClient(port, server.getToken())) {
+            assertTrue(client.send("QUIT").isOk());
+            assertThrows(IOException.class, () -> client.send("PING"));
+        }
+    }
+}
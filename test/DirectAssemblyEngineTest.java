@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.ClipboardOwner;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Appunti locali al posto di quelli di sistema, non disponibili senza display
+class DirectAssemblyEngineTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Appunti locali che contano le pubblicazioni
+     */
+    private static final class CountingClipboard extends Clipboard {
+        int published;
+
+        CountingClipboard() {
+            super("test");
+        }
+
+        @Override
+        public synchronized void setContents(Transferable contents, ClipboardOwner owner) {
+            published++;
+            super.setContents(contents, owner);
+        }
+    }
+
+    private static InMemoryEntrySource source(String... oldestFirst) {
+        InMemoryEntrySource source = new InMemoryEntrySource();
+        for (String text : oldestFirst) {
+            source.push(text);
+        }
+        return source;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    void directAutomationPublishesTheNewestEntriesOldestFirstWithTheSeparator() throws Exception {
+        CountingClipboard clipboard = new CountingClipboard();
+        ClipboardAutomation automation = new ClipboardAutomation(source("primo", "secondo", "terzo"), clipboard);
+
+        automation.executeAutomation(2, true);
+
+        // Come con Notepad: il più vecchio dei due per primo, poi il blocco del separatore
+        assertEquals("secondo\nterzo\n\n---\n\n", clipboard.getData(DataFlavor.stringFlavor));
+        assertEquals(1, clipboard.published);
+    }
+
+    @Test
+    void separatorIsOmittedOnRequest() throws Exception {
+        CountingClipboard clipboard = new CountingClipboard();
+        DirectAssemblyEngine engine = new DirectAssemblyEngine(source("primo", "secondo", "terzo"), clipboard);
+
+        assertEquals("primo\nsecondo\nterzo\n", engine.execute(5, false));
+        assertEquals("primo\nsecondo\nterzo\n", clipboard.getData(DataFlavor.stringFlavor));
+        assertEquals(1, clipboard.published);
+    }
+
+    @Test
+    void deferredResultSurvivesACompactionBeforeItIsRequested() throws Exception {
+        String filler = repeat('f', 100);
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(directory, 64)) {
+            store.setRetention(2);
+            store.append("keep", 1);
+            store.append(repeat('x', 50), 2);
+            store.append(repeat('y', 100), 3);
+            store.append(filler, 4);
+            // Contenuto ripetuto: il nuovo record punta al primo segmento, quasi vuoto
+            store.append("keep", 5);
+
+            DirectAssemblyEngine engine = new DirectAssemblyEngine(store, new Clipboard("test"));
+            AssembledTransferable contents = engine.executeDeferred(2, true);
+
+            // La compattazione sposta "keep" nel segmento attivo e cancella il primo segmento
+            store.compact();
+            assertFalse(Files.exists(directory.resolve("segment-00000001.log")));
+
+            assertEquals(engine.assemble(Arrays.asList("keep", filler), true),
+                    contents.getTransferData(DataFlavor.stringFlavor));
+        }
+    }
+}
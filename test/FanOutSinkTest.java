@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FanOutSinkTest {
+
+    /**
+     * Destinazione in memoria
+     */
+    private static final class StringSink implements OutputSink {
+        final StringBuilder text = new StringBuilder();
+        boolean closed;
+
+        @Override
+        public void write(CharSequence piece) {
+            text.append(piece);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void everyDestinationReceivesTheWholeText() throws Exception {
+        StringSink first = new StringSink();
+        StringSink second = new StringSink();
+        FanOutSink fanOut = new FanOutSink(2, 5_000).add("first", first).add("second", second);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5 * FanOutSink.CHUNK_CHARS; i++) {
+            expected.append((char) ('a' + i % 26));
+        }
+        fanOut.write(expected);
+        fanOut.close();
+
+        assertTrue(fanOut.isSuccess());
+        assertEquals(expected.toString(), first.text.toString());
+        assertEquals(expected.toString(), second.text.toString());
+        assertTrue(first.closed && second.closed);
+    }
+
+    @Test
+    void openingFailureIsReportedInTheDestinationResult() throws Exception {
+        StringSink file = new StringSink();
+        FanOutSink fanOut = new FanOutSink()
+                .add("clipboard", () -> {
+                    throw new IOException("nessun display");
+                })
+                .add("file", file);
+        fanOut.write("testo");
+        fanOut.close();
+
+        List<FanOutSink.Result> results = fanOut.getResults();
+        assertFalse(fanOut.isSuccess());
+        assertEquals("nessun display", results.get(0).getError().getMessage());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("testo", file.text.toString());
+    }
+}
@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Riga di comando senza display: i test girano con java.awt.headless=true
+ */
+class HeadlessCliTest {
+
+    @TempDir
+    Path directory;
+
+    private Path history;
+    private final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    private final PrintStream err = new PrintStream(errors, true);
+
+    @BeforeEach
+    void createHistory() throws Exception {
+        I18nManager.getInstance().setLanguage("en");
+        history = directory.resolve("history");
+        try (ClipboardHistoryStore store = new ClipboardHistoryStore(history)) {
+            store.append("primo", 1);
+            store.append("secondo", 2);
+        }
+    }
+
+    private String errors() {
+        return new String(errors.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesTheLastEntriesToAFile() throws Exception {
+        Path out = directory.resolve("out.txt");
+        int exit = new HeadlessCli().run(new String[] { "--headless", "--history", history.toString(), "-n", "2",
+                "--no-separator", "--out", out.toString() }, err);
+
+        assertEquals(HeadlessCli.EXIT_OK, exit);
+        String text = new String(Files.readAllBytes(out), StandardCharsets.UTF_8);
+        assertTrue(text.indexOf("primo") < text.indexOf("secondo"), text);
+    }
+
+    @Test
+    void clipboardWithoutDisplayFailsWithAMessage() {
+        int exit = new HeadlessCli().run(new String[] { "--headless", "--history", history.toString(),
+                "--clipboard" }, err);
+
+        assertEquals(HeadlessCli.EXIT_FAILURE, exit);
+        assertTrue(errors().contains(I18nManager.getInstance().getText("cli.error.noclipboard")), errors());
+    }
+
+    @Test
+    void clipboardWithoutDisplayDoesNotStopTheOtherDestinations() throws Exception {
+        Path out = directory.resolve("out.txt");
+        int exit = new HeadlessCli().run(new String[] { "--headless", "--history", history.toString(),
+                "--clipboard", "--out", out.toString() }, err);
+
+        assertEquals(HeadlessCli.EXIT_FAILURE, exit);
+        assertTrue(new String(Files.readAllBytes(out), StandardCharsets.UTF_8).contains("secondo"));
+        assertTrue(errors().contains("clipboard"), errors());
+    }
+}
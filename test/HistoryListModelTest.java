@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.collections.ListChangeListener;
+
+import org.junit.jupiter.api.Test;
+
+class HistoryListModelTest {
+
+    private final ClipboardHistoryIndex index = new ClipboardHistoryIndex(null, 3, 1_000_000, 1_000_000);
+    private final HistoryListModel model = new HistoryListModel(index);
+    private final List<String> changes = new ArrayList<>();
+
+    HistoryListModelTest() {
+        model.addListener((ListChangeListener<ClipboardHistoryIndex.Item>) change -> {
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    changes.add("-" + change.getFrom() + "x" + change.getRemovedSize());
+                }
+                if (change.wasAdded()) {
+                    changes.add("+" + change.getFrom() + "x" + change.getAddedSize());
+                }
+            }
+        });
+    }
+
+    private List<String> texts() throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (ClipboardHistoryIndex.Item item : model) {
+            texts.add(item.getText());
+        }
+        return texts;
+    }
+
+    @Test
+    void capturedItemsAreAddedOnTopOnlyOnSync() throws Exception {
+        index.add("uno", 1);
+        model.sync();
+        index.add("due", 2);
+
+        // Finché non viene sincronizzato l'elenco resta quello di prima
+        assertEquals(1, model.size());
+        assertEquals(Arrays.asList("uno"), texts());
+
+        model.sync();
+        assertEquals(Arrays.asList("due", "uno"), texts());
+        assertEquals(Arrays.asList("+0x1", "+0x1"), changes);
+    }
+
+    @Test
+    void itemsLeavingTheIndexAreRemovedFromTheBottom() throws Exception {
+        index.add("uno", 1);
+        index.add("due", 2);
+        index.add("tre", 3);
+        model.sync();
+        ClipboardHistoryIndex.Item due = model.get(1);
+        changes.clear();
+
+        // L'indice tiene al massimo tre elementi: "uno" e "due" escono
+        index.add("quattro", 4);
+        index.add("cinque", 5);
+        model.sync();
+
+        assertEquals(Arrays.asList("cinque", "quattro", "tre"), texts());
+        // Le modifiche arrivano in ordine di posizione: prima le aggiunte in cima, poi le rimozioni in fondo
+        assertEquals(Arrays.asList("+0x2", "-3x2"), changes);
+        assertEquals(-1, model.indexOf(due));
+        assertSame(model.get(2), index.find(model.get(2).getId()));
+        assertEquals(2, model.indexOf(model.get(2)));
+    }
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class KeystrokeCompilerTest {
+
+    private static final long GAP = 5;
+
+    private final RecordingKeyEmitter emitter = new RecordingKeyEmitter();
+    private final KeystrokeExecutor executor = new KeystrokeExecutor(emitter, step -> new FakeReadinessProbe());
+
+    private static String press(int keyCode) {
+        return "+" + KeyEvent.getKeyText(keyCode);
+    }
+
+    private static String release(int keyCode) {
+        return "-" + KeyEvent.getKeyText(keyCode);
+    }
+
+    private List<String> run(KeystrokeProgram program) throws InterruptedException {
+        executor.execute(program);
+        return emitter.getEvents();
+    }
+
+    @Test
+    void chordHasAGapAfterEachEventExceptBeforeTheWait() throws Exception {
+        KeystrokeCompiler compiler = new KeystrokeCompiler(GAP, new TextInjector(KeyboardLayout.minimal()));
+
+        List<String> events = run(compiler.appendSelectAll(compiler.builder()).build());
+
+        assertEquals(Arrays.asList(press(KeyEvent.VK_CONTROL), "~5", press(KeyEvent.VK_A), "~5",
+                release(KeyEvent.VK_A), "~5", release(KeyEvent.VK_CONTROL)), events);
+    }
+
+    @Test
+    void explicitSleepAbsorbsTheEventGap() throws Exception {
+        KeystrokeProgram program = new KeystrokeProgram.Builder(GAP)
+                .tap(KeyEvent.VK_A).sleep(100).sleep(20).tap(KeyEvent.VK_B).build();
+
+        assertEquals(Arrays.asList(press(KeyEvent.VK_A), "~5", release(KeyEvent.VK_A), "~120",
+                press(KeyEvent.VK_B), "~5", release(KeyEvent.VK_B), "~5"), run(program));
+    }
+
+    @Test
+    void separatorIsPastedWithoutALayoutAndTypedWithOne() throws Exception {
+        KeystrokeCompiler pasting = new KeystrokeCompiler(GAP, new TextInjector(KeyboardLayout.minimal()));
+        List<String> pasted = run(pasting.appendText(pasting.builder(), "---").build());
+
+        // Dopo l'incolla gli appunti dell'utente vengono ripristinati
+        assertEquals(Arrays.asList("=---", press(KeyEvent.VK_CONTROL), "~5", press(KeyEvent.VK_V), "~5",
+                release(KeyEvent.VK_V), "~5", release(KeyEvent.VK_CONTROL), "<"), pasted);
+
+        emitter.clear();
+        KeystrokeCompiler typing = new KeystrokeCompiler(GAP, new TextInjector(KeyboardLayout.forName("us")));
+        List<String> typed = run(typing.appendText(typing.builder(), "---").build());
+
+        assertEquals(3, Collections.frequency(typed, press(KeyEvent.VK_MINUS)));
+        assertEquals(0, Collections.frequency(typed, "=---"));
+    }
+
+    @Test
+    void compiledPlanOpensTheHistoryAndNavigatesToEachItem() throws Exception {
+        KeystrokePlanner planner = new KeystrokePlanner(new KeystrokeCostModel(GAP));
+        planner.setSelectAndCopy(false);
+        KeystrokePlan plan = planner.plan(3, KeystrokePlanner.Order.OLDEST_FIRST, false, true);
+        KeystrokeCompiler compiler = new KeystrokeCompiler(GAP, planner.getTextInjector());
+
+        List<String> events = run(compiler.compile(plan, true));
+
+        // Un Win+V per elemento; dalla cima della lista 2 + 1 + 0 frecce giù
+        assertEquals(3, Collections.frequency(events, press(KeyEvent.VK_WINDOWS)));
+        assertEquals(3, Collections.frequency(events, press(KeyEvent.VK_DOWN)));
+        // Invio sull'elemento e Invio per andare a capo
+        assertEquals(6, Collections.frequency(events, press(KeyEvent.VK_ENTER)));
+        assertEquals(Collections.frequency(events, press(KeyEvent.VK_WINDOWS)),
+                Collections.frequency(events, release(KeyEvent.VK_WINDOWS)));
+    }
+}
@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.event.KeyEvent;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ReadinessProbeTest {
+
+    @Test
+    void expiredProbeIsCountedAndTheAutomationContinues() throws Exception {
+        RecordingKeyEmitter emitter = new RecordingKeyEmitter();
+        ClipboardAutomation automation = new ClipboardAutomation(emitter);
+        FakeReadinessProbe probe = new FakeReadinessProbe(false, true);
+        automation.setReadinessProbe(AutomationStep.SELECT_ALL, probe);
+
+        automation.selectAll();
+        automation.selectAll();
+
+        assertEquals(2, probe.getArmCount());
+        assertEquals(2, probe.getAwaitCount());
+        assertEquals(1, automation.getProbeTimeouts());
+        // Alla scadenza si prosegue come con la pausa fissa: anche il secondo Ctrl+A viene premuto
+        List<String> events = emitter.getEvents();
+        assertEquals(2, Collections.frequency(events, "+" + KeyEvent.getKeyText(KeyEvent.VK_A)));
+    }
+
+    @Test
+    void removedProbeFallsBackToTheDefaultFixedDelay() {
+        ClipboardAutomation automation = new ClipboardAutomation(new RecordingKeyEmitter());
+        automation.setReadinessProbe(AutomationStep.COPY, new FakeReadinessProbe());
+        automation.setReadinessProbe(AutomationStep.COPY, null);
+
+        ReadinessProbe probe = automation.getReadinessProbe(AutomationStep.COPY);
+        assertTrue(probe instanceof FixedDelayProbe);
+        assertEquals(AutomationStep.COPY.getDefaultDelayMillis(), ((FixedDelayProbe) probe).getMilliseconds());
+    }
+
+    @Test
+    void conditionProbeExpiresWhenTheConditionNeverHolds() throws Exception {
+        assertFalse(new ConditionProbe(() -> false, 0, 1).await());
+    }
+
+    @Test
+    void conditionProbeReturnsAsSoonAsTheConditionHolds() throws Exception {
+        int[] checks = new int[1];
+        ConditionProbe probe = new ConditionProbe(() -> ++checks[0] >= 3, 60_000, 1);
+
+        assertTrue(probe.await());
+        assertEquals(3, checks[0]);
+    }
+}
@@ -0,0 +1,39 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class SpoolOutputSinkTest {
+
+    @Test
+    void deletedSpoolFilesLeaveTheExitList() throws Exception {
+        int live = TemporaryFiles.size();
+        SpoolOutputSink spool = new SpoolOutputSink(4);
+
+        spool.write("oltre la soglia");
+        Path file = spool.getFile();
+        assertTrue(Files.exists(file));
+        assertEquals(live + 1, TemporaryFiles.size());
+        assertEquals("oltre la soglia", spool.getText());
+
+        spool.delete();
+        assertFalse(Files.exists(file));
+        assertEquals(live, TemporaryFiles.size());
+    }
+
+    @Test
+    void shortTextStaysInMemory() throws Exception {
+        int live = TemporaryFiles.size();
+        SpoolOutputSink spool = new SpoolOutputSink(64);
+
+        spool.write("breve");
+
+        assertFalse(spool.isSpooled());
+        assertEquals(live, TemporaryFiles.size());
+        spool.delete();
+    }
+}
@@ -0,0 +1,24 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TextInjectorTest {
+
+    @Test
+    void withoutALayoutOnlyLayoutIndependentKeysAreTyped() {
+        TextInjector injector = new KeystrokePlanner(new KeystrokeCostModel(2)).getTextInjector();
+
+        assertTrue(injector.shouldUseClipboard("\n---\n\n"));
+        assertTrue(injector.shouldUseClipboard("abc"));
+        assertFalse(injector.shouldUseClipboard("\n \t"));
+    }
+
+    @Test
+    void configuredLayoutTypesTheSeparator() {
+        TextInjector injector = new TextInjector(KeyboardLayout.forName("us"));
+
+        assertFalse(injector.shouldUseClipboard("\n---\n\n"));
+        assertTrue(injector.shouldUseClipboard("città"));
+    }
+}
@@ -0,0 +1,51 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TimingProfileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void historyBehaviourIsSavedAndAppliedToThePlanner() throws Exception {
+        Path file = directory.resolve(TimingProfile.FILE_NAME);
+        new TimingProfile(TimingProfile.currentMachine(), 1, 2,
+                Collections.singletonMap(AutomationStep.SELECT_ALL, 40L))
+                .withHistory(true, 25, KeystrokePlanner.Order.NEWEST_FIRST)
+                .withKeyboardLayout("it")
+                .save(file);
+
+        TimingProfile profile = TimingProfile.load(file);
+        assertTrue(profile.isRetainsCursor());
+        assertEquals(25, profile.getHistorySize());
+        assertEquals(KeystrokePlanner.Order.NEWEST_FIRST, profile.getPasteOrder());
+        assertEquals(40L, profile.stepMillis(AutomationStep.SELECT_ALL));
+        assertEquals("it", profile.getKeyboardLayout());
+
+        KeystrokePlanner planner = new KeystrokePlanner(new KeystrokeCostModel(2));
+        planner.setRetainsCursor(profile.isRetainsCursor());
+        int retained = arrows(planner.plan(20, profile.getPasteOrder(), false, false));
+        planner.setRetainsCursor(false);
+        int fromTop = arrows(planner.plan(20, profile.getPasteOrder(), false, false));
+
+        // Dal cursore mantenuto basta una freccia per elemento; dall'inizio servono 0 + 1 + ... + 19
+        assertEquals(19, retained);
+        assertEquals(190, fromTop);
+    }
+
+    private static int arrows(KeystrokePlan plan) {
+        int arrows = 0;
+        for (KeystrokePlan.Step step : plan.getSteps()) {
+            if (step.getKind() == KeystrokePlan.Kind.NAVIGATE) {
+                arrows += step.getRepeat();
+            }
+        }
+        return arrows;
+    }
+}
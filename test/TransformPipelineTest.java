@@ -0,0 +1,80 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class TransformPipelineTest {
+
+    /**
+     * Aggiunge il nome della trasformazione e ricorda i thread che l'hanno eseguita
+     */
+    private static final class MarkingStage extends TransformStage {
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        MarkingStage(String name) {
+            super(name);
+        }
+
+        @Override
+        public String apply(String text) {
+            threads.add(Thread.currentThread());
+            return text + "|" + getName();
+        }
+    }
+
+    private static String entry(int i, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, (char) ('a' + i % 26));
+        return i + ":" + new String(chars);
+    }
+
+    @Test
+    void largeInputSplitAcrossTasksKeepsItsOrder() {
+        // 200 elementi da 1000 caratteri: ben oltre la soglia di un solo task
+        List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(entry(i, 1000));
+        }
+        MarkingStage first = new MarkingStage("uno");
+        MarkingStage second = new MarkingStage("due");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TransformPipeline pipeline = new TransformPipeline(Arrays.<TransformStage>asList(first, second), pool);
+
+            List<String> result = pipeline.apply(entries);
+
+            assertEquals(entries.size(), result.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals(entries.get(i) + "|uno|due", result.get(i));
+            }
+            assertTrue(first.threads.stream().noneMatch(t -> t == Thread.currentThread()));
+            assertEquals(Arrays.asList("uno", "due"), new ArrayList<>(pipeline.getLastStageNanos().keySet()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void stagesApplyInOrderToEveryEntry() {
+        TransformPipeline pipeline = new TransformPipeline(TransformStage.filterLines("x"), TransformStage.trim());
+
+        assertEquals(Arrays.asList("x1\nx2", "", "x"),
+                pipeline.apply(Arrays.asList(" x1 \r\ny\r\nx2\r\n", "y\n", "x")));
+    }
+
+    @Test
+    void emptyPipelineReturnsTheEntriesUnchanged() {
+        List<String> entries = Collections.singletonList("uno");
+
+        assertSame(entries, TransformPipeline.empty().apply(entries));
+    }
+}
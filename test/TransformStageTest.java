@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class TransformStageTest {
+
+    @Test
+    void trimRemovesTrailingSpacesOnEveryLineAndAroundTheEntry() {
+        TransformStage trim = TransformStage.trim();
+
+        assertEquals("uno\n  due\ntre", trim.apply("  uno  \r\n  due\t\r\ntre \r\n"));
+        assertEquals("uno\ndue", trim.apply("uno \ndue\n"));
+        assertEquals("", trim.apply(" \r\n \r\n"));
+    }
+
+    @Test
+    void uniqueTreatsCrLfAsLfAndKeepsTheTrailingNewline() {
+        TransformStage unique = TransformStage.uniqueLines();
+
+        assertEquals("a\nb\n", unique.apply("a\r\nb\r\na\r\n"));
+        assertEquals("a\nb\n", unique.apply("a\nb\nb\n"));
+        assertEquals("a\nb", unique.apply("a\r\nb\r\nb"));
+        // Le righe vuote contano come le altre
+        assertEquals("a\n\nb\n", unique.apply("a\n\nb\n\n"));
+    }
+
+    @Test
+    void filterKeepsMatchingLinesWithoutLineBreaksInThem() {
+        TransformStage filter = TransformStage.filterLines("^err");
+
+        assertEquals("errore 1\nerrore 2\n", filter.apply("errore 1\r\ninfo\r\nerrore 2\r\n"));
+        assertEquals("errore", filter.apply("info\nerrore"));
+        // Nessuna riga tenuta: niente a capo finale
+        assertEquals("", filter.apply("info\r\n"));
+        // L'ultima riga non deve conservare il '\r' prima dell'a capo finale
+        assertEquals("fine\n", TransformStage.filterLines("e$").apply("fine\r\nfinale!\r\n"));
+    }
+
+    @Test
+    void sortOrdersLinesAndKeepsTheTrailingNewline() {
+        assertEquals("a\nb\nc\n", TransformStage.sortLines().apply("c\r\na\r\nb\r\n"));
+    }
+
+    @Test
+    void parseRecognisesEverySpecification() {
+        assertEquals("trim", TransformStage.parse("trim").getName());
+        assertEquals("unique", TransformStage.parse("unique").getName());
+        assertEquals("sort", TransformStage.parse("sort").getName());
+        assertEquals("json", TransformStage.parse("json").getName());
+        assertEquals("filter", TransformStage.parse("filter:x+").getName());
+        assertThrows(IllegalArgumentException.class, () -> TransformStage.parse("nessuna"));
+        assertThrows(IllegalArgumentException.class, () -> TransformStage.parse("filter:("));
+    }
+}